@@ -168,6 +168,19 @@ public interface Context
      * This is a read-only attribute to query that whether the output of the operator from multiple instances is being unified.
      */
     Attribute<Boolean> IS_OUTPUT_UNIFIED = new Attribute<Boolean>(false);
+    /**
+     * Attribute of output port to track the given number of the most frequent partition hashes of the tuples published
+     * to the buffer server along with the distribution of the partition hashes, which are reported in the port stats to
+     * find the keys that skew the load of the downstream partitions. 0 disables the tracking.
+     */
+    Attribute<Integer> HOT_KEY_COUNT = new Attribute<Integer>(0);
+    /**
+     * Attribute of output port to split the tuples of hot keys over the given number of consecutive partition hashes,
+     * and hence over up to that many downstream partitions. A key is hot when it takes more than the reciprocal of the
+     * fanout of the tuples of a window. The downstream operator has to produce partial results per key which its
+     * unifier merges. Requires {@link #HOT_KEY_COUNT}, 0 disables the split.
+     */
+    Attribute<Integer> HOT_KEY_SPLIT_FANOUT = new Attribute<Integer>(0);
     /**
      * Provide the codec which can be used to serialize or deserialize the data
      * that can be received on the port. If it is unspecified the engine may use
@@ -315,6 +328,13 @@ public interface Context
     Attribute<AutoMetric.DimensionsScheme> METRICS_DIMENSIONS_SCHEME = new Attribute<AutoMetric.DimensionsScheme>(new
         Object2String<AutoMetric.DimensionsScheme>());
 
+    /**
+     * Profile the operator by timing one in every so many tuples processed by its input ports along with every
+     * beginWindow, endWindow and checkpoint, and by accounting the bytes its thread allocates per window. The profile
+     * is reported in {@link Stats.OperatorStats#profileStats}. 0 disables profiling.
+     */
+    Attribute<Integer> PROFILING_SAMPLE_INTERVAL = new Attribute<Integer>(0);
+
     /**
      * Return the operator runtime id.
      *
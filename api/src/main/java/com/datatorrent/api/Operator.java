@@ -99,6 +99,71 @@ public interface Operator extends Component<OperatorContext>, GenericOperator
 
   }
 
+  /**
+   * A unifier whose result over several streaming windows can be computed from one partial aggregate per window.
+   * When such a unifier is used to slide over the last application windows, see
+   * {@link com.datatorrent.api.Context.OperatorContext#SLIDE_BY_WINDOW_COUNT}, the engine does not replay the cached
+   * tuples of all the windows through {@link #process(Object)}; it folds the tuples of every window into an
+   * accumulator, keeps only the accumulators of the windows in the sliding range and combines them when the range
+   * is complete.
+   *
+   * @param <T> Type of the tuple emitted by the output port which is being unified
+   * @param <A> Type of the accumulator
+   * @since 3.5.0
+   */
+  interface CombinableUnifier<T, A> extends Unifier<T>
+  {
+    /**
+     * @return an accumulator which has not seen any tuples
+     */
+    A createAccumulator();
+
+    /**
+     * Folds a tuple into an accumulator. The accumulator passed in may be modified and returned.
+     *
+     * @param accumulator the accumulator of the current window
+     * @param tuple the tuple
+     * @return the accumulator including the tuple
+     */
+    A accumulate(A accumulator, T tuple);
+
+    /**
+     * Combines the accumulators of two adjacent ranges of windows. The operation needs to be associative, and since the
+     * accumulators may be combined again later it must not modify them.
+     *
+     * @param older the accumulator of the older windows
+     * @param newer the accumulator of the newer windows
+     * @return the accumulator of both ranges
+     */
+    A merge(A older, A newer);
+
+    /**
+     * @param accumulator the accumulator of all the windows in the sliding range
+     * @return the tuple to emit for the sliding range, or null to emit nothing
+     */
+    T getOutput(A accumulator);
+  }
+
+  /**
+   * A {@link CombinableUnifier} whose merge can be undone. The engine then maintains a single running accumulator
+   * for the sliding range and subtracts the accumulator of a window when it leaves the range.
+   *
+   * @param <T> Type of the tuple emitted by the output port which is being unified
+   * @param <A> Type of the accumulator
+   * @since 3.5.0
+   */
+  interface InvertibleUnifier<T, A> extends CombinableUnifier<T, A>
+  {
+    /**
+     * Removes the oldest windows from an accumulator. It must not modify the accumulators passed in.
+     *
+     * @param accumulator the accumulator of a range of windows
+     * @param evicted the accumulator of the oldest windows of that range
+     * @return the accumulator of the remaining windows
+     */
+    A subtract(A accumulator, A evicted);
+  }
+
   /**
    * DelayOperator is an operator of which the outgoing streaming window id is incremented by *one* by the
    * engine, thus allowing loops in the "DAG". The output ports of a DelayOperator, if connected, *must*
@@ -22,6 +22,7 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.datatorrent.api.Operator.InputPort;
 import com.datatorrent.api.StatsListener.BatchedOperatorStats;
@@ -177,5 +178,18 @@ public interface Partitioner<T>
     List<InputPort<?>> getInputPorts();
   }
 
+  /**
+   * Partitioning context of a partitioner which coordinates its repartitions with the other partitioners of the
+   * application.
+   */
+  public interface CoordinatedPartitioningContext extends PartitioningContext
+  {
+    /**
+     * Repartitions requested by the partitioners of the application and not completed yet.
+     * @return counter shared by all the partitioners of the application.
+     */
+    AtomicInteger getInFlightRepartitions();
+  }
+
 
 }
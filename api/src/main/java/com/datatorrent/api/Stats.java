@@ -20,6 +20,7 @@ package com.datatorrent.api;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Map;
 
 /**
@@ -48,6 +49,148 @@ public interface Stats extends Serializable
     }
   }
 
+  /**
+   * Profile of an operator collected when {@link Context.OperatorContext#PROFILING_SAMPLE_INTERVAL} is set. The
+   * histograms cover the period since the previous report.
+   */
+  class ProfileStats implements Stats
+  {
+    /**
+     * nanoseconds taken by the input ports to process the sampled tuples
+     */
+    public Histogram processTime = new Histogram();
+    public Histogram beginWindowTime = new Histogram();
+    public Histogram endWindowTime = new Histogram();
+    /**
+     * nanoseconds the operator thread spent checkpointing the operator
+     */
+    public Histogram checkpointTime = new Histogram();
+    /**
+     * bytes allocated by the operator thread per streaming window, empty if the JVM does not account for them
+     */
+    public Histogram allocatedBytes = new Histogram();
+
+    @Override
+    public String toString()
+    {
+      return "ProfileStats{" + "processTime=" + processTime + ", beginWindowTime=" + beginWindowTime +
+          ", endWindowTime=" + endWindowTime + ", checkpointTime=" + checkpointTime + ", allocatedBytes=" +
+          allocatedBytes + '}';
+    }
+
+    private static final long serialVersionUID = 201610191130L;
+  }
+
+  /**
+   * Histogram of non negative values, such as latencies. The buckets are exact up to 16 and cover an eighth of a power
+   * of two each above, so the reported percentiles are within 12.5% of the recorded values regardless of their
+   * magnitude, at a cost of at most 8 buckets for every power of two.
+   */
+  class Histogram implements Stats
+  {
+    private static final int EXACT_BUCKETS = 16;
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    public long[] counts = new long[0];
+    public long count;
+    public long sum;
+    public long max;
+
+    public void record(long value)
+    {
+      if (value < 0) {
+        value = 0;
+      }
+      int bucket = getBucket(value);
+      if (bucket >= counts.length) {
+        counts = Arrays.copyOf(counts, bucket + 1);
+      }
+      counts[bucket]++;
+      count++;
+      sum += value;
+      if (value > max) {
+        max = value;
+      }
+    }
+
+    public void merge(Histogram other)
+    {
+      if (other.counts.length > counts.length) {
+        counts = Arrays.copyOf(counts, other.counts.length);
+      }
+      for (int i = other.counts.length; i-- > 0;) {
+        counts[i] += other.counts[i];
+      }
+      count += other.count;
+      sum += other.sum;
+      if (other.max > max) {
+        max = other.max;
+      }
+    }
+
+    /**
+     * Clears the recorded values, keeping the buckets allocated so far.
+     */
+    public void reset()
+    {
+      Arrays.fill(counts, 0);
+      count = 0;
+      sum = 0;
+      max = 0;
+    }
+
+    /**
+     * @param percentile percentile between 0 and 100
+     * @return upper bound of the bucket holding the percentile, 0 if nothing was recorded
+     */
+    public long getPercentile(double percentile)
+    {
+      long rank = (long)Math.ceil(percentile / 100 * count);
+      long cumulative = 0;
+      for (int i = 0; i < counts.length; i++) {
+        cumulative += counts[i];
+        if (cumulative >= rank && cumulative > 0) {
+          return Math.min(getLowerBound(i + 1) - 1, max);
+        }
+      }
+      return max;
+    }
+
+    public double getMean()
+    {
+      return count == 0 ? 0 : (double)sum / count;
+    }
+
+    static int getBucket(long value)
+    {
+      if (value < EXACT_BUCKETS) {
+        return (int)value;
+      }
+      int exponent = 63 - Long.numberOfLeadingZeros(value);
+      int subBucket = (int)(value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+      return EXACT_BUCKETS + (exponent - 4) * SUB_BUCKETS + subBucket;
+    }
+
+    static long getLowerBound(int bucket)
+    {
+      if (bucket < EXACT_BUCKETS) {
+        return bucket;
+      }
+      int exponent = (bucket - EXACT_BUCKETS) / SUB_BUCKETS + 4;
+      long subBucket = (bucket - EXACT_BUCKETS) % SUB_BUCKETS;
+      return (SUB_BUCKETS + subBucket) << (exponent - SUB_BUCKET_BITS);
+    }
+
+    @Override
+    public String toString()
+    {
+      return "Histogram{" + "count=" + count + ", p50=" + getPercentile(50) + ", p99=" + getPercentile(99) + ", max=" +
+          max + '}';
+    }
+
+    private static final long serialVersionUID = 201610190914L;
+  }
+
   public static class OperatorStats implements Stats
   {
     public long windowId;
@@ -62,24 +205,66 @@ public interface Stats extends Serializable
     @Deprecated
     public Object counters;
     public Map<String, Object> metrics;
+    /**
+     * Milliseconds from the injection of the latency markers by the input operators, keyed by the ids of the input
+     * operators, to their arrival at the operator since the previous report. Null if no marker arrived.
+     */
+    public Map<Integer, Histogram> pathLatencies;
+    /**
+     * Timings and allocations of the operator since the previous heartbeat, reported with the last window of each
+     * heartbeat. Null for the other windows and unless the operator is profiled.
+     */
+    public ProfileStats profileStats;
 
     /**
      * If there is a recording on the operator, this contains the recording id, otherwise null
      */
     public String recordingId;
+    /**
+     * Data tuples the recording on the operator dropped because of its rate limit or its full queue so far
+     */
+    public long recordingDroppedTuples;
+    /**
+     * Data tuples the recording on the operator skipped because of sampling so far
+     */
+    public long recordingSkippedTuples;
 
     public static class PortStats implements Stats
     {
       private static final long serialVersionUID = 201309131906L;
+      public static final int PARTITION_HASH_BITS = 8;
       public final String id;
       public int tupleCount;
       public long endWindowTimestamp;
       public long bufferServerBytes;
       public int queueSize;
+      /**
+       * Milliseconds the latency markers took from the upstream operator to the port since the previous report, null if
+       * no marker arrived.
+       */
+      public Histogram queueLatency;
+      /**
+       * Estimated number of tuples of the most frequent partition hashes of the output port in the window, null unless
+       * hot keys are tracked on the port.
+       */
+      public Map<Integer, Long> hotKeys;
+      /**
+       * Number of tuples of the output port in the window by the lowest {@link #PARTITION_HASH_BITS} bits of their
+       * partition hash, null unless hot keys are tracked on the port.
+       */
+      public long[] partitionHashCounts;
       /**
        * If there is a recording on the port, this contains the recording id, otherwise null
        */
       public String recordingId;
+      /**
+       * Data tuples the recording on the port dropped because of its rate limit or its full queue so far
+       */
+      public long recordingDroppedTuples;
+      /**
+       * Data tuples the recording on the port skipped because of sampling so far
+       */
+      public long recordingSkippedTuples;
 
       public PortStats(String id)
       {
@@ -19,6 +19,9 @@
 package com.datatorrent.api;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Map;
 
 import com.datatorrent.api.Attribute.AttributeMap;
 
@@ -94,4 +97,75 @@ public interface StorageAgent
     public void setApplicationAttributes(AttributeMap map);
   }
 
+  /**
+   * Interface of storage agents whose {@link #load(int, long)} can be called concurrently from several threads. The
+   * checkpoints of the operators deployed together into a container are then loaded in parallel.
+   */
+  public interface ConcurrentLoadStorageAgent extends StorageAgent
+  {
+  }
+
+  /**
+   * Interface of storage agents which delete the checkpoints of several operators in one call, so that the checkpoints
+   * which are no longer needed are purged in bulk instead of one call per operator and window.
+   */
+  public interface BulkDeleteStorageAgent extends StorageAgent
+  {
+    /**
+     * Delete the artifacts of the given windows of each of the operators. Windows which are not saved are skipped.
+     *
+     * @param windowIds - Identifiers of the windows to delete by identifier of the operator.
+     * @return number of deleted windows
+     * @throws IOException
+     */
+    public int delete(Map<Integer, long[]> windowIds) throws IOException;
+  }
+
+  /**
+   * Interface of storage agents which also store the immutable files of the managed state of operators. A file is
+   * written once under a name chosen by the operator and is kept until it is deleted, independently of the
+   * checkpoints, so that an operator only stores the files it created since its previous checkpoint.
+   */
+  public interface StateFileStorageAgent extends StorageAgent
+  {
+    /**
+     * Create a file of the operator, replacing any file of the same name. The file is stored once the returned
+     * stream is closed.
+     *
+     * @param operatorId - Identifier of the operator.
+     * @param name - Name of the file.
+     * @return stream to write the content of the file to
+     * @throws IOException
+     */
+    public OutputStream createStateFile(int operatorId, String name) throws IOException;
+
+    /**
+     * Open a file previously stored for the operator.
+     *
+     * @param operatorId - Identifier of the operator.
+     * @param name - Name of the file.
+     * @return stream to read the content of the file from
+     * @throws IOException
+     */
+    public InputStream openStateFile(int operatorId, String name) throws IOException;
+
+    /**
+     * Delete a file of the operator.
+     *
+     * @param operatorId - Identifier of the operator.
+     * @param name - Name of the file.
+     * @throws IOException
+     */
+    public void deleteStateFile(int operatorId, String name) throws IOException;
+
+    /**
+     * Delete all files of the operator. Called once the operator was removed from the plan and no other operator
+     * can refer to its files any more.
+     *
+     * @param operatorId - Identifier of the operator.
+     * @throws IOException
+     */
+    public void deleteStateFiles(int operatorId) throws IOException;
+  }
+
 }
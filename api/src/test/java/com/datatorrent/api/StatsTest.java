@@ -0,0 +1,80 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.api;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ *
+ */
+public class StatsTest
+{
+  @Test
+  public void testHistogramBuckets()
+  {
+    for (long value = 0; value < 1L << 20; value++) {
+      int bucket = Stats.Histogram.getBucket(value);
+      assertTrue("lower bound of " + value, Stats.Histogram.getLowerBound(bucket) <= value);
+      assertTrue("upper bound of " + value, Stats.Histogram.getLowerBound(bucket + 1) > value);
+      assertTrue("precision of " + value, (Stats.Histogram.getLowerBound(bucket + 1) - 1 - value) * 8 <= value);
+    }
+    assertEquals("maximum", Stats.Histogram.getBucket(Long.MAX_VALUE), Stats.Histogram.getBucket(Long.MAX_VALUE - 1));
+  }
+
+  @Test
+  public void testHistogramPercentiles()
+  {
+    Stats.Histogram histogram = new Stats.Histogram();
+    assertEquals("empty", 0, histogram.getPercentile(99));
+
+    Stats.Histogram other = new Stats.Histogram();
+    for (int i = 1; i <= 1000; i++) {
+      (i % 2 == 0 ? histogram : other).record(i);
+    }
+    histogram.merge(other);
+
+    assertEquals("count", 1000, histogram.count);
+    assertEquals("max", 1000, histogram.max);
+    assertEquals("mean", 500.5, histogram.getMean(), 0.0);
+    assertEquals("p100", 1000, histogram.getPercentile(100));
+    long median = histogram.getPercentile(50);
+    assertTrue("median " + median, median >= 500 && median <= 500 * 9 / 8);
+    long p99 = histogram.getPercentile(99);
+    assertTrue("p99 " + p99, p99 >= 990 && p99 <= 1000);
+  }
+
+  @Test
+  public void testHistogramReset()
+  {
+    Stats.Histogram histogram = new Stats.Histogram();
+    histogram.record(1000);
+    histogram.reset();
+    assertEquals("count", 0, histogram.count);
+    assertEquals("max", 0, histogram.max);
+    assertEquals("empty", 0, histogram.getPercentile(99));
+
+    histogram.record(10);
+    assertEquals("count", 1, histogram.count);
+    assertEquals("p99", 10, histogram.getPercentile(99));
+  }
+
+}
@@ -18,11 +18,18 @@
  */
 package com.datatorrent.bufferserver.client;
 
+import java.io.IOException;
+import java.nio.channels.SelectionKey;
 import java.util.Collection;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.datatorrent.bufferserver.packet.MessageType;
+import com.datatorrent.bufferserver.packet.SharedMemoryTuple;
+import com.datatorrent.bufferserver.packet.Tuple;
+import com.datatorrent.bufferserver.util.SharedMemoryRing;
+
 import static com.datatorrent.bufferserver.packet.SubscribeRequestTuple.getSerializedRequest;
 
 /**
@@ -38,7 +45,15 @@ import static com.datatorrent.bufferserver.packet.SubscribeRequestTuple.getSeria
  */
 public abstract class Subscriber extends AuthClient
 {
+  private static final int SHARED_MEMORY_BLOCK_SIZE = 64 * 1024;
   private final String id;
+  private SharedMemoryRing sharedMemory;
+  /**
+   * block the records are copied to from the ring, the handled records may still be referenced so it is only filled
+   * up and replaced, never overwritten
+   */
+  private byte[] sharedMemoryBlock;
+  private int sharedMemoryOffset;
 
   public Subscriber(String id)
   {
@@ -48,9 +63,80 @@ public abstract class Subscriber extends AuthClient
 
   public void activate(final String version, final String type, final String sourceId, final int mask,
       final Collection<Integer> partitions, final long windowId, final int bufferSize)
+  {
+    activate(version, type, sourceId, mask, partitions, windowId, bufferSize, false);
+  }
+
+  /**
+   * Subscribes to a stream. A subscriber asking for shared memory has to pass the messages it receives to
+   * {@link #handleSharedMemory(byte[], int, int)} first, the buffer server may still send the tuples over the
+   * connection if it does not support shared memory or is not on the same host.
+   */
+  public void activate(final String version, final String type, final String sourceId, final int mask,
+      final Collection<Integer> partitions, final long windowId, final int bufferSize, final boolean sharedMemory)
   {
     sendAuthenticate();
-    write(getSerializedRequest(version, id, type, sourceId, mask, partitions, windowId, bufferSize));
+    write(getSerializedRequest(version, id, type, sourceId, mask, partitions, windowId, bufferSize, sharedMemory));
+  }
+
+  /**
+   * Handles the shared memory messages of the buffer server. The announcement maps the ring and every cursor message
+   * passes the tuples written to the ring since the previous one to {@link #onMessage(byte[], int, int)}. Each tuple is
+   * copied once from the ring to the current block. The buffer server is told when it waits for the released space.
+   *
+   * @return true if the message was a shared memory message
+   */
+  protected boolean handleSharedMemory(byte[] buffer, int offset, int size)
+  {
+    if (buffer[offset] != MessageType.SHARED_MEMORY_VALUE) {
+      return false;
+    }
+
+    SharedMemoryTuple tuple = (SharedMemoryTuple)Tuple.getTuple(buffer, offset, size);
+    if (tuple.isAnnouncement()) {
+      try {
+        sharedMemory = SharedMemoryRing.open(tuple.getPath(), tuple.getCapacity());
+        logger.debug("{} reads from {}", this, sharedMemory);
+      } catch (IOException ex) {
+        throw new RuntimeException("Cannot map " + tuple, ex);
+      }
+    } else {
+      final long limit = tuple.getCursor();
+      int length;
+      while ((length = sharedMemory.nextLength(limit)) >= 0) {
+        if (sharedMemoryBlock == null || sharedMemoryBlock.length - sharedMemoryOffset < length) {
+          sharedMemoryBlock = new byte[Math.max(SHARED_MEMORY_BLOCK_SIZE, length)];
+          sharedMemoryOffset = 0;
+        }
+        sharedMemory.read(sharedMemoryBlock, sharedMemoryOffset, length);
+        onSharedMemoryRead(length + 4);
+        onMessage(sharedMemoryBlock, sharedMemoryOffset, length);
+        sharedMemoryOffset += length;
+      }
+      if (sharedMemory.release()) {
+        /* the buffer server waits for the space, it reads the messages of a subscriber with a two byte length */
+        byte[] release = SharedMemoryTuple.getSerializedRelease();
+        send(new byte[] {(byte)release.length, (byte)(release.length >> 8), release[0], release[1]});
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public void unregistered(SelectionKey key)
+  {
+    super.unregistered(key);
+    if (sharedMemory != null) {
+      sharedMemory.close();
+      sharedMemory = null;
+    }
+  }
+
+  /**
+   * Called with the number of bytes copied out of the shared memory ring before the tuple in them is handled.
+   */
+  protected void onSharedMemoryRead(int bytes)
+  {
   }
 
   @Override
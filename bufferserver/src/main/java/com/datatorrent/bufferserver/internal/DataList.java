@@ -20,11 +20,13 @@ package com.datatorrent.bufferserver.internal;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -131,6 +133,7 @@ public class DataList
           }
           this.baseSeconds = last.rewind(longWindowId);
           processingOffset = last.writingOffset;
+          last.indexedOffset = processingOffset;
           size = 0;
           break;
         }
@@ -248,6 +251,7 @@ public class DataList
       if (processingOffset + size <= writeOffset) {
         switch (last.data[processingOffset]) {
           case MessageType.BEGIN_WINDOW_VALUE:
+            last.index(last.indexedOffset);
             Tuple bwt = Tuple.getTuple(last.data, processingOffset, size);
             if (last.starting_window == -1) {
               last.starting_window = baseSeconds | bwt.getWindowId();
@@ -260,14 +264,22 @@ public class DataList
             break;
 
           case MessageType.RESET_WINDOW_VALUE:
+            last.index(last.indexedOffset);
             Tuple rwt = Tuple.getTuple(last.data, processingOffset, size);
             baseSeconds = (long)rwt.getBaseSeconds() << 32;
             break;
 
+          case MessageType.CHECKPOINT_VALUE:
+          case MessageType.CODEC_STATE_VALUE:
+          case MessageType.END_STREAM_VALUE:
+            last.index(last.indexedOffset);
+            break;
+
           default:
             break;
         }
         processingOffset += size;
+        last.indexedOffset = processingOffset;
         size = 0;
       } else {
         if (writeOffset == last.data.length) {
@@ -553,10 +565,29 @@ public class DataList
      * the next in the chain.
      */
     Block next;
+    /**
+     * offsets of the window and control tuples in the data array in ascending order, the payload tuples between them
+     * can be skipped when seeking to a window.
+     */
+    private int[] index = new int[16];
+    private int indexSize;
+    /**
+     * indexedOffset is the offset of the first byte after the last tuple added to the index.
+     */
+    int indexedOffset;
+    /**
+     * the readingOffset at the time the data was written to the backup storage, the retrieved data starts there.
+     */
+    private int storedOffset;
     /**
      * how count of references to this block.
      */
     private final AtomicInteger refCount;
+    /**
+     * connections which may still hold runs of tuples queued by reference into the data array with the offset of the
+     * oldest run, the array is not written to from there on until they drained.
+     */
+    final Map<PhysicalNode.SendQueue, Integer> pins = new ConcurrentHashMap<>();
     private Future<?> future;
 
     public Block(String id, int size)
@@ -591,12 +622,79 @@ public class DataList
       }
     }
 
+    synchronized void index(int offset)
+    {
+      if (indexSize == index.length) {
+        index = Arrays.copyOf(index, indexSize << 1);
+      }
+      index[indexSize++] = offset;
+    }
+
+    /**
+     * Finds the offset of the first indexed tuple at or after the given offset.
+     *
+     * @param offset offset of a tuple in the data array
+     * @return offset of the next indexed tuple or the end of the indexed data if there is none
+     */
+    synchronized int getNextIndexedOffset(int offset)
+    {
+      int low = 0;
+      int high = indexSize;
+      while (low < high) {
+        final int mid = (low + high) >>> 1;
+        if (index[mid] < offset) {
+          low = mid + 1;
+        } else {
+          high = mid;
+        }
+      }
+      return low < indexSize ? index[low] : indexedOffset;
+    }
+
+    /**
+     * Drops the index entries outside of [from, to) and optionally records a tuple restored in front of them.
+     *
+     * @param from offset of the first tuple to keep
+     * @param to offset after the last tuple to keep
+     * @param restoredOffset offset of a tuple to index ahead of the kept ones, negative if none
+     */
+    synchronized void trimIndex(int from, int to, int restoredOffset)
+    {
+      int size = 0;
+      if (restoredOffset >= 0) {
+        index[size++] = restoredOffset;
+      }
+      for (int i = 0; i < indexSize; i++) {
+        final int offset = index[i];
+        if (offset >= from && offset < to && offset > restoredOffset) {
+          index[size++] = offset;
+        }
+      }
+      indexSize = size;
+      if (indexedOffset > to) {
+        indexedOffset = to;
+      }
+    }
+
+    private synchronized void shiftIndex(int delta)
+    {
+      int size = 0;
+      for (int i = 0; i < indexSize; i++) {
+        final int offset = index[i] - delta;
+        if (offset >= 0) {
+          index[size++] = offset;
+        }
+      }
+      indexSize = size;
+      indexedOffset = Math.max(indexedOffset - delta, 0);
+    }
+
     public long rewind(long windowId)
     {
       long bs = starting_window & 0x7fffffff00000000L;
       try (DataListIterator dli = getIterator(this)) {
         done:
-        while (dli.hasNext()) {
+        for (dli.skipPayload(); dli.hasNext(); dli.skipPayload()) {
           final SerializedData sd = dli.next();
           final int length = sd.length - sd.dataOffset + sd.offset;
           switch (sd.buffer[sd.dataOffset]) {
@@ -632,23 +730,70 @@ public class DataList
         //logger.debug("assigned end window id {}", this);
       }
 
+      trimIndex(0, writingOffset, -1);
       discard(false);
 
       return bs;
     }
 
+    /**
+     * @return the offset of the oldest run of tuples queued by reference on a connection which did not drain yet,
+     * Integer.MAX_VALUE if there is none
+     */
+    private int getPinnedOffset()
+    {
+      int offset = Integer.MAX_VALUE;
+      for (Map.Entry<PhysicalNode.SendQueue, Integer> pin : pins.entrySet()) {
+        if (pin.getValue() < offset && !pin.getKey().isSendQueueEmpty()) {
+          offset = pin.getValue();
+        }
+      }
+      return offset;
+    }
+
+    /**
+     * Restores the last reset tuple if there was any in front of the begin window tuple and moves the readingOffset to
+     * the beginning of the reset tuple.
+     */
+    private void purgeTo(SerializedData beginWindow, long windowId, SerializedData lastReset)
+    {
+      if (lastReset != null) {
+        if (beginWindow.offset >= lastReset.length) {
+          final int beginWindowOffset = beginWindow.offset;
+          beginWindow.offset -= lastReset.length;
+          trimIndex(beginWindowOffset, Integer.MAX_VALUE, beginWindow.offset);
+          if (!(beginWindow.buffer == lastReset.buffer && beginWindow.offset == lastReset.offset)) {
+            System.arraycopy(lastReset.buffer, lastReset.offset, beginWindow.buffer, beginWindow.offset,
+                lastReset.length);
+          }
+        }
+
+        this.starting_window = windowId;
+        this.readingOffset = beginWindow.offset;
+        //logger.debug("assigned starting window id {}", this);
+      }
+    }
+
     public void purge(long longWindowId)
     {
       //logger.debug("starting_window = {}, longWindowId = {}, ending_window = {}",
       //    VarInt.getStringWindowId(starting_window), VarInt.getStringWindowId(longWindowId),
       //    VarInt.getStringWindowId(ending_window));
+      /*
+       * purging restores the reset tuple and wipes the purged data in place, which would change tuples queued on a
+       * connection which were not written to the socket yet, so the purge stops at the oldest of them.
+       */
+      final int pinnedOffset = getPinnedOffset();
       boolean found = false;
       long bs = starting_window & 0xffffffff00000000L;
       SerializedData lastReset = null;
+      SerializedData lastBeginWindow = null;
+      SerializedData lastBeginWindowReset = null;
+      long lastBeginWindowId = 0;
 
       try (DataListIterator dli = getIterator(this)) {
         done:
-        while (dli.hasNext()) {
+        for (dli.skipPayload(); dli.hasNext(); dli.skipPayload()) {
           SerializedData sd = dli.next();
           final int length = sd.length - sd.dataOffset + sd.offset;
           switch (sd.buffer[sd.dataOffset]) {
@@ -659,28 +804,18 @@ public class DataList
               break;
 
             case MessageType.BEGIN_WINDOW_VALUE:
+              if (sd.offset > pinnedOffset) {
+                break done;
+              }
               BeginWindowTuple bwt = (BeginWindowTuple)Tuple.getTuple(sd.buffer, sd.dataOffset, length);
               if ((bs | bwt.getWindowId()) > longWindowId) {
                 found = true;
-                if (lastReset != null) {
-                  /*
-                   * Restore the last Reset tuple if there was any and adjust the writingOffset to the beginning of
-                   * the reset tuple.
-                   */
-                  if (sd.offset >= lastReset.length) {
-                    sd.offset -= lastReset.length;
-                    if (!(sd.buffer == lastReset.buffer && sd.offset == lastReset.offset)) {
-                      System.arraycopy(lastReset.buffer, lastReset.offset, sd.buffer, sd.offset, lastReset.length);
-                    }
-                  }
-
-                  this.starting_window = bs | bwt.getWindowId();
-                  this.readingOffset = sd.offset;
-                  //logger.debug("assigned starting window id {}", this);
-                }
-
+                purgeTo(sd, bs | bwt.getWindowId(), lastReset);
                 break done;
               }
+              lastBeginWindow = sd;
+              lastBeginWindowReset = lastReset;
+              lastBeginWindowId = bs | bwt.getWindowId();
               break;
 
             default:
@@ -694,17 +829,26 @@ public class DataList
        * it also makes sense to start all over.
        * It helps with better utilization of the RAM.
        */
-      if (!found) {
+      if (!found && pinnedOffset != Integer.MAX_VALUE) {
+        if (lastBeginWindow == null) {
+          logger.debug("Deferring purge of {} pinned at {}", this, pinnedOffset);
+        } else {
+          logger.debug("Purging {} up to the window queued at {}", this, pinnedOffset);
+          purgeTo(lastBeginWindow, lastBeginWindowId, lastBeginWindowReset);
+        }
+      } else if (!found) {
         //logger.debug("we could not find a tuple which is in a window later than the window to be purged, " +
         //    "so this has to be the last window published so far");
         if (lastReset != null && lastReset.offset != 0) {
           this.readingOffset = this.writingOffset - lastReset.length;
           System.arraycopy(lastReset.buffer, lastReset.offset, this.data, this.readingOffset, lastReset.length);
           this.starting_window = this.ending_window = bs;
+          trimIndex(this.writingOffset, Integer.MAX_VALUE, this.readingOffset);
           //logger.debug("=20140220= reassign the windowids {}", this);
         } else {
           this.readingOffset = this.writingOffset;
           this.starting_window = this.ending_window = longWindowId;
+          trimIndex(this.writingOffset, Integer.MAX_VALUE, -1);
           //logger.debug("=20140220= avoid the windowids {}", this);
         }
 
@@ -743,6 +887,8 @@ public class DataList
               Block.this.data = data;
               readingOffset = 0;
               writingOffset = data.length;
+              shiftIndex(storedOffset);
+              storedOffset = 0;
               Block.this.notifyAll();
               int numberOfInMemBlockPermits = DataList.this.numberOfInMemBlockPermits.decrementAndGet();
               if (numberOfInMemBlockPermits < 0) {
@@ -800,6 +946,7 @@ public class DataList
         public void run()
         {
           if (uniqueIdentifier == 0) {
+            storedOffset = readingOffset;
             uniqueIdentifier = storage.store(identifier, data, readingOffset, writingOffset);
           }
           if (uniqueIdentifier == 0) {
@@ -929,6 +1076,14 @@ public class DataList
       return readOffset;
     }
 
+    /**
+     * @return the block of the tuple last returned by {@link #next()}
+     */
+    Block getBlock()
+    {
+      return da;
+    }
+
     protected boolean switchToNextBlock()
     {
       Block next = getNextBlock(da);
@@ -1014,6 +1169,26 @@ public class DataList
       }
     }
 
+    /**
+     * Moves the iterator over the payload tuples following its position in the current block to the next window or
+     * control tuple using the index of the block, so that seeking to a window does not have to read every tuple.
+     *
+     * @return number of bytes skipped
+     */
+    public int skipPayload()
+    {
+      if (size != 0 || da == null) {
+        return 0;
+      }
+      final int offset = Math.min(da.getNextIndexedOffset(readOffset), da.writingOffset);
+      if (offset > readOffset) {
+        final int skipped = offset - readOffset;
+        readOffset = offset;
+        return skipped;
+      }
+      return 0;
+    }
+
     void rewind(int processingOffset)
     {
       readOffset = processingOffset;
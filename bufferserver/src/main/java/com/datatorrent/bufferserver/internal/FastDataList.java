@@ -68,6 +68,7 @@ public class FastDataList extends DataList
       if (processingOffset + size <= writeOffset) {
         switch (last.data[processingOffset]) {
           case MessageType.BEGIN_WINDOW_VALUE:
+            last.index(last.indexedOffset);
             Tuple btw = Tuple.getTuple(last.data, processingOffset, size);
             if (last.starting_window == -1) {
               last.starting_window = baseSeconds | btw.getWindowId();
@@ -78,14 +79,22 @@ public class FastDataList extends DataList
             break;
 
           case MessageType.RESET_WINDOW_VALUE:
+            last.index(last.indexedOffset);
             Tuple rwt = Tuple.getTuple(last.data, processingOffset, size);
             baseSeconds = (long)rwt.getBaseSeconds() << 32;
             break;
 
+          case MessageType.CHECKPOINT_VALUE:
+          case MessageType.CODEC_STATE_VALUE:
+          case MessageType.END_STREAM_VALUE:
+            last.index(last.indexedOffset);
+            break;
+
           default:
             break;
         }
         processingOffset += size;
+        last.indexedOffset = processingOffset;
         size = 0;
       } else {
         if (writeOffset == last.data.length) {
@@ -32,6 +32,7 @@ import com.datatorrent.bufferserver.policy.Policy;
 import com.datatorrent.bufferserver.util.BitVector;
 import com.datatorrent.bufferserver.util.Codec;
 import com.datatorrent.bufferserver.util.SerializedData;
+import com.datatorrent.bufferserver.util.SharedMemoryRing;
 import com.datatorrent.netlet.AbstractLengthPrependerClient;
 import com.datatorrent.netlet.EventLoop;
 
@@ -101,12 +102,29 @@ public class LogicalNode implements DataListener
    */
   public void addConnection(AbstractLengthPrependerClient connection)
   {
-    PhysicalNode pn = new PhysicalNode(connection);
+    addConnection(connection, null);
+  }
+
+  /**
+   *
+   * @param connection
+   * @param sharedMemory ring through which the tuples are sent to the connection, or null
+   */
+  public void addConnection(AbstractLengthPrependerClient connection, SharedMemoryRing sharedMemory)
+  {
+    PhysicalNode pn = new PhysicalNode(connection, sharedMemory, iterator);
     if (!physicalNodes.contains(pn)) {
       physicalNodes.add(pn);
     }
   }
 
+  private void flush()
+  {
+    for (PhysicalNode pn : physicalNodes) {
+      ready = pn.flush() & ready;
+    }
+  }
+
   /**
    *
    * @param client
@@ -116,6 +134,7 @@ public class LogicalNode implements DataListener
     for (PhysicalNode pn : physicalNodes) {
       if (pn.getClient() == client) {
         physicalNodes.remove(pn);
+        pn.unpin();
         break;
       }
     }
@@ -167,17 +186,23 @@ public class LogicalNode implements DataListener
       int intervalMillis;
 
       int skippedPayloadTuples = 0;
+      long skippedPayloadBytes = 0;
 
       try {
         /*
-         * fast forward to catch up with the windowId without consuming
+         * fast forward to catch up with the windowId without consuming, jumping over the payload the data list indexed
          */
         outer:
-        while (ready && iterator.hasNext()) {
+        while (ready) {
+          skippedPayloadBytes += iterator.skipPayload();
+          if (!iterator.hasNext()) {
+            break;
+          }
           SerializedData data = iterator.next();
           switch (data.buffer[data.dataOffset]) {
 
             case MessageType.PAYLOAD_VALUE:
+            case MessageType.PAYLOAD_FRAME_VALUE:
               ++skippedPayloadTuples;
               break;
 
@@ -196,7 +221,8 @@ public class LogicalNode implements DataListener
               logger.debug("{}->{} condition {} =? {}", upstream, group,
                   Codec.getStringWindowId(baseSeconds | tuple.getWindowId()), Codec.getStringWindowId(skipWindowId));
               if ((baseSeconds | tuple.getWindowId()) > skipWindowId) {
-                logger.debug("caught up {}->{} skipping {} payload tuples", upstream, group, skippedPayloadTuples);
+                logger.debug("caught up {}->{} skipping {} payload tuples and {} indexed payload bytes", upstream, group,
+                    skippedPayloadTuples, skippedPayloadBytes);
                 ready = GiveAll.getInstance().distribute(physicalNodes, data);
                 caughtup = true;
                 break outer;
@@ -218,6 +244,7 @@ public class LogicalNode implements DataListener
       } catch (InterruptedException ie) {
         throw new RuntimeException(ie);
       }
+      flush();
 
       if (iterator.hasNext()) {
         addedData();
@@ -241,6 +268,7 @@ public class LogicalNode implements DataListener
               SerializedData data = iterator.next();
               switch (data.buffer[data.dataOffset]) {
                 case MessageType.PAYLOAD_VALUE:
+                case MessageType.PAYLOAD_FRAME_VALUE:
                   ready = policy.distribute(physicalNodes, data);
                   break;
 
@@ -267,6 +295,7 @@ public class LogicalNode implements DataListener
               final int length = data.length - data.dataOffset + data.offset;
               switch (data.buffer[data.dataOffset]) {
                 case MessageType.PAYLOAD_VALUE:
+                case MessageType.PAYLOAD_FRAME_VALUE:
                   Tuple tuple = Tuple.getTuple(data.buffer, data.dataOffset, length);
                   int value = tuple.getPartition();
                   for (BitVector bv : partitions) {
@@ -296,11 +325,26 @@ public class LogicalNode implements DataListener
         } catch (InterruptedException ie) {
           throw new RuntimeException(ie);
         }
+        flush();
       } else {
         catchUp();
       }
     }
-    return !ready;
+    return !ready && !isAwaitingRelease();
+  }
+
+  /**
+   * @return whether all the blocked nodes wait for space in their shared memory rings, they are then retried once the
+   * subscriber released space rather than by polling
+   */
+  private boolean isAwaitingRelease()
+  {
+    for (PhysicalNode pn : physicalNodes) {
+      if (pn.isBlocked() && !pn.isAwaitingRelease()) {
+        return false;
+      }
+    }
+    return true;
   }
 
   /**
@@ -18,11 +18,17 @@
  */
 package com.datatorrent.bufferserver.internal;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.datatorrent.bufferserver.internal.DataList.Block;
+import com.datatorrent.bufferserver.internal.DataList.DataListIterator;
+import com.datatorrent.bufferserver.packet.SharedMemoryTuple;
 import com.datatorrent.bufferserver.util.SerializedData;
+import com.datatorrent.bufferserver.util.SharedMemoryRing;
 import com.datatorrent.netlet.AbstractLengthPrependerClient;
 
 /**
@@ -36,14 +42,70 @@ public class PhysicalNode
   private final long starttime;
   private final AbstractLengthPrependerClient client;
   private final long processedMessageCount;
+  private final SharedMemoryRing sharedMemory;
+  /**
+   * set when tuples were written to the shared memory ring which the subscriber has not been told about yet.
+   */
+  private boolean unannounced;
+  /**
+   * run of consecutive tuples of a data list block, length prefixes included, which is queued on the connection as a
+   * single reference into the block.
+   */
+  private byte[] runBuffer;
+  private int runOffset;
+  private int runLength;
+  /**
+   * block of the run, null if the run is not from the data list iterated by the node.
+   */
+  private Block runBlock;
+  /**
+   * iterator of the data list the tuples are sent from, null if the tuples are not from a data list.
+   */
+  private final DataListIterator iterator;
+  /**
+   * blocks pinned because runs of tuples were queued from them since the connection was last seen drained.
+   */
+  private final ArrayList<Block> pinnedBlocks = new ArrayList<>();
+
+  /**
+   * Connection which tells whether all the data queued on it was copied to the socket buffer, a block pinned by it
+   * can then be purged.
+   */
+  public interface SendQueue
+  {
+    boolean isSendQueueEmpty();
+
+  }
 
   /**
    *
    * @param client
    */
   public PhysicalNode(AbstractLengthPrependerClient client)
+  {
+    this(client, null);
+  }
+
+  /**
+   * @param client connection to the subscriber
+   * @param sharedMemory ring to write the tuples to instead of the connection, or null
+   */
+  public PhysicalNode(AbstractLengthPrependerClient client, SharedMemoryRing sharedMemory)
+  {
+    this(client, sharedMemory, null);
+  }
+
+  /**
+   * @param client connection to the subscriber
+   * @param sharedMemory ring to write the tuples to instead of the connection, or null
+   * @param iterator iterator of the data list the tuples are sent from, its blocks are pinned while runs of tuples are
+   * queued by reference into them
+   */
+  public PhysicalNode(AbstractLengthPrependerClient client, SharedMemoryRing sharedMemory, DataListIterator iterator)
   {
     this.client = client;
+    this.sharedMemory = sharedMemory;
+    this.iterator = iterator;
     starttime = System.currentTimeMillis();
     processedMessageCount = 0;
   }
@@ -75,12 +137,34 @@ public class PhysicalNode
 
   public boolean send(SerializedData d)
   {
+    if (sharedMemory != null) {
+      if (sharedMemory.write(d.buffer, d.dataOffset, d.offset + d.length - d.dataOffset)) {
+        unannounced = true;
+        return true;
+      }
+      /* let the subscriber drain the ring */
+      flush();
+      blocker = d;
+      return false;
+    }
+
     if (d.offset == d.dataOffset) {
-      if (client.write(d.buffer, d.offset, d.length)) {
+      if (sendRun() && client.write(d.buffer, d.offset, d.length)) {
         return true;
       }
     } else {
-      if (client.send(d.buffer, d.offset, d.length)) {
+      /*
+       * the tuple is stored with its length prefix, extend the run if it directly follows it in the same block
+       */
+      if (runLength > 0 && d.buffer == runBuffer && d.offset == runOffset + runLength) {
+        runLength += d.length;
+        return true;
+      }
+      if (sendRun()) {
+        runBuffer = d.buffer;
+        runOffset = d.offset;
+        runLength = d.length;
+        runBlock = iterator == null ? null : iterator.getBlock();
         return true;
       }
     }
@@ -89,15 +173,81 @@ public class PhysicalNode
     return false;
   }
 
+  /**
+   * Queues the run of tuples on the connection. The connection keeps a reference to the block memory and copies it to
+   * the socket only when the socket is writable, so the tuples are not copied for every subscriber they are sent to.
+   * The block is pinned until the connection drained, so that purging does not write to the queued part of it in the
+   * meantime. A run from a data list block which cannot be pinned is copied instead.
+   *
+   * @return false if the connection could not take the run
+   */
+  private boolean sendRun()
+  {
+    if (runLength == 0) {
+      return true;
+    }
+
+    unpinDrained();
+    byte[] buffer = runBuffer;
+    int offset = runOffset;
+    if (iterator != null && !pin(runBlock, runBuffer, runOffset)) {
+      buffer = Arrays.copyOfRange(runBuffer, runOffset, runOffset + runLength);
+      offset = 0;
+    }
+
+    if (client.send(buffer, offset, runLength)) {
+      runBuffer = null;
+      runBlock = null;
+      runLength = 0;
+      return true;
+    }
+
+    return false;
+  }
+
+  /**
+   * Pins the block at the offset of the oldest run queued from it since the connection was last seen drained, the runs
+   * are queued in the order of the data list.
+   */
+  private boolean pin(Block block, byte[] buffer, int offset)
+  {
+    if (block == null || block.data != buffer || !(client instanceof SendQueue)) {
+      return false;
+    }
+    if (!pinnedBlocks.contains(block)) {
+      block.pins.put((SendQueue)client, offset);
+      pinnedBlocks.add(block);
+    }
+    return true;
+  }
+
+  private void unpinDrained()
+  {
+    if (!pinnedBlocks.isEmpty() && ((SendQueue)client).isSendQueueEmpty()) {
+      unpin();
+    }
+  }
+
+  /**
+   * Unpins the blocks of the queued runs of tuples, called once the connection is removed.
+   */
+  public void unpin()
+  {
+    for (Block block : pinnedBlocks) {
+      block.pins.remove((SendQueue)client);
+    }
+    pinnedBlocks.clear();
+  }
+
   public boolean unblock()
   {
     if (blocker == null) {
-      return true;
+      return flush();
     }
 
     if (send(blocker)) {
       blocker = null;
-      return true;
+      return flush();
     }
 
     return false;
@@ -105,7 +255,34 @@ public class PhysicalNode
 
   public boolean isBlocked()
   {
-    return blocker != null;
+    return blocker != null || unannounced || runLength > 0;
+  }
+
+  /**
+   * @return whether the node only waits for the subscriber to release space in the shared memory ring, which the
+   * subscriber reports
+   */
+  public boolean isAwaitingRelease()
+  {
+    return sharedMemory != null && blocker != null && !unannounced && runLength == 0;
+  }
+
+  /**
+   * Queues the pending run of tuples on the connection and tells the subscriber reading from shared memory how far the
+   * ring was written.
+   *
+   * @return false if the connection could not take the run or the notification
+   */
+  public boolean flush()
+  {
+    if (!sendRun()) {
+      return false;
+    }
+    unpinDrained();
+    if (unannounced && client.write(SharedMemoryTuple.getSerializedCursor(sharedMemory.getWriteCursor()))) {
+      unannounced = false;
+    }
+    return !unannounced;
   }
 
   /**
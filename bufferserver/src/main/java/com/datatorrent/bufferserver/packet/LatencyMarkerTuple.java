@@ -0,0 +1,116 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.bufferserver.packet;
+
+import java.util.Arrays;
+
+import com.datatorrent.netlet.util.VarInt;
+
+/**
+ * <p>LatencyMarkerTuple class.</p>
+ *
+ * Control tuple injected by input operators which travels in band with the payload. It carries the id of the operator
+ * which injected it and the time it did so, along with the time the last operator on its path forwarded it. The buffer
+ * server forwards it to the subscribers which are caught up like any other control tuple.
+ *
+ * @since 3.5.0
+ */
+public class LatencyMarkerTuple extends WindowIdTuple
+{
+  public LatencyMarkerTuple(byte[] array, int offset, int length)
+  {
+    super(array, offset, length);
+  }
+
+  @Override
+  public MessageType getType()
+  {
+    return MessageType.LATENCY_MARKER;
+  }
+
+  private int getTimestampOffset()
+  {
+    int dataOffset = offset + 1;
+    while (buffer[dataOffset++] < 0) {
+    }
+    return dataOffset;
+  }
+
+  /**
+   * @return milliseconds at which the input operator injected the marker
+   */
+  public long getOriginTimestamp()
+  {
+    return readLong(buffer, getTimestampOffset());
+  }
+
+  /**
+   * @return milliseconds at which the previous operator on the path forwarded the marker
+   */
+  public long getForwardTimestamp()
+  {
+    return readLong(buffer, getTimestampOffset() + 8);
+  }
+
+  /**
+   * @return id of the input operator which injected the marker
+   */
+  public int getSourceId()
+  {
+    return readVarInt(getTimestampOffset() + 16, offset + length);
+  }
+
+  @Override
+  public String toString()
+  {
+    return "LatencyMarkerTuple{" + Integer.toHexString(getWindowId()) + ", source=" + getSourceId() + ", origin=" +
+        getOriginTimestamp() + ", forward=" + getForwardTimestamp() + '}';
+  }
+
+  private static long readLong(byte[] buffer, int offset)
+  {
+    long value = 0;
+    for (int i = offset; i < offset + 8; i++) {
+      value = value << 8 | (buffer[i] & 0xff);
+    }
+    return value;
+  }
+
+  private static int writeLong(long value, byte[] buffer, int offset)
+  {
+    for (int i = offset + 8; i-- > offset;) {
+      buffer[i] = (byte)value;
+      value >>>= 8;
+    }
+    return offset + 8;
+  }
+
+  public static byte[] getSerializedTuple(int windowId, int sourceId, long originTimestamp, long forwardTimestamp)
+  {
+    byte[] array = new byte[32];
+    int offset = 0;
+    array[offset++] = MessageType.LATENCY_MARKER_VALUE;
+    offset = VarInt.write(windowId, array, offset);
+    offset = writeLong(originTimestamp, array, offset);
+    offset = writeLong(forwardTimestamp, array, offset);
+    offset = VarInt.write(sourceId, array, offset);
+    return Arrays.copyOfRange(array, 0, offset);
+  }
+
+}
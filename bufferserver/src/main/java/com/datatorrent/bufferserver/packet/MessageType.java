@@ -37,6 +37,9 @@ public enum MessageType
   RESET_REQUEST(9),
   CHECKPOINT(10),
   CODEC_STATE(11),
+  PAYLOAD_FRAME(12),
+  SHARED_MEMORY(13),
+  LATENCY_MARKER(14),
   NO_MESSAGE_ODD(127);
 
   public static final byte NO_MESSAGE_VALUE = 0;
@@ -51,6 +54,9 @@ public enum MessageType
   public static final byte RESET_REQUEST_VALUE = 9;
   public static final byte CHECKPOINT_VALUE = 10;
   public static final byte CODEC_STATE_VALUE = 11;
+  public static final byte PAYLOAD_FRAME_VALUE = 12;
+  public static final byte SHARED_MEMORY_VALUE = 13;
+  public static final byte LATENCY_MARKER_VALUE = 14;
   public static final byte NO_MESSAGE_ODD_VALUE = 127;
 
   public final int getNumber()
@@ -85,6 +91,12 @@ public enum MessageType
         return CHECKPOINT;
       case 11:
         return CODEC_STATE;
+      case 12:
+        return PAYLOAD_FRAME;
+      case 13:
+        return SHARED_MEMORY;
+      case 14:
+        return LATENCY_MARKER;
       case 127:
         return NO_MESSAGE_ODD;
       default:
@@ -0,0 +1,212 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.bufferserver.packet;
+
+import java.util.Arrays;
+
+import com.datatorrent.netlet.util.Slice;
+import com.datatorrent.netlet.util.VarInt;
+import com.datatorrent.netlet.util.VarInt.MutableInt;
+
+/**
+ * <p>PayloadFrameTuple class.</p>
+ *
+ * A frame of payload tuples which belong to the same partition. The partition is written once after the type and is
+ * followed by the length prefixed data of every payload, so the buffer server routes the whole frame like a single
+ * payload tuple and the subscriber slices the payloads out of the frame without copying them.
+ *
+ * @since 3.5.0
+ */
+public class PayloadFrameTuple extends Tuple
+{
+  private final MutableInt position = new MutableInt();
+
+  public PayloadFrameTuple(byte[] array, int offset, int length)
+  {
+    super(array, offset, length);
+    position.integer = offset + 5;
+  }
+
+  @Override
+  public MessageType getType()
+  {
+    return MessageType.PAYLOAD_FRAME;
+  }
+
+  @Override
+  public int getPartition()
+  {
+    int p = buffer[offset + 1];
+    p |= buffer[offset + 2] << 8;
+    p |= buffer[offset + 3] << 16;
+    p |= buffer[offset + 4] << 24;
+    return p;
+  }
+
+  @Override
+  public int getWindowId()
+  {
+    throw new UnsupportedOperationException("Not supported yet.");
+  }
+
+  /**
+   * @return the length prefixed payloads of the frame
+   */
+  @Override
+  public Slice getData()
+  {
+    return new Slice(buffer, offset + 5, length - 5);
+  }
+
+  public boolean hasNextPayload()
+  {
+    return position.integer < offset + length;
+  }
+
+  /**
+   * @return slice of the frame buffer holding the data of the next payload
+   */
+  public Slice nextPayload()
+  {
+    final int size = VarInt.read(buffer, position.integer, offset + length, position);
+    if (size < 0 || position.integer <= 0 || position.integer + size > offset + length) {
+      throw new IllegalStateException("Malformed payload frame " + this);
+    }
+    final Slice slice = new Slice(buffer, position.integer, size);
+    position.integer += size;
+    return slice;
+  }
+
+  @Override
+  public int getBaseSeconds()
+  {
+    throw new UnsupportedOperationException("Not supported yet.");
+  }
+
+  @Override
+  public int getWindowWidth()
+  {
+    throw new UnsupportedOperationException("Not supported yet.");
+  }
+
+  @Override
+  public String toString()
+  {
+    return "PayloadFrameTuple{" + getPartition() + ", " + getData() + '}';
+  }
+
+  /**
+   * <p>Builder class.</p>
+   *
+   * Coalesces consecutive payloads of a partition into a frame.
+   */
+  public static class Builder
+  {
+    private byte[] array;
+    private int size;
+    private int count;
+    private int partition;
+    private int firstPayloadOffset;
+    private int firstPayloadLength;
+
+    public Builder(int capacity)
+    {
+      array = new byte[Math.max(capacity, 16)];
+    }
+
+    public boolean isEmpty()
+    {
+      return count == 0;
+    }
+
+    /**
+     * @return the number of payloads in the frame
+     */
+    public int getCount()
+    {
+      return count;
+    }
+
+    /**
+     * @return the serialized size of the frame in bytes
+     */
+    public int getSize()
+    {
+      return size;
+    }
+
+    public int getPartition()
+    {
+      return partition;
+    }
+
+    /**
+     * Adds the data of a payload to the frame. The caller is expected to build the frame before adding a payload
+     * of another partition.
+     *
+     * @param partition partition of the payload
+     * @param data serialized payload
+     */
+    public void add(int partition, Slice data)
+    {
+      if (count == 0) {
+        this.partition = partition;
+        array[0] = MessageType.PAYLOAD_FRAME_VALUE;
+        array[1] = (byte)partition;
+        array[2] = (byte)(partition >> 8);
+        array[3] = (byte)(partition >> 16);
+        array[4] = (byte)(partition >> 24);
+        size = 5;
+      }
+
+      final int required = size + 5 + data.length;
+      if (required > array.length) {
+        array = Arrays.copyOf(array, Math.max(required, array.length << 1));
+      }
+      size = VarInt.write(data.length, array, size);
+      if (count++ == 0) {
+        firstPayloadOffset = size;
+        firstPayloadLength = data.length;
+      }
+      System.arraycopy(data.buffer, data.offset, array, size, data.length);
+      size += data.length;
+    }
+
+    /**
+     * Serializes the frame and empties the builder. A frame with a single payload is serialized as a plain payload
+     * tuple.
+     *
+     * @return the serialized tuple
+     */
+    public byte[] build()
+    {
+      final byte[] tuple;
+      if (count == 1) {
+        tuple = PayloadTuple.getSerializedTuple(partition, new Slice(array, firstPayloadOffset, firstPayloadLength));
+      } else {
+        tuple = Arrays.copyOf(array, size);
+      }
+      count = 0;
+      size = 0;
+      return tuple;
+    }
+
+  }
+
+}
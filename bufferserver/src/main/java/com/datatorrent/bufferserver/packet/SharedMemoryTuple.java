@@ -0,0 +1,156 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.bufferserver.packet;
+
+import java.util.Arrays;
+
+import com.datatorrent.netlet.util.Slice;
+import com.datatorrent.netlet.util.VarInt;
+
+/**
+ * <p>SharedMemoryTuple class.</p>
+ *
+ * Sent by the buffer server to a subscriber on the same host which reads its tuples from a
+ * {@link com.datatorrent.bufferserver.util.SharedMemoryRing}. The first one announces the file and the capacity of the
+ * ring, the following ones carry the write cursor up to which the ring can be read. The subscriber sends one back when
+ * it released space the buffer server waits for.
+ *
+ * @since 3.5.0
+ */
+public class SharedMemoryTuple extends Tuple
+{
+  private static final byte ANNOUNCEMENT = 0;
+  private static final byte CURSOR = 1;
+  private static final byte RELEASE = 2;
+
+  public SharedMemoryTuple(byte[] array, int offset, int length)
+  {
+    super(array, offset, length);
+  }
+
+  public boolean isAnnouncement()
+  {
+    return buffer[offset + 1] == ANNOUNCEMENT;
+  }
+
+  public boolean isRelease()
+  {
+    return buffer[offset + 1] == RELEASE;
+  }
+
+  /**
+   * @return the capacity of the announced ring
+   */
+  public int getCapacity()
+  {
+    return readVarInt(offset + 2, offset + length);
+  }
+
+  /**
+   * @return the path of the file of the announced ring
+   */
+  public String getPath()
+  {
+    int dataOffset = offset + 2;
+    while (buffer[dataOffset++] < 0) {
+    }
+    final int pathLength = readVarInt(dataOffset, offset + length);
+    while (buffer[dataOffset++] < 0) {
+    }
+    return new String(buffer, dataOffset, pathLength);
+  }
+
+  /**
+   * @return the write cursor of the ring
+   */
+  public long getCursor()
+  {
+    long cursor = 0;
+    for (int i = offset + 2; i < offset + 10; i++) {
+      cursor = cursor << 8 | (buffer[i] & 0xff);
+    }
+    return cursor;
+  }
+
+  @Override
+  public int getWindowId()
+  {
+    throw new UnsupportedOperationException("Not supported yet.");
+  }
+
+  @Override
+  public int getPartition()
+  {
+    throw new UnsupportedOperationException("Not supported yet.");
+  }
+
+  @Override
+  public Slice getData()
+  {
+    throw new UnsupportedOperationException("Not supported yet.");
+  }
+
+  @Override
+  public int getBaseSeconds()
+  {
+    throw new UnsupportedOperationException("Not supported yet.");
+  }
+
+  @Override
+  public int getWindowWidth()
+  {
+    throw new UnsupportedOperationException("Not supported yet.");
+  }
+
+  @Override
+  public String toString()
+  {
+    return "SharedMemoryTuple{" + (isAnnouncement() ? "path=" + getPath() + ", capacity=" + getCapacity() :
+        isRelease() ? "release" : "cursor=" + getCursor()) + '}';
+  }
+
+  public static byte[] getSerializedAnnouncement(String path, int capacity)
+  {
+    byte[] array = new byte[path.getBytes().length + 16];
+    int offset = 0;
+    array[offset++] = MessageType.SHARED_MEMORY_VALUE;
+    array[offset++] = ANNOUNCEMENT;
+    offset = VarInt.write(capacity, array, offset);
+    offset = Tuple.writeString(path, array, offset);
+    return Arrays.copyOfRange(array, 0, offset);
+  }
+
+  public static byte[] getSerializedCursor(long cursor)
+  {
+    byte[] array = new byte[10];
+    array[0] = MessageType.SHARED_MEMORY_VALUE;
+    array[1] = CURSOR;
+    for (int i = 10; i-- > 2;) {
+      array[i] = (byte)cursor;
+      cursor >>>= 8;
+    }
+    return array;
+  }
+
+  public static byte[] getSerializedRelease()
+  {
+    return new byte[] {MessageType.SHARED_MEMORY_VALUE, RELEASE};
+  }
+
+}
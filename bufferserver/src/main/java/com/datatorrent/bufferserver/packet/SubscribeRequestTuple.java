@@ -44,6 +44,7 @@ public class SubscribeRequestTuple extends RequestTuple
   private int mask;
   private int[] partitions;
   private int bufferSize;
+  private boolean sharedMemory;
 
   @Override
   public void parse()
@@ -145,6 +146,10 @@ public class SubscribeRequestTuple extends RequestTuple
             }
           }
         }
+      } else if (count == 0) {
+        dataOffset++;
+      } else {
+        return;
       }
 
       bufferSize = readVarInt(dataOffset, limit);
@@ -154,6 +159,13 @@ public class SubscribeRequestTuple extends RequestTuple
       while (buffer[dataOffset++] < 0) {
       }
 
+      /*
+       * read the optional shared memory flag
+       */
+      if (dataOffset < limit) {
+        sharedMemory = readVarInt(dataOffset, limit) == 1;
+      }
+
       valid = true;
     } catch (NumberFormatException nfe) {
       logger.warn("Unparseable Tuple", nfe);
@@ -235,9 +247,25 @@ public class SubscribeRequestTuple extends RequestTuple
     return bufferSize;
   }
 
+  /**
+   * @return whether the subscriber asked to read its tuples from shared memory
+   */
+  public boolean isSharedMemory()
+  {
+    return sharedMemory;
+  }
+
   public static byte[] getSerializedRequest(final String version, final String id, final String down_type,
       final String upstream_id, final int mask, final Collection<Integer> partitions, final long startingWindowId,
       final int bufferSize)
+  {
+    return getSerializedRequest(version, id, down_type, upstream_id, mask, partitions, startingWindowId, bufferSize,
+        false);
+  }
+
+  public static byte[] getSerializedRequest(final String version, final String id, final String down_type,
+      final String upstream_id, final int mask, final Collection<Integer> partitions, final long startingWindowId,
+      final int bufferSize, final boolean sharedMemory)
   {
     byte[] array = new byte[4096];
     int offset = 0;
@@ -279,6 +307,11 @@ public class SubscribeRequestTuple extends RequestTuple
     /* write the buffer size */
     offset = VarInt.write(bufferSize, array, offset);
 
+    /* write the shared memory flag, older servers ignore it */
+    if (sharedMemory) {
+      offset = VarInt.write(1, array, offset);
+    }
+
     return Arrays.copyOfRange(array, 0, offset);
   }
 
@@ -289,7 +322,7 @@ public class SubscribeRequestTuple extends RequestTuple
         ", windowId=" + Codec.getStringWindowId((long)baseSeconds << 32 | windowId) + ", type=" + streamType +
         ", upstreamIdentifier=" + upstreamIdentifier + ", mask=" + mask +
         ", partitions=" + (partitions == null ? "null" : Arrays.toString(partitions)) +
-        ", bufferSize=" + bufferSize + '}';
+        ", bufferSize=" + bufferSize + ", sharedMemory=" + sharedMemory + '}';
   }
 
   private static final Logger logger = LoggerFactory.getLogger(SubscribeRequestTuple.class);
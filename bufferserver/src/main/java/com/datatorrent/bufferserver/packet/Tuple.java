@@ -64,6 +64,15 @@ public abstract class Tuple
       case PAYLOAD:
         return new PayloadTuple(buffer, offset, length);
 
+      case PAYLOAD_FRAME:
+        return new PayloadFrameTuple(buffer, offset, length);
+
+      case SHARED_MEMORY:
+        return new SharedMemoryTuple(buffer, offset, length);
+
+      case LATENCY_MARKER:
+        return new LatencyMarkerTuple(buffer, offset, length);
+
       case RESET_WINDOW:
         return new ResetWindowTuple(buffer, offset, length);
 
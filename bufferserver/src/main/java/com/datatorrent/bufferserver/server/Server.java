@@ -18,14 +18,18 @@
  */
 package com.datatorrent.bufferserver.server;
 
+import java.io.File;
 import java.io.IOException;
+import java.net.InetAddress;
 import java.net.InetSocketAddress;
+import java.net.NetworkInterface;
 import java.nio.ByteBuffer;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.ServerSocketChannel;
 import java.nio.channels.SocketChannel;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map.Entry;
 import java.util.concurrent.ArrayBlockingQueue;
@@ -35,6 +39,7 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -42,13 +47,17 @@ import org.slf4j.LoggerFactory;
 import com.datatorrent.bufferserver.internal.DataList;
 import com.datatorrent.bufferserver.internal.FastDataList;
 import com.datatorrent.bufferserver.internal.LogicalNode;
+import com.datatorrent.bufferserver.internal.PhysicalNode;
+import com.datatorrent.bufferserver.packet.MessageType;
 import com.datatorrent.bufferserver.packet.PayloadTuple;
 import com.datatorrent.bufferserver.packet.PublishRequestTuple;
 import com.datatorrent.bufferserver.packet.PurgeRequestTuple;
 import com.datatorrent.bufferserver.packet.ResetRequestTuple;
+import com.datatorrent.bufferserver.packet.SharedMemoryTuple;
 import com.datatorrent.bufferserver.packet.SubscribeRequestTuple;
 import com.datatorrent.bufferserver.packet.Tuple;
 import com.datatorrent.bufferserver.storage.Storage;
+import com.datatorrent.bufferserver.util.SharedMemoryRing;
 import com.datatorrent.common.util.NameableThreadFactory;
 import com.datatorrent.netlet.AbstractLengthPrependerClient;
 import com.datatorrent.netlet.DefaultEventLoop;
@@ -59,6 +68,13 @@ import com.datatorrent.netlet.util.VarInt;
 /**
  * The buffer server application<p>
  * <br>
+ * By default, a single event loop accepts the connections and serves all the publishers and subscribers, and a single
+ * helper thread dispatches the published data to the subscribers. With {@link #setNumberOfReactors(int)}, the event
+ * loop only accepts connections and hands them off to a pool of reactor event loops: every publisher is pinned to
+ * the reactor and helper thread chosen by its identifier, and its subscribers are spread over the other reactors.
+ * The subscriber groups of a publisher are dispatched on the helper thread of the publisher, so that the data list
+ * of the publisher is only ever iterated from a single thread.<br>
+ * <br>
  *
  * @since 0.3.2
  */
@@ -73,6 +89,13 @@ public class Server implements ServerListener
   private InetSocketAddress address;
   private final ExecutorService serverHelperExecutor;
   private final ExecutorService storageHelperExecutor;
+  private int numberOfReactors;
+  private DefaultEventLoop[] reactors;
+  private ExecutorService[] helperExecutors;
+  private final AtomicInteger subscriberCount = new AtomicInteger();
+  private final ConcurrentHashMap<AbstractLengthPrependerClient, EventLoop> clientEventLoops = new ConcurrentHashMap<>();
+  private File sharedMemoryDirectory;
+  private int sharedMemoryCapacity;
 
   private byte[] authToken;
 
@@ -96,6 +119,51 @@ public class Server implements ServerListener
         new ThreadPoolExecutor.CallerRunsPolicy());
   }
 
+  /**
+   * Sets the number of reactor event loops which serve the publishers and subscribers. Zero, the default, serves all
+   * the connections on the event loop the server is run on. Needs to be set before the server is run.
+   *
+   * @param numberOfReactors number of reactor event loops
+   */
+  public void setNumberOfReactors(int numberOfReactors)
+  {
+    this.numberOfReactors = numberOfReactors;
+  }
+
+  /**
+   * Lets subscribers on the same host read their tuples from memory mapped files instead of the connection, which then
+   * only carries the notifications of new data.
+   *
+   * @param directory directory for the files, preferably backed by memory, or null to disable shared memory
+   * @param capacity size in bytes of the ring of each subscriber
+   */
+  public void setSharedMemory(File directory, int capacity)
+  {
+    this.sharedMemoryDirectory = directory;
+    this.sharedMemoryCapacity = capacity;
+    if (directory != null) {
+      SharedMemoryRing.purge(directory);
+    }
+  }
+
+  private SharedMemoryRing createSharedMemory(SubscribeRequestTuple request, SocketChannel channel)
+  {
+    if (sharedMemoryDirectory == null || !request.isSharedMemory() || Tuple.FAST_VERSION.equals(request.getVersion())) {
+      return null;
+    }
+
+    try {
+      InetAddress address = channel.socket().getInetAddress();
+      if (address == null || !(address.isLoopbackAddress() || NetworkInterface.getByInetAddress(address) != null)) {
+        return null;
+      }
+      return SharedMemoryRing.create(sharedMemoryDirectory, sharedMemoryCapacity);
+    } catch (IOException ex) {
+      logger.warn("Serving {} over the connection, cannot create shared memory", request, ex);
+      return null;
+    }
+  }
+
   public void setSpoolStorage(Storage storage)
   {
     this.storage = storage;
@@ -113,18 +181,46 @@ public class Server implements ServerListener
   @Override
   public void unregistered(SelectionKey key)
   {
-    serverHelperExecutor.shutdown();
+    for (ExecutorService executor : helperExecutors) {
+      executor.shutdown();
+    }
     storageHelperExecutor.shutdown();
     try {
-      serverHelperExecutor.awaitTermination(5000, TimeUnit.MILLISECONDS);
+      for (ExecutorService executor : helperExecutors) {
+        executor.awaitTermination(5000, TimeUnit.MILLISECONDS);
+      }
     } catch (InterruptedException ex) {
       logger.debug("Executor Termination", ex);
     }
+    if (reactors != null) {
+      for (DefaultEventLoop reactor : reactors) {
+        reactor.stop();
+      }
+    }
     logger.info("Server stopped listening at {}", address);
   }
 
   public synchronized InetSocketAddress run(EventLoop eventloop)
   {
+    if (numberOfReactors > 0) {
+      reactors = new DefaultEventLoop[numberOfReactors];
+      helperExecutors = new ExecutorService[numberOfReactors];
+      helperExecutors[0] = serverHelperExecutor;
+      for (int i = 0; i < numberOfReactors; i++) {
+        try {
+          reactors[i] = DefaultEventLoop.createEventLoop("BufferServerReactor-" + i);
+        } catch (IOException ex) {
+          throw new RuntimeException(ex);
+        }
+        reactors[i].start();
+        if (i > 0) {
+          helperExecutors[i] = Executors.newSingleThreadExecutor(new NameableThreadFactory("ServerHelper-" + i));
+        }
+      }
+    } else {
+      helperExecutors = new ExecutorService[] {serverHelperExecutor};
+    }
+
     eventloop.start(null, port, this);
     while (address == null) {
       try {
@@ -134,10 +230,145 @@ public class Server implements ServerListener
       }
     }
 
-    this.eventloop = eventloop;
+    this.eventloop = reactors == null ? eventloop : new ReactorEventLoop(eventloop);
     return address;
   }
 
+  /**
+   * @return the event loop which accepts the connections and applies all the changes to the subscriber groups
+   */
+  private EventLoop getAcceptor()
+  {
+    return eventloop instanceof ReactorEventLoop ? ((ReactorEventLoop)eventloop).acceptor : eventloop;
+  }
+
+  private static int getShard(String identifier, int shards)
+  {
+    return (identifier.hashCode() & Integer.MAX_VALUE) % shards;
+  }
+
+  /**
+   * @param publisherIdentifier identifier of the publisher
+   * @return the executor which dispatches the data of the publisher to its subscribers
+   */
+  private ExecutorService getHelperExecutor(String publisherIdentifier)
+  {
+    return helperExecutors[getShard(publisherIdentifier, helperExecutors.length)];
+  }
+
+  /**
+   * Submits a cleanup task to the helper thread of the publisher, which is dropped once the server is stopped.
+   */
+  private void submitToHelper(String publisherIdentifier, Runnable task)
+  {
+    try {
+      getHelperExecutor(publisherIdentifier).submit(task);
+    } catch (RejectedExecutionException ex) {
+      logger.debug("Server stopped, dropping {}", task, ex);
+    }
+  }
+
+  /**
+   * Runs a teardown task of the subscribers of the publisher right away when all the connections are served by the
+   * event loop the server is run on, as it always did, and submits it to the helper thread of the publisher when they
+   * are served by reactors, since the helper thread is then the only thread iterating the subscriber groups.
+   */
+  private void runTeardown(String publisherIdentifier, Runnable task)
+  {
+    if (reactors == null) {
+      task.run();
+    } else {
+      submitToHelper(publisherIdentifier, task);
+    }
+  }
+
+  private DefaultEventLoop getPublisherReactor(String publisherIdentifier)
+  {
+    return reactors == null ? null : reactors[getShard(publisherIdentifier, reactors.length)];
+  }
+
+  private DefaultEventLoop getSubscriberReactor(String publisherIdentifier)
+  {
+    if (reactors == null) {
+      return null;
+    }
+    if (reactors.length == 1) {
+      return reactors[0];
+    }
+    /* spread the subscribers over the reactors other than the one of the publisher */
+    int offset = 1 + (subscriberCount.getAndIncrement() & Integer.MAX_VALUE) % (reactors.length - 1);
+    return reactors[(getShard(publisherIdentifier, reactors.length) + offset) % reactors.length];
+  }
+
+  /**
+   * Moves an identified connection from the accepting event loop to a reactor. The key on the accepting event loop is
+   * cancelled, the channel is registered with the reactor, and the data already read is replayed on the reactor once
+   * the client is registered with it.
+   */
+  private void handOff(SelectionKey key, final AbstractLengthPrependerClient client, int ops, DefaultEventLoop reactor,
+      byte[] buffer, int offset, int len)
+  {
+    key.cancel();
+    clientEventLoops.put(client, reactor);
+    reactor.register((SocketChannel)key.channel(), ops, client);
+    if (len > 0) {
+      final byte[] data = Arrays.copyOfRange(buffer, offset, offset + len);
+      reactor.submit(new Runnable()
+      {
+        @Override
+        public void run()
+        {
+          ((SeedDataClient)client).transferBuffer(data, 0, data.length);
+        }
+      });
+    }
+  }
+
+  /**
+   * Routes the disconnects of the clients to the reactor serving them, everything else goes to the accepting event
+   * loop.
+   */
+  private class ReactorEventLoop implements EventLoop
+  {
+    private final EventLoop acceptor;
+
+    ReactorEventLoop(EventLoop acceptor)
+    {
+      this.acceptor = acceptor;
+    }
+
+    @Override
+    public void connect(InetSocketAddress address, ClientListener l)
+    {
+      acceptor.connect(address, l);
+    }
+
+    @Override
+    public void disconnect(ClientListener l)
+    {
+      EventLoop reactor = clientEventLoops.get(l);
+      (reactor == null ? acceptor : reactor).disconnect(l);
+    }
+
+    @Override
+    public void start(String host, int port, ServerListener l)
+    {
+      acceptor.start(host, port, l);
+    }
+
+    @Override
+    public void stop(ServerListener l)
+    {
+      acceptor.stop(l);
+    }
+
+    @Override
+    public void submit(Runnable r)
+    {
+      acceptor.submit(r);
+    }
+  }
+
   public void setAuthToken(byte[] authToken)
   {
     this.authToken = authToken;
@@ -172,6 +403,11 @@ public class Server implements ServerListener
   private final ConcurrentHashMap<String, LogicalNode> subscriberGroups = new ConcurrentHashMap<String, LogicalNode>();
   private final ConcurrentHashMap<String, AbstractLengthPrependerClient> publisherChannels = new ConcurrentHashMap<>();
   private final ConcurrentHashMap<String, AbstractLengthPrependerClient> subscriberChannels = new ConcurrentHashMap<>();
+  /**
+   * number of subscribers which joined each subscriber group and did not leave it yet, only accessed on the accepting
+   * event loop
+   */
+  private final HashMap<LogicalNode, Integer> subscriberGroupSizes = new HashMap<>();
   private final int blockSize;
   private final int numberOfCacheBlocks;
 
@@ -244,6 +480,15 @@ public class Server implements ServerListener
     String identifier = request.getIdentifier();
     String type = request.getStreamType();
     String upstream_identifier = request.getUpstreamIdentifier();
+    final Subscriber subscriber = connection instanceof Subscriber ? (Subscriber)connection : null;
+    if (subscriber != null && subscriber.torndown) {
+      /* disconnected before the subscription was handed back from its reactor */
+      return null;
+    }
+    final SharedMemoryRing sharedMemory = subscriber == null ? null : subscriber.sharedMemory;
+    if (sharedMemory != null) {
+      connection.write(SharedMemoryTuple.getSerializedAnnouncement(sharedMemory.getPath(), sharedMemory.getCapacity()));
+    }
 
     // Check if there is a logical node of this type, if not create it.
     final LogicalNode ln;
@@ -258,13 +503,13 @@ public class Server implements ServerListener
       }
 
       ln = subscriberGroups.get(type);
-      serverHelperExecutor.submit(new Runnable()
+      getHelperExecutor(ln.getUpstream()).submit(new Runnable()
       {
         @Override
         public void run()
         {
           ln.boot(eventloop);
-          ln.addConnection(connection);
+          ln.addConnection(connection, sharedMemory);
           ln.catchUp();
         }
       });
@@ -297,18 +542,23 @@ public class Server implements ServerListener
       }
 
       subscriberGroups.put(type, ln);
-      serverHelperExecutor.submit(new Runnable()
+      subscriberGroupSizes.put(ln, 0);
+      getHelperExecutor(upstream_identifier).submit(new Runnable()
       {
         @Override
         public void run()
         {
-          ln.addConnection(connection);
+          ln.addConnection(connection, sharedMemory);
           ln.catchUp();
           dl.addDataListener(ln);
         }
       });
     }
 
+    subscriberGroupSizes.put(ln, subscriberGroupSizes.get(ln) + 1);
+    if (subscriber != null) {
+      subscriber.logicalNode = ln;
+    }
     return ln;
   }
 
@@ -426,7 +676,8 @@ public class Server implements ServerListener
           PublishRequestTuple publisherRequest = (PublishRequestTuple)request;
 
           DataList dl = handlePublisherRequest(publisherRequest, this);
-          dl.setAutoFlushExecutor(serverHelperExecutor);
+          dl.setAutoFlushExecutor(getHelperExecutor(publisherRequest.getIdentifier()));
+          DefaultEventLoop publisherReactor = getPublisherReactor(publisherRequest.getIdentifier());
 
           Publisher publisher;
           if (publisherRequest.getVersion().equals(Tuple.FAST_VERSION)) {
@@ -448,13 +699,18 @@ public class Server implements ServerListener
             publisher = new Publisher(dl, (long)request.getBaseSeconds() << 32 | request.getWindowId());
           }
 
-          key.attach(publisher);
-          key.interestOps(SelectionKey.OP_READ);
-          publisher.registered(key);
-
           int len = writeOffset - readOffset - size;
-          if (len > 0) {
-            publisher.transferBuffer(this.buffer, readOffset + size, len);
+          if (publisherReactor == null) {
+            key.attach(publisher);
+            key.interestOps(SelectionKey.OP_READ);
+            publisher.registered(key);
+
+            if (len > 0) {
+              publisher.transferBuffer(this.buffer, readOffset + size, len);
+            }
+          } else {
+            publisher.reactor = publisherReactor;
+            handOff(key, publisher, SelectionKey.OP_READ, publisherReactor, this.buffer, readOffset + size, len);
           }
           ignore = true;
 
@@ -469,7 +725,7 @@ public class Server implements ServerListener
           logger.info("Received subscriber request: {}", request);
 
           SubscribeRequestTuple subscriberRequest = (SubscribeRequestTuple)request;
-          AbstractLengthPrependerClient subscriber;
+          Subscriber subscriber;
 
 //          /* for backward compatibility - set the buffer size to 16k - EXPERIMENTAL */
           int bufferSize = subscriberRequest.getBufferSize();
@@ -496,11 +752,17 @@ public class Server implements ServerListener
 
             };
           }
-          key.attach(subscriber);
-          key.interestOps(SelectionKey.OP_WRITE | SelectionKey.OP_READ);
-          subscriber.registered(key);
-
-          handleSubscriberRequest(subscriberRequest, subscriber);
+          subscriber.sharedMemory = createSharedMemory(subscriberRequest, (SocketChannel)key.channel());
+          DefaultEventLoop subscriberReactor = getSubscriberReactor(subscriberRequest.getUpstreamIdentifier());
+          if (subscriberReactor == null) {
+            key.attach(subscriber);
+            key.interestOps(SelectionKey.OP_WRITE | SelectionKey.OP_READ);
+            subscriber.registered(key);
+
+            handleSubscriberRequest(subscriberRequest, subscriber);
+          } else {
+            handOffSubscriber(subscriberRequest, subscriber, subscriberReactor);
+          }
           break;
 
         case PURGE_REQUEST:
@@ -526,13 +788,44 @@ public class Server implements ServerListener
       }
     }
 
+    /**
+     * The subscriber is registered with its reactor first; the subscription is then handled back on the accepting
+     * event loop, which serializes all the changes to the subscriber groups, and only then data is sent to it.
+     */
+    private void handOffSubscriber(final SubscribeRequestTuple subscriberRequest,
+        final AbstractLengthPrependerClient subscriber,
+        DefaultEventLoop subscriberReactor)
+    {
+      handOff(key, subscriber, SelectionKey.OP_WRITE | SelectionKey.OP_READ, subscriberReactor, null, 0, 0);
+      subscriberReactor.submit(new Runnable()
+      {
+        @Override
+        public void run()
+        {
+          getAcceptor().submit(new Runnable()
+          {
+            @Override
+            public void run()
+            {
+              handleSubscriberRequest(subscriberRequest, subscriber);
+            }
+          });
+        }
+      });
+    }
+
   }
 
-  class Subscriber extends AbstractLengthPrependerClient
+  class Subscriber extends AbstractLengthPrependerClient implements PhysicalNode.SendQueue
   {
     private final String type;
     private final int mask;
     private final int[] partitions;
+    SharedMemoryRing sharedMemory;
+    /**
+     * the subscriber group joined by this subscriber, only accessed on the accepting event loop
+     */
+    LogicalNode logicalNode;
 
     Subscriber(String type, int mask, int[] partitions, int bufferSize)
     {
@@ -546,10 +839,42 @@ public class Server implements ServerListener
     @Override
     public void onMessage(byte[] buffer, int offset, int size)
     {
+      if (sharedMemory != null && size == 2 && buffer[offset] == MessageType.SHARED_MEMORY_VALUE
+          && ((SharedMemoryTuple)Tuple.getTuple(buffer, offset, size)).isRelease()) {
+        resumeSharedMemory();
+        return;
+      }
       logger.warn("Received data when no data is expected: {}",
           Arrays.toString(Arrays.copyOfRange(buffer, offset, offset + size)));
     }
 
+    /**
+     * Resumes sending to the subscriber once it released space in the shared memory ring, since the subscriber group
+     * does not poll a ring which is full. The group is looked up on the accepting event loop and resumed on the helper
+     * thread of the publisher.
+     */
+    private void resumeSharedMemory()
+    {
+      getAcceptor().submit(new Runnable()
+      {
+        @Override
+        public void run()
+        {
+          final LogicalNode ln = logicalNode;
+          if (ln != null) {
+            submitToHelper(ln.getUpstream(), new Runnable()
+            {
+              @Override
+              public void run()
+              {
+                ln.addedData();
+              }
+            });
+          }
+        }
+      });
+    }
+
     @Override
     public void unregistered(final SelectionKey key)
     {
@@ -564,6 +889,14 @@ public class Server implements ServerListener
       super.handleException(cce, el);
     }
 
+    @Override
+    public boolean isSendQueueEmpty()
+    {
+      synchronized (bufferOfBuffers) {
+        return bufferOfBuffers.isEmpty() && sendBuffer4Polls.isEmpty() && sendBuffer4Offers.isEmpty();
+      }
+    }
+
     @Override
     public String toString()
     {
@@ -573,6 +906,12 @@ public class Server implements ServerListener
 
     private volatile boolean torndown;
 
+    /**
+     * Leaves the subscriber group on the accepting event loop, which serializes the changes to the subscriber groups
+     * with the subscriptions, handing it back there when the subscriber is served by a reactor. With reactors, the
+     * connection is then removed from the group on the helper thread of the publisher, which is the only thread
+     * iterating the group.
+     */
     private void teardown()
     {
       //logger.debug("Teardown is being called {}", torndown, new Exception());
@@ -580,29 +919,65 @@ public class Server implements ServerListener
         return;
       }
       torndown = true;
-
-      LogicalNode ln = subscriberGroups.get(type);
-      if (ln != null) {
-        if (subscriberChannels.containsValue(this)) {
-          final Iterator<Entry<String, AbstractLengthPrependerClient>> i = subscriberChannels.entrySet().iterator();
-          while (i.hasNext()) {
-            if (i.next().getValue() == this) {
-              i.remove();
-              break;
-            }
+      if (clientEventLoops.remove(this) == null) {
+        /* served by the accepting event loop */
+        leaveSubscriberGroup();
+      } else {
+        getAcceptor().submit(new Runnable()
+        {
+          @Override
+          public void run()
+          {
+            leaveSubscriberGroup();
           }
+        });
+      }
+    }
+
+    private void leaveSubscriberGroup()
+    {
+      final Iterator<Entry<String, AbstractLengthPrependerClient>> i = subscriberChannels.entrySet().iterator();
+      while (i.hasNext()) {
+        if (i.next().getValue() == this) {
+          i.remove();
+          break;
         }
+      }
 
-        ln.removeChannel(this);
-        if (ln.getPhysicalNodeCount() == 0) {
-          DataList dl = publisherBuffers.get(ln.getUpstream());
-          if (dl != null) {
-            dl.removeDataListener(ln);
-          }
-          subscriberGroups.remove(ln.getGroup());
+      final LogicalNode ln = logicalNode;
+      if (ln == null) {
+        if (sharedMemory != null) {
+          sharedMemory.close();
         }
-        ln.getIterator().close();
+        return;
       }
+      logicalNode = null;
+
+      final int size = subscriberGroupSizes.get(ln) - 1;
+      if (size == 0) {
+        subscriberGroupSizes.remove(ln);
+        subscriberGroups.remove(ln.getGroup(), ln);
+      } else {
+        subscriberGroupSizes.put(ln, size);
+      }
+      runTeardown(ln.getUpstream(), new Runnable()
+      {
+        @Override
+        public void run()
+        {
+          ln.removeChannel(Subscriber.this);
+          if (sharedMemory != null) {
+            sharedMemory.close();
+          }
+          if (size == 0) {
+            DataList dl = publisherBuffers.get(ln.getUpstream());
+            if (dl != null) {
+              dl.removeDataListener(ln);
+            }
+            ln.getIterator().close();
+          }
+        }
+      });
     }
 
   }
@@ -616,6 +991,10 @@ public class Server implements ServerListener
   {
     private final DataList datalist;
     boolean dirty;
+    /**
+     * the reactor serving this publisher, null if it is served by the accepting event loop
+     */
+    EventLoop reactor;
 
     Publisher(DataList dl, long windowId)
     {
@@ -644,7 +1023,7 @@ public class Server implements ServerListener
     @Override
     public boolean resumeReadIfSuspended()
     {
-      eventloop.submit(new Runnable()
+      (reactor == null ? eventloop : reactor).submit(new Runnable()
       {
         @Override
         public void run()
@@ -795,6 +1174,7 @@ public class Server implements ServerListener
         return;
       }
       torndown = true;
+      clientEventLoops.remove(this);
 
       /*
        * if the publisher unregistered, all the downstream guys are going to be unregistered anyways
@@ -808,17 +1188,35 @@ public class Server implements ServerListener
        * a new publisher comes up with the same name. We leave it to the stream to decide when to bring up a new node
        * with the same identifier as the one which just died.
        */
-      if (publisherChannels.containsValue(this)) {
-        final Iterator<Entry<String, AbstractLengthPrependerClient>> i = publisherChannels.entrySet().iterator();
-        while (i.hasNext()) {
-          if (i.next().getValue() == this) {
-            i.remove();
-            break;
+      if (reactor == null) {
+        bootSubscribers();
+      } else {
+        getAcceptor().submit(new Runnable()
+        {
+          @Override
+          public void run()
+          {
+            bootSubscribers();
           }
+        });
+      }
+    }
+
+    /**
+     * Disconnects the subscribers of the publisher, on the helper thread of the publisher when the connections are
+     * served by reactors.
+     */
+    private void bootSubscribers()
+    {
+      final Iterator<Entry<String, AbstractLengthPrependerClient>> i = publisherChannels.entrySet().iterator();
+      while (i.hasNext()) {
+        if (i.next().getValue() == this) {
+          i.remove();
+          break;
         }
       }
 
-      ArrayList<LogicalNode> list = new ArrayList<LogicalNode>();
+      final ArrayList<LogicalNode> list = new ArrayList<LogicalNode>();
       String publisherIdentifier = datalist.getIdentifier();
       Iterator<LogicalNode> iterator = subscriberGroups.values().iterator();
       while (iterator.hasNext()) {
@@ -828,8 +1226,17 @@ public class Server implements ServerListener
         }
       }
 
-      for (LogicalNode ln : list) {
-        ln.boot(eventloop);
+      if (!list.isEmpty()) {
+        runTeardown(publisherIdentifier, new Runnable()
+        {
+          @Override
+          public void run()
+          {
+            for (LogicalNode ln : list) {
+              ln.boot(eventloop);
+            }
+          }
+        });
       }
     }
 
@@ -0,0 +1,337 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.bufferserver.util;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>SharedMemoryRing class.</p>
+ *
+ * A single producer, single consumer ring of length prefixed records in a memory mapped file, used to hand tuples from
+ * the buffer server to a subscriber on the same host. The producer appends records and tells the consumer how far it
+ * wrote over the subscriber connection; the consumer publishes how far it read in the header of the file, which the
+ * producer consults for free space. Neither side takes a lock, both cursors only ever grow. Each cursor is also
+ * published in the header after the records it covers and read before them, separated from the records by an access
+ * of a volatile field, for which the JVM emits a memory fence, so that neither side sees a cursor ahead of the
+ * records. A producer which finds the ring full flags it in the header, the consumer then reports the space it
+ * releases so that the producer does not have to wait for new data to try again.
+ *
+ * The consumer deletes the file once it mapped it, the producer deletes it when the consumer never did, and files of
+ * processes which are gone are purged with {@link #purge(File)}. The mapping is released by the garbage collector.
+ *
+ * @since 3.5.0
+ */
+public class SharedMemoryRing implements Closeable
+{
+  /**
+   * the header holds the cursors, the records follow it.
+   */
+  public static final int HEADER_SIZE = 64;
+  private static final int READ_CURSOR_OFFSET = 0;
+  private static final int WRITE_CURSOR_OFFSET = 8;
+  private static final int WAITING_OFFSET = 16;
+  private static final String FILE_PREFIX = "bufferserver-";
+  private static final String FILE_SUFFIX = ".ring";
+  private static final Pattern FILE_PATTERN = Pattern.compile(Pattern.quote(FILE_PREFIX) + "(\\d+)-.*" +
+      Pattern.quote(FILE_SUFFIX));
+  /**
+   * accessed for the memory fences around the cursors
+   */
+  private static volatile int fence;
+  private final File file;
+  private final boolean owner;
+  private MappedByteBuffer mapping;
+  /**
+   * view of the records of the mapping, used by one side of the ring only
+   */
+  private ByteBuffer records;
+  private final int capacity;
+  private long writeCursor;
+  private long readCursor;
+  /**
+   * set while the producer flagged the ring as full
+   */
+  private boolean waiting;
+
+  private SharedMemoryRing(File file, int capacity, boolean owner) throws IOException
+  {
+    this.file = file;
+    this.capacity = capacity;
+    this.owner = owner;
+    try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+      mapping = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + capacity);
+    }
+    mapping.position(HEADER_SIZE);
+    records = mapping.slice();
+  }
+
+  /**
+   * Creates the file backing a new ring, readable and writable by the owner only.
+   *
+   * @param directory directory of the file
+   * @param capacity number of bytes available for records
+   * @return the producer side of the ring
+   * @throws IOException
+   */
+  public static SharedMemoryRing create(File directory, int capacity) throws IOException
+  {
+    File file = File.createTempFile(FILE_PREFIX + getProcessId() + "-", FILE_SUFFIX, directory);
+    file.setReadable(false, false);
+    file.setWritable(false, false);
+    file.setReadable(true, true);
+    file.setWritable(true, true);
+    try {
+      return new SharedMemoryRing(file, capacity, true);
+    } catch (IOException ex) {
+      file.delete();
+      throw ex;
+    }
+  }
+
+  /**
+   * Maps the file of an existing ring and deletes it, the mappings of both sides stay valid.
+   *
+   * @param path path of the file
+   * @param capacity number of bytes available for records
+   * @return the consumer side of the ring
+   * @throws IOException
+   */
+  public static SharedMemoryRing open(String path, int capacity) throws IOException
+  {
+    SharedMemoryRing ring = new SharedMemoryRing(new File(path), capacity, false);
+    if (!ring.file.delete()) {
+      logger.debug("Could not delete {}", ring.file);
+    }
+    return ring;
+  }
+
+  /**
+   * Deletes the ring files left behind in the directory by processes which are no longer running, for example after a
+   * crash. Only done where the running processes are listed under /proc.
+   *
+   * @param directory directory of the files
+   */
+  public static void purge(File directory)
+  {
+    File[] files = directory.listFiles();
+    if (files == null || !new File("/proc/self").exists()) {
+      return;
+    }
+    for (File file : files) {
+      Matcher matcher = FILE_PATTERN.matcher(file.getName());
+      if (matcher.matches() && !new File("/proc", matcher.group(1)).exists()) {
+        logger.info("Deleting {} left behind by process {}", file, matcher.group(1));
+        if (!file.delete()) {
+          logger.warn("Could not delete {}", file);
+        }
+      }
+    }
+  }
+
+  private static String getProcessId()
+  {
+    String name = ManagementFactory.getRuntimeMXBean().getName();
+    int index = name.indexOf('@');
+    return index > 0 ? name.substring(0, index) : "0";
+  }
+
+  public String getPath()
+  {
+    return file.getPath();
+  }
+
+  public int getCapacity()
+  {
+    return capacity;
+  }
+
+  public long getWriteCursor()
+  {
+    return writeCursor;
+  }
+
+  /**
+   * Appends a record if there is room for it. When there is not, the ring is flagged so that the consumer reports the
+   * next release of space with the return value of {@link #release()}.
+   *
+   * @param buffer array holding the record
+   * @param offset offset of the record in the array
+   * @param length length of the record
+   * @return false if the consumer has not read enough of the ring yet to fit the record
+   */
+  public boolean write(byte[] buffer, int offset, int length)
+  {
+    final int required = length + 4;
+    if (required > capacity) {
+      throw new IllegalArgumentException("Record of " + length + " bytes exceeds capacity " + capacity + " of " + this);
+    }
+    if (writeCursor + required - getCursor(READ_CURSOR_OFFSET) > capacity) {
+      /* flag the ring before checking again, so that a release in between is either seen here or reported */
+      if (!waiting) {
+        mapping.putLong(WAITING_OFFSET, 1);
+        fence = 0;
+        waiting = true;
+      }
+      if (writeCursor + required - getCursor(READ_CURSOR_OFFSET) > capacity) {
+        return false;
+      }
+    }
+    if (waiting) {
+      mapping.putLong(WAITING_OFFSET, 0);
+      waiting = false;
+    }
+
+    putByte(writeCursor, (byte)(length >> 24));
+    putByte(writeCursor + 1, (byte)(length >> 16));
+    putByte(writeCursor + 2, (byte)(length >> 8));
+    putByte(writeCursor + 3, (byte)length);
+    copy(buffer, offset, writeCursor + 4, length, true);
+    writeCursor += required;
+    putCursor(WRITE_CURSOR_OFFSET, writeCursor);
+    return true;
+  }
+
+  /**
+   * Publishes the cursor after the records written or read before.
+   */
+  private void putCursor(int offset, long cursor)
+  {
+    fence = 0;
+    mapping.putLong(offset, cursor);
+  }
+
+  /**
+   * Reads the cursor of the other side before the records covered by it.
+   */
+  private long getCursor(int offset)
+  {
+    long cursor = mapping.getLong(offset);
+    @SuppressWarnings("unused")
+    int acquire = fence;
+    return cursor;
+  }
+
+  private void putByte(long cursor, byte value)
+  {
+    records.put((int)(cursor % capacity), value);
+  }
+
+  private int getByte(long cursor)
+  {
+    return records.get((int)(cursor % capacity)) & 0xff;
+  }
+
+  /**
+   * Copies between the array and the ring at the cursor, wrapping around the end of the ring.
+   */
+  private void copy(byte[] buffer, int offset, long cursor, int length, boolean toRing)
+  {
+    final int position = (int)(cursor % capacity);
+    final int head = Math.min(length, capacity - position);
+    copy(buffer, offset, position, head, toRing);
+    if (head < length) {
+      copy(buffer, offset + head, 0, length - head, toRing);
+    }
+  }
+
+  private void copy(byte[] buffer, int offset, int position, int length, boolean toRing)
+  {
+    records.position(position);
+    if (toRing) {
+      records.put(buffer, offset, length);
+    } else {
+      records.get(buffer, offset, length);
+    }
+  }
+
+  /**
+   * Reads the length prefix of the next record in place.
+   *
+   * @param limit write cursor of the producer
+   * @return length of the next record written up to the cursor, -1 if there is none
+   */
+  public int nextLength(long limit)
+  {
+    if (readCursor >= Math.min(limit, getCursor(WRITE_CURSOR_OFFSET))) {
+      return -1;
+    }
+    return getByte(readCursor) << 24 | getByte(readCursor + 1) << 16 | getByte(readCursor + 2) << 8 |
+        getByte(readCursor + 3);
+  }
+
+  /**
+   * Copies the next record out of the ring. Its space is released to the producer with {@link #release()}.
+   *
+   * @param buffer array to copy the record to
+   * @param offset offset in the array
+   * @param length length of the record as returned by {@link #nextLength(long)}
+   */
+  public void read(byte[] buffer, int offset, int length)
+  {
+    copy(buffer, offset, readCursor + 4, length, false);
+    readCursor += length + 4;
+  }
+
+  /**
+   * Releases the space of the records read so far to the producer.
+   *
+   * @return true if the producer found the ring full and has to be told about the released space
+   */
+  public boolean release()
+  {
+    putCursor(READ_CURSOR_OFFSET, readCursor);
+    fence = 0;
+    return mapping.getLong(WAITING_OFFSET) != 0;
+  }
+
+  /**
+   * Drops the mapping, the producer also deletes the file if the consumer did not. Neither side may access the ring
+   * after it was closed.
+   */
+  @Override
+  public void close()
+  {
+    if (owner && file.exists() && !file.delete()) {
+      logger.warn("Could not delete {}", file);
+    }
+    mapping = null;
+    records = null;
+  }
+
+  @Override
+  public String toString()
+  {
+    return "SharedMemoryRing{" + "file=" + file + ", capacity=" + capacity + ", writeCursor=" + writeCursor +
+        ", readCursor=" + readCursor + '}';
+  }
+
+  private static final Logger logger = LoggerFactory.getLogger(SharedMemoryRing.class);
+}
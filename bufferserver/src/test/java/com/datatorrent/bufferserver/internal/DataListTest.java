@@ -0,0 +1,263 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.bufferserver.internal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.datatorrent.bufferserver.packet.BeginWindowTuple;
+import com.datatorrent.bufferserver.packet.EndWindowTuple;
+import com.datatorrent.bufferserver.packet.MessageType;
+import com.datatorrent.bufferserver.packet.PayloadTuple;
+import com.datatorrent.bufferserver.packet.ResetWindowTuple;
+import com.datatorrent.bufferserver.packet.Tuple;
+import com.datatorrent.bufferserver.util.SerializedData;
+import com.datatorrent.bufferserver.util.VarInt;
+import com.datatorrent.netlet.AbstractLengthPrependerClient;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+/**
+ *
+ */
+public class DataListTest
+{
+  private static final int BASE_SECONDS = 1;
+
+  static class Client extends AbstractLengthPrependerClient implements PhysicalNode.SendQueue
+  {
+    int queued;
+    byte[] run;
+    byte[] runBuffer;
+    int runOffset;
+
+    @Override
+    public boolean send(byte[] array, int offset, int len)
+    {
+      queued++;
+      run = Arrays.copyOfRange(array, offset, offset + len);
+      runBuffer = array;
+      runOffset = offset;
+      return true;
+    }
+
+    @Override
+    public boolean isSendQueueEmpty()
+    {
+      return queued == 0;
+    }
+
+    @Override
+    public void onMessage(byte[] buffer, int offset, int size)
+    {
+    }
+
+  }
+
+  private ExecutorService executor;
+  private DataList list;
+  private int writeOffset;
+
+  @BeforeMethod
+  public void setup()
+  {
+    executor = Executors.newSingleThreadExecutor();
+    list = new DataList("DataListTest", 1024 * 1024, 8);
+    list.setAutoFlushExecutor(executor);
+    writeOffset = 0;
+  }
+
+  @AfterMethod
+  public void teardown()
+  {
+    executor.shutdownNow();
+  }
+
+  private void append(byte[] tuple)
+  {
+    byte[] buffer = list.getBuffer((long)BASE_SECONDS << 32);
+    writeOffset = VarInt.write(tuple.length, buffer, writeOffset);
+    System.arraycopy(tuple, 0, buffer, writeOffset, tuple.length);
+    writeOffset += tuple.length;
+  }
+
+  private void appendWindows(int from, int to)
+  {
+    for (int windowId = from; windowId < to; windowId++) {
+      append(BeginWindowTuple.getSerializedTuple(windowId));
+      for (int i = 0; i < 100; i++) {
+        append(PayloadTuple.getSerializedTuple(0, 16));
+      }
+      append(EndWindowTuple.getSerializedTuple(windowId));
+    }
+    list.flush(writeOffset);
+  }
+
+  /**
+   * Returns the window ids of the begin window tuples, -1 for the reset window tuples.
+   */
+  private List<Integer> getIndexedWindows(long windowId)
+  {
+    List<Integer> windows = new ArrayList<>();
+    try (DataList.DataListIterator iterator = list.newIterator(windowId)) {
+      for (iterator.skipPayload(); iterator.hasNext(); iterator.skipPayload()) {
+        SerializedData sd = iterator.next();
+        switch (sd.buffer[sd.dataOffset]) {
+          case MessageType.RESET_WINDOW_VALUE:
+            windows.add(-1);
+            break;
+
+          case MessageType.BEGIN_WINDOW_VALUE:
+            windows.add(Tuple.getTuple(sd.buffer, sd.dataOffset, sd.length - sd.dataOffset + sd.offset).getWindowId());
+            break;
+
+          default:
+            throw new AssertionError("Unexpected tuple " + MessageType.valueOf(sd.buffer[sd.dataOffset]));
+        }
+      }
+    }
+    return windows;
+  }
+
+  private int countTuples(long windowId)
+  {
+    int count = 0;
+    try (DataList.DataListIterator iterator = list.newIterator(windowId)) {
+      while (iterator.hasNext()) {
+        iterator.next();
+        count++;
+      }
+    }
+    return count;
+  }
+
+  private static List<Integer> windows(int from, int to)
+  {
+    List<Integer> windows = new ArrayList<>();
+    windows.add(-1);
+    for (int windowId = from; windowId < to; windowId++) {
+      windows.add(windowId);
+    }
+    return windows;
+  }
+
+  @Test
+  public void testSkipPayload()
+  {
+    append(ResetWindowTuple.getSerializedTuple(BASE_SECONDS, 500));
+    appendWindows(0, 10);
+
+    assertEquals(getIndexedWindows(0), windows(0, 10), "indexed windows");
+    assertEquals(countTuples(0), 1 + 10 * 102, "tuples");
+  }
+
+  @Test
+  public void testPurge()
+  {
+    append(ResetWindowTuple.getSerializedTuple(BASE_SECONDS, 500));
+    appendWindows(0, 10);
+
+    list.purge((long)BASE_SECONDS << 32 | 4);
+    assertEquals(getIndexedWindows(0), windows(5, 10), "indexed windows after purge");
+    assertEquals(countTuples(0), 1 + 5 * 102, "tuples after purge");
+  }
+
+  @Test
+  public void testRewind() throws Exception
+  {
+    append(ResetWindowTuple.getSerializedTuple(BASE_SECONDS, 500));
+    appendWindows(0, 10);
+
+    list.rewind(BASE_SECONDS, 7);
+    assertEquals(getIndexedWindows(0), windows(0, 7), "indexed windows after rewind");
+
+    writeOffset = list.getPosition();
+    appendWindows(7, 9);
+    assertEquals(getIndexedWindows(0), windows(0, 9), "indexed windows after append");
+    assertEquals(countTuples(0), 1 + 9 * 102, "tuples after append");
+  }
+
+  @Test
+  public void testPurgePinned()
+  {
+    append(ResetWindowTuple.getSerializedTuple(BASE_SECONDS, 500));
+    appendWindows(0, 10);
+
+    Client client = new Client();
+    try (DataList.DataListIterator iterator = list.newIterator(0)) {
+      PhysicalNode pn = new PhysicalNode(client, null, iterator);
+      for (int i = 0; i < 10; i++) {
+        assertTrue(iterator.hasNext());
+        assertTrue(pn.send(iterator.next()));
+      }
+      assertTrue(pn.flush());
+      assertEquals(client.queued, 1, "runs queued");
+
+      list.purge((long)BASE_SECONDS << 32 | 4);
+      assertEquals(getIndexedWindows(0), windows(0, 10), "indexed windows after purge of a pinned block");
+
+      client.queued = 0;
+      assertTrue(pn.flush());
+      list.purge((long)BASE_SECONDS << 32 | 4);
+      assertEquals(getIndexedWindows(0), windows(5, 10), "indexed windows after purge of the drained block");
+    }
+  }
+
+  @Test
+  public void testPurgeNeverDrained()
+  {
+    append(ResetWindowTuple.getSerializedTuple(BASE_SECONDS, 500));
+    appendWindows(0, 10);
+
+    Client client = new Client();
+    try (DataList.DataListIterator iterator = list.newIterator(0)) {
+      PhysicalNode pn = new PhysicalNode(client, null, iterator);
+      SerializedData sd;
+      do {
+        assertTrue(iterator.hasNext());
+        sd = iterator.next();
+      } while (sd.buffer[sd.dataOffset] != MessageType.BEGIN_WINDOW_VALUE ||
+          Tuple.getTuple(sd.buffer, sd.dataOffset, sd.length - sd.dataOffset + sd.offset).getWindowId() != 3);
+      assertTrue(pn.send(sd));
+      while (iterator.hasNext()) {
+        assertTrue(pn.send(iterator.next()));
+      }
+      assertTrue(pn.flush());
+      assertEquals(client.queued, 1, "runs queued");
+
+      list.purge((long)BASE_SECONDS << 32 | 4);
+      assertEquals(getIndexedWindows(0), windows(3, 10), "indexed windows after purge up to the queued run");
+
+      appendWindows(10, 12);
+      list.purge((long)BASE_SECONDS << 32 | 8);
+      assertEquals(getIndexedWindows(0), windows(3, 12), "indexed windows after a later purge");
+      assertEquals(Arrays.copyOfRange(client.runBuffer, client.runOffset, client.runOffset + client.run.length),
+          client.run, "queued run");
+    }
+  }
+
+}
@@ -0,0 +1,133 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.bufferserver.internal;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.testng.annotations.Test;
+
+import com.datatorrent.bufferserver.packet.PayloadTuple;
+import com.datatorrent.bufferserver.util.SerializedData;
+import com.datatorrent.bufferserver.util.VarInt;
+import com.datatorrent.netlet.AbstractLengthPrependerClient;
+import com.datatorrent.netlet.util.Slice;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+/**
+ *
+ */
+public class PhysicalNodeTest
+{
+  static class Client extends AbstractLengthPrependerClient
+  {
+    final List<Slice> sent = new ArrayList<>();
+    boolean full;
+
+    @Override
+    public boolean send(byte[] array, int offset, int len)
+    {
+      if (full) {
+        return false;
+      }
+      sent.add(new Slice(array, offset, len));
+      return true;
+    }
+
+    @Override
+    public void onMessage(byte[] buffer, int offset, int size)
+    {
+    }
+
+  }
+
+  private static List<SerializedData> block(byte[] buffer, int count)
+  {
+    List<SerializedData> tuples = new ArrayList<>();
+    int offset = 0;
+    for (int i = 0; i < count; i++) {
+      byte[] tuple = PayloadTuple.getSerializedTuple(0, 8);
+      SerializedData sd = new SerializedData(buffer, offset, 0);
+      sd.dataOffset = VarInt.write(tuple.length, buffer, offset);
+      System.arraycopy(tuple, 0, buffer, sd.dataOffset, tuple.length);
+      sd.length = sd.dataOffset + tuple.length - offset;
+      offset += sd.length;
+      tuples.add(sd);
+    }
+    return tuples;
+  }
+
+  @Test
+  public void testRuns()
+  {
+    Client client = new Client();
+    PhysicalNode pn = new PhysicalNode(client);
+    byte[] buffer = new byte[1024];
+    List<SerializedData> tuples = block(buffer, 5);
+
+    assertTrue(pn.send(tuples.get(0)));
+    assertTrue(pn.send(tuples.get(1)));
+    assertTrue(pn.send(tuples.get(2)));
+    assertEquals(client.sent.size(), 0, "consecutive tuples are held back");
+
+    /* skipping a tuple starts a new run */
+    assertTrue(pn.send(tuples.get(4)));
+    assertEquals(client.sent.size(), 1, "runs sent");
+    Slice run = client.sent.get(0);
+    assertSame(run.buffer, buffer, "run refers to the block");
+    assertEquals(run.offset, 0, "run offset");
+    assertEquals(run.length, tuples.get(3).offset, "run length");
+
+    assertTrue(pn.isBlocked());
+    assertTrue(pn.flush());
+    assertFalse(pn.isBlocked());
+    assertEquals(client.sent.size(), 2, "runs sent");
+    assertEquals(client.sent.get(1).offset, tuples.get(4).offset, "second run offset");
+    assertEquals(client.sent.get(1).length, tuples.get(4).length, "second run length");
+  }
+
+  @Test
+  public void testBlocked()
+  {
+    Client client = new Client();
+    PhysicalNode pn = new PhysicalNode(client);
+    List<SerializedData> tuples = block(new byte[1024], 2);
+    List<SerializedData> other = block(new byte[1024], 1);
+
+    client.full = true;
+    assertTrue(pn.send(tuples.get(0)));
+    assertTrue(pn.send(tuples.get(1)));
+    assertFalse(pn.flush(), "full connection");
+    assertFalse(pn.send(other.get(0)), "full connection");
+    assertTrue(pn.isBlocked());
+    assertFalse(pn.unblock());
+
+    client.full = false;
+    assertTrue(pn.unblock());
+    assertFalse(pn.isBlocked());
+    assertEquals(client.sent.size(), 2, "runs sent");
+    assertEquals(client.sent.get(0).length, tuples.get(0).length + tuples.get(1).length, "first run length");
+    assertSame(client.sent.get(1).buffer, other.get(0).buffer, "second run");
+  }
+
+}
@@ -0,0 +1,43 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.bufferserver.packet;
+
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+
+/**
+ *
+ */
+public class LatencyMarkerTupleTest
+{
+  @Test
+  public void testGetSerializedTuple()
+  {
+    long origin = 1476868800123L;
+    byte[] serial = LatencyMarkerTuple.getSerializedTuple(0x7fffabcd, 12345, origin, origin + 42);
+    LatencyMarkerTuple tuple = (LatencyMarkerTuple)Tuple.getTuple(serial, 0, serial.length);
+    assertEquals(tuple.getType(), MessageType.LATENCY_MARKER, "type");
+    assertEquals(tuple.getWindowId(), 0x7fffabcd, "window");
+    assertEquals(tuple.getSourceId(), 12345, "source");
+    assertEquals(tuple.getOriginTimestamp(), origin, "origin");
+    assertEquals(tuple.getForwardTimestamp(), origin + 42, "forward");
+  }
+
+}
@@ -0,0 +1,70 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.bufferserver.packet;
+
+import org.testng.annotations.Test;
+
+import com.datatorrent.netlet.util.Slice;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+/**
+ *
+ */
+public class PayloadFrameTupleTest
+{
+  @Test
+  public void testGetSerializedTuple()
+  {
+    PayloadFrameTuple.Builder builder = new PayloadFrameTuple.Builder(16);
+    for (int i = 0; i < 100; i++) {
+      builder.add(0x010203, new Slice(("payload" + i).getBytes()));
+    }
+    assertEquals(builder.getCount(), 100, "count");
+
+    byte[] serial = builder.build();
+    assertTrue(builder.isEmpty(), "empty after build");
+
+    PayloadFrameTuple tuple = (PayloadFrameTuple)Tuple.getTuple(serial, 0, serial.length);
+    assertEquals(tuple.getType(), MessageType.PAYLOAD_FRAME, "type");
+    assertEquals(tuple.getPartition(), 0x010203, "partition");
+    for (int i = 0; i < 100; i++) {
+      assertTrue(tuple.hasNextPayload(), "payload " + i);
+      Slice payload = tuple.nextPayload();
+      assertEquals(payload.buffer, serial, "payload not copied");
+      assertEquals(new String(payload.buffer, payload.offset, payload.length), "payload" + i, "payload " + i);
+    }
+    assertFalse(tuple.hasNextPayload(), "all payloads");
+  }
+
+  @Test
+  public void testSinglePayload()
+  {
+    PayloadFrameTuple.Builder builder = new PayloadFrameTuple.Builder(16);
+    builder.add(3, new Slice("payload".getBytes()));
+
+    byte[] serial = builder.build();
+    Tuple tuple = Tuple.getTuple(serial, 0, serial.length);
+    assertEquals(tuple.getType(), MessageType.PAYLOAD, "type");
+    assertEquals(tuple.getPartition(), 3, "partition");
+    assertEquals(tuple.getData().toByteArray(), "payload".getBytes(), "data");
+  }
+}
@@ -0,0 +1,166 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.bufferserver.server;
+
+import java.net.InetSocketAddress;
+
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.datatorrent.bufferserver.packet.BeginWindowTuple;
+import com.datatorrent.bufferserver.packet.EndWindowTuple;
+import com.datatorrent.bufferserver.packet.PayloadTuple;
+import com.datatorrent.bufferserver.support.Publisher;
+import com.datatorrent.bufferserver.support.Subscriber;
+import com.datatorrent.netlet.DefaultEventLoop;
+
+import static org.testng.Assert.assertEquals;
+
+/**
+ *
+ */
+public class MultiReactorServerTest
+{
+  static Server instance;
+  static InetSocketAddress address;
+  static DefaultEventLoop eventloopServer;
+  static DefaultEventLoop eventloopClient;
+
+  @BeforeClass
+  public static void setupServerAndClients() throws Exception
+  {
+    eventloopServer = DefaultEventLoop.createEventLoop("server");
+    eventloopClient = DefaultEventLoop.createEventLoop("client");
+    eventloopServer.start();
+    eventloopClient.start();
+
+    instance = new Server(0, 4096, 8);
+    instance.setNumberOfReactors(3);
+    address = instance.run(eventloopServer);
+  }
+
+  @AfterClass
+  public static void teardownServerAndClients()
+  {
+    eventloopServer.stop(instance);
+    eventloopServer.stop();
+    eventloopClient.stop();
+  }
+
+  @Test
+  @SuppressWarnings("SleepWhileInLoop")
+  public void testPublishersOnReactors() throws InterruptedException
+  {
+    int streams = 4;
+    Publisher[] publishers = new Publisher[streams];
+    Subscriber[] subscribers = new Subscriber[streams * 2];
+    for (int i = 0; i < streams; i++) {
+      for (int j = 0; j < 2; j++) {
+        Subscriber bss = new Subscriber("MySubscriber" + i + j);
+        eventloopClient.connect(address, bss);
+        bss.activate(null, "BufferServerOutput/BufferServerSubscriber" + i + j, "MyPublisher" + i, 0, null, 0L, 0);
+        subscribers[i * 2 + j] = bss;
+      }
+
+      publishers[i] = new Publisher("MyPublisher" + i);
+      eventloopClient.connect(address, publishers[i]);
+      publishers[i].activate(null, 0x7afebabe, 0);
+    }
+
+    long windowId = 0x7afebabe00000000L;
+    for (Publisher bsp : publishers) {
+      bsp.publishMessage(BeginWindowTuple.getSerializedTuple((int)windowId));
+      for (int i = 0; i < 100; i++) {
+        byte[] buff = PayloadTuple.getSerializedTuple(0, 1);
+        buff[buff.length - 1] = (byte)i;
+        bsp.publishMessage(buff);
+      }
+      bsp.publishMessage(EndWindowTuple.getSerializedTuple((int)windowId));
+    }
+
+    for (Subscriber bss : subscribers) {
+      for (int i = 0; i < 300; i++) {
+        if (bss.tupleCount.get() == 102 + bss.resetPayloads.size()) {
+          break;
+        }
+        Thread.sleep(10);
+      }
+    }
+
+    for (Publisher bsp : publishers) {
+      eventloopClient.disconnect(bsp);
+    }
+    for (Subscriber bss : subscribers) {
+      eventloopClient.disconnect(bss);
+      assertEquals(bss.tupleCount.get(), 102 + bss.resetPayloads.size());
+    }
+  }
+
+  @Test
+  @SuppressWarnings("SleepWhileInLoop")
+  public void testSubscriberChurn() throws InterruptedException
+  {
+    Subscriber persistent = new Subscriber("ChurnSubscriber");
+    eventloopClient.connect(address, persistent);
+    persistent.activate(null, "BufferServerOutput/ChurnSubscriber", "ChurnPublisher", 0, null, 0L, 0);
+
+    Publisher publisher = new Publisher("ChurnPublisher");
+    eventloopClient.connect(address, publisher);
+    publisher.activate(null, 0x7afebabe, 0);
+
+    int windows = 20;
+    long windowId = 0x7afebabe00000000L;
+    for (int w = 0; w < windows; w++) {
+      Subscriber churn = new Subscriber("ChurnSubscriber" + w);
+      eventloopClient.connect(address, churn);
+      churn.activate(null, "BufferServerOutput/ChurnSubscriber" + w, "ChurnPublisher", 0, null, 0L, 0);
+
+      publisher.publishMessage(BeginWindowTuple.getSerializedTuple((int)windowId + w));
+      for (int i = 0; i < 10; i++) {
+        byte[] buff = PayloadTuple.getSerializedTuple(0, 1);
+        buff[buff.length - 1] = (byte)i;
+        publisher.publishMessage(buff);
+      }
+      publisher.publishMessage(EndWindowTuple.getSerializedTuple((int)windowId + w));
+      eventloopClient.disconnect(churn);
+    }
+
+    Subscriber late = new Subscriber("LateSubscriber");
+    eventloopClient.connect(address, late);
+    late.activate(null, "BufferServerOutput/LateSubscriber", "ChurnPublisher", 0, null, 0L, 0);
+
+    int expected = windows * 12;
+    for (Subscriber bss : new Subscriber[] {persistent, late}) {
+      for (int i = 0; i < 300; i++) {
+        if (bss.tupleCount.get() == expected + bss.resetPayloads.size()) {
+          break;
+        }
+        Thread.sleep(10);
+      }
+    }
+
+    eventloopClient.disconnect(publisher);
+    eventloopClient.disconnect(persistent);
+    eventloopClient.disconnect(late);
+    assertEquals(persistent.tupleCount.get(), expected + persistent.resetPayloads.size(), "persistent subscriber");
+    assertEquals(late.tupleCount.get(), expected + late.resetPayloads.size(), "late subscriber");
+  }
+
+}
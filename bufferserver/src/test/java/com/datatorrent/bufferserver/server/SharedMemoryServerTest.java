@@ -0,0 +1,199 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.bufferserver.server;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.datatorrent.bufferserver.packet.BeginWindowTuple;
+import com.datatorrent.bufferserver.packet.EndWindowTuple;
+import com.datatorrent.bufferserver.packet.PayloadTuple;
+import com.datatorrent.bufferserver.support.Publisher;
+import com.datatorrent.bufferserver.support.Subscriber;
+import com.datatorrent.bufferserver.util.SharedMemoryRing;
+import com.datatorrent.netlet.DefaultEventLoop;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+/**
+ *
+ */
+public class SharedMemoryServerTest
+{
+  static Server instance;
+  static InetSocketAddress address;
+  static DefaultEventLoop eventloopServer;
+  static DefaultEventLoop eventloopClient;
+  static File directory = new File("target/SharedMemoryServerTest");
+
+  @BeforeClass
+  public static void setupServerAndClients() throws Exception
+  {
+    eventloopServer = DefaultEventLoop.createEventLoop("server");
+    eventloopClient = DefaultEventLoop.createEventLoop("client");
+    eventloopServer.start();
+    eventloopClient.start();
+
+    directory.mkdirs();
+    instance = new Server(0, 4096, 8);
+    instance.setSharedMemory(directory, 256);
+    address = instance.run(eventloopServer);
+  }
+
+  @AfterClass
+  public static void teardownServerAndClients()
+  {
+    eventloopServer.stop(instance);
+    eventloopServer.stop();
+    eventloopClient.stop();
+  }
+
+  @Test
+  @SuppressWarnings("SleepWhileInLoop")
+  public void testSharedMemory() throws InterruptedException
+  {
+    Subscriber bss = new Subscriber("MySubscriber");
+    eventloopClient.connect(address, bss);
+    bss.activate(null, "BufferServerOutput/BufferServerSubscriber", "MyPublisher", 0, null, 0L, 0, true);
+
+    Publisher bsp = new Publisher("MyPublisher");
+    eventloopClient.connect(address, bsp);
+    bsp.activate(null, 0x7afebabe, 0);
+
+    /* publish many more bytes than the ring holds so that the server waits for the subscriber to catch up */
+    int windowId = 0;
+    bsp.publishMessage(BeginWindowTuple.getSerializedTuple(windowId));
+    for (int i = 0; i < 1000; i++) {
+      byte[] buff = PayloadTuple.getSerializedTuple(0, 8);
+      buff[buff.length - 1] = (byte)i;
+      bsp.publishMessage(buff);
+    }
+    bsp.publishMessage(EndWindowTuple.getSerializedTuple(windowId));
+
+    for (int i = 0; i < 500; i++) {
+      if (bss.tupleCount.get() == 1002 + bss.resetPayloads.size()) {
+        break;
+      }
+      Thread.sleep(10);
+    }
+
+    eventloopClient.disconnect(bsp);
+    eventloopClient.disconnect(bss);
+    assertEquals(bss.tupleCount.get(), 1002 + bss.resetPayloads.size(), "tuples");
+    assertEquals(bss.lastPayload.getWindowId(), windowId, "last window");
+    assertTrue(bss.sharedMemoryBytes.get() > 1000 * 8, "bytes read from shared memory " + bss.sharedMemoryBytes);
+
+    for (int i = 0; i < 100 && directory.list().length > 0; i++) {
+      Thread.sleep(10);
+    }
+    assertEquals(directory.list().length, 0, "ring files left behind");
+  }
+
+  /**
+   * The publisher stops once the ring is full, the subscriber then drains the ring slowly, so the server only resumes
+   * because the subscriber reports the space it released.
+   */
+  @Test
+  @SuppressWarnings("SleepWhileInLoop")
+  public void testIdlePublisher() throws InterruptedException
+  {
+    Subscriber bss = new Subscriber("MySlowSubscriber")
+    {
+      @Override
+      public void onMessage(byte[] buffer, int offset, int size)
+      {
+        super.onMessage(buffer, offset, size);
+        try {
+          Thread.sleep(1);
+        } catch (InterruptedException ex) {
+          throw new RuntimeException(ex);
+        }
+      }
+    };
+    eventloopClient.connect(address, bss);
+    bss.activate(null, "BufferServerOutput/BufferServerSubscriber", "MySlowPublisher", 0, null, 0L, 0, true);
+
+    Publisher bsp = new Publisher("MySlowPublisher");
+    eventloopClient.connect(address, bsp);
+    bsp.activate(null, 0x7afebabe, 0);
+
+    int windowId = 0;
+    bsp.publishMessage(BeginWindowTuple.getSerializedTuple(windowId));
+    for (int i = 0; i < 100; i++) {
+      bsp.publishMessage(PayloadTuple.getSerializedTuple(0, 8));
+    }
+    bsp.publishMessage(EndWindowTuple.getSerializedTuple(windowId));
+
+    for (int i = 0; i < 500; i++) {
+      if (bss.tupleCount.get() == 102 + bss.resetPayloads.size()) {
+        break;
+      }
+      Thread.sleep(10);
+    }
+
+    eventloopClient.disconnect(bsp);
+    eventloopClient.disconnect(bss);
+    assertEquals(bss.tupleCount.get(), 102 + bss.resetPayloads.size(), "tuples");
+  }
+
+  @Test
+  public void testRelease() throws IOException
+  {
+    SharedMemoryRing producer = SharedMemoryRing.create(directory, 16);
+    SharedMemoryRing consumer = SharedMemoryRing.open(producer.getPath(), 16);
+    byte[] record = new byte[6];
+    assertTrue(producer.write(record, 0, record.length), "first record");
+    assertFalse(producer.write(record, 0, record.length), "ring full");
+
+    byte[] buffer = new byte[16];
+    assertEquals(consumer.nextLength(producer.getWriteCursor()), record.length, "length");
+    consumer.read(buffer, 0, record.length);
+    assertTrue(consumer.release(), "producer waits for the space");
+    assertTrue(producer.write(record, 0, record.length), "second record");
+    assertEquals(consumer.nextLength(producer.getWriteCursor()), record.length, "length");
+    consumer.read(buffer, 0, record.length);
+    assertFalse(consumer.release(), "producer does not wait");
+    consumer.close();
+    producer.close();
+  }
+
+  @Test
+  public void testPurge() throws IOException
+  {
+    File stale = new File(directory, "bufferserver-" + Integer.MAX_VALUE + "-1.ring");
+    assertTrue(stale.createNewFile(), "created " + stale);
+    SharedMemoryRing ring = SharedMemoryRing.create(directory, 64);
+    SharedMemoryRing.purge(directory);
+    if (new File("/proc/self").exists()) {
+      assertFalse(stale.exists(), "file of a process which is gone");
+    }
+    assertTrue(new File(ring.getPath()).exists(), "file of this process");
+    ring.close();
+    stale.delete();
+    assertEquals(directory.list().length, 0, "ring files left behind");
+  }
+
+}
@@ -34,6 +34,7 @@ public class Subscriber extends com.datatorrent.bufferserver.client.Subscriber
 {
   public final ArrayList<Object> resetPayloads = new ArrayList<Object>();
   public AtomicInteger tupleCount = new AtomicInteger(0);
+  public AtomicInteger sharedMemoryBytes = new AtomicInteger(0);
   public WindowIdHolder firstPayload;
   public WindowIdHolder lastPayload;
 
@@ -44,17 +45,28 @@ public class Subscriber extends com.datatorrent.bufferserver.client.Subscriber
 
   @Override
   public void activate(final String version, final String type, final String sourceId, final int mask,
-      final Collection<Integer> partitions, final long windowId, final int bufferSize)
+      final Collection<Integer> partitions, final long windowId, final int bufferSize, final boolean sharedMemory)
   {
     tupleCount.set(0);
+    sharedMemoryBytes.set(0);
     firstPayload = lastPayload = null;
     resetPayloads.clear();
-    super.activate(version, type, sourceId, mask, partitions, windowId, bufferSize);
+    super.activate(version, type, sourceId, mask, partitions, windowId, bufferSize, sharedMemory);
+  }
+
+  @Override
+  protected void onSharedMemoryRead(int bytes)
+  {
+    sharedMemoryBytes.addAndGet(bytes);
   }
 
   @Override
   public void onMessage(byte[] buffer, int offset, int size)
   {
+    if (handleSharedMemory(buffer, offset, size)) {
+      return;
+    }
+
     Tuple tuple = Tuple.getTuple(buffer, offset, size);
     tupleCount.incrementAndGet();
     switch (tuple.getType()) {
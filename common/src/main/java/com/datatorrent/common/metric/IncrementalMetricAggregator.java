@@ -0,0 +1,75 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.common.metric;
+
+import java.util.Collection;
+
+/**
+ * <p>A {@link SingleMetricAggregator} that aggregates the values of a metric one at a time into a
+ * {@link MetricAccumulator}.</p>
+ *
+ * {@link MetricsAggregator} feeds the physical metric values of a window to incremental aggregators directly,
+ * without collecting them into a collection first. Numbers are aggregated as primitive longs or doubles.
+ *
+ * @since 3.5.0
+ */
+public abstract class IncrementalMetricAggregator implements SingleMetricAggregator
+{
+  /**
+   * Initializes the accumulator for a new aggregation.
+   */
+  public abstract void reset(MetricAccumulator accumulator);
+
+  public abstract void accumulate(MetricAccumulator accumulator, long value);
+
+  public abstract void accumulate(MetricAccumulator accumulator, double value);
+
+  /**
+   * Merges a partial aggregate of the same aggregator into the accumulator.
+   */
+  public abstract void merge(MetricAccumulator accumulator, MetricAccumulator partial);
+
+  /**
+   * Returns the aggregated value, which is null when no value was accumulated.
+   */
+  public abstract Object getResult(MetricAccumulator accumulator);
+
+  /**
+   * Accumulates a metric value, using the double variant for floating point values and the long variant otherwise.
+   */
+  public void accumulate(MetricAccumulator accumulator, Object value)
+  {
+    if (value instanceof Double || value instanceof Float) {
+      accumulate(accumulator, ((Number)value).doubleValue());
+    } else {
+      accumulate(accumulator, ((Number)value).longValue());
+    }
+  }
+
+  @Override
+  public Object aggregate(Collection<Object> metricValues)
+  {
+    MetricAccumulator accumulator = new MetricAccumulator();
+    reset(accumulator);
+    for (Object value : metricValues) {
+      accumulate(accumulator, value);
+    }
+    return getResult(accumulator);
+  }
+}
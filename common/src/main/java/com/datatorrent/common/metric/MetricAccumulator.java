@@ -0,0 +1,40 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.common.metric;
+
+/**
+ * Mutable state of an {@link IncrementalMetricAggregator} while it aggregates the values of a metric within a window.
+ * Accumulators of the same aggregator can be merged, which allows partial aggregates to be computed separately and
+ * combined later.
+ *
+ * @since 3.5.0
+ */
+public class MetricAccumulator
+{
+  public long longValue;
+  public double doubleValue;
+  public long count;
+
+  public void reset(long longValue, double doubleValue)
+  {
+    this.longValue = longValue;
+    this.doubleValue = doubleValue;
+    this.count = 0;
+  }
+}
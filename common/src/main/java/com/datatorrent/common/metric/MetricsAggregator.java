@@ -26,10 +26,8 @@ import java.util.Map;
 import javax.validation.constraints.NotNull;
 
 import com.google.common.base.Preconditions;
-import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
-import com.google.common.collect.Multimap;
 
 import com.datatorrent.api.AutoMetric;
 import com.datatorrent.api.annotation.Name;
@@ -42,7 +40,8 @@ import com.datatorrent.api.annotation.Name;
  * metric will be executed during aggregation.
  * <p/>
  * There are examples of {@link SingleMetricAggregator} provided in the library for common number
- * aggregations- sum, min, max, avg.
+ * aggregations- sum, min, max, avg. These are {@link IncrementalMetricAggregator}s that aggregate primitive values
+ * without collecting them first.
  *
  * @since 3.0.0
  */
@@ -60,24 +59,67 @@ public class MetricsAggregator implements AutoMetric.Aggregator, Serializable
     aggregatorMetricSeparator = DEFAULT_SEPARATOR;
   }
 
+  /**
+   * Values of metrics are unboxed once as they are read from the physical metrics and fed to the primitive
+   * accumulate methods of the {@link IncrementalMetricAggregator}s; the values of metrics with other aggregators are
+   * collected for {@link SingleMetricAggregator#aggregate(Collection)}.
+   */
   @Override
   public Map<String, Object> aggregate(long windowId, Collection<AutoMetric.PhysicalMetricsContext> physicalMetrics)
   {
-    Multimap<String, Object> metricValues = ArrayListMultimap.create();
-
-    for (AutoMetric.PhysicalMetricsContext pmCtx : physicalMetrics) {
-      for (Map.Entry<String, Object> entry : pmCtx.getMetrics().entrySet()) {
-        metricValues.put(entry.getKey(), entry.getValue());
+    Map<String, Object> aggregates = Maps.newHashMap();
+    for (Map.Entry<String, List<LogicalMetricMeta>> entry : metricLogicalAggregates.entrySet()) {
+      String metric = entry.getKey();
+      List<LogicalMetricMeta> logicalMetricMetas = entry.getValue();
+      int size = logicalMetricMetas.size();
+      MetricAccumulator[] accumulators = new MetricAccumulator[size];
+      List<Object> metricValues = null;
+      for (int i = 0; i < size; i++) {
+        SingleMetricAggregator aggregator = logicalMetricMetas.get(i).aggregator;
+        if (aggregator instanceof IncrementalMetricAggregator) {
+          accumulators[i] = new MetricAccumulator();
+          ((IncrementalMetricAggregator)aggregator).reset(accumulators[i]);
+        } else if (metricValues == null) {
+          metricValues = Lists.newArrayList();
+        }
       }
-    }
 
-    Map<String, Object> aggregates = Maps.newHashMap();
-    for (String metric : metricValues.keySet()) {
-      List<LogicalMetricMeta> logicalMetricMetas = metricLogicalAggregates.get(metric);
-      if (logicalMetricMetas != null) {
-        for (LogicalMetricMeta logicalMetricMeta : logicalMetricMetas) {
+      boolean found = false;
+      for (AutoMetric.PhysicalMetricsContext pmCtx : physicalMetrics) {
+        Map<String, Object> metrics = pmCtx.getMetrics();
+        Object value = metrics.get(metric);
+        if (value == null && !metrics.containsKey(metric)) {
+          continue;
+        }
+        found = true;
+        if (metricValues != null) {
+          metricValues.add(value);
+        }
+        if (value instanceof Double || value instanceof Float) {
+          double doubleValue = ((Number)value).doubleValue();
+          for (int i = 0; i < size; i++) {
+            if (accumulators[i] != null) {
+              ((IncrementalMetricAggregator)logicalMetricMetas.get(i).aggregator).accumulate(accumulators[i],
+                  doubleValue);
+            }
+          }
+        } else if (value instanceof Number) {
+          long longValue = ((Number)value).longValue();
+          for (int i = 0; i < size; i++) {
+            if (accumulators[i] != null) {
+              ((IncrementalMetricAggregator)logicalMetricMetas.get(i).aggregator).accumulate(accumulators[i],
+                  longValue);
+            }
+          }
+        }
+      }
 
-          Object aggregatedVal = logicalMetricMeta.aggregator.aggregate(metricValues.get(metric));
+      if (found) {
+        for (int i = 0; i < size; i++) {
+          LogicalMetricMeta logicalMetricMeta = logicalMetricMetas.get(i);
+          Object aggregatedVal = accumulators[i] != null ?
+              ((IncrementalMetricAggregator)logicalMetricMeta.aggregator).getResult(accumulators[i]) :
+              logicalMetricMeta.aggregator.aggregate(metricValues);
           aggregates.put(logicalMetricMeta.name, aggregatedVal);
         }
       }
@@ -0,0 +1,69 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.common.metric.avg;
+
+import java.io.Serializable;
+
+import com.datatorrent.api.annotation.Name;
+
+import com.datatorrent.common.metric.IncrementalMetricAggregator;
+import com.datatorrent.common.metric.MetricAccumulator;
+
+/**
+ * <p>LongAvgAggregator class.</p>
+ *
+ * @since 3.5.0
+ */
+@Name("avg")
+public class LongAvgAggregator extends IncrementalMetricAggregator implements Serializable
+{
+  @Override
+  public void reset(MetricAccumulator accumulator)
+  {
+    accumulator.reset(0, 0);
+  }
+
+  @Override
+  public void accumulate(MetricAccumulator accumulator, long value)
+  {
+    accumulator.longValue += value;
+    accumulator.count++;
+  }
+
+  @Override
+  public void accumulate(MetricAccumulator accumulator, double value)
+  {
+    accumulate(accumulator, (long)value);
+  }
+
+  @Override
+  public void merge(MetricAccumulator accumulator, MetricAccumulator partial)
+  {
+    accumulator.longValue += partial.longValue;
+    accumulator.count += partial.count;
+  }
+
+  @Override
+  public Object getResult(MetricAccumulator accumulator)
+  {
+    return accumulator.count == 0 ? null : (double)accumulator.longValue / accumulator.count;
+  }
+
+  private static final long serialVersionUID = 201610190004L;
+}
@@ -19,11 +19,11 @@
 package com.datatorrent.common.metric.sum;
 
 import java.io.Serializable;
-import java.util.Collection;
 
 import com.datatorrent.api.annotation.Name;
 
-import com.datatorrent.common.metric.SingleMetricAggregator;
+import com.datatorrent.common.metric.IncrementalMetricAggregator;
+import com.datatorrent.common.metric.MetricAccumulator;
 
 /**
  * <p>DoubleSumAggregator class.</p>
@@ -31,17 +31,38 @@ import com.datatorrent.common.metric.SingleMetricAggregator;
  * @since 3.2.0
  */
 @Name("sum")
-public class DoubleSumAggregator implements SingleMetricAggregator, Serializable
+public class DoubleSumAggregator extends IncrementalMetricAggregator implements Serializable
 {
   @Override
-  public Object aggregate(Collection<Object> metricValues)
+  public void reset(MetricAccumulator accumulator)
   {
-    double sum = 0;
+    accumulator.reset(0, 0);
+  }
+
+  @Override
+  public void accumulate(MetricAccumulator accumulator, long value)
+  {
+    accumulate(accumulator, (double)value);
+  }
 
-    for (Object value : metricValues) {
-      sum += ((Number)value).doubleValue();
-    }
-    return sum;
+  @Override
+  public void accumulate(MetricAccumulator accumulator, double value)
+  {
+    accumulator.doubleValue += value;
+    accumulator.count++;
+  }
+
+  @Override
+  public void merge(MetricAccumulator accumulator, MetricAccumulator partial)
+  {
+    accumulator.doubleValue += partial.doubleValue;
+    accumulator.count += partial.count;
+  }
+
+  @Override
+  public Object getResult(MetricAccumulator accumulator)
+  {
+    return accumulator.doubleValue;
   }
 
   private static final long serialVersionUID = 201504081008L;
@@ -19,11 +19,11 @@
 package com.datatorrent.common.metric.sum;
 
 import java.io.Serializable;
-import java.util.Collection;
 
 import com.datatorrent.api.annotation.Name;
 
-import com.datatorrent.common.metric.SingleMetricAggregator;
+import com.datatorrent.common.metric.IncrementalMetricAggregator;
+import com.datatorrent.common.metric.MetricAccumulator;
 
 /**
  * <p>LongSumAggregator class.</p>
@@ -31,16 +31,38 @@ import com.datatorrent.common.metric.SingleMetricAggregator;
  * @since 3.2.0
  */
 @Name("sum")
-public class LongSumAggregator implements SingleMetricAggregator, Serializable
+public class LongSumAggregator extends IncrementalMetricAggregator implements Serializable
 {
   @Override
-  public Object aggregate(Collection<Object> metricValues)
+  public void reset(MetricAccumulator accumulator)
   {
-    long sum = 0;
-    for (Object value : metricValues) {
-      sum += ((Number)value).longValue();
-    }
-    return sum;
+    accumulator.reset(0, 0);
+  }
+
+  @Override
+  public void accumulate(MetricAccumulator accumulator, long value)
+  {
+    accumulator.longValue += value;
+    accumulator.count++;
+  }
+
+  @Override
+  public void accumulate(MetricAccumulator accumulator, double value)
+  {
+    accumulate(accumulator, (long)value);
+  }
+
+  @Override
+  public void merge(MetricAccumulator accumulator, MetricAccumulator partial)
+  {
+    accumulator.longValue += partial.longValue;
+    accumulator.count += partial.count;
+  }
+
+  @Override
+  public Object getResult(MetricAccumulator accumulator)
+  {
+    return accumulator.longValue;
   }
 
   private static final long serialVersionUID = 201504081002L;
@@ -0,0 +1,336 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.common.partitioner;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import javax.validation.constraints.Min;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+import com.datatorrent.api.DefaultPartition;
+import com.datatorrent.api.Operator;
+import com.datatorrent.api.Operator.InputPort;
+import com.datatorrent.api.Partitioner;
+
+/**
+ * <p>KeyGroupPartitioner class.</p>
+ *
+ * Partitions an operator over a fixed number of key groups. The key group of a tuple is given by the lower bits of the
+ * partition hash of its stream codec, so the number of key groups is a power of two, but any number of partitions up
+ * to the number of key groups can be deployed, each of them receiving the tuples of the key groups it owns.
+ * <p>
+ * On repartition the partitions which are kept keep as many of their key groups as their share allows, only the
+ * remaining key groups move. Operators which implement {@link KeyGroupStateful} hand the state of the moving key groups
+ * over from the checkpointed instances of their previous owners to their new owners, so that the operator does not
+ * have to redistribute its state itself.
+ * <p>
+ * The number of partitions is given by the partition count, the parallel partition count or, when the partitions
+ * report a load, by splitting the overloaded and merging pairs of underloaded partitions.
+ *
+ * @param <T> The type of the operator
+ * @since 3.5.0
+ */
+public class KeyGroupPartitioner<T extends Operator> implements Partitioner<T>, Serializable
+{
+  private static final Logger logger = LoggerFactory.getLogger(KeyGroupPartitioner.class);
+  private static final long serialVersionUID = 201610191620L;
+  @Min(1)
+  private int keyGroupCount = 128;
+  @Min(1)
+  private int partitionCount = 1;
+
+  /**
+   * Operator whose state is held per key group.
+   *
+   * @param <S> type of the state of a key group
+   */
+  public interface KeyGroupStateful<S>
+  {
+    /**
+     * Removes the state of key groups which move to other partitions.
+     *
+     * @param keyGroups the key groups
+     * @return the state of the key groups which have state, keyed by key group
+     */
+    Map<Integer, S> removeKeyGroups(Set<Integer> keyGroups);
+
+    /**
+     * Adds the state of key groups which move to the partition.
+     *
+     * @param states the state of the key groups, keyed by key group
+     */
+    void addKeyGroups(Map<Integer, S> states);
+  }
+
+  public KeyGroupPartitioner()
+  {
+  }
+
+  /**
+   * This constructor is used to create the partitioner from a property.
+   * @param value the number of partitions, optionally followed by a colon and the number of key groups
+   */
+  public KeyGroupPartitioner(String value)
+  {
+    String[] values = value.split(":");
+    partitionCount = Integer.parseInt(values[0]);
+    if (values.length > 1) {
+      setKeyGroupCount(Integer.parseInt(values[1]));
+    }
+  }
+
+  public KeyGroupPartitioner(int partitionCount, int keyGroupCount)
+  {
+    this.partitionCount = partitionCount;
+    setKeyGroupCount(keyGroupCount);
+  }
+
+  /**
+   * @param partitionHash partition hash of a tuple as returned by the stream codec
+   * @param keyGroupCount the number of key groups
+   * @return the key group of the tuple
+   */
+  public static int getKeyGroup(int partitionHash, int keyGroupCount)
+  {
+    return partitionHash & (keyGroupCount - 1);
+  }
+
+  @Override
+  public Collection<Partition<T>> definePartitions(Collection<Partition<T>> partitions, PartitioningContext context)
+  {
+    final Partition<T> first = partitions.iterator().next();
+    if (first.getStats() == null) {
+      List<InputPort<?>> inputPorts = context.getInputPorts();
+      if (inputPorts == null || inputPorts.isEmpty()) {
+        throw new IllegalArgumentException("Key groups require an input port to partition " + first.getPartitionedInstance());
+      }
+      int count = Math.min(keyGroupCount, DefaultPartition.getRequiredPartitionCount(context, partitionCount));
+      return assignKeyGroups(new ArrayList<Partition<T>>(partitions), inputPorts.get(0), count);
+    }
+
+    int count;
+    if (context.getParallelPartitionCount() != 0) {
+      count = context.getParallelPartitionCount();
+    } else {
+      int overloaded = 0;
+      int underloaded = 0;
+      for (Partition<T> partition : partitions) {
+        if (partition.getLoad() > 0) {
+          overloaded++;
+        } else if (partition.getLoad() < 0) {
+          underloaded++;
+        }
+      }
+      count = overloaded == 0 && underloaded == 0 ? partitionCount : partitions.size() + overloaded - underloaded / 2;
+    }
+    count = Math.max(1, Math.min(keyGroupCount, count));
+    InputPort<?> port = first.getPartitionKeys().keySet().iterator().next();
+    return assignKeyGroups(new ArrayList<>(partitions), port, count);
+  }
+
+  /**
+   * Assigns the key groups to the given number of partitions, keeping as many key groups as possible with their
+   * current owners, and moves the state of the key groups which change owners.
+   */
+  private Collection<Partition<T>> assignKeyGroups(List<Partition<T>> partitions, InputPort<?> port, int count)
+  {
+    final int mask = keyGroupCount - 1;
+    final Map<Partition<T>, Set<Integer>> ownedKeyGroups = new IdentityHashMap<>();
+    final Map<Integer, Partition<T>> owners = new HashMap<>();
+    for (Partition<T> partition : partitions) {
+      Set<Integer> keyGroups = new TreeSet<>();
+      PartitionKeys pks = partition.getPartitionKeys().get(port);
+      if (pks != null && pks.mask == mask) {
+        for (Integer keyGroup : pks.partitions) {
+          if (!owners.containsKey(keyGroup)) {
+            owners.put(keyGroup, partition);
+            keyGroups.add(keyGroup);
+          }
+        }
+      }
+      ownedKeyGroups.put(partition, keyGroups);
+    }
+
+    /* keep the partitions owning the most key groups */
+    Collections.sort(partitions, new Comparator<Partition<T>>()
+    {
+      @Override
+      public int compare(Partition<T> p1, Partition<T> p2)
+      {
+        return ownedKeyGroups.get(p2).size() - ownedKeyGroups.get(p1).size();
+      }
+    });
+    List<Partition<T>> newPartitions = new ArrayList<>(partitions.subList(0, Math.min(count, partitions.size())));
+    Partition<T> template = newPartitions.get(0);
+    while (newPartitions.size() < count) {
+      T operator = clone(template.getPartitionedInstance());
+      if (operator instanceof KeyGroupStateful) {
+        ((KeyGroupStateful<?>)operator).removeKeyGroups(ownedKeyGroups.get(template));
+      }
+      Partition<T> partition = new DefaultPartition<>(operator);
+      ownedKeyGroups.put(partition, new TreeSet<Integer>());
+      newPartitions.add(partition);
+    }
+
+    /* give each partition its share of key groups, taking the surplus of the others first */
+    final Map<Partition<T>, Set<Integer>> assignedKeyGroups = new IdentityHashMap<>();
+    final List<Integer> unassigned = new ArrayList<>();
+    for (int i = 0; i < newPartitions.size(); i++) {
+      Partition<T> partition = newPartitions.get(i);
+      int share = keyGroupCount / count + (i < keyGroupCount % count ? 1 : 0);
+      Set<Integer> keyGroups = new TreeSet<>();
+      for (Integer keyGroup : ownedKeyGroups.get(partition)) {
+        if (keyGroups.size() < share) {
+          keyGroups.add(keyGroup);
+        } else {
+          unassigned.add(keyGroup);
+        }
+      }
+      assignedKeyGroups.put(partition, keyGroups);
+    }
+    for (int keyGroup = 0; keyGroup < keyGroupCount; keyGroup++) {
+      Partition<T> owner = owners.get(keyGroup);
+      if (owner == null || !assignedKeyGroups.containsKey(owner)) {
+        unassigned.add(keyGroup);
+      }
+    }
+    Collections.sort(unassigned);
+
+    final Map<Partition<T>, Map<Partition<T>, Set<Integer>>> moves = new IdentityHashMap<>();
+    int moved = 0;
+    for (int i = 0; i < newPartitions.size(); i++) {
+      Partition<T> partition = newPartitions.get(i);
+      int share = keyGroupCount / count + (i < keyGroupCount % count ? 1 : 0);
+      Set<Integer> keyGroups = assignedKeyGroups.get(partition);
+      while (keyGroups.size() < share) {
+        Integer keyGroup = unassigned.remove(unassigned.size() - 1);
+        keyGroups.add(keyGroup);
+        Partition<T> owner = owners.get(keyGroup);
+        if (owner != null) {
+          Map<Partition<T>, Set<Integer>> movesFromOwner = moves.get(owner);
+          if (movesFromOwner == null) {
+            moves.put(owner, movesFromOwner = new IdentityHashMap<>());
+          }
+          Set<Integer> movingKeyGroups = movesFromOwner.get(partition);
+          if (movingKeyGroups == null) {
+            movesFromOwner.put(partition, movingKeyGroups = new TreeSet<>());
+          }
+          movingKeyGroups.add(keyGroup);
+          moved++;
+        }
+      }
+      if (!keyGroups.equals(ownedKeyGroups.get(partition))) {
+        partition.getPartitionKeys().put(port, new PartitionKeys(mask, keyGroups));
+      }
+    }
+
+    for (Map.Entry<Partition<T>, Map<Partition<T>, Set<Integer>>> entry : moves.entrySet()) {
+      moveState(entry.getKey().getPartitionedInstance(), entry.getValue());
+    }
+
+    logger.info("Assigned {} key groups to {} partitions, {} moved from {} partitions", keyGroupCount, count, moved,
+        partitions.size());
+    return newPartitions;
+  }
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private void moveState(T source, Map<Partition<T>, Set<Integer>> keyGroupsByTarget)
+  {
+    if (!(source instanceof KeyGroupStateful)) {
+      return;
+    }
+
+    for (Map.Entry<Partition<T>, Set<Integer>> entry : keyGroupsByTarget.entrySet()) {
+      Map states = ((KeyGroupStateful)source).removeKeyGroups(entry.getValue());
+      if (states != null && !states.isEmpty()) {
+        ((KeyGroupStateful)entry.getKey().getPartitionedInstance()).addKeyGroups(states);
+      }
+    }
+  }
+
+  /**
+   * New partitions are copies of an existing partition, they must not share its mutable state.
+   */
+  @SuppressWarnings("unchecked")
+  private static <T> T clone(T operator)
+  {
+    Kryo kryo = new Kryo();
+    kryo.setClassLoader(operator.getClass().getClassLoader());
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    Output output = new Output(bos);
+    kryo.writeClassAndObject(output, operator);
+    output.close();
+    return (T)kryo.readClassAndObject(new Input(bos.toByteArray()));
+  }
+
+  @Override
+  public void partitioned(Map<Integer, Partition<T>> partitions)
+  {
+  }
+
+  /**
+   * @return the number of key groups, a power of two
+   */
+  public int getKeyGroupCount()
+  {
+    return keyGroupCount;
+  }
+
+  /**
+   * The number of key groups bounds the number of partitions, it cannot change once the operator was partitioned
+   * without moving all the state.
+   *
+   * @param keyGroupCount the number of key groups, a power of two
+   */
+  public void setKeyGroupCount(int keyGroupCount)
+  {
+    if (Integer.bitCount(keyGroupCount) != 1) {
+      throw new IllegalArgumentException("Number of key groups " + keyGroupCount + " is not a power of two");
+    }
+    this.keyGroupCount = keyGroupCount;
+  }
+
+  public int getPartitionCount()
+  {
+    return partitionCount;
+  }
+
+  public void setPartitionCount(int partitionCount)
+  {
+    this.partitionCount = partitionCount;
+  }
+
+}
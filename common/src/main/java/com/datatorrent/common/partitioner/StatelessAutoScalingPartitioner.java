@@ -0,0 +1,379 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.common.partitioner;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.validation.constraints.Min;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.datatorrent.api.DefaultPartition;
+import com.datatorrent.api.Operator;
+import com.datatorrent.api.Stats.OperatorStats;
+import com.datatorrent.api.Stats.OperatorStats.PortStats;
+import com.datatorrent.api.StatsListener;
+
+/**
+ * <p>StatelessAutoScalingPartitioner class.</p>
+ *
+ * Scales a stateless operator between a minimum and a maximum number of partitions based on the throughput, latency,
+ * cpu usage and input queue size of its partitions. The partitioner has to be set as both the partitioner and a stats
+ * listener of the operator. A partition is considered overloaded when any of the configured upper bounds is exceeded
+ * and underloaded when it stays below all of the configured lower bounds; bounds which are left at 0 are ignored.
+ * <p>
+ * To keep the operator from flapping, the gap between the upper and the lower bounds acts as a hysteresis, a partition
+ * has to stay over- or underloaded for a number of consecutive stats updates before it asks for a repartition, the
+ * operator is not repartitioned again before a cool-down period has passed and the number of operators which are
+ * repartitioned by autoscaling partitioners of the application at the same time is capped.
+ *
+ * @param <T> The type of the operator
+ * @since 3.5.0
+ */
+@StatsListener.DataQueueSize
+public class StatelessAutoScalingPartitioner<T extends Operator> extends StatelessPartitioner<T> implements StatsListener
+{
+  private static final Logger logger = LoggerFactory.getLogger(StatelessAutoScalingPartitioner.class);
+  private static final long serialVersionUID = 201610191500L;
+  @Min(1)
+  private int minPartitions = 1;
+  @Min(1)
+  private int maxPartitions = 8;
+  private long maximumTuplesPerSecond;
+  private long minimumTuplesPerSecond;
+  private long maximumLatencyMillis;
+  private double maximumCpuPercentage;
+  private double minimumCpuPercentage;
+  private long maximumQueueSize;
+  @Min(1)
+  private int stableUpdates = 3;
+  private long cooldownMillis = 60 * 1000;
+  @Min(1)
+  private int maxConcurrentRepartitions = 1;
+  private final Map<Integer, Integer> loads = new HashMap<>();
+  private final Map<Integer, Integer> consecutiveUpdates = new HashMap<>();
+  private int partitionCount;
+  private long lastRepartitionMillis;
+  private transient boolean repartitionPending;
+  private transient long repartitionRequestMillis;
+  /**
+   * Repartitions requested by the autoscaling partitioners of the application and not completed yet, only counts the
+   * repartitions of this partitioner when the partitioning context does not share a counter.
+   */
+  private transient AtomicInteger inFlightRepartitions;
+
+  public StatelessAutoScalingPartitioner()
+  {
+  }
+
+  /**
+   * @param minPartitions the minimum and the initial number of partitions
+   * @param maxPartitions the maximum number of partitions
+   */
+  public StatelessAutoScalingPartitioner(int minPartitions, int maxPartitions)
+  {
+    super(minPartitions);
+    this.minPartitions = minPartitions;
+    this.maxPartitions = maxPartitions;
+  }
+
+  @Override
+  public synchronized Collection<Partition<T>> definePartitions(Collection<Partition<T>> partitions,
+      PartitioningContext context)
+  {
+    if (context instanceof CoordinatedPartitioningContext) {
+      inFlightRepartitions = ((CoordinatedPartitioningContext)context).getInFlightRepartitions();
+    }
+    if (partitions.iterator().next().getStats() == null || context.getParallelPartitionCount() != 0) {
+      setPartitionCount(Math.min(maxPartitions, Math.max(minPartitions, getPartitionCount())));
+      return super.definePartitions(partitions, context);
+    }
+
+    /* allow only as many splits and merges as keep the partition count within the bounds */
+    int splits = maxPartitions - partitions.size();
+    int merges = 2 * (partitions.size() - minPartitions);
+    List<Partition<T>> boundedPartitions = new ArrayList<>(partitions.size());
+    for (Partition<T> partition : partitions) {
+      int load = partition.getLoad();
+      if (load > 0 && splits-- <= 0 || load < 0 && merges-- <= 0) {
+        load = 0;
+      }
+      boundedPartitions.add(new DefaultPartition<>(partition.getPartitionedInstance(), partition.getPartitionKeys(), load,
+          partition.getStats()));
+    }
+
+    Collection<Partition<T>> newPartitions = boundedPartitions.get(0).getPartitionKeys().isEmpty() ?
+        repartitionInputOperator(boundedPartitions) : repartition(boundedPartitions);
+    logger.info("Scaling from {} to {} partitions", partitions.size(), newPartitions.size());
+    return newPartitions;
+  }
+
+  @Override
+  public synchronized void partitioned(Map<Integer, Partition<T>> partitions)
+  {
+    partitionCount = partitions.size();
+    loads.keySet().retainAll(partitions.keySet());
+    consecutiveUpdates.keySet().retainAll(partitions.keySet());
+    if (repartitionPending) {
+      repartitionPending = false;
+      lastRepartitionMillis = System.currentTimeMillis();
+      getInFlightRepartitions().decrementAndGet();
+    }
+  }
+
+  @Override
+  public synchronized Response processStats(BatchedOperatorStats stats)
+  {
+    final long now = System.currentTimeMillis();
+    if (repartitionPending && now - repartitionRequestMillis > cooldownMillis) {
+      /* the repartition was dropped without calling back */
+      repartitionPending = false;
+      getInFlightRepartitions().decrementAndGet();
+    }
+
+    final int operatorId = stats.getOperatorId();
+    final int load = getLoad(stats);
+    Integer previousLoad = loads.put(operatorId, load);
+    Integer updates = consecutiveUpdates.get(operatorId);
+    updates = previousLoad != null && previousLoad == load && updates != null ? updates + 1 : 1;
+    consecutiveUpdates.put(operatorId, updates);
+
+    Response response = new Response();
+    if (load != 0 && updates >= stableUpdates) {
+      response.loadIndicator = load;
+      if (!repartitionPending && now - lastRepartitionMillis >= cooldownMillis &&
+          (load > 0 ? partitionCount < maxPartitions : partitionCount > minPartitions) && acquireRepartition()) {
+        repartitionPending = true;
+        repartitionRequestMillis = now;
+        response.repartitionRequired = true;
+        response.repartitionNote = "Partition " + operatorId + (load > 0 ? " is overloaded" : " is underloaded") +
+            " at " + stats.getTuplesProcessedPSMA() + " tuples/s, " + stats.getLatencyMA() + " ms latency, " +
+            stats.getCpuPercentageMA() + "% cpu";
+        logger.debug("{}", response.repartitionNote);
+      }
+    }
+    return response;
+  }
+
+  private AtomicInteger getInFlightRepartitions()
+  {
+    if (inFlightRepartitions == null) {
+      inFlightRepartitions = new AtomicInteger();
+    }
+    return inFlightRepartitions;
+  }
+
+  private boolean acquireRepartition()
+  {
+    final AtomicInteger counter = getInFlightRepartitions();
+    for (int count = counter.get(); count < maxConcurrentRepartitions; count = counter.get()) {
+      if (counter.compareAndSet(count, count + 1)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @return 1 if the partition is overloaded, -1 if it is underloaded, 0 otherwise
+   */
+  protected int getLoad(BatchedOperatorStats stats)
+  {
+    final long tuplesPerSecond = stats.getTuplesProcessedPSMA();
+    final double cpuPercentage = stats.getCpuPercentageMA();
+    if (maximumTuplesPerSecond > 0 && tuplesPerSecond > maximumTuplesPerSecond ||
+        maximumLatencyMillis > 0 && stats.getLatencyMA() > maximumLatencyMillis ||
+        maximumCpuPercentage > 0 && cpuPercentage > maximumCpuPercentage ||
+        maximumQueueSize > 0 && getQueueSize(stats) > maximumQueueSize) {
+      return 1;
+    }
+
+    if ((minimumTuplesPerSecond > 0 || minimumCpuPercentage > 0) &&
+        (minimumTuplesPerSecond == 0 || tuplesPerSecond < minimumTuplesPerSecond) &&
+        (minimumCpuPercentage == 0 || cpuPercentage < minimumCpuPercentage)) {
+      return -1;
+    }
+    return 0;
+  }
+
+  /**
+   * @return the average number of data tuples queued at the input ports of the partition
+   */
+  private static long getQueueSize(BatchedOperatorStats stats)
+  {
+    List<OperatorStats> windowedStats = stats.getLastWindowedStats();
+    if (windowedStats == null || windowedStats.isEmpty()) {
+      return 0;
+    }
+
+    long queueSize = 0;
+    for (OperatorStats operatorStats : windowedStats) {
+      if (operatorStats.inputPorts != null) {
+        for (PortStats portStats : operatorStats.inputPorts) {
+          queueSize += portStats.queueSize;
+        }
+      }
+    }
+    return queueSize / windowedStats.size();
+  }
+
+  public int getMinPartitions()
+  {
+    return minPartitions;
+  }
+
+  public void setMinPartitions(int minPartitions)
+  {
+    this.minPartitions = minPartitions;
+  }
+
+  public int getMaxPartitions()
+  {
+    return maxPartitions;
+  }
+
+  public void setMaxPartitions(int maxPartitions)
+  {
+    this.maxPartitions = maxPartitions;
+  }
+
+  /**
+   * @return tuples processed per second by a partition above which it is overloaded, 0 if ignored
+   */
+  public long getMaximumTuplesPerSecond()
+  {
+    return maximumTuplesPerSecond;
+  }
+
+  public void setMaximumTuplesPerSecond(long maximumTuplesPerSecond)
+  {
+    this.maximumTuplesPerSecond = maximumTuplesPerSecond;
+  }
+
+  /**
+   * @return tuples processed per second by a partition below which it is underloaded, 0 if ignored
+   */
+  public long getMinimumTuplesPerSecond()
+  {
+    return minimumTuplesPerSecond;
+  }
+
+  public void setMinimumTuplesPerSecond(long minimumTuplesPerSecond)
+  {
+    this.minimumTuplesPerSecond = minimumTuplesPerSecond;
+  }
+
+  /**
+   * @return latency of a partition above which it is overloaded, 0 if ignored
+   */
+  public long getMaximumLatencyMillis()
+  {
+    return maximumLatencyMillis;
+  }
+
+  public void setMaximumLatencyMillis(long maximumLatencyMillis)
+  {
+    this.maximumLatencyMillis = maximumLatencyMillis;
+  }
+
+  /**
+   * @return cpu percentage of a partition above which it is overloaded, 0 if ignored
+   */
+  public double getMaximumCpuPercentage()
+  {
+    return maximumCpuPercentage;
+  }
+
+  public void setMaximumCpuPercentage(double maximumCpuPercentage)
+  {
+    this.maximumCpuPercentage = maximumCpuPercentage;
+  }
+
+  /**
+   * @return cpu percentage of a partition below which it is underloaded, 0 if ignored
+   */
+  public double getMinimumCpuPercentage()
+  {
+    return minimumCpuPercentage;
+  }
+
+  public void setMinimumCpuPercentage(double minimumCpuPercentage)
+  {
+    this.minimumCpuPercentage = minimumCpuPercentage;
+  }
+
+  /**
+   * @return tuples queued at the input ports of a partition above which it is overloaded, 0 if ignored
+   */
+  public long getMaximumQueueSize()
+  {
+    return maximumQueueSize;
+  }
+
+  public void setMaximumQueueSize(long maximumQueueSize)
+  {
+    this.maximumQueueSize = maximumQueueSize;
+  }
+
+  /**
+   * @return number of consecutive stats updates a partition has to be over- or underloaded to ask for a repartition
+   */
+  public int getStableUpdates()
+  {
+    return stableUpdates;
+  }
+
+  public void setStableUpdates(int stableUpdates)
+  {
+    this.stableUpdates = stableUpdates;
+  }
+
+  /**
+   * @return milliseconds after a repartition before the operator is repartitioned again
+   */
+  public long getCooldownMillis()
+  {
+    return cooldownMillis;
+  }
+
+  public void setCooldownMillis(long cooldownMillis)
+  {
+    this.cooldownMillis = cooldownMillis;
+  }
+
+  /**
+   * @return maximum number of operators of the application repartitioned by autoscaling partitioners at the same time
+   */
+  public int getMaxConcurrentRepartitions()
+  {
+    return maxConcurrentRepartitions;
+  }
+
+  public void setMaxConcurrentRepartitions(int maxConcurrentRepartitions)
+  {
+    this.maxConcurrentRepartitions = maxConcurrentRepartitions;
+  }
+
+}
@@ -0,0 +1,105 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.common.state;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * <p>BloomFilter class.</p>
+ *
+ * Bloom filter over byte array keys which derives its hash functions from the two halves of a 64 bit FNV-1a hash.
+ *
+ * @since 3.5.0
+ */
+class BloomFilter
+{
+  private final long[] bits;
+  private final int hashCount;
+
+  BloomFilter(int keyCount, int bitsPerKey)
+  {
+    bits = new long[Math.max(1, (int)(((long)keyCount * bitsPerKey + 63) / 64))];
+    hashCount = Math.max(1, (int)Math.round(bitsPerKey * Math.log(2)));
+  }
+
+  private BloomFilter(long[] bits, int hashCount)
+  {
+    this.bits = bits;
+    this.hashCount = hashCount;
+  }
+
+  private static long hash(byte[] key)
+  {
+    long hash = 0xcbf29ce484222325L;
+    for (byte b : key) {
+      hash ^= b & 0xff;
+      hash *= 0x100000001b3L;
+    }
+    return hash;
+  }
+
+  void add(byte[] key)
+  {
+    long hash = hash(key);
+    int h1 = (int)hash;
+    int h2 = (int)(hash >>> 32);
+    long bitCount = bits.length * 64L;
+    for (int i = 0; i < hashCount; i++) {
+      long bit = ((h1 + i * h2) & Integer.MAX_VALUE) % bitCount;
+      bits[(int)(bit >>> 6)] |= 1L << bit;
+    }
+  }
+
+  boolean mightContain(byte[] key)
+  {
+    long hash = hash(key);
+    int h1 = (int)hash;
+    int h2 = (int)(hash >>> 32);
+    long bitCount = bits.length * 64L;
+    for (int i = 0; i < hashCount; i++) {
+      long bit = ((h1 + i * h2) & Integer.MAX_VALUE) % bitCount;
+      if ((bits[(int)(bit >>> 6)] & (1L << bit)) == 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  void write(DataOutput out) throws IOException
+  {
+    out.writeInt(hashCount);
+    out.writeInt(bits.length);
+    for (long word : bits) {
+      out.writeLong(word);
+    }
+  }
+
+  static BloomFilter read(DataInput in) throws IOException
+  {
+    int hashCount = in.readInt();
+    long[] bits = new long[in.readInt()];
+    for (int i = 0; i < bits.length; i++) {
+      bits[i] = in.readLong();
+    }
+    return new BloomFilter(bits, hashCount);
+  }
+
+}
@@ -0,0 +1,544 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.common.state;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.google.common.base.Preconditions;
+import com.google.common.io.ByteStreams;
+
+import com.datatorrent.api.Component;
+import com.datatorrent.api.Context.OperatorContext;
+import com.datatorrent.api.Operator;
+import com.datatorrent.api.StorageAgent;
+import com.datatorrent.common.util.NameableThreadFactory;
+
+/**
+ * <p>ManagedKeyedState class.</p>
+ *
+ * Map like state of an operator which is not limited by the heap. Updates go to an in memory table which is written to
+ * an immutable sorted run on the local disk once it exceeds {@link #getMemtableBytes()}. Lookups check the table and
+ * then the runs from the newest to the oldest, skipping the runs whose bloom filter rules the key out.
+ * <p>
+ * The runs are compacted by size tiers: a written run is of level 0 and once there are {@link #getMaxRuns()} adjacent
+ * runs of the same level, they are merged into a single run of the next level. A merge runs on a thread of the store
+ * while the operator keeps reading the merged runs, the merged run replaces them the next time the operator writes a
+ * run or checkpoints after the merge is done. Only the oldest runs are merged with their removals left out.
+ * <p>
+ * The store is a field of the operator and is checkpointed with it, which only writes the in memory table and the
+ * names of the runs. The runs created since the previous checkpoint are stored through the
+ * {@link StorageAgent.StateFileStorageAgent} of the operator before the checkpoint. Since an update is rewritten once
+ * per level, the runs stored per checkpoint amount on average to the updates since the previous checkpoint times the
+ * number of levels, which grows with the logarithm of the size of the state. After a failure the runs are fetched from
+ * the storage agent as they are read. A merged run is deleted from the storage agent once a checkpoint which no longer
+ * refers to it is committed.
+ * <p>
+ * The runs are stored under the id of the operator which wrote them, which is checkpointed with the store. When the
+ * store is restored by an operator of another id, e.g. a new partition, the runs are fetched from the previous owner
+ * and stored again under the new id with the next checkpoint, since the files of a removed operator are deleted.
+ * <p>
+ * The operator has to call {@link #setup(OperatorContext)}, {@link #teardown()}, {@link #beforeCheckpoint(long)} and
+ * {@link #committed(long)} from the corresponding callbacks. Keys and values are serialized with Kryo and keys are
+ * compared by their serialized form.
+ *
+ * @param <K> type of the keys
+ * @param <V> type of the values
+ * @since 3.5.0
+ */
+public class ManagedKeyedState<K, V> implements Component<OperatorContext>, Operator.CheckpointNotificationListener
+{
+  private static final int ENTRY_OVERHEAD = 48;
+  @Min(1)
+  private int memtableBytes = 8 * 1024 * 1024;
+  @Min(2)
+  private int maxRuns = 8;
+  @Min(1)
+  private int bloomFilterBitsPerKey = 10;
+  @NotNull
+  private String localPath = "managed-state";
+  private TreeMap<byte[], byte[]> memtable = new TreeMap<>(SortedRun.KEY_ORDER);
+  private long memtableSize;
+  /**
+   * names of the runs from the oldest to the newest
+   */
+  private ArrayList<String> runs = new ArrayList<>();
+  /**
+   * levels of the runs, in the order of the runs
+   */
+  private ArrayList<Integer> runLevels = new ArrayList<>();
+  private long nextRunId;
+  /**
+   * runs which were merged before the checkpoint of the window and which are still referred to by earlier checkpoints
+   */
+  private TreeMap<Long, List<String>> mergedRuns = new TreeMap<>();
+  /**
+   * id of the operator the runs are stored under, -1 before the first setup
+   */
+  private int ownerId = -1;
+  private transient List<String> mergedSinceCheckpoint;
+  private transient Set<String> unsavedRuns;
+  private transient Map<String, SortedRun> openRuns;
+  private transient int operatorId;
+  private transient StorageAgent.StateFileStorageAgent storageAgent;
+  private transient File directory;
+  private transient Kryo kryo;
+  private transient Output output;
+  private transient ExecutorService mergeExecutor;
+  /**
+   * merge in progress, null if there is none
+   */
+  private transient Future<?> merge;
+  private transient List<String> mergingRuns;
+  private transient String mergedRun;
+
+  @Override
+  public void setup(OperatorContext context)
+  {
+    StorageAgent agent = context.getValue(OperatorContext.STORAGE_AGENT);
+    if (!(agent instanceof StorageAgent.StateFileStorageAgent)) {
+      throw new IllegalStateException("Managed state requires a storage agent which stores state files, found "
+          + agent);
+    }
+    storageAgent = (StorageAgent.StateFileStorageAgent)agent;
+    operatorId = context.getId();
+    directory = new File(localPath, String.valueOf(operatorId));
+    deleteLocalRuns();
+    if (!directory.mkdirs()) {
+      throw new RuntimeException("Failed to create " + directory);
+    }
+    mergedSinceCheckpoint = new ArrayList<>();
+    unsavedRuns = new HashSet<>();
+    openRuns = new HashMap<>();
+    kryo = new Kryo();
+    kryo.setClassLoader(Thread.currentThread().getContextClassLoader());
+    output = new Output(4096, -1);
+    mergeExecutor = Executors.newSingleThreadExecutor(new NameableThreadFactory("ManagedStateMerge-" + operatorId,
+        true));
+    merge = null;
+
+    if (ownerId >= 0 && ownerId != operatorId) {
+      logger.debug("Operator {} takes over runs {} of {}", operatorId, runs, ownerId);
+      try {
+        for (String run : runs) {
+          fetch(ownerId, run, new File(directory, run));
+          unsavedRuns.add(run);
+        }
+      } catch (IOException ex) {
+        throw new RuntimeException(ex);
+      }
+      // the merged runs belong to the previous owner and are deleted with its files
+      mergedRuns.clear();
+    }
+    ownerId = operatorId;
+  }
+
+  @Override
+  public void teardown()
+  {
+    mergeExecutor.shutdown();
+    if (merge != null) {
+      // the merged runs are closed and deleted below once the merge no longer reads them
+      try {
+        merge.get();
+      } catch (ExecutionException ex) {
+        logger.debug("Merge of {} not completed", operatorId, ex);
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+      }
+      merge = null;
+    }
+    for (SortedRun run : openRuns.values()) {
+      try {
+        run.close();
+      } catch (IOException ex) {
+        logger.warn("Failed to close run of {}", operatorId, ex);
+      }
+    }
+    openRuns.clear();
+    deleteLocalRuns();
+  }
+
+  private void deleteLocalRuns()
+  {
+    File[] files = directory.listFiles();
+    if (files != null) {
+      for (File file : files) {
+        if (!file.delete()) {
+          logger.warn("Failed to delete {}", file);
+        }
+      }
+      if (!directory.delete()) {
+        logger.warn("Failed to delete {}", directory);
+      }
+    }
+  }
+
+  /**
+   * @return the value of the key, null if there is none
+   */
+  @SuppressWarnings("unchecked")
+  public V get(K key)
+  {
+    byte[] serializedKey = serialize(key);
+    if (memtable.containsKey(serializedKey)) {
+      byte[] value = memtable.get(serializedKey);
+      return value == null ? null : (V)deserialize(value);
+    }
+
+    try {
+      for (int i = runs.size(); i-- > 0;) {
+        byte[] value = getRun(runs.get(i)).get(serializedKey);
+        if (value != null) {
+          return value == SortedRun.REMOVED ? null : (V)deserialize(value);
+        }
+      }
+    } catch (IOException ex) {
+      throw new RuntimeException(ex);
+    }
+    return null;
+  }
+
+  public void put(K key, V value)
+  {
+    Preconditions.checkNotNull(value, "value");
+    update(serialize(key), serialize(value));
+  }
+
+  public void remove(K key)
+  {
+    update(serialize(key), null);
+  }
+
+  private void update(byte[] key, byte[] value)
+  {
+    byte[] previous = memtable.put(key, value);
+    if (previous != null) {
+      memtableSize -= key.length + previous.length + ENTRY_OVERHEAD;
+    }
+    memtableSize += key.length + (value == null ? 0 : value.length) + ENTRY_OVERHEAD;
+    if (memtableSize >= memtableBytes) {
+      try {
+        flush();
+      } catch (IOException ex) {
+        throw new RuntimeException(ex);
+      }
+    }
+  }
+
+  private void flush() throws IOException
+  {
+    String name = newRunName();
+    SortedRun.write(new File(directory, name), memtable.entrySet().iterator(), memtable.size(), bloomFilterBitsPerKey);
+    runs.add(name);
+    runLevels.add(0);
+    unsavedRuns.add(name);
+    memtable = new TreeMap<>(SortedRun.KEY_ORDER);
+    memtableSize = 0;
+    logger.debug("Operator {} wrote run {}", operatorId, name);
+
+    compact();
+  }
+
+  /**
+   * Replaces the merged runs once the merge in progress is done and starts merging the oldest {@link #getMaxRuns()}
+   * adjacent runs of the same level when no merge is in progress.
+   */
+  private void compact() throws IOException
+  {
+    if (merge != null) {
+      if (!merge.isDone()) {
+        return;
+      }
+      completeMerge();
+    }
+
+    int count = 0;
+    for (int i = 0; i < runs.size(); i++) {
+      count = i > 0 && runLevels.get(i).equals(runLevels.get(i - 1)) ? count + 1 : 1;
+      if (count == maxRuns) {
+        startMerge(i + 1 - count, count);
+        return;
+      }
+    }
+  }
+
+  private void startMerge(int from, int count) throws IOException
+  {
+    mergingRuns = new ArrayList<>(runs.subList(from, from + count));
+    mergedRun = newRunName();
+    final List<SortedRun> sortedRuns = new ArrayList<>(count);
+    long keys = 0;
+    for (String run : mergingRuns) {
+      SortedRun sortedRun = getRun(run);
+      keys += sortedRun.getKeyCount();
+      sortedRuns.add(sortedRun);
+    }
+    final long keyCount = keys;
+    final boolean dropRemoved = from == 0;
+    final File file = new File(directory, mergedRun);
+    logger.debug("Operator {} merges runs {} into {}", operatorId, mergingRuns, mergedRun);
+    merge = mergeExecutor.submit(new Callable<Void>()
+    {
+      @Override
+      public Void call() throws IOException
+      {
+        List<SortedRun.RunIterator> iterators = new ArrayList<>(sortedRuns.size());
+        try {
+          for (SortedRun sortedRun : sortedRuns) {
+            iterators.add(sortedRun.iterator());
+          }
+          SortedRun.write(file, new SortedRun.MergeIterator(iterators, dropRemoved), keyCount, bloomFilterBitsPerKey);
+        } finally {
+          for (SortedRun.RunIterator iterator : iterators) {
+            iterator.close();
+          }
+        }
+        return null;
+      }
+    });
+  }
+
+  private void completeMerge() throws IOException
+  {
+    try {
+      merge.get();
+    } catch (InterruptedException ex) {
+      throw new RuntimeException(ex);
+    } catch (ExecutionException ex) {
+      throw new IOException("Failed to merge runs " + mergingRuns + " of " + operatorId, ex.getCause());
+    } finally {
+      merge = null;
+    }
+
+    int from = runs.indexOf(mergingRuns.get(0));
+    int level = runLevels.get(from) + 1;
+    for (String run : mergingRuns) {
+      openRuns.remove(run).close();
+      if (!new File(directory, run).delete()) {
+        logger.warn("Failed to delete run {} of {}", run, operatorId);
+      }
+      if (!unsavedRuns.remove(run)) {
+        mergedSinceCheckpoint.add(run);
+      }
+    }
+    runs.subList(from, from + mergingRuns.size()).clear();
+    runLevels.subList(from, from + mergingRuns.size()).clear();
+    runs.add(from, mergedRun);
+    runLevels.add(from, level);
+    unsavedRuns.add(mergedRun);
+    logger.debug("Operator {} merged runs {} into {}", operatorId, mergingRuns, mergedRun);
+  }
+
+  /**
+   * Waits for the merges until no runs are left to merge.
+   */
+  void awaitMerges() throws IOException
+  {
+    while (merge != null) {
+      try {
+        merge.get();
+      } catch (InterruptedException | ExecutionException ex) {
+        // reported by the completion
+      }
+      compact();
+    }
+  }
+
+  private String newRunName()
+  {
+    return "run-" + nextRunId++;
+  }
+
+  private SortedRun getRun(String name) throws IOException
+  {
+    SortedRun run = openRuns.get(name);
+    if (run == null) {
+      File file = new File(directory, name);
+      if (!file.exists()) {
+        fetch(operatorId, name, file);
+      }
+      run = new SortedRun(file);
+      openRuns.put(name, run);
+    }
+    return run;
+  }
+
+  private void fetch(int owner, String name, File file) throws IOException
+  {
+    logger.debug("Operator {} fetches run {} of {}", operatorId, name, owner);
+    InputStream in = storageAgent.openStateFile(owner, name);
+    try {
+      OutputStream out = new FileOutputStream(file);
+      try {
+        ByteStreams.copy(in, out);
+      } finally {
+        out.close();
+      }
+    } finally {
+      in.close();
+    }
+  }
+
+  private byte[] serialize(Object object)
+  {
+    output.clear();
+    kryo.writeClassAndObject(output, object);
+    return output.toBytes();
+  }
+
+  private Object deserialize(byte[] bytes)
+  {
+    return kryo.readClassAndObject(new Input(bytes));
+  }
+
+  /**
+   * Stores the runs created since the previous checkpoint through the storage agent.
+   */
+  @Override
+  public void beforeCheckpoint(long windowId)
+  {
+    try {
+      compact();
+      for (String run : runs) {
+        if (unsavedRuns.contains(run)) {
+          InputStream in = new FileInputStream(new File(directory, run));
+          try {
+            OutputStream out = storageAgent.createStateFile(operatorId, run);
+            try {
+              ByteStreams.copy(in, out);
+            } finally {
+              out.close();
+            }
+          } finally {
+            in.close();
+          }
+        }
+      }
+    } catch (IOException ex) {
+      throw new RuntimeException(ex);
+    }
+    unsavedRuns.clear();
+    if (!mergedSinceCheckpoint.isEmpty()) {
+      mergedRuns.put(windowId, mergedSinceCheckpoint);
+      mergedSinceCheckpoint = new ArrayList<>();
+    }
+  }
+
+  @Override
+  public void checkpointed(long windowId)
+  {
+  }
+
+  /**
+   * Deletes the merged runs which are no longer referred to by a checkpoint the operator can be recovered from.
+   */
+  @Override
+  public void committed(long windowId)
+  {
+    Iterator<List<String>> iterator = mergedRuns.headMap(windowId, true).values().iterator();
+    while (iterator.hasNext()) {
+      for (String run : iterator.next()) {
+        try {
+          storageAgent.deleteStateFile(operatorId, run);
+        } catch (IOException ex) {
+          logger.warn("Failed to delete run {} of {}", run, operatorId, ex);
+        }
+      }
+      iterator.remove();
+    }
+  }
+
+  /**
+   * @return size in bytes the in memory table is written to a run at
+   */
+  public int getMemtableBytes()
+  {
+    return memtableBytes;
+  }
+
+  public void setMemtableBytes(int memtableBytes)
+  {
+    this.memtableBytes = memtableBytes;
+  }
+
+  /**
+   * @return number of adjacent runs of the same level which are merged into a run of the next level
+   */
+  public int getMaxRuns()
+  {
+    return maxRuns;
+  }
+
+  public void setMaxRuns(int maxRuns)
+  {
+    this.maxRuns = maxRuns;
+  }
+
+  public int getBloomFilterBitsPerKey()
+  {
+    return bloomFilterBitsPerKey;
+  }
+
+  public void setBloomFilterBitsPerKey(int bloomFilterBitsPerKey)
+  {
+    this.bloomFilterBitsPerKey = bloomFilterBitsPerKey;
+  }
+
+  /**
+   * @return local directory the runs are kept in, in a sub directory per operator
+   */
+  public String getLocalPath()
+  {
+    return localPath;
+  }
+
+  public void setLocalPath(String localPath)
+  {
+    this.localPath = localPath;
+  }
+
+  private static final Logger logger = LoggerFactory.getLogger(ManagedKeyedState.class);
+}
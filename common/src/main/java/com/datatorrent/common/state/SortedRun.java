@@ -0,0 +1,427 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.common.state;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.Serializable;
+import java.nio.channels.Channels;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+/**
+ * <p>SortedRun class.</p>
+ *
+ * Immutable local file of key value pairs sorted by key. The pairs are followed by a sparse index with every
+ * {@link #INDEX_INTERVAL}th key, a bloom filter of the keys and a footer with the offsets of the index and the filter,
+ * so that a lookup reads the index and the filter once and then at most one interval of pairs. A pair without value
+ * records the removal of the key.
+ *
+ * @since 3.5.0
+ */
+class SortedRun implements Closeable
+{
+  static final int INDEX_INTERVAL = 64;
+  private static final int FOOTER_SIZE = 24;
+  /**
+   * value returned by {@link #get(byte[])} for a removed key
+   */
+  static final byte[] REMOVED = new byte[0];
+
+  private final RandomAccessFile file;
+  private final File path;
+  private final long indexOffset;
+  private final long keyCount;
+  private final byte[][] indexKeys;
+  private final long[] indexOffsets;
+  private final BloomFilter bloomFilter;
+  /**
+   * buffer an interval of pairs is read into by {@link #get(byte[])}
+   */
+  private byte[] buffer = new byte[4096];
+
+  /**
+   * Unsigned lexicographic order of the serialized keys.
+   */
+  static class KeyComparator implements Comparator<byte[]>, Serializable
+  {
+    @Override
+    public int compare(byte[] key1, byte[] key2)
+    {
+      int length = Math.min(key1.length, key2.length);
+      for (int i = 0; i < length; i++) {
+        int diff = (key1[i] & 0xff) - (key2[i] & 0xff);
+        if (diff != 0) {
+          return diff;
+        }
+      }
+      return key1.length - key2.length;
+    }
+
+    private static final long serialVersionUID = 201610190001L;
+  }
+
+  static final KeyComparator KEY_ORDER = new KeyComparator();
+
+  SortedRun(File path) throws IOException
+  {
+    this.path = path;
+    file = new RandomAccessFile(path, "r");
+    try {
+      file.seek(file.length() - FOOTER_SIZE);
+      indexOffset = file.readLong();
+      long bloomFilterOffset = file.readLong();
+      keyCount = file.readLong();
+
+      DataInputStream in = open(indexOffset);
+      int size = in.readInt();
+      indexKeys = new byte[size][];
+      indexOffsets = new long[size];
+      for (int i = 0; i < size; i++) {
+        indexKeys[i] = new byte[in.readInt()];
+        in.readFully(indexKeys[i]);
+        indexOffsets[i] = in.readLong();
+      }
+      bloomFilter = BloomFilter.read(open(bloomFilterOffset));
+    } catch (IOException ex) {
+      file.close();
+      throw ex;
+    }
+  }
+
+  private DataInputStream open(long offset) throws IOException
+  {
+    return new DataInputStream(new BufferedInputStream(Channels.newInputStream(file.getChannel().position(offset))));
+  }
+
+  long getKeyCount()
+  {
+    return keyCount;
+  }
+
+  /**
+   * @return value of the key, {@link #REMOVED} if the run records its removal, null if the run does not contain it
+   */
+  synchronized byte[] get(byte[] key) throws IOException
+  {
+    if (!bloomFilter.mightContain(key)) {
+      return null;
+    }
+
+    int low = 0;
+    int high = indexKeys.length - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      if (KEY_ORDER.compare(indexKeys[mid], key) <= 0) {
+        low = mid + 1;
+      } else {
+        high = mid - 1;
+      }
+    }
+    if (high < 0) {
+      return null;
+    }
+
+    // the interval is read with a single read into a buffer which is reused by the following lookups
+    long offset = indexOffsets[high];
+    int length = (int)((high + 1 < indexOffsets.length ? indexOffsets[high + 1] : indexOffset) - offset);
+    if (buffer.length < length) {
+      buffer = new byte[Math.max(length, buffer.length * 2)];
+    }
+    file.seek(offset);
+    file.readFully(buffer, 0, length);
+    int position = 0;
+    while (position < length) {
+      int keyLength = readInt(buffer, position);
+      int diff = compare(buffer, position + 4, keyLength, key);
+      position += 4 + keyLength;
+      int valueLength = readInt(buffer, position);
+      position += 4;
+      if (diff == 0) {
+        return valueLength < 0 ? REMOVED : Arrays.copyOfRange(buffer, position, position + valueLength);
+      } else if (diff > 0) {
+        return null;
+      }
+      position += Math.max(valueLength, 0);
+    }
+    return null;
+  }
+
+  private static int readInt(byte[] bytes, int offset)
+  {
+    return (bytes[offset] & 0xff) << 24 | (bytes[offset + 1] & 0xff) << 16 | (bytes[offset + 2] & 0xff) << 8
+        | bytes[offset + 3] & 0xff;
+  }
+
+  /**
+   * Compares the key at the offset of the bytes to the given key in {@link #KEY_ORDER}.
+   */
+  private static int compare(byte[] bytes, int offset, int length, byte[] key)
+  {
+    int common = Math.min(length, key.length);
+    for (int i = 0; i < common; i++) {
+      int diff = (bytes[offset + i] & 0xff) - (key[i] & 0xff);
+      if (diff != 0) {
+        return diff;
+      }
+    }
+    return length - key.length;
+  }
+
+  /**
+   * @return iterator over the pairs of the run in key order, with a null value for a removed key
+   */
+  RunIterator iterator() throws IOException
+  {
+    return new RunIterator(path, indexOffset);
+  }
+
+  @Override
+  public void close() throws IOException
+  {
+    file.close();
+  }
+
+  /**
+   * Writes a run of the given pairs, which have to be in key order.
+   *
+   * @param path file to write
+   * @param entries pairs with a null value for a removed key
+   * @param expectedKeys number of keys the bloom filter is sized for
+   * @param bloomFilterBitsPerKey bits of the bloom filter per key
+   */
+  static void write(File path, Iterator<Map.Entry<byte[], byte[]>> entries, long expectedKeys,
+      int bloomFilterBitsPerKey) throws IOException
+  {
+    BloomFilter bloomFilter = new BloomFilter((int)Math.min(expectedKeys, Integer.MAX_VALUE / bloomFilterBitsPerKey),
+        bloomFilterBitsPerKey);
+    List<byte[]> indexKeys = new ArrayList<>();
+    List<Long> indexOffsets = new ArrayList<>();
+    long offset = 0;
+    long keyCount = 0;
+
+    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(path), 64 * 1024));
+    try {
+      while (entries.hasNext()) {
+        Map.Entry<byte[], byte[]> entry = entries.next();
+        byte[] key = entry.getKey();
+        byte[] value = entry.getValue();
+        if (keyCount++ % INDEX_INTERVAL == 0) {
+          indexKeys.add(key);
+          indexOffsets.add(offset);
+        }
+        bloomFilter.add(key);
+        out.writeInt(key.length);
+        out.write(key);
+        if (value == null) {
+          out.writeInt(-1);
+          offset += 8 + key.length;
+        } else {
+          out.writeInt(value.length);
+          out.write(value);
+          offset += 8 + key.length + value.length;
+        }
+      }
+
+      long indexOffset = offset;
+      out.writeInt(indexKeys.size());
+      offset += 4;
+      for (int i = 0; i < indexKeys.size(); i++) {
+        out.writeInt(indexKeys.get(i).length);
+        out.write(indexKeys.get(i));
+        out.writeLong(indexOffsets.get(i));
+        offset += 12 + indexKeys.get(i).length;
+      }
+      bloomFilter.write(out);
+      out.writeLong(indexOffset);
+      out.writeLong(offset);
+      out.writeLong(keyCount);
+    } finally {
+      out.close();
+    }
+  }
+
+  /**
+   * Iterator over the pairs of a run, which reads the file sequentially.
+   */
+  static class RunIterator implements Iterator<Map.Entry<byte[], byte[]>>, Closeable
+  {
+    private final DataInputStream in;
+    private final long end;
+    private long offset;
+
+    RunIterator(File path, long end) throws IOException
+    {
+      in = new DataInputStream(new BufferedInputStream(new FileInputStream(path), 64 * 1024));
+      this.end = end;
+    }
+
+    @Override
+    public boolean hasNext()
+    {
+      return offset < end;
+    }
+
+    @Override
+    public Map.Entry<byte[], byte[]> next()
+    {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      try {
+        byte[] key = new byte[in.readInt()];
+        in.readFully(key);
+        int valueLength = in.readInt();
+        byte[] value = null;
+        if (valueLength >= 0) {
+          value = new byte[valueLength];
+          in.readFully(value);
+        }
+        offset += 8 + key.length + Math.max(valueLength, 0);
+        return new AbstractMap.SimpleImmutableEntry<>(key, value);
+      } catch (IOException ex) {
+        throw new RuntimeException(ex);
+      }
+    }
+
+    @Override
+    public void remove()
+    {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+      in.close();
+    }
+  }
+
+  /**
+   * Merges runs into the pairs of their newest versions. The removals are left out when the oldest run of the state is
+   * merged, otherwise they are kept to hide the older versions of the keys in the runs which are not merged.
+   */
+  static class MergeIterator implements Iterator<Map.Entry<byte[], byte[]>>
+  {
+    private final PriorityQueue<Head> heads;
+    private final boolean dropRemoved;
+    private Map.Entry<byte[], byte[]> next;
+
+    private static class Head
+    {
+      final RunIterator iterator;
+      final int age;
+      Map.Entry<byte[], byte[]> entry;
+
+      Head(RunIterator iterator, int age)
+      {
+        this.iterator = iterator;
+        this.age = age;
+        entry = iterator.next();
+      }
+    }
+
+    /**
+     * @param iterators iterators over the runs from the oldest to the newest
+     * @param dropRemoved whether to leave out the removed keys
+     */
+    MergeIterator(List<RunIterator> iterators, boolean dropRemoved)
+    {
+      this.dropRemoved = dropRemoved;
+      heads = new PriorityQueue<>(Math.max(1, iterators.size()), new Comparator<Head>()
+      {
+        @Override
+        public int compare(Head head1, Head head2)
+        {
+          int diff = KEY_ORDER.compare(head1.entry.getKey(), head2.entry.getKey());
+          return diff != 0 ? diff : head2.age - head1.age;
+        }
+      });
+      for (int i = 0; i < iterators.size(); i++) {
+        if (iterators.get(i).hasNext()) {
+          heads.add(new Head(iterators.get(i), i));
+        }
+      }
+      advance();
+    }
+
+    private void advance()
+    {
+      next = null;
+      while (next == null && !heads.isEmpty()) {
+        Head newest = heads.poll();
+        Map.Entry<byte[], byte[]> entry = newest.entry;
+        poll(newest);
+        while (!heads.isEmpty() && KEY_ORDER.compare(heads.peek().entry.getKey(), entry.getKey()) == 0) {
+          poll(heads.poll());
+        }
+        if (entry.getValue() != null || !dropRemoved) {
+          next = entry;
+        }
+      }
+    }
+
+    private void poll(Head head)
+    {
+      if (head.iterator.hasNext()) {
+        head.entry = head.iterator.next();
+        heads.add(head);
+      }
+    }
+
+    @Override
+    public boolean hasNext()
+    {
+      return next != null;
+    }
+
+    @Override
+    public Map.Entry<byte[], byte[]> next()
+    {
+      if (next == null) {
+        throw new NoSuchElementException();
+      }
+      Map.Entry<byte[], byte[]> entry = next;
+      advance();
+      return entry;
+    }
+
+    @Override
+    public void remove()
+    {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+}
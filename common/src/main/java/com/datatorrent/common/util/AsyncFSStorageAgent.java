@@ -52,8 +52,7 @@ public class AsyncFSStorageAgent extends FSStorageAgent
 
   private boolean syncCheckpoint = false;
 
-  @SuppressWarnings("unused")
-  private AsyncFSStorageAgent()
+  protected AsyncFSStorageAgent()
   {
     super();
     conf = null;
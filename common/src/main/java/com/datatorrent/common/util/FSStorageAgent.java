@@ -27,6 +27,7 @@ import java.net.URI;
 import java.util.ArrayList;
 import java.util.EnumSet;
 import java.util.List;
+import java.util.Map;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -54,16 +55,43 @@ import com.datatorrent.api.annotation.Stateless;
  *
  * @since 0.3.2
  */
-public class FSStorageAgent implements StorageAgent, Serializable
+public class FSStorageAgent implements StorageAgent.StateFileStorageAgent, StorageAgent.BulkDeleteStorageAgent,
+    StorageAgent.ConcurrentLoadStorageAgent, Serializable
 {
   public static final String TMP_FILE = "_tmp";
+  /**
+   * directory of the managed state files next to the checkpoints of an operator
+   */
+  public static final String STATE_DIR = "_state";
   protected static final String STATELESS_CHECKPOINT_WINDOW_ID = Long.toHexString(Stateless.WINDOW_ID);
   public final String path;
   protected final transient FileContext fileContext;
   protected static final transient Kryo kryo;
 
+  /*
+   * Checkpoints are restored concurrently when several operators are deployed into a container, so reads use a Kryo
+   * instance per thread instead of contending for the shared one.
+   */
+  private static final transient ThreadLocal<Kryo> retrieveKryo = new ThreadLocal<Kryo>()
+  {
+    @Override
+    protected Kryo initialValue()
+    {
+      return newKryo();
+    }
+  };
+
   static {
-    kryo = new Kryo();
+    kryo = newKryo();
+  }
+
+  /**
+   * Creates the Kryo instances of both the writes and the reads, so that the checkpoints are read with the same
+   * configuration they were written with.
+   */
+  private static Kryo newKryo()
+  {
+    return new Kryo();
   }
 
   protected FSStorageAgent()
@@ -142,11 +170,38 @@ public class FSStorageAgent implements StorageAgent, Serializable
 
   @Override
   public void delete(int operatorId, long windowId) throws IOException
+  {
+    deleteFile(operatorId, windowId);
+  }
+
+  /**
+   * Deletes the checkpoint of the operator saved in a file of its own.
+   *
+   * @return whether the checkpoint existed
+   */
+  protected boolean deleteFile(int operatorId, long windowId) throws IOException
   {
     Path lPath = new Path(path + Path.SEPARATOR + String.valueOf(operatorId) + Path.SEPARATOR + Long.toHexString(windowId));
     logger.debug("Deleting: {}", lPath);
 
-    fileContext.delete(lPath, false);
+    return fileContext.delete(lPath, false);
+  }
+
+  /**
+   * Deletes the file of each window without listing the checkpoints of the operators first.
+   */
+  @Override
+  public int delete(Map<Integer, long[]> windowIds) throws IOException
+  {
+    int count = 0;
+    for (Map.Entry<Integer, long[]> entry : windowIds.entrySet()) {
+      for (long windowId : entry.getValue()) {
+        if (deleteFile(entry.getKey(), windowId)) {
+          count++;
+        }
+      }
+    }
+    return count;
   }
 
   @Override
@@ -162,7 +217,7 @@ public class FSStorageAgent implements StorageAgent, Serializable
     do {
       FileStatus fileStatus = fileStatusRemoteIterator.next();
       String name = fileStatus.getPath().getName();
-      if (name.equals(TMP_FILE)) {
+      if (name.equals(TMP_FILE) || name.equals(STATE_DIR)) {
         continue;
       }
       lwindows.add(STATELESS_CHECKPOINT_WINDOW_ID.equals(name) ? Stateless.WINDOW_ID : Long.parseLong(name, 16));
@@ -174,6 +229,43 @@ public class FSStorageAgent implements StorageAgent, Serializable
     return windowIds;
   }
 
+  private Path getStateFilePath(int operatorId, String name)
+  {
+    return new Path(path + Path.SEPARATOR + String.valueOf(operatorId) + Path.SEPARATOR + STATE_DIR + Path.SEPARATOR
+        + name);
+  }
+
+  @Override
+  public OutputStream createStateFile(int operatorId, String name) throws IOException
+  {
+    Path lPath = getStateFilePath(operatorId, name);
+    logger.debug("Creating: {}", lPath);
+    return fileContext.create(lPath, EnumSet.of(CreateFlag.CREATE, CreateFlag.OVERWRITE),
+        Options.CreateOpts.CreateParent.createParent());
+  }
+
+  @Override
+  public InputStream openStateFile(int operatorId, String name) throws IOException
+  {
+    return fileContext.open(getStateFilePath(operatorId, name));
+  }
+
+  @Override
+  public void deleteStateFile(int operatorId, String name) throws IOException
+  {
+    Path lPath = getStateFilePath(operatorId, name);
+    logger.debug("Deleting: {}", lPath);
+    fileContext.delete(lPath, false);
+  }
+
+  @Override
+  public void deleteStateFiles(int operatorId) throws IOException
+  {
+    Path lPath = new Path(path + Path.SEPARATOR + String.valueOf(operatorId) + Path.SEPARATOR + STATE_DIR);
+    logger.debug("Deleting: {}", lPath);
+    fileContext.delete(lPath, true);
+  }
+
   public static void store(OutputStream stream, Object operator)
   {
     synchronized (kryo) {
@@ -186,11 +278,10 @@ public class FSStorageAgent implements StorageAgent, Serializable
 
   public static Object retrieve(InputStream stream)
   {
-    synchronized (kryo) {
-      kryo.setClassLoader(Thread.currentThread().getContextClassLoader());
-      Input input = new Input(stream);
-      return kryo.readClassAndObject(input);
-    }
+    Kryo reader = retrieveKryo.get();
+    reader.setClassLoader(Thread.currentThread().getContextClassLoader());
+    Input input = new Input(stream);
+    return reader.readClassAndObject(input);
   }
 
   public Object readResolve() throws ObjectStreamException
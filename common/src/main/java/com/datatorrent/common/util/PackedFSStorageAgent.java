@@ -0,0 +1,531 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.common.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.ObjectStreamException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+
+import javax.validation.constraints.Min;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.CreateFlag;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.Options;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.RemoteIterator;
+
+import com.datatorrent.api.annotation.Stateless;
+
+/**
+ * <p>PackedFSStorageAgent class.</p>
+ *
+ * Storage agent which packs the checkpoints of the operators of a container for the same window into a single file.
+ * {@link #save(Object, int, long)} only serializes the operator, the checkpoint is packed by
+ * {@link #copyToHDFS(int, long)}, which the engine calls outside of the operator thread like for
+ * {@link AsyncFSStorageAgent}. The operators which copy the same window within {@link #getLingerMillis()} of each other
+ * join a batch, which is written once as many operators joined as in the previous batch of the container or once the
+ * time is up. With {@link #isSyncCheckpoint()} the checkpoint is packed by the save. The file holds the serialized
+ * operators followed by an index of their offsets, so loading an operator reads the index and then only the bytes of
+ * that operator.
+ * <p>
+ * The files of a window are kept in a directory of the window below {@value #PACKED_DIR}. A file is deleted once the
+ * checkpoints of all its operators were deleted, a bulk delete lists the files of each window once for all of its
+ * operators. The count of the remaining checkpoints of a file is kept by the process deleting them, after a restart the
+ * checkpoints which are still listed are deleted again as they are purged. The operators of the packed files are
+ * remembered per window when the windows are listed, so that listing the checkpoints of the operators one after another
+ * only reads the indices of the windows which are new or which may still be written. Checkpoints saved in a file per
+ * operator, as by {@link FSStorageAgent}, are still found and loaded.
+ *
+ * @since 3.5.0
+ */
+public class PackedFSStorageAgent extends AsyncFSStorageAgent
+{
+  public static final String PACKED_DIR = "_packed";
+  private static final String TMP_SUFFIX = ".tmp";
+  private static final int MAX_CACHED_INDICES = 1024;
+
+  /**
+   * serialized operators saved in this process which were not packed yet
+   */
+  private static final Map<String, byte[]> unpacked = new ConcurrentHashMap<>();
+  /**
+   * batches being collected per window in this process
+   */
+  private static final Map<String, Batch> batches = new HashMap<>();
+  /**
+   * number of operators of the previous batch per checkpoint path
+   */
+  private static final Map<String, Integer> lastBatchSizes = new HashMap<>();
+  /**
+   * indices of the packed files recently read by this process, the files are immutable
+   */
+  private static final Map<String, Map<Integer, long[]>> indices = new LinkedHashMap<String, Map<Integer, long[]>>(
+      16, 0.75f, true)
+  {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, Map<Integer, long[]>> eldest)
+    {
+      return size() > MAX_CACHED_INDICES;
+    }
+
+    private static final long serialVersionUID = 201610190003L;
+  };
+  /**
+   * operators of the packed files per window per checkpoint path, as of the last listing of the windows
+   */
+  private static final Map<String, TreeMap<Long, Map<String, Set<Integer>>>> packedWindows = new HashMap<>();
+  /**
+   * operators whose checkpoints were not deleted yet per packed file
+   */
+  private static final Map<String, Set<Integer>> remainingOperators = new HashMap<>();
+
+  @Min(0)
+  private int lingerMillis = 200;
+
+  private static class Batch
+  {
+    final Map<Integer, byte[]> operators = new LinkedHashMap<>();
+    final CountDownLatch written = new CountDownLatch(1);
+    IOException error;
+  }
+
+  @SuppressWarnings("unused")
+  private PackedFSStorageAgent()
+  {
+    super();
+  }
+
+  public PackedFSStorageAgent(String path, Configuration conf)
+  {
+    super(path, conf);
+  }
+
+  private Path getWindowPath(long windowId)
+  {
+    return new Path(path + Path.SEPARATOR + PACKED_DIR + Path.SEPARATOR + Long.toHexString(windowId));
+  }
+
+  @Override
+  public void save(Object object, int operatorId, long windowId) throws IOException
+  {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    store(bytes, object);
+    if (isSyncCheckpoint()) {
+      pack(operatorId, windowId, bytes.toByteArray());
+    } else {
+      unpacked.put(path + Path.SEPARATOR + operatorId + Path.SEPARATOR + windowId, bytes.toByteArray());
+    }
+  }
+
+  @Override
+  public void copyToHDFS(int operatorId, long windowId) throws IOException
+  {
+    byte[] bytes = unpacked.remove(path + Path.SEPARATOR + operatorId + Path.SEPARATOR + windowId);
+    if (bytes == null) {
+      throw new AssertionError("save() was not called before copyToHDFS");
+    }
+    pack(operatorId, windowId, bytes);
+  }
+
+  private void pack(int operatorId, long windowId, byte[] bytes) throws IOException
+  {
+    String key = path + Path.SEPARATOR + windowId;
+    Batch batch;
+    boolean leader = false;
+    synchronized (batches) {
+      batch = batches.get(key);
+      if (batch == null) {
+        batch = new Batch();
+        batches.put(key, batch);
+        leader = true;
+      }
+      batch.operators.put(operatorId, bytes);
+      batches.notifyAll();
+    }
+
+    if (leader) {
+      synchronized (batches) {
+        Integer expected = lastBatchSizes.get(path);
+        long deadline = System.currentTimeMillis() + lingerMillis;
+        long remaining = lingerMillis;
+        while ((expected == null || batch.operators.size() < expected) && remaining > 0) {
+          try {
+            batches.wait(remaining);
+          } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            break;
+          }
+          remaining = deadline - System.currentTimeMillis();
+        }
+        batches.remove(key);
+        lastBatchSizes.put(path, batch.operators.size());
+      }
+      try {
+        write(windowId, batch.operators);
+      } catch (IOException ex) {
+        batch.error = ex;
+      } finally {
+        batch.written.countDown();
+      }
+    } else {
+      try {
+        batch.written.await();
+      } catch (InterruptedException ex) {
+        throw new RuntimeException(ex);
+      }
+    }
+
+    if (batch.error != null) {
+      throw new IOException("Failed to save " + operatorId + " " + Long.toHexString(windowId), batch.error);
+    }
+  }
+
+  private void write(long windowId, Map<Integer, byte[]> operators) throws IOException
+  {
+    String name = UUID.randomUUID().toString();
+    Path windowPath = getWindowPath(windowId);
+    Path tmpPath = new Path(windowPath, name + TMP_SUFFIX);
+    Map<Integer, long[]> index = new LinkedHashMap<>();
+    FSDataOutputStream stream = fileContext.create(tmpPath, EnumSet.of(CreateFlag.CREATE, CreateFlag.OVERWRITE),
+        Options.CreateOpts.CreateParent.createParent());
+    try {
+      long offset = 0;
+      for (Map.Entry<Integer, byte[]> entry : operators.entrySet()) {
+        stream.write(entry.getValue());
+        index.put(entry.getKey(), new long[] {offset, entry.getValue().length});
+        offset += entry.getValue().length;
+      }
+      stream.writeInt(index.size());
+      for (Map.Entry<Integer, long[]> entry : index.entrySet()) {
+        stream.writeInt(entry.getKey());
+        stream.writeLong(entry.getValue()[0]);
+        stream.writeLong(entry.getValue()[1]);
+      }
+      stream.writeLong(offset);
+    } finally {
+      stream.close();
+    }
+    Path packedPath = new Path(windowPath, name);
+    fileContext.rename(tmpPath, packedPath, Options.Rename.OVERWRITE);
+    logger.debug("Saved {} operators of window {} to {}", operators.size(), Long.toHexString(windowId), packedPath);
+  }
+
+  private Map<Integer, long[]> getIndex(Path packedPath) throws IOException
+  {
+    Map<Integer, long[]> index;
+    synchronized (indices) {
+      index = indices.get(packedPath.toString());
+    }
+    if (index == null) {
+      long length = fileContext.getFileStatus(packedPath).getLen();
+      FSDataInputStream stream = fileContext.open(packedPath);
+      try {
+        stream.seek(length - 8);
+        stream.seek(stream.readLong());
+        int size = stream.readInt();
+        index = new HashMap<>(size * 2);
+        for (int i = 0; i < size; i++) {
+          index.put(stream.readInt(), new long[] {stream.readLong(), stream.readLong()});
+        }
+      } finally {
+        stream.close();
+      }
+      synchronized (indices) {
+        indices.put(packedPath.toString(), index);
+      }
+    }
+    return index;
+  }
+
+  /**
+   * @return whether the checkpoint of the operator in the packed file was not deleted
+   */
+  private static boolean isRemaining(String packedPath, int operatorId)
+  {
+    synchronized (remainingOperators) {
+      Set<Integer> remaining = remainingOperators.get(packedPath);
+      return remaining == null || remaining.contains(operatorId);
+    }
+  }
+
+  /**
+   * @return whether the packed file holds a checkpoint of the operator which was not deleted
+   */
+  private boolean isPacked(Path packedPath, int operatorId) throws IOException
+  {
+    return getIndex(packedPath).containsKey(operatorId) && isRemaining(packedPath.toString(), operatorId);
+  }
+
+  /**
+   * @return the packed files of the window
+   */
+  private List<Path> getPackedFiles(long windowId) throws IOException
+  {
+    List<Path> files = new ArrayList<>();
+    try {
+      RemoteIterator<FileStatus> iterator = fileContext.listStatus(getWindowPath(windowId));
+      while (iterator.hasNext()) {
+        Path file = iterator.next().getPath();
+        if (!file.getName().endsWith(TMP_SUFFIX)) {
+          files.add(file);
+        }
+      }
+    } catch (FileNotFoundException ex) {
+      // nothing packed for the window
+    }
+    return files;
+  }
+
+  /**
+   * Lists the windows and reads the indices of the packed files of the windows which were not listed before and of
+   * the newest window, which may still be written.
+   *
+   * @return operators of the packed files per window
+   */
+  private TreeMap<Long, Map<String, Set<Integer>>> listPackedWindows() throws IOException
+  {
+    TreeMap<Long, Map<String, Set<Integer>>> previous;
+    synchronized (packedWindows) {
+      previous = packedWindows.get(path);
+    }
+    Long newest = previous == null || previous.isEmpty() ? null : previous.lastKey();
+    TreeMap<Long, Map<String, Set<Integer>>> windows = new TreeMap<>();
+    try {
+      RemoteIterator<FileStatus> iterator = fileContext.listStatus(new Path(path + Path.SEPARATOR + PACKED_DIR));
+      while (iterator.hasNext()) {
+        String name = iterator.next().getPath().getName();
+        long windowId = STATELESS_CHECKPOINT_WINDOW_ID.equals(name) ? Stateless.WINDOW_ID : Long.parseLong(name, 16);
+        Map<String, Set<Integer>> files = previous == null ? null : previous.get(windowId);
+        if (files == null || newest == windowId) {
+          files = new HashMap<>();
+          for (Path packedPath : getPackedFiles(windowId)) {
+            files.put(packedPath.toString(), getIndex(packedPath).keySet());
+          }
+        }
+        windows.put(windowId, files);
+      }
+    } catch (FileNotFoundException ex) {
+      // nothing packed yet
+    }
+    synchronized (packedWindows) {
+      packedWindows.put(path, windows);
+    }
+    return windows;
+  }
+
+  @Override
+  public Object load(int operatorId, long windowId) throws IOException
+  {
+    for (Path packedPath : getPackedFiles(windowId)) {
+      if (isPacked(packedPath, operatorId)) {
+        long[] slice = getIndex(packedPath).get(operatorId);
+        logger.debug("Loading {} {} from {}", operatorId, Long.toHexString(windowId), packedPath);
+        byte[] bytes = new byte[(int)slice[1]];
+        FSDataInputStream stream = fileContext.open(packedPath);
+        try {
+          stream.readFully(slice[0], bytes);
+        } finally {
+          stream.close();
+        }
+        return retrieve(new ByteArrayInputStream(bytes));
+      }
+    }
+    return super.load(operatorId, windowId);
+  }
+
+  @Override
+  public void delete(int operatorId, long windowId) throws IOException
+  {
+    deleteWindow(windowId, Collections.singletonList(operatorId));
+  }
+
+  /**
+   * Deletes the windows one after another, so that the packed files of a window are listed once for all operators.
+   */
+  @Override
+  public int delete(Map<Integer, long[]> windowIds) throws IOException
+  {
+    Map<Long, List<Integer>> operators = new TreeMap<>();
+    for (Map.Entry<Integer, long[]> entry : windowIds.entrySet()) {
+      for (long windowId : entry.getValue()) {
+        List<Integer> operatorIds = operators.get(windowId);
+        if (operatorIds == null) {
+          operatorIds = new ArrayList<>();
+          operators.put(windowId, operatorIds);
+        }
+        operatorIds.add(entry.getKey());
+      }
+    }
+    int count = 0;
+    for (Map.Entry<Long, List<Integer>> entry : operators.entrySet()) {
+      count += deleteWindow(entry.getKey(), entry.getValue());
+    }
+    return count;
+  }
+
+  /**
+   * Deletes the checkpoints of the operators of the window. The packed files which no longer hold a checkpoint are
+   * deleted, the checkpoints which were not packed are deleted from their own files.
+   *
+   * @return number of deleted checkpoints
+   */
+  private int deleteWindow(long windowId, Collection<Integer> operatorIds) throws IOException
+  {
+    int count = 0;
+    Set<Integer> notPacked = new HashSet<>(operatorIds);
+    List<Path> packedFiles = getPackedFiles(windowId);
+    List<Path> unreferencedFiles = new ArrayList<>();
+    for (Path packedPath : packedFiles) {
+      Map<Integer, long[]> index = getIndex(packedPath);
+      synchronized (remainingOperators) {
+        Set<Integer> remaining = remainingOperators.get(packedPath.toString());
+        for (int operatorId : operatorIds) {
+          if (!index.containsKey(operatorId)) {
+            continue;
+          }
+          notPacked.remove(operatorId);
+          if (remaining == null) {
+            remaining = new HashSet<>(index.keySet());
+            remainingOperators.put(packedPath.toString(), remaining);
+          }
+          if (remaining.remove(operatorId)) {
+            count++;
+          }
+        }
+        if (remaining != null && remaining.isEmpty()) {
+          remainingOperators.remove(packedPath.toString());
+          unreferencedFiles.add(packedPath);
+        }
+      }
+    }
+
+    for (Path packedPath : unreferencedFiles) {
+      logger.debug("Deleting: {}", packedPath);
+      fileContext.delete(packedPath, false);
+      synchronized (indices) {
+        indices.remove(packedPath.toString());
+      }
+    }
+    boolean emptyWindow = !packedFiles.isEmpty() && unreferencedFiles.size() == packedFiles.size();
+    if (emptyWindow) {
+      fileContext.delete(getWindowPath(windowId), true);
+    }
+    if (!unreferencedFiles.isEmpty()) {
+      synchronized (packedWindows) {
+        TreeMap<Long, Map<String, Set<Integer>>> windows = packedWindows.get(path);
+        Map<String, Set<Integer>> files = windows == null ? null : windows.get(windowId);
+        if (files != null) {
+          for (Path packedPath : unreferencedFiles) {
+            files.remove(packedPath.toString());
+          }
+          if (emptyWindow) {
+            windows.remove(windowId);
+          }
+        }
+      }
+    }
+
+    for (int operatorId : notPacked) {
+      if (deleteFile(operatorId, windowId)) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  @Override
+  public long[] getWindowIds(int operatorId) throws IOException
+  {
+    Set<Long> windowIds = new TreeSet<>();
+    try {
+      for (long windowId : super.getWindowIds(operatorId)) {
+        windowIds.add(windowId);
+      }
+    } catch (IOException ex) {
+      // no checkpoint saved in a file per operator
+    }
+
+    for (Map.Entry<Long, Map<String, Set<Integer>>> window : listPackedWindows().entrySet()) {
+      for (Map.Entry<String, Set<Integer>> file : window.getValue().entrySet()) {
+        if (file.getValue().contains(operatorId) && isRemaining(file.getKey(), operatorId)) {
+          windowIds.add(window.getKey());
+          break;
+        }
+      }
+    }
+
+    if (windowIds.isEmpty()) {
+      throw new IOException("Storage Agent has not saved anything yet!");
+    }
+    long[] result = new long[windowIds.size()];
+    int i = 0;
+    for (Long windowId : windowIds) {
+      result[i++] = windowId;
+    }
+    return result;
+  }
+
+  /**
+   * @return milliseconds the first operator saving a window waits for the other operators of the container
+   */
+  public int getLingerMillis()
+  {
+    return lingerMillis;
+  }
+
+  public void setLingerMillis(int lingerMillis)
+  {
+    this.lingerMillis = lingerMillis;
+  }
+
+  @Override
+  public Object readResolve() throws ObjectStreamException
+  {
+    PackedFSStorageAgent packedFSStorageAgent = new PackedFSStorageAgent(this.path, null);
+    packedFSStorageAgent.setSyncCheckpoint(isSyncCheckpoint());
+    packedFSStorageAgent.setLingerMillis(lingerMillis);
+    return packedFSStorageAgent;
+  }
+
+  private static final long serialVersionUID = 201610190002L;
+  private static final Logger logger = LoggerFactory.getLogger(PackedFSStorageAgent.class);
+}
@@ -0,0 +1,125 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.common.metric;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import com.datatorrent.api.AutoMetric;
+import com.datatorrent.common.metric.avg.DoubleAvgAggregator;
+import com.datatorrent.common.metric.avg.LongAvgAggregator;
+import com.datatorrent.common.metric.max.DoubleMaxAggregator;
+import com.datatorrent.common.metric.max.LongMaxAggregator;
+import com.datatorrent.common.metric.min.DoubleMinAggregator;
+import com.datatorrent.common.metric.min.LongMinAggregator;
+import com.datatorrent.common.metric.sum.DoubleSumAggregator;
+import com.datatorrent.common.metric.sum.LongSumAggregator;
+
+public class MetricsAggregatorTest
+{
+  private static class TestPhysicalMetricsContext implements AutoMetric.PhysicalMetricsContext
+  {
+    private final int operatorId;
+    private final Map<String, Object> metrics = Maps.newHashMap();
+
+    TestPhysicalMetricsContext(int operatorId, long count, double rate)
+    {
+      this.operatorId = operatorId;
+      metrics.put("count", count);
+      metrics.put("rate", rate);
+    }
+
+    @Override
+    public Map<String, Object> getMetrics()
+    {
+      return metrics;
+    }
+
+    @Override
+    public int operatorId()
+    {
+      return operatorId;
+    }
+  }
+
+  private static class ListAggregator implements SingleMetricAggregator
+  {
+    @Override
+    public Object aggregate(Collection<Object> metricValues)
+    {
+      return Lists.newArrayList(metricValues);
+    }
+  }
+
+  @Test
+  public void testAggregate()
+  {
+    MetricsAggregator aggregator = new MetricsAggregator();
+    aggregator.addAggregators("count", new SingleMetricAggregator[]{new LongSumAggregator(), new LongMinAggregator(),
+        new LongMaxAggregator(), new LongAvgAggregator(), new ListAggregator()},
+        new String[]{"sum", "min", "max", "avg", "list"});
+    aggregator.addAggregators("rate", new SingleMetricAggregator[]{new DoubleSumAggregator(), new DoubleMinAggregator(),
+        new DoubleMaxAggregator(), new DoubleAvgAggregator()});
+    aggregator.addAggregators("missing", new SingleMetricAggregator[]{new LongSumAggregator()});
+
+    List<AutoMetric.PhysicalMetricsContext> physicalMetrics = Lists.newArrayList();
+    for (int i = 1; i <= 4; i++) {
+      physicalMetrics.add(new TestPhysicalMetricsContext(i, i * 10, i / 2.0));
+    }
+    Map<String, Object> aggregates = aggregator.aggregate(1, physicalMetrics);
+
+    Assert.assertEquals("sum", 100L, aggregates.get("sum"));
+    Assert.assertEquals("min", 10L, aggregates.get("min"));
+    Assert.assertEquals("max", 40L, aggregates.get("max"));
+    Assert.assertEquals("avg", 25.0, aggregates.get("avg"));
+    Assert.assertEquals("list", Lists.newArrayList(10L, 20L, 30L, 40L), aggregates.get("list"));
+    Assert.assertEquals("rate sum", 5.0, aggregates.get("sum-rate"));
+    Assert.assertEquals("rate min", 0.5, aggregates.get("min-rate"));
+    Assert.assertEquals("rate max", 2.0, aggregates.get("max-rate"));
+    Assert.assertEquals("rate avg", 1.25, aggregates.get("avg-rate"));
+    Assert.assertFalse("missing metric", aggregates.containsKey("missing"));
+  }
+
+  @Test
+  public void testMergePartials()
+  {
+    IncrementalMetricAggregator[] aggregators = new IncrementalMetricAggregator[]{new LongSumAggregator(),
+        new LongMinAggregator(), new LongMaxAggregator(), new LongAvgAggregator()};
+    for (IncrementalMetricAggregator aggregator : aggregators) {
+      MetricAccumulator total = new MetricAccumulator();
+      aggregator.reset(total);
+      MetricAccumulator partial = new MetricAccumulator();
+      aggregator.reset(partial);
+      List<Object> values = Lists.newArrayList();
+      for (long i = 1; i <= 10; i++) {
+        aggregator.accumulate(i <= 5 ? partial : total, i);
+        values.add(i);
+      }
+      aggregator.merge(total, partial);
+      Assert.assertEquals(aggregator.getClass().getSimpleName(), aggregator.aggregate(values), aggregator.getResult(total));
+    }
+  }
+}
@@ -0,0 +1,254 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.common.partitioner;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+import com.datatorrent.api.DefaultInputPort;
+import com.datatorrent.api.DefaultPartition;
+import com.datatorrent.api.Operator.InputPort;
+import com.datatorrent.api.Partitioner.Partition;
+import com.datatorrent.api.Partitioner.PartitionKeys;
+import com.datatorrent.api.Stats.OperatorStats;
+import com.datatorrent.api.StatsListener;
+import com.datatorrent.api.StatsListener.BatchedOperatorStats;
+import com.datatorrent.common.partitioner.StatelessPartitionerTest.PartitioningContextImpl;
+import com.datatorrent.common.util.BaseOperator;
+
+public class KeyGroupPartitionerTest
+{
+  public static class CountingOperator extends BaseOperator implements KeyGroupPartitioner.KeyGroupStateful<Long>
+  {
+    private Map<Integer, Long> counts = new HashMap<>();
+
+    public final transient DefaultInputPort<Integer> input = new DefaultInputPort<Integer>()
+    {
+      @Override
+      public void process(Integer tuple)
+      {
+        int keyGroup = KeyGroupPartitioner.getKeyGroup(tuple.hashCode(), 128);
+        Long count = counts.get(keyGroup);
+        counts.put(keyGroup, count == null ? 1 : count + 1);
+      }
+    };
+
+    @Override
+    public Map<Integer, Long> removeKeyGroups(Set<Integer> keyGroups)
+    {
+      Map<Integer, Long> removed = new HashMap<>();
+      for (Integer keyGroup : keyGroups) {
+        Long count = counts.remove(keyGroup);
+        if (count != null) {
+          removed.put(keyGroup, count);
+        }
+      }
+      return removed;
+    }
+
+    @Override
+    public void addKeyGroups(Map<Integer, Long> states)
+    {
+      counts.putAll(states);
+    }
+  }
+
+  /**
+   * Stats of a deployed partition, the partitioner only tells deployed partitions from new ones by them.
+   */
+  private static class DeployedStats implements BatchedOperatorStats
+  {
+    final int operatorId;
+
+    DeployedStats(int operatorId)
+    {
+      this.operatorId = operatorId;
+    }
+
+    @Override
+    public List<OperatorStats> getLastWindowedStats()
+    {
+      return Collections.emptyList();
+    }
+
+    @Override
+    public int getOperatorId()
+    {
+      return operatorId;
+    }
+
+    @Override
+    public long getCurrentWindowId()
+    {
+      return 0;
+    }
+
+    @Override
+    public long getTuplesProcessedPSMA()
+    {
+      return 0;
+    }
+
+    @Override
+    public long getTuplesEmittedPSMA()
+    {
+      return 0;
+    }
+
+    @Override
+    public double getCpuPercentageMA()
+    {
+      return 0;
+    }
+
+    @Override
+    public long getLatencyMA()
+    {
+      return 0;
+    }
+
+    @Override
+    public List<StatsListener.OperatorResponse> getOperatorResponse()
+    {
+      return null;
+    }
+  }
+
+  private static Map<Integer, Partition<CountingOperator>> getOwners(Collection<Partition<CountingOperator>> partitions,
+      InputPort<?> port)
+  {
+    Map<Integer, Partition<CountingOperator>> owners = new HashMap<>();
+    for (Partition<CountingOperator> partition : partitions) {
+      PartitionKeys pks = partition.getPartitionKeys().get(port);
+      Assert.assertEquals("mask", 127, pks.mask);
+      for (Integer keyGroup : pks.partitions) {
+        Assert.assertNull("single owner of " + keyGroup, owners.put(keyGroup, partition));
+      }
+    }
+    Assert.assertEquals("key groups", 128, owners.size());
+    return owners;
+  }
+
+  /**
+   * Returns partitions as the engine passes them on repartition, with the state of the deployed partitions.
+   */
+  private static List<Partition<CountingOperator>> deploy(Collection<Partition<CountingOperator>> partitions,
+      InputPort<?> port)
+  {
+    List<Partition<CountingOperator>> deployed = new ArrayList<>();
+    for (Partition<CountingOperator> partition : partitions) {
+      CountingOperator operator = partition.getPartitionedInstance();
+      for (Integer keyGroup : partition.getPartitionKeys().get(port).partitions) {
+        operator.counts.put(keyGroup, (long)keyGroup);
+      }
+      deployed.add(new DefaultPartition<>(operator, partition.getPartitionKeys(), 0,
+          new DeployedStats(deployed.size())));
+    }
+    return deployed;
+  }
+
+  private static void assertState(Collection<Partition<CountingOperator>> partitions, InputPort<?> port)
+  {
+    Set<CountingOperator> operators = new HashSet<>();
+    for (Partition<CountingOperator> partition : partitions) {
+      CountingOperator operator = partition.getPartitionedInstance();
+      Assert.assertTrue("distinct instance", operators.add(operator));
+      Assert.assertEquals("state", partition.getPartitionKeys().get(port).partitions, operator.counts.keySet());
+      for (Map.Entry<Integer, Long> entry : operator.counts.entrySet()) {
+        Assert.assertEquals("count", (long)entry.getKey(), (long)entry.getValue());
+      }
+    }
+  }
+
+  @Test
+  public void testScaling()
+  {
+    CountingOperator operator = new CountingOperator();
+    List<InputPort<?>> ports = Lists.<InputPort<?>>newArrayList(operator.input);
+    KeyGroupPartitioner<CountingOperator> partitioner = new KeyGroupPartitioner<>(12, 128);
+
+    List<Partition<CountingOperator>> partitions = new ArrayList<>();
+    partitions.add(new DefaultPartition<>(operator));
+    Collection<Partition<CountingOperator>> newPartitions = partitioner.definePartitions(partitions,
+        new PartitioningContextImpl(ports, 0));
+    Assert.assertEquals("partitions", 12, newPartitions.size());
+    getOwners(newPartitions, operator.input);
+
+    partitions = deploy(newPartitions, operator.input);
+    Map<Integer, Partition<CountingOperator>> owners = getOwners(partitions, operator.input);
+    partitioner.setPartitionCount(18);
+    newPartitions = partitioner.definePartitions(partitions, new PartitioningContextImpl(ports, 0));
+    Assert.assertEquals("partitions", 18, newPartitions.size());
+    Map<Integer, Partition<CountingOperator>> newOwners = getOwners(newPartitions, operator.input);
+    assertState(newPartitions, operator.input);
+
+    int moved = 0;
+    for (Partition<CountingOperator> partition : newPartitions) {
+      int size = partition.getPartitionKeys().get(operator.input).partitions.size();
+      Assert.assertTrue("balanced " + size, size == 7 || size == 8);
+      if (!partitions.contains(partition)) {
+        moved += size;
+      }
+    }
+    for (Map.Entry<Integer, Partition<CountingOperator>> entry : newOwners.entrySet()) {
+      if (entry.getValue() != owners.get(entry.getKey())) {
+        moved--;
+      }
+    }
+    Assert.assertEquals("only the key groups of the new partitions move", 0, moved);
+
+    partitions = deploy(newPartitions, operator.input);
+    partitioner.setPartitionCount(12);
+    newPartitions = partitioner.definePartitions(partitions, new PartitioningContextImpl(ports, 0));
+    Assert.assertEquals("partitions", 12, newPartitions.size());
+    getOwners(newPartitions, operator.input);
+    assertState(newPartitions, operator.input);
+  }
+
+  @Test
+  public void testUnchangedPartitionsAreNotModified()
+  {
+    CountingOperator operator = new CountingOperator();
+    List<InputPort<?>> ports = Lists.<InputPort<?>>newArrayList(operator.input);
+    KeyGroupPartitioner<CountingOperator> partitioner = new KeyGroupPartitioner<>("4:16");
+
+    List<Partition<CountingOperator>> partitions = new ArrayList<>();
+    partitions.add(new DefaultPartition<>(operator));
+    partitions = deploy(partitioner.definePartitions(partitions, new PartitioningContextImpl(ports, 0)), operator.input);
+
+    Collection<Partition<CountingOperator>> newPartitions = partitioner.definePartitions(partitions,
+        new PartitioningContextImpl(ports, 0));
+    Assert.assertEquals("partitions", 4, newPartitions.size());
+    for (Partition<CountingOperator> partition : newPartitions) {
+      Assert.assertFalse("modified", ((DefaultPartition<CountingOperator>)partition).isModified());
+    }
+  }
+
+}
@@ -0,0 +1,249 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.common.partitioner;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.datatorrent.api.DefaultPartition;
+import com.datatorrent.api.Partitioner.CoordinatedPartitioningContext;
+import com.datatorrent.api.Partitioner.Partition;
+import com.datatorrent.api.Stats.OperatorStats;
+import com.datatorrent.api.StatsListener;
+import com.datatorrent.api.StatsListener.BatchedOperatorStats;
+import com.datatorrent.common.partitioner.StatelessPartitionerTest.DummyOperator;
+import com.datatorrent.common.partitioner.StatelessPartitionerTest.PartitioningContextImpl;
+
+public class StatelessAutoScalingPartitionerTest
+{
+  private static class TestStats implements BatchedOperatorStats
+  {
+    final int operatorId;
+    final long tuplesProcessedPSMA;
+
+    TestStats(int operatorId, long tuplesProcessedPSMA)
+    {
+      this.operatorId = operatorId;
+      this.tuplesProcessedPSMA = tuplesProcessedPSMA;
+    }
+
+    @Override
+    public List<OperatorStats> getLastWindowedStats()
+    {
+      return Collections.emptyList();
+    }
+
+    @Override
+    public int getOperatorId()
+    {
+      return operatorId;
+    }
+
+    @Override
+    public long getCurrentWindowId()
+    {
+      return 0;
+    }
+
+    @Override
+    public long getTuplesProcessedPSMA()
+    {
+      return tuplesProcessedPSMA;
+    }
+
+    @Override
+    public long getTuplesEmittedPSMA()
+    {
+      return 0;
+    }
+
+    @Override
+    public double getCpuPercentageMA()
+    {
+      return 0;
+    }
+
+    @Override
+    public long getLatencyMA()
+    {
+      return 0;
+    }
+
+    @Override
+    public List<StatsListener.OperatorResponse> getOperatorResponse()
+    {
+      return null;
+    }
+  }
+
+  private static class ApplicationContext extends PartitioningContextImpl implements CoordinatedPartitioningContext
+  {
+    final AtomicInteger inFlightRepartitions = new AtomicInteger();
+
+    ApplicationContext()
+    {
+      super(null, 0);
+    }
+
+    @Override
+    public AtomicInteger getInFlightRepartitions()
+    {
+      return inFlightRepartitions;
+    }
+  }
+
+  private static StatelessAutoScalingPartitioner<DummyOperator> newPartitioner(int minPartitions, int maxPartitions)
+  {
+    StatelessAutoScalingPartitioner<DummyOperator> partitioner = new StatelessAutoScalingPartitioner<>(minPartitions,
+        maxPartitions);
+    partitioner.setMaximumTuplesPerSecond(1000);
+    partitioner.setMinimumTuplesPerSecond(100);
+    partitioner.setStableUpdates(2);
+    partitioner.setCooldownMillis(0);
+    return partitioner;
+  }
+
+  private static Map<Integer, Partition<DummyOperator>> partitioned(StatelessAutoScalingPartitioner<DummyOperator>
+      partitioner, Collection<Partition<DummyOperator>> partitions, int firstOperatorId)
+  {
+    Map<Integer, Partition<DummyOperator>> operatorIdToPartition = new HashMap<>();
+    for (Partition<DummyOperator> partition : partitions) {
+      operatorIdToPartition.put(firstOperatorId++, partition);
+    }
+    partitioner.partitioned(operatorIdToPartition);
+    return operatorIdToPartition;
+  }
+
+  private static List<Partition<DummyOperator>> withLoads(Map<Integer, Partition<DummyOperator>> partitions,
+      Map<Integer, StatelessAutoScalingPartitioner.Response> responses)
+  {
+    List<Partition<DummyOperator>> loaded = new ArrayList<>();
+    for (Map.Entry<Integer, Partition<DummyOperator>> entry : partitions.entrySet()) {
+      Partition<DummyOperator> partition = entry.getValue();
+      loaded.add(new DefaultPartition<>(partition.getPartitionedInstance(), partition.getPartitionKeys(),
+          responses.get(entry.getKey()).loadIndicator, new TestStats(entry.getKey(), 0)));
+    }
+    return loaded;
+  }
+
+  @Test
+  public void testScaleUpAndDown()
+  {
+    StatelessAutoScalingPartitioner<DummyOperator> partitioner = newPartitioner(1, 4);
+    Collection<Partition<DummyOperator>> partitions = new ArrayList<>();
+    partitions.add(new DefaultPartition<>(new DummyOperator(5)));
+    partitions = partitioner.definePartitions(partitions, new PartitioningContextImpl(null, 0));
+    Assert.assertEquals("initial partitions", 1, partitions.size());
+    Map<Integer, Partition<DummyOperator>> deployed = partitioned(partitioner, partitions, 1);
+
+    Map<Integer, StatelessAutoScalingPartitioner.Response> responses = new HashMap<>();
+    responses.put(1, partitioner.processStats(new TestStats(1, 5000)));
+    Assert.assertFalse("hysteresis", responses.get(1).repartitionRequired);
+    Assert.assertEquals("load before stable", 0, responses.get(1).loadIndicator);
+    responses.put(1, partitioner.processStats(new TestStats(1, 5000)));
+    Assert.assertTrue("scale up", responses.get(1).repartitionRequired);
+    Assert.assertEquals("load", 1, responses.get(1).loadIndicator);
+
+    partitions = partitioner.definePartitions(withLoads(deployed, responses), new PartitioningContextImpl(null, 0));
+    Assert.assertEquals("partitions after scale up", 2, partitions.size());
+    deployed = partitioned(partitioner, partitions, 2);
+
+    responses.clear();
+    for (int i = 0; i < 2; i++) {
+      responses.put(2, partitioner.processStats(new TestStats(2, 10)));
+      responses.put(3, partitioner.processStats(new TestStats(3, 10)));
+    }
+    Assert.assertTrue("scale down", responses.get(2).repartitionRequired);
+    Assert.assertFalse("single repartition", responses.get(3).repartitionRequired);
+    Assert.assertEquals("load", -1, responses.get(3).loadIndicator);
+
+    partitions = partitioner.definePartitions(withLoads(deployed, responses), new PartitioningContextImpl(null, 0));
+    Assert.assertEquals("partitions after scale down", 1, partitions.size());
+    partitioned(partitioner, partitions, 4);
+  }
+
+  @Test
+  public void testBounds()
+  {
+    StatelessAutoScalingPartitioner<DummyOperator> partitioner = newPartitioner(1, 3);
+    partitioner.setPartitionCount(2);
+    Collection<Partition<DummyOperator>> partitions = new ArrayList<>();
+    partitions.add(new DefaultPartition<>(new DummyOperator(5)));
+    partitions = partitioner.definePartitions(partitions, new PartitioningContextImpl(null, 0));
+    Map<Integer, Partition<DummyOperator>> deployed = partitioned(partitioner, partitions, 1);
+
+    Map<Integer, StatelessAutoScalingPartitioner.Response> responses = new HashMap<>();
+    for (int i = 0; i < 2; i++) {
+      responses.put(1, partitioner.processStats(new TestStats(1, 5000)));
+      responses.put(2, partitioner.processStats(new TestStats(2, 5000)));
+    }
+    Assert.assertTrue("scale up", responses.get(1).repartitionRequired);
+
+    partitions = partitioner.definePartitions(withLoads(deployed, responses), new PartitioningContextImpl(null, 0));
+    Assert.assertEquals("partitions capped", 3, partitions.size());
+    partitioned(partitioner, partitions, 3);
+
+    for (int i = 0; i < 3; i++) {
+      Assert.assertFalse("at maximum", partitioner.processStats(new TestStats(3, 5000)).repartitionRequired);
+    }
+  }
+
+  @Test
+  public void testCooldownAndConcurrency()
+  {
+    StatelessAutoScalingPartitioner<DummyOperator> first = newPartitioner(1, 4);
+    first.setCooldownMillis(60 * 60 * 1000);
+    StatelessAutoScalingPartitioner<DummyOperator> second = newPartitioner(1, 4);
+    StatelessAutoScalingPartitioner<DummyOperator> other = newPartitioner(1, 4);
+    ApplicationContext context = new ApplicationContext();
+    partitioned(first, first.definePartitions(Collections.<Partition<DummyOperator>>singleton(
+        new DefaultPartition<>(new DummyOperator(5))), context), 1);
+    partitioned(second, second.definePartitions(Collections.<Partition<DummyOperator>>singleton(
+        new DefaultPartition<>(new DummyOperator(5))), context), 2);
+    partitioned(other, other.definePartitions(Collections.<Partition<DummyOperator>>singleton(
+        new DefaultPartition<>(new DummyOperator(5))), new ApplicationContext()), 10);
+
+    first.processStats(new TestStats(1, 5000));
+    Assert.assertTrue("first scales up", first.processStats(new TestStats(1, 5000)).repartitionRequired);
+    second.processStats(new TestStats(2, 5000));
+    Assert.assertFalse("capped", second.processStats(new TestStats(2, 5000)).repartitionRequired);
+    other.processStats(new TestStats(10, 5000));
+    Assert.assertTrue("other application", other.processStats(new TestStats(10, 5000)).repartitionRequired);
+    Assert.assertEquals("in flight", 1, context.inFlightRepartitions.get());
+
+    Map<Integer, Partition<DummyOperator>> partitions = new HashMap<>();
+    partitions.put(3, new DefaultPartition<>(new DummyOperator(5)));
+    partitions.put(4, new DefaultPartition<>(new DummyOperator(5)));
+    first.partitioned(partitions);
+    Assert.assertTrue("second scales up", second.processStats(new TestStats(2, 5000)).repartitionRequired);
+    partitioned(second, partitions.values(), 5);
+
+    first.processStats(new TestStats(3, 5000));
+    Assert.assertFalse("cool-down", first.processStats(new TestStats(3, 5000)).repartitionRequired);
+  }
+
+}
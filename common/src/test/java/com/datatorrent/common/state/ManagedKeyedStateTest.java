@@ -0,0 +1,248 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.common.state;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestWatcher;
+import org.junit.runner.Description;
+
+import org.apache.commons.io.FileUtils;
+
+import com.datatorrent.api.Attribute;
+import com.datatorrent.api.Context.OperatorContext;
+import com.datatorrent.common.util.FSStorageAgent;
+
+public class ManagedKeyedStateTest
+{
+  private static class TestMeta extends TestWatcher
+  {
+    String path;
+    FSStorageAgent storageAgent;
+
+    @Override
+    protected void starting(Description description)
+    {
+      path = "target/" + description.getClassName() + "/" + description.getMethodName();
+      storageAgent = new FSStorageAgent(path + "/checkpoints", null);
+    }
+
+    @Override
+    protected void finished(Description description)
+    {
+      FileUtils.deleteQuietly(new File("target/" + description.getClassName()));
+    }
+
+    ManagedKeyedState<Integer, String> newState(String localPath)
+    {
+      ManagedKeyedState<Integer, String> state = new ManagedKeyedState<>();
+      state.setMemtableBytes(4096);
+      state.setMaxRuns(3);
+      state.setLocalPath(path + "/" + localPath);
+      state.setup(new TestContext(storageAgent));
+      return state;
+    }
+
+    int getStateFileCount()
+    {
+      return getStateFileCount(1);
+    }
+
+    int getStateFileCount(int operatorId)
+    {
+      String[] files = new File(path + "/checkpoints/" + operatorId + "/" + FSStorageAgent.STATE_DIR).list();
+      return files == null ? 0 : files.length;
+    }
+  }
+
+  private static class TestContext implements OperatorContext
+  {
+    private final Attribute.AttributeMap attributes = new Attribute.AttributeMap.DefaultAttributeMap();
+    private final int id;
+
+    TestContext(FSStorageAgent storageAgent)
+    {
+      this(storageAgent, 1);
+    }
+
+    TestContext(FSStorageAgent storageAgent, int id)
+    {
+      attributes.put(OperatorContext.STORAGE_AGENT, storageAgent);
+      this.id = id;
+    }
+
+    @Override
+    public int getId()
+    {
+      return id;
+    }
+
+    @Override
+    public String getName()
+    {
+      return "operator";
+    }
+
+    @Override
+    public int getWindowsFromCheckpoint()
+    {
+      return 0;
+    }
+
+    @Override
+    public Attribute.AttributeMap getAttributes()
+    {
+      return attributes;
+    }
+
+    @Override
+    public <T> T getValue(Attribute<T> key)
+    {
+      return attributes.get(key);
+    }
+
+    @Override
+    public void setCounters(Object counters)
+    {
+    }
+
+    @Override
+    public void sendMetrics(Collection<String> metricNames)
+    {
+    }
+  }
+
+  @Rule
+  public TestMeta testMeta = new TestMeta();
+
+  @Test
+  public void testUpdates() throws IOException
+  {
+    ManagedKeyedState<Integer, String> state = testMeta.newState("local");
+    for (int i = 0; i < 2000; i++) {
+      state.put(i, "value" + i);
+    }
+    for (int i = 0; i < 2000; i += 3) {
+      state.remove(i);
+    }
+    for (int i = 0; i < 2000; i += 5) {
+      state.put(i, "updated" + i);
+    }
+
+    for (int i = 0; i < 2000; i++) {
+      String expected = i % 5 == 0 ? "updated" + i : i % 3 == 0 ? null : "value" + i;
+      Assert.assertEquals("value of " + i, expected, state.get(i));
+    }
+    Assert.assertNull("missing", state.get(5000));
+
+    state.awaitMerges();
+    for (int i = 0; i < 2000; i++) {
+      String expected = i % 5 == 0 ? "updated" + i : i % 3 == 0 ? null : "value" + i;
+      Assert.assertEquals("merged value of " + i, expected, state.get(i));
+    }
+    // at most two runs per level with three runs merged into the next level
+    Assert.assertTrue("runs merged", new File(testMeta.path + "/local/1").list().length <= 8);
+    state.teardown();
+  }
+
+  @Test
+  public void testCheckpointAndRecovery() throws IOException
+  {
+    ManagedKeyedState<Integer, String> state = testMeta.newState("local");
+    for (int i = 0; i < 1000; i++) {
+      state.put(i, "value" + i);
+    }
+    state.beforeCheckpoint(1);
+    int savedRuns = testMeta.getStateFileCount();
+    Assert.assertTrue("runs saved", savedRuns > 0);
+    ByteArrayOutputStream checkpoint = new ByteArrayOutputStream();
+    FSStorageAgent.store(checkpoint, state);
+
+    for (int i = 0; i < 1000; i++) {
+      state.put(i, "changed" + i);
+    }
+    state.beforeCheckpoint(2);
+    int allRuns = testMeta.getStateFileCount();
+    Assert.assertTrue("new runs saved", allRuns > savedRuns);
+    state.committed(1);
+    Assert.assertEquals("runs of checkpoint 1 kept", allRuns, testMeta.getStateFileCount());
+
+    @SuppressWarnings("unchecked")
+    ManagedKeyedState<Integer, String> recovered = (ManagedKeyedState<Integer, String>)FSStorageAgent.retrieve(
+        new ByteArrayInputStream(checkpoint.toByteArray()));
+    recovered.setLocalPath(testMeta.path + "/recovered");
+    recovered.setup(new TestContext(testMeta.storageAgent));
+    for (int i = 0; i < 1000; i++) {
+      Assert.assertEquals("recovered value of " + i, "value" + i, recovered.get(i));
+    }
+    recovered.teardown();
+
+    state.committed(2);
+    Assert.assertTrue("merged runs deleted", testMeta.getStateFileCount() < allRuns);
+    for (int i = 0; i < 1000; i++) {
+      Assert.assertEquals("value of " + i, "changed" + i, state.get(i));
+    }
+    state.teardown();
+  }
+
+  @SuppressWarnings("unchecked")
+  @Test
+  public void testOwnerChange() throws IOException
+  {
+    ManagedKeyedState<Integer, String> state = testMeta.newState("local");
+    for (int i = 0; i < 1000; i++) {
+      state.put(i, "value" + i);
+    }
+    state.beforeCheckpoint(1);
+    ByteArrayOutputStream checkpoint = new ByteArrayOutputStream();
+    FSStorageAgent.store(checkpoint, state);
+    state.teardown();
+
+    // restored by a new partition
+    ManagedKeyedState<Integer, String> partition = (ManagedKeyedState<Integer, String>)FSStorageAgent.retrieve(
+        new ByteArrayInputStream(checkpoint.toByteArray()));
+    partition.setLocalPath(testMeta.path + "/partition");
+    partition.setup(new TestContext(testMeta.storageAgent, 2));
+    partition.beforeCheckpoint(2);
+    Assert.assertEquals("runs stored under the new id", testMeta.getStateFileCount(1), testMeta.getStateFileCount(2));
+    checkpoint.reset();
+    FSStorageAgent.store(checkpoint, partition);
+    partition.teardown();
+
+    testMeta.storageAgent.deleteStateFiles(1);
+    Assert.assertEquals("files of the removed operator", 0, testMeta.getStateFileCount(1));
+
+    ManagedKeyedState<Integer, String> recovered = (ManagedKeyedState<Integer, String>)FSStorageAgent.retrieve(
+        new ByteArrayInputStream(checkpoint.toByteArray()));
+    recovered.setLocalPath(testMeta.path + "/recovered");
+    recovered.setup(new TestContext(testMeta.storageAgent, 2));
+    for (int i = 0; i < 1000; i++) {
+      Assert.assertEquals("recovered value of " + i, "value" + i, recovered.get(i));
+    }
+    recovered.teardown();
+  }
+
+}
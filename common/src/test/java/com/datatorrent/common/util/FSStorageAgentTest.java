@@ -20,6 +20,8 @@ package com.datatorrent.common.util;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.Map;
 
 import org.junit.Assert;
@@ -131,4 +133,24 @@ public class FSStorageAgentTest
     Assert.assertFalse("operator 1 window 1", fileContext.util().exists(new Path(appPath + "/" + 1 + "/" + 1)));
   }
 
+  @Test
+  public void testStateFiles() throws IOException
+  {
+    testSave();
+    OutputStream out = testMeta.storageAgent.createStateFile(1, "run-0");
+    out.write(new byte[] {1, 2, 3});
+    out.close();
+
+    Assert.assertArrayEquals("window ids", new long[] {1}, testMeta.storageAgent.getWindowIds(1));
+    InputStream in = testMeta.storageAgent.openStateFile(1, "run-0");
+    byte[] content = new byte[4];
+    Assert.assertEquals("length", 3, in.read(content));
+    in.close();
+    Assert.assertEquals("content", 3, content[2]);
+
+    testMeta.storageAgent.deleteStateFile(1, "run-0");
+    Path statePath = new Path(testMeta.applicationPath + "/1/" + FSStorageAgent.STATE_DIR + "/run-0");
+    Assert.assertFalse("deleted", FileContext.getFileContext().util().exists(statePath));
+  }
+
 }
@@ -0,0 +1,187 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.common.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestWatcher;
+import org.junit.runner.Description;
+
+import org.apache.commons.io.FileUtils;
+
+public class PackedFSStorageAgentTest
+{
+  private static class TestMeta extends TestWatcher
+  {
+    String applicationPath;
+    PackedFSStorageAgent storageAgent;
+
+    @Override
+    protected void starting(Description description)
+    {
+      applicationPath = "target/" + description.getClassName() + "/" + description.getMethodName();
+      storageAgent = new PackedFSStorageAgent(applicationPath, null);
+      storageAgent.setLingerMillis(5000);
+    }
+
+    @Override
+    protected void finished(Description description)
+    {
+      FileUtils.deleteQuietly(new File("target/" + description.getClassName()));
+    }
+
+    String[] getPackedFiles(long windowId)
+    {
+      String[] files = new File(applicationPath + "/" + PackedFSStorageAgent.PACKED_DIR + "/"
+          + Long.toHexString(windowId)).list();
+      List<String> packedFiles = new ArrayList<>();
+      for (String file : files == null ? new String[0] : files) {
+        if (!file.endsWith(".crc")) {
+          packedFiles.add(file);
+        }
+      }
+      return packedFiles.toArray(new String[packedFiles.size()]);
+    }
+  }
+
+  @Rule
+  public TestMeta testMeta = new TestMeta();
+
+  private void saveConcurrently(final long windowId, int operators) throws Exception
+  {
+    final List<Exception> errors = new ArrayList<>();
+    List<Thread> threads = new ArrayList<>();
+    for (int i = 1; i <= operators; i++) {
+      final int operatorId = i;
+      Thread thread = new Thread()
+      {
+        @Override
+        public void run()
+        {
+          try {
+            testMeta.storageAgent.save("state of " + operatorId + " in " + windowId, operatorId, windowId);
+            testMeta.storageAgent.copyToHDFS(operatorId, windowId);
+          } catch (IOException ex) {
+            synchronized (errors) {
+              errors.add(ex);
+            }
+          }
+        }
+      };
+      thread.start();
+      threads.add(thread);
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    Assert.assertEquals("errors", 0, errors.size());
+  }
+
+  @Test
+  public void testPacking() throws Exception
+  {
+    saveConcurrently(1, 3);
+    Assert.assertEquals("single file", 1, testMeta.getPackedFiles(1).length);
+    long start = System.currentTimeMillis();
+    saveConcurrently(2, 3);
+    Assert.assertTrue("batch closed once complete", System.currentTimeMillis() - start < 5000);
+    Assert.assertEquals("single file", 1, testMeta.getPackedFiles(2).length);
+
+    PackedFSStorageAgent storageAgent = new PackedFSStorageAgent(testMeta.applicationPath, null);
+    for (int operatorId = 1; operatorId <= 3; operatorId++) {
+      Assert.assertEquals("state", "state of " + operatorId + " in 2", storageAgent.load(operatorId, 2));
+      Assert.assertArrayEquals("window ids", new long[] {1, 2}, storageAgent.getWindowIds(operatorId));
+    }
+
+    storageAgent.delete(1, 1);
+    storageAgent.delete(2, 1);
+    Assert.assertEquals("referenced", 1, testMeta.getPackedFiles(1).length);
+    Assert.assertArrayEquals("window ids", new long[] {2}, storageAgent.getWindowIds(1));
+    Assert.assertEquals("state", "state of 3 in 1", storageAgent.load(3, 1));
+    storageAgent.delete(3, 1);
+    Assert.assertEquals("unreferenced", 0, testMeta.getPackedFiles(1).length);
+    Assert.assertArrayEquals("window ids", new long[] {2}, storageAgent.getWindowIds(3));
+  }
+
+  @Test
+  public void testFilePerOperator() throws IOException
+  {
+    new FSStorageAgent(testMeta.applicationPath, null).save("state", 1, 1);
+    testMeta.storageAgent.setLingerMillis(0);
+    testMeta.storageAgent.save("packed state", 1, 2);
+    Assert.assertEquals("packed by the copy", 0, testMeta.getPackedFiles(2).length);
+    testMeta.storageAgent.copyToHDFS(1, 2);
+    Assert.assertEquals("state", "state", testMeta.storageAgent.load(1, 1));
+    Assert.assertEquals("state", "packed state", testMeta.storageAgent.load(1, 2));
+    Assert.assertArrayEquals("window ids", new long[] {1, 2}, testMeta.storageAgent.getWindowIds(1));
+  }
+
+  @Test
+  public void testSyncCheckpoint() throws IOException
+  {
+    testMeta.storageAgent.setLingerMillis(0);
+    testMeta.storageAgent.setSyncCheckpoint(true);
+    testMeta.storageAgent.save("state", 1, 1);
+    Assert.assertEquals("packed by the save", 1, testMeta.getPackedFiles(1).length);
+    Assert.assertEquals("state", "state", testMeta.storageAgent.load(1, 1));
+  }
+
+  @Test
+  public void testListedWindows() throws Exception
+  {
+    saveConcurrently(1, 2);
+    saveConcurrently(2, 2);
+    PackedFSStorageAgent storageAgent = new PackedFSStorageAgent(testMeta.applicationPath, null);
+    Assert.assertArrayEquals("window ids", new long[] {1, 2}, storageAgent.getWindowIds(1));
+
+    saveConcurrently(3, 2);
+    storageAgent.delete(1, 1);
+    storageAgent.delete(2, 1);
+    Assert.assertArrayEquals("window ids", new long[] {2, 3}, storageAgent.getWindowIds(1));
+    Assert.assertArrayEquals("window ids", new long[] {2, 3}, storageAgent.getWindowIds(2));
+  }
+
+  @Test
+  public void testBulkDelete() throws Exception
+  {
+    saveConcurrently(1, 2);
+    saveConcurrently(2, 2);
+    new FSStorageAgent(testMeta.applicationPath, null).save("state", 3, 1);
+
+    Map<Integer, long[]> windowIds = new HashMap<>();
+    windowIds.put(1, new long[] {1, 2});
+    windowIds.put(2, new long[] {1});
+    windowIds.put(3, new long[] {1});
+    windowIds.put(4, new long[] {1});
+    Assert.assertEquals("deleted", 4, testMeta.storageAgent.delete(windowIds));
+    Assert.assertEquals("unreferenced", 0, testMeta.getPackedFiles(1).length);
+    Assert.assertEquals("referenced", 1, testMeta.getPackedFiles(2).length);
+    Assert.assertArrayEquals("window ids", new long[] {2}, testMeta.storageAgent.getWindowIds(2));
+    Assert.assertEquals("deleted again", 0, testMeta.storageAgent.delete(windowIds));
+  }
+
+}
@@ -0,0 +1,310 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.stram;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileContext;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Options.Rename;
+import org.apache.hadoop.fs.Path;
+
+import com.datatorrent.api.StorageAgent;
+import com.datatorrent.stram.util.FSUtil;
+
+/**
+ * <p>CheckpointCatalog class.</p>
+ *
+ * Append only log of the checkpoints the application master learned about and purged, so that after a restart the
+ * checkpoints of all operators are known from a single read instead of a listing per operator. The log starts with
+ * the checkpoints known when it was written and is rewritten once it grew to several times that size. Records are
+ * buffered until {@link #flush()}, which the application master calls once per monitoring cycle before it acts on the
+ * checkpoints, so that the catalog knows every checkpoint the application master may have acted on, and before the
+ * checkpoints removed from the catalog are deleted, so that the catalog never refers to deleted checkpoints. Operators
+ * missing from the catalog are looked up through their storage agent and added to it, removed operators are dropped
+ * from it.
+ * <p>
+ * Once writing the catalog failed, it is deleted and the checkpoints are looked up through the storage agents again.
+ *
+ * @since 3.5.0
+ */
+public class CheckpointCatalog
+{
+  private static final Logger LOG = LoggerFactory.getLogger(CheckpointCatalog.class);
+  public static final String FILE_CATALOG = "checkpoints";
+  private static final String FILE_CATALOG_NEW = "checkpoints.new";
+  private static final String DIRECTORY_RECOVERY = "recovery";
+  private static final byte RECORD_ADD = 1;
+  private static final byte RECORD_REMOVE = 2;
+  private static final int MIN_COMPACTION_RECORDS = 10000;
+  private final FileSystem fs;
+  private final Path catalogPath;
+  private final Path newCatalogPath;
+  private final Map<Integer, TreeSet<Long>> windowIds = new HashMap<>();
+  private DataOutputStream out;
+  private FSDataOutputStream fsOutputStream;
+  private int checkpointCount;
+  private int records;
+  /**
+   * set when records were written since the last flush
+   */
+  private boolean dirty;
+  private boolean failed;
+
+  public CheckpointCatalog(String appDir, Configuration conf) throws IOException
+  {
+    Path basedir = new Path(appDir, DIRECTORY_RECOVERY);
+    fs = FileSystem.newInstance(basedir.toUri(), conf);
+    catalogPath = new Path(basedir, FILE_CATALOG);
+    newCatalogPath = new Path(basedir, FILE_CATALOG_NEW);
+  }
+
+  /**
+   * Reads the checkpoints recorded by the previous application master.
+   */
+  public synchronized void restore() throws IOException
+  {
+    windowIds.clear();
+    checkpointCount = 0;
+    if (!fs.exists(catalogPath)) {
+      LOG.debug("No existing checkpoint catalog ({})", catalogPath);
+      return;
+    }
+
+    try (DataInputStream in = fs.open(catalogPath)) {
+      while (true) {
+        byte type;
+        int operatorId;
+        long windowId;
+        try {
+          type = in.readByte();
+          operatorId = in.readInt();
+          windowId = in.readLong();
+        } catch (EOFException e) {
+          break;
+        }
+        if (type == RECORD_ADD) {
+          addWindowId(operatorId, windowId);
+        } else if (type == RECORD_REMOVE) {
+          removeWindowId(operatorId, windowId);
+        } else {
+          throw new IOException("Corrupt checkpoint catalog " + catalogPath);
+        }
+      }
+    } catch (IOException e) {
+      LOG.warn("Failed to read checkpoint catalog {}, checkpoints will be listed", catalogPath, e);
+      windowIds.clear();
+      checkpointCount = 0;
+    }
+    LOG.info("Restored {} checkpoints of {} operators from {}", checkpointCount, windowIds.size(), catalogPath);
+  }
+
+  private void addWindowId(int operatorId, long windowId)
+  {
+    TreeSet<Long> operatorWindowIds = windowIds.get(operatorId);
+    if (operatorWindowIds == null) {
+      windowIds.put(operatorId, operatorWindowIds = new TreeSet<>());
+    }
+    if (operatorWindowIds.add(windowId)) {
+      checkpointCount++;
+    }
+  }
+
+  private void removeWindowId(int operatorId, long windowId)
+  {
+    TreeSet<Long> operatorWindowIds = windowIds.get(operatorId);
+    if (operatorWindowIds != null && operatorWindowIds.remove(windowId)) {
+      checkpointCount--;
+      if (operatorWindowIds.isEmpty()) {
+        windowIds.remove(operatorId);
+      }
+    }
+  }
+
+  /**
+   * Returns the checkpoints of the operator from the catalog, or from the storage agent for an operator missing from
+   * the catalog.
+   *
+   * @param operatorId operator
+   * @param storageAgent storage agent of the operator
+   * @return window ids of the checkpoints of the operator
+   * @throws IOException
+   */
+  public synchronized long[] getWindowIds(int operatorId, StorageAgent storageAgent) throws IOException
+  {
+    TreeSet<Long> operatorWindowIds = failed ? null : windowIds.get(operatorId);
+    if (operatorWindowIds == null) {
+      long[] listedWindowIds = storageAgent.getWindowIds(operatorId);
+      for (long windowId : listedWindowIds) {
+        addWindowId(operatorId, windowId);
+        write(RECORD_ADD, operatorId, windowId);
+      }
+      return listedWindowIds;
+    }
+
+    long[] result = new long[operatorWindowIds.size()];
+    int i = 0;
+    for (Long windowId : operatorWindowIds) {
+      result[i++] = windowId;
+    }
+    return result;
+  }
+
+  public synchronized void add(int operatorId, long windowId)
+  {
+    addWindowId(operatorId, windowId);
+    write(RECORD_ADD, operatorId, windowId);
+  }
+
+  public synchronized void remove(int operatorId, long windowId)
+  {
+    removeWindowId(operatorId, windowId);
+    write(RECORD_REMOVE, operatorId, windowId);
+  }
+
+  /**
+   * Drops the checkpoints of an operator which was removed from the plan.
+   *
+   * @param operatorId operator
+   */
+  public synchronized void removeOperator(int operatorId)
+  {
+    TreeSet<Long> operatorWindowIds = windowIds.remove(operatorId);
+    if (operatorWindowIds != null) {
+      checkpointCount -= operatorWindowIds.size();
+      for (Long windowId : operatorWindowIds) {
+        write(RECORD_REMOVE, operatorId, windowId);
+      }
+    }
+  }
+
+  private void write(byte type, int operatorId, long windowId)
+  {
+    if (failed || out == null) {
+      return;
+    }
+    try {
+      out.writeByte(type);
+      out.writeInt(operatorId);
+      out.writeLong(windowId);
+      records++;
+      dirty = true;
+    } catch (IOException e) {
+      fail(e);
+    }
+  }
+
+  /**
+   * Makes the records written so far durable and rewrites the catalog once it grew too large.
+   */
+  public synchronized void flush()
+  {
+    if (failed || (out != null && !dirty)) {
+      return;
+    }
+    try {
+      if (out == null || records > Math.max(MIN_COMPACTION_RECORDS, 4 * checkpointCount)) {
+        compact();
+      } else {
+        out.flush();
+        fsOutputStream.hflush();
+      }
+      dirty = false;
+    } catch (IOException e) {
+      fail(e);
+    }
+  }
+
+  private void compact() throws IOException
+  {
+    FSDataOutputStream newFsOutputStream;
+    String scheme = null;
+    try {
+      scheme = fs.getScheme();
+    } catch (UnsupportedOperationException e) {
+      LOG.warn("{} doesn't implement getScheme() method", fs.getClass().getName());
+    }
+    if ("file".equals(scheme)) {
+      // local FS does not support hflush and does not flush native stream
+      FSUtil.mkdirs(fs, newCatalogPath.getParent());
+      newFsOutputStream = new FSDataOutputStream(new FileOutputStream(
+          Path.getPathWithoutSchemeAndAuthority(newCatalogPath).toString()), null);
+    } else {
+      newFsOutputStream = fs.create(newCatalogPath);
+    }
+
+    DataOutputStream newOut = new DataOutputStream(new BufferedOutputStream(newFsOutputStream));
+    for (Map.Entry<Integer, TreeSet<Long>> entry : windowIds.entrySet()) {
+      for (Long windowId : entry.getValue()) {
+        newOut.writeByte(RECORD_ADD);
+        newOut.writeInt(entry.getKey());
+        newOut.writeLong(windowId);
+      }
+    }
+    newOut.flush();
+    newFsOutputStream.hflush();
+    // the previous catalog is closed before it is replaced
+    close();
+    FileContext.getFileContext(fs.getUri()).rename(newCatalogPath, catalogPath, Rename.OVERWRITE);
+    LOG.debug("Wrote {} checkpoints to {}", checkpointCount, catalogPath);
+
+    out = newOut;
+    fsOutputStream = newFsOutputStream;
+    records = 0;
+  }
+
+  private void fail(IOException e)
+  {
+    LOG.warn("Failed to write checkpoint catalog {}, checkpoints will be listed", catalogPath, e);
+    failed = true;
+    close();
+    try {
+      fs.delete(catalogPath, false);
+    } catch (IOException ex) {
+      LOG.error("Failed to delete checkpoint catalog {}", catalogPath, ex);
+    }
+  }
+
+  public synchronized void close()
+  {
+    if (out != null) {
+      try {
+        out.close();
+      } catch (IOException e) {
+        LOG.warn("Failed to close checkpoint catalog {}", catalogPath, e);
+      }
+      out = null;
+      fsOutputStream = null;
+    }
+  }
+
+}
@@ -0,0 +1,319 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.stram;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.datatorrent.api.StorageAgent;
+import com.datatorrent.api.StorageAgent.BulkDeleteStorageAgent;
+
+/**
+ * <p>CheckpointGarbageCollector class.</p>
+ *
+ * Deletes the checkpoints which are no longer needed in a thread of its own, so that purging does not compete with
+ * the processing of the heartbeats. Checkpoints which are purged while the previous ones are still being deleted are
+ * merged into the backlog of their operator. The windows in the backlog of the operators of a storage agent supporting
+ * bulk deletes are passed to it with a single call, the checkpoints of other storage agents are deleted one at a time.
+ * The number of checkpoints deleted per second can be limited, the backlog is then deleted in chunks over the following
+ * seconds. Only the checkpoints which were found are counted as deleted.
+ *
+ * @since 3.5.0
+ */
+public class CheckpointGarbageCollector
+{
+  private static final Logger LOG = LoggerFactory.getLogger(CheckpointGarbageCollector.class);
+  private final int maxDeletesPerSecond;
+  private final Map<Integer, Backlog> backlog = new HashMap<>();
+  private final AtomicLong deletedCount = new AtomicLong();
+  private final AtomicLong failedCount = new AtomicLong();
+  private int pendingCount;
+  private long rateLimitStartMillis;
+  private int rateLimitCount;
+  private boolean started;
+  private boolean stopped;
+  private final Thread thread = new Thread("CheckpointGarbageCollector")
+  {
+    @Override
+    public void run()
+    {
+      while (collect()) {
+      }
+    }
+
+  };
+
+  private static class Backlog
+  {
+    final StorageAgent storageAgent;
+    final TreeSet<Long> windowIds = new TreeSet<>();
+
+    Backlog(StorageAgent storageAgent)
+    {
+      this.storageAgent = storageAgent;
+    }
+  }
+
+  /**
+   * @param maxDeletesPerSecond number of checkpoints deleted per second, zero for no limit
+   */
+  public CheckpointGarbageCollector(int maxDeletesPerSecond)
+  {
+    this.maxDeletesPerSecond = maxDeletesPerSecond;
+    thread.setDaemon(true);
+  }
+
+  /**
+   * Deletes the checkpoints still in the backlog and stops the collector.
+   */
+  public void teardown()
+  {
+    synchronized (this) {
+      stopped = true;
+      notifyAll();
+      if (!started) {
+        return;
+      }
+    }
+    try {
+      thread.join();
+    } catch (InterruptedException ex) {
+      LOG.warn("Checkpoint garbage collector join interrupted");
+    }
+  }
+
+  /**
+   * Adds a checkpoint of the operator to the backlog. The collector thread is started with the first checkpoint.
+   *
+   * @param operatorId
+   * @param windowId
+   * @param storageAgent storage agent of the operator
+   */
+  public synchronized void purge(int operatorId, long windowId, StorageAgent storageAgent)
+  {
+    Backlog b = backlog.get(operatorId);
+    if (b == null) {
+      b = new Backlog(storageAgent);
+      backlog.put(operatorId, b);
+    }
+    if (b.windowIds.add(windowId)) {
+      pendingCount++;
+    }
+    if (!started) {
+      started = true;
+      thread.start();
+    }
+    notifyAll();
+  }
+
+  /**
+   * @return number of checkpoints waiting to be deleted, including those which are being deleted
+   */
+  public synchronized int getPendingCount()
+  {
+    return pendingCount;
+  }
+
+  /**
+   * @return number of operators with checkpoints waiting to be deleted, excluding those which are being deleted
+   */
+  public synchronized int getPendingOperatorCount()
+  {
+    return backlog.size();
+  }
+
+  /**
+   * @return number of checkpoints deleted so far
+   */
+  public long getDeletedCount()
+  {
+    return deletedCount.get();
+  }
+
+  /**
+   * @return number of checkpoints which could not be deleted
+   */
+  public long getFailedCount()
+  {
+    return failedCount.get();
+  }
+
+  /**
+   * Takes the backlog and deletes it.
+   *
+   * @return false once the collector is stopped
+   */
+  private boolean collect()
+  {
+    Map<Integer, Backlog> batch;
+    boolean stopping;
+    synchronized (this) {
+      while (backlog.isEmpty() && !stopped) {
+        try {
+          wait();
+        } catch (InterruptedException ex) {
+          return false;
+        }
+      }
+      stopping = stopped;
+      batch = new HashMap<>(backlog);
+      backlog.clear();
+    }
+
+    // the windows of all operators of the same bulk storage agent are deleted together
+    Map<StorageAgent, Map<Integer, long[]>> bulk = new HashMap<>();
+    for (Map.Entry<Integer, Backlog> entry : batch.entrySet()) {
+      Backlog b = entry.getValue();
+      if (b.storageAgent instanceof BulkDeleteStorageAgent) {
+        Map<Integer, long[]> windowIds = bulk.get(b.storageAgent);
+        if (windowIds == null) {
+          windowIds = new HashMap<>();
+          bulk.put(b.storageAgent, windowIds);
+        }
+        long[] operatorWindowIds = new long[b.windowIds.size()];
+        int i = 0;
+        for (long windowId : b.windowIds) {
+          operatorWindowIds[i++] = windowId;
+        }
+        windowIds.put(entry.getKey(), operatorWindowIds);
+      } else {
+        for (long windowId : b.windowIds) {
+          if (!stopping) {
+            throttle(1);
+          }
+          try {
+            b.storageAgent.delete(entry.getKey(), windowId);
+            deletedCount.incrementAndGet();
+          } catch (IOException ex) {
+            failedCount.incrementAndGet();
+            LOG.error("Failed to purge checkpoint for operator {} for windowId {}", entry.getKey(), windowId, ex);
+          }
+          done(1);
+        }
+      }
+    }
+
+    for (Map.Entry<StorageAgent, Map<Integer, long[]>> entry : bulk.entrySet()) {
+      BulkDeleteStorageAgent storageAgent = (BulkDeleteStorageAgent)entry.getKey();
+      for (Map<Integer, long[]> chunk : split(entry.getValue(), stopping ? 0 : maxDeletesPerSecond)) {
+        int count = 0;
+        for (long[] windowIds : chunk.values()) {
+          count += windowIds.length;
+        }
+        if (!stopping) {
+          throttle(count);
+        }
+        try {
+          int deleted = storageAgent.delete(chunk);
+          deletedCount.addAndGet(deleted);
+          if (deleted < count) {
+            LOG.debug("{} of {} purged checkpoints of operators {} were not found", count - deleted, count,
+                chunk.keySet());
+          }
+        } catch (IOException ex) {
+          failedCount.addAndGet(count);
+          LOG.error("Failed to purge checkpoints for operators {}", chunk.keySet(), ex);
+        }
+        done(count);
+      }
+    }
+    return !stopping;
+  }
+
+  /**
+   * Splits the windows of the operators into chunks of at most the given number of windows, so that a bulk delete is
+   * not throttled as a whole.
+   *
+   * @param maxWindows maximum number of windows per chunk, zero for a single chunk
+   */
+  private static List<Map<Integer, long[]>> split(Map<Integer, long[]> windowIds, int maxWindows)
+  {
+    if (maxWindows <= 0) {
+      return Collections.singletonList(windowIds);
+    }
+    List<Map<Integer, long[]>> chunks = new ArrayList<>();
+    Map<Integer, long[]> chunk = new HashMap<>();
+    int count = 0;
+    for (Map.Entry<Integer, long[]> entry : windowIds.entrySet()) {
+      long[] operatorWindowIds = entry.getValue();
+      int from = 0;
+      while (from < operatorWindowIds.length) {
+        int to = Math.min(operatorWindowIds.length, from + maxWindows - count);
+        chunk.put(entry.getKey(), Arrays.copyOfRange(operatorWindowIds, from, to));
+        count += to - from;
+        from = to;
+        if (count == maxWindows) {
+          chunks.add(chunk);
+          chunk = new HashMap<>();
+          count = 0;
+        }
+      }
+    }
+    if (!chunk.isEmpty()) {
+      chunks.add(chunk);
+    }
+    return chunks;
+  }
+
+  private synchronized void done(int count)
+  {
+    pendingCount -= count;
+  }
+
+  /**
+   * Waits until the deletes of the previous seconds are within the limit. A batch larger than the limit is deleted at
+   * once and delays the following deletes accordingly.
+   */
+  private void throttle(int count)
+  {
+    if (maxDeletesPerSecond <= 0) {
+      return;
+    }
+    long now = System.currentTimeMillis();
+    while (true) {
+      long elapsedMillis = now - rateLimitStartMillis;
+      if (elapsedMillis >= 1000) {
+        rateLimitCount = (int)Math.max(0, rateLimitCount - maxDeletesPerSecond * (elapsedMillis / 1000));
+        rateLimitStartMillis = now;
+      }
+      if (rateLimitCount < maxDeletesPerSecond) {
+        break;
+      }
+      try {
+        Thread.sleep(1000 - (now - rateLimitStartMillis));
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+      now = System.currentTimeMillis();
+    }
+    rateLimitCount += count;
+  }
+
+}
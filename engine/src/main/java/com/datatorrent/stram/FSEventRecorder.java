@@ -21,6 +21,7 @@ package com.datatorrent.stram;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.net.URI;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ExecutionException;
@@ -39,6 +40,7 @@ import com.datatorrent.common.codec.JsonStreamCodec;
 import com.datatorrent.netlet.util.Slice;
 import com.datatorrent.stram.api.StramEvent;
 import com.datatorrent.stram.client.EventsAgent;
+import com.datatorrent.stram.util.FSColumnarPartFileCollection;
 import com.datatorrent.stram.util.FSPartFileCollection;
 import com.datatorrent.stram.util.SharedPubSubWebSocketClient;
 
@@ -62,6 +64,7 @@ public class FSEventRecorder implements EventRecorder
   private SharedPubSubWebSocketClient wsClient;
   private final String pubSubTopic;
   private final EventRecorderThread eventRecorderThread = new EventRecorderThread();
+  private boolean columnar;
 
   private class EventRecorderThread extends Thread
   {
@@ -105,11 +108,21 @@ public class FSEventRecorder implements EventRecorder
     this.basePath = basePath;
   }
 
+  /**
+   * Sets whether the events are recorded in the binary columnar format instead of JSON lines.
+   *
+   * @param columnar
+   */
+  public void setColumnar(boolean columnar)
+  {
+    this.columnar = columnar;
+  }
+
   public void setup()
   {
     try {
       streamCodec = new JsonStreamCodec<>();
-      storage = new FSPartFileCollection();
+      storage = columnar ? new FSColumnarPartFileCollection() : new FSPartFileCollection();
       storage.setBasePath(basePath);
       storage.setup();
       storage.writeMetaData((VERSION + "\n").getBytes());
@@ -152,18 +165,24 @@ public class FSEventRecorder implements EventRecorder
   public void writeEvent(StramEvent event) throws Exception
   {
     LOG.debug("Writing event {} to the storage", event.getType());
-    ByteArrayOutputStream bos = new ByteArrayOutputStream();
-    bos.write((event.getTimestamp() + ":").getBytes());
-    bos.write((event.getType() + ":").getBytes());
     @SuppressWarnings("unchecked")
     Map<String, String> data = BeanUtils.describe(event);
     data.remove("timestamp");
     data.remove("class");
     data.remove("type");
-    Slice f = streamCodec.toByteArray(data);
-    bos.write(f.buffer, f.offset, f.length);
-    bos.write("\n".getBytes());
-    storage.writeDataItem(bos.toByteArray(), true);
+    if (columnar) {
+      Map<String, Object> fields = new HashMap<String, Object>(data);
+      fields.put(EventsAgent.TYPE_FIELD, event.getType());
+      ((FSColumnarPartFileCollection)storage).writeRow(event.getTimestamp(), -1, 0, fields);
+    } else {
+      ByteArrayOutputStream bos = new ByteArrayOutputStream();
+      bos.write((event.getTimestamp() + ":").getBytes());
+      bos.write((event.getType() + ":").getBytes());
+      Slice f = streamCodec.toByteArray(data);
+      bos.write(f.buffer, f.offset, f.length);
+      bos.write("\n".getBytes());
+      storage.writeDataItem(bos.toByteArray(), true);
+    }
     if (numSubscribers > 0) {
       LOG.debug("Publishing event {} through websocket to gateway", event.getType());
       EventsAgent.EventInfo eventInfo = new EventsAgent.EventInfo();
@@ -18,6 +18,8 @@
  */
 package com.datatorrent.stram;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.ByteArrayInputStream;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
@@ -169,7 +171,7 @@ public class FSRecoveryHandler implements StreamingContainerManager.RecoveryHand
 
     LOG.debug("Writing checkpoint to {}", snapshotPath);
     try (FSDataOutputStream fsOutputStream = fs.create(snapshotPath);
-        ObjectOutputStream oos = new ObjectOutputStream(fsOutputStream)) {
+        ObjectOutputStream oos = new ObjectOutputStream(new BufferedOutputStream(fsOutputStream))) {
       oos.writeObject(state);
     }
     // remove snapshot backup
@@ -224,7 +226,7 @@ public class FSRecoveryHandler implements StreamingContainerManager.RecoveryHand
     }
 
     LOG.debug("Reading checkpoint {}", snapshotPath);
-    InputStream is = fc.open(snapshotPath);
+    InputStream is = new BufferedInputStream(fc.open(snapshotPath));
     // indeterministic class loading behavior
     // http://stackoverflow.com/questions/9110677/readresolve-not-working-an-instance-of-guavas-serializedform-appears
     final ClassLoader loader = Thread.currentThread().getContextClassLoader();
@@ -38,6 +38,7 @@ import com.datatorrent.api.StreamCodec;
 import com.datatorrent.api.annotation.RecordField;
 import com.datatorrent.common.codec.JsonStreamCodec;
 import com.datatorrent.netlet.util.Slice;
+import com.datatorrent.stram.util.FSColumnarPartFileCollection;
 import com.datatorrent.stram.util.FSPartFileCollection;
 import com.datatorrent.stram.webapp.ContainerInfo;
 import com.datatorrent.stram.webapp.OperatorInfo;
@@ -61,6 +62,7 @@ public class FSStatsRecorder implements StatsRecorder
   private final Map<Class<?>, List<Field>> statsFields = new HashMap<>();
   private final BlockingQueue<WriteOperation> queue = new LinkedBlockingQueue<>();
   private final StatsRecorderThread statsRecorderThread = new StatsRecorderThread();
+  private boolean columnar;
 
   private class StatsRecorderThread extends Thread
   {
@@ -70,7 +72,9 @@ public class FSStatsRecorder implements StatsRecorder
       while (true) {
         try {
           WriteOperation wo = queue.take();
-          if (wo.meta) {
+          if (wo.fields != null) {
+            ((FSColumnarPartFileCollection)wo.storage).writeRow(wo.timestamp, wo.windowId, wo.key, wo.fields);
+          } else if (wo.meta) {
             wo.storage.writeMetaData(wo.bytes);
           } else {
             wo.storage.writeDataItem(wo.bytes, true);
@@ -101,9 +105,22 @@ public class FSStatsRecorder implements StatsRecorder
       this.meta = meta;
     }
 
+    WriteOperation(FSPartFileCollection storage, long timestamp, long windowId, int key, Map<String, Object> fields)
+    {
+      this.storage = storage;
+      this.timestamp = timestamp;
+      this.windowId = windowId;
+      this.key = key;
+      this.fields = fields;
+    }
+
     FSPartFileCollection storage;
     byte[] bytes;
     boolean meta;
+    long timestamp;
+    long windowId;
+    int key;
+    Map<String, Object> fields;
   }
 
   public void setBasePath(String basePath)
@@ -111,11 +128,26 @@ public class FSStatsRecorder implements StatsRecorder
     this.basePath = basePath;
   }
 
+  /**
+   * Sets whether the stats are recorded in the binary columnar format instead of JSON lines.
+   *
+   * @param columnar
+   */
+  public void setColumnar(boolean columnar)
+  {
+    this.columnar = columnar;
+  }
+
+  private FSPartFileCollection newStorage()
+  {
+    return columnar ? new FSColumnarPartFileCollection() : new FSPartFileCollection();
+  }
+
   public void setup()
   {
     try {
       streamCodec = new JsonStreamCodec<>();
-      containersStorage = new FSPartFileCollection();
+      containersStorage = newStorage();
       containersStorage.setBasePath(basePath + "/containers");
       containersStorage.setup();
       containersStorage.writeMetaData((VERSION + "\n").getBytes());
@@ -165,6 +197,10 @@ public class FSStatsRecorder implements StatsRecorder
         containerIndex = knownContainers.get(entry.getKey());
       }
       Map<String, Object> fieldMap = extractRecordFields(containerInfo, "stats");
+      if (columnar) {
+        queue.add(new WriteOperation(containersStorage, timestamp, -1, containerIndex, fieldMap));
+        continue;
+      }
       ByteArrayOutputStream bos = new ByteArrayOutputStream();
       Slice f = streamCodec.toByteArray(fieldMap);
       bos.write((String.valueOf(containerIndex) + ":").getBytes());
@@ -181,7 +217,7 @@ public class FSStatsRecorder implements StatsRecorder
     for (OperatorInfo operatorInfo : operatorList) {
       FSPartFileCollection operatorStorage;
       if (!logicalOperatorStorageMap.containsKey(operatorInfo.name)) {
-        operatorStorage = new FSPartFileCollection();
+        operatorStorage = newStorage();
         operatorStorage.setBasePath(basePath + "/operators/" + operatorInfo.name);
         operatorStorage.setup();
         operatorStorage.writeMetaData((VERSION + "\n").getBytes());
@@ -199,6 +235,10 @@ public class FSStatsRecorder implements StatsRecorder
         queue.add(new WriteOperation(operatorStorage, bos.toByteArray(), true));
       }
       Map<String, Object> fieldMap = extractRecordFields(operatorInfo, "stats");
+      if (columnar) {
+        queue.add(new WriteOperation(operatorStorage, timestamp, operatorInfo.currentWindowId, Integer.parseInt(operatorInfo.id), fieldMap));
+        continue;
+      }
       ByteArrayOutputStream bos = new ByteArrayOutputStream();
       Slice f = streamCodec.toByteArray(fieldMap);
       bos.write((operatorInfo.id + ":").getBytes());
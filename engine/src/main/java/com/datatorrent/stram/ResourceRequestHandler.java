@@ -43,6 +43,7 @@ import com.datatorrent.stram.StreamingContainerAgent.ContainerStartRequest;
 import com.datatorrent.stram.plan.physical.PTContainer;
 import com.datatorrent.stram.plan.physical.PTOperator;
 import com.datatorrent.stram.plan.physical.PTOperator.HostOperatorSet;
+import com.datatorrent.stram.plan.physical.PlacementOptimizer;
 
 /**
  * Handle mapping from physical plan locality groupings to resource allocation requests. Monitors available resources
@@ -131,6 +132,11 @@ public class ResourceRequestHandler
        */
       return new ContainerRequest(capability, nodes, racks, Priority.newInstance(priority), false);
     }
+    host = getPreferredHost(csr.container);
+    if (host != null) {
+      // traffic based preference only, the container may be allocated elsewhere
+      return new ContainerRequest(capability, new String[]{host}, racks, Priority.newInstance(priority));
+    }
     // For now, only memory is supported so we set memory requirements
     return new ContainerRequest(capability, nodes, racks, Priority.newInstance(priority));
   }
@@ -139,6 +145,35 @@ public class ResourceRequestHandler
   private final Map<Set<PTOperator>, String> nodeLocalMapping = Maps.newHashMap();
   private final Map<String, String> nodeToRack = Maps.newHashMap();
   private final Map<PTContainer, String> antiAffinityMapping = Maps.newHashMap();
+  private PlacementOptimizer placementOptimizer;
+
+  public void setPlacementOptimizer(PlacementOptimizer placementOptimizer)
+  {
+    this.placementOptimizer = placementOptimizer;
+  }
+
+  /**
+   * Returns the host the placement optimizer prefers for the container when the host has the resources for it.
+   */
+  private String getPreferredHost(PTContainer c)
+  {
+    if (placementOptimizer == null || !c.getStrictAntiPrefs().isEmpty() || !c.getPreferredAntiPrefs().isEmpty()) {
+      return null;
+    }
+    String host = placementOptimizer.getPreferredHost(c);
+    NodeReport report = host == null ? null : nodeReportMap.get(host);
+    if (report == null) {
+      return null;
+    }
+    int memAvailable = report.getCapability().getMemory() - report.getUsed().getMemory();
+    int vCoresAvailable = report.getCapability().getVirtualCores() - report.getUsed().getVirtualCores();
+    if (memAvailable < c.getRequiredMemoryMB() || vCoresAvailable < c.getRequiredVCores()) {
+      LOG.debug("Preferred host {} lacks resources for {}", host, c);
+      return null;
+    }
+    LOG.info("Preferring host {} for container with operators {}", host, StringUtils.join(c.getOperators(), ","));
+    return host;
+  }
 
   public void clearNodeMapping()
   {
@@ -56,6 +56,7 @@ import com.datatorrent.stram.engine.WindowGenerator;
 import com.datatorrent.stram.plan.logical.LogicalPlan;
 import com.datatorrent.stram.plan.logical.LogicalPlan.OperatorMeta;
 import com.datatorrent.stram.plan.physical.PTOperator;
+import com.datatorrent.stram.stream.InProcessTransport;
 
 /**
  * Launcher for topologies in local mode within a single process.
@@ -70,11 +71,13 @@ public class StramLocalCluster implements Runnable, Controller
   private static File CLUSTER_WORK_DIR = new File("target", StramLocalCluster.class.getName());
   private static final String LOCALHOST_PROPERTY_KEY = "org.apache.apex.stram.StramLocalCluster.hostname";
   private static final String LOCALHOST = System.getProperty(LOCALHOST_PROPERTY_KEY, "localhost");
+  private static final int IN_PROCESS_STREAM_CAPACITY = 64 * 1024;
   protected final StreamingContainerManager dnmgr;
   private final UmbilicalProtocolLocalImpl umbilical;
   private InetSocketAddress bufferServerAddress;
   private boolean perContainerBufferServer;
   private Server bufferServer = null;
+  private InProcessTransport inProcessTransport;
   private final Map<String, LocalStreamingContainer> childContainers = new ConcurrentHashMap<>();
   private int containerSeq = 0;
   private boolean appDone = false;
@@ -126,7 +129,7 @@ public class StramLocalCluster implements Runnable, Controller
     {
       StreamingContainerAgent sca = dnmgr.getContainerAgent(containerId);
       StreamingContainerContext scc = sca.getInitContext();
-      scc.deployBufferServer = perContainerBufferServer;
+      scc.deployBufferServer = perContainerBufferServer && inProcessTransport == null;
       return scc;
     }
 
@@ -232,6 +235,11 @@ public class StramLocalCluster implements Runnable, Controller
       return Collections.unmodifiableMap(nodes);
     }
 
+    void setInProcessTransport(InProcessTransport inProcessTransport)
+    {
+      this.inProcessTransport = inProcessTransport;
+    }
+
   }
 
   /**
@@ -251,8 +259,10 @@ public class StramLocalCluster implements Runnable, Controller
         wingen = mockComponentFactory.setupWindowGenerator();
       }
       this.child = new LocalStreamingContainer(containerId, umbilical, wingen);
+      this.child.setInProcessTransport(inProcessTransport);
       ContainerResource cr = new ContainerResource(cdr.container.getResourceRequestPriority(), containerId, "localhost", cdr.container.getRequiredMemoryMB(), cdr.container.getRequiredVCores(), null);
-      StreamingContainerAgent sca = dnmgr.assignContainer(cr, perContainerBufferServer ? null : bufferServerAddress);
+      StreamingContainerAgent sca = dnmgr.assignContainer(cr,
+          perContainerBufferServer && inProcessTransport == null ? null : bufferServerAddress);
       if (sca != null) {
         childContainers.put(containerId, child);
         Thread launchThread = new Thread(this, containerId);
@@ -304,7 +314,13 @@ public class StramLocalCluster implements Runnable, Controller
     this.dnmgr = new StreamingContainerManager(dag);
     this.umbilical = new UmbilicalProtocolLocalImpl();
 
-    if (!perContainerBufferServer) {
+    if (dag.getValue(LogicalPlan.IN_PROCESS_STREAMS)) {
+      inProcessTransport = new InProcessTransport(IN_PROCESS_STREAM_CAPACITY,
+          dag.getValue(LogicalPlan.IN_PROCESS_STREAM_SERIALIZATION));
+      // port 0 tells the containers that there is no buffer server to reset or purge
+      bufferServerAddress = InetSocketAddress.createUnresolved(LOCALHOST, 0);
+      LOG.info("Streams are passed in process");
+    } else if (!perContainerBufferServer) {
       StreamingContainer.eventloop.start();
       bufferServer = new Server(0, 1024 * 1024,8);
       bufferServer.setSpoolStorage(new DiskStorage());
@@ -515,7 +531,7 @@ public class StramLocalCluster implements Runnable, Controller
     dnmgr.teardown();
 
     LOG.info("Application finished.");
-    if (!perContainerBufferServer) {
+    if (!perContainerBufferServer && bufferServer != null) {
       StreamingContainer.eventloop.stop(bufferServer);
       StreamingContainer.eventloop.stop();
     }
@@ -101,6 +101,7 @@ import com.datatorrent.stram.plan.logical.LogicalPlan;
 import com.datatorrent.stram.plan.physical.OperatorStatus.PortStatus;
 import com.datatorrent.stram.plan.physical.PTContainer;
 import com.datatorrent.stram.plan.physical.PTOperator;
+import com.datatorrent.stram.plan.physical.PlacementOptimizer;
 import com.datatorrent.stram.security.StramDelegationTokenIdentifier;
 import com.datatorrent.stram.security.StramDelegationTokenManager;
 import com.datatorrent.stram.security.StramUserLogin;
@@ -373,6 +374,13 @@ public class StreamingAppMasterService extends CompositeService
       return dnmgr.getWindowStartMillis();
     }
 
+    @AutoMetric
+    @Override
+    public int getCheckpointPurgeBacklog()
+    {
+      return dnmgr.getCheckpointGarbageCollector().getPendingCount();
+    }
+
   }
 
   private class ClusterAppContextImpl extends BaseContext implements StramAppContext
@@ -712,6 +720,11 @@ public class StreamingAppMasterService extends CompositeService
     int nextRequestPriority = 0;
     // Use override for resource requestor in case of cloudera distribution, to handle host specific requests
     ResourceRequestHandler resourceRequestor = System.getenv().containsKey("CDH_HADOOP_BIN") ? new BlacklistBasedResourceRequestHandler() : new ResourceRequestHandler();
+    PlacementOptimizer placementOptimizer = null;
+    if (dag.getValue(LogicalPlan.TRAFFIC_AWARE_PLACEMENT)) {
+      placementOptimizer = new PlacementOptimizer(dnmgr.getPhysicalPlan());
+      resourceRequestor.setPlacementOptimizer(placementOptimizer);
+    }
 
     List<ContainerStartRequest> pendingContainerStartRequests = new LinkedList<>();
     YarnClient clientRMService = YarnClient.createYarnClient();
@@ -788,6 +801,14 @@ public class StreamingAppMasterService extends CompositeService
 
       // request containers for pending deploy requests
       if (!dnmgr.containerStartRequests.isEmpty()) {
+        if (placementOptimizer != null && numTotalContainers > 0) {
+          // redeploy, prefer the hosts of the peers and report the containers which could be placed closer to them
+          placementOptimizer.update();
+          List<PlacementOptimizer.Proposal> proposals = placementOptimizer.getProposals(maxMem, maxVcores);
+          if (!proposals.isEmpty()) {
+            LOG.info("Placement proposals by observed traffic: {}", proposals);
+          }
+        }
         StreamingContainerAgent.ContainerStartRequest csr;
         while ((csr = dnmgr.containerStartRequests.poll()) != null) {
           if (csr.container.getRequiredMemoryMB() > maxMem) {
@@ -266,7 +266,7 @@ public class StreamingContainerAgent
           if (!publishers.contains(sourceOutput)) {
             throw new AssertionError("Source not deployed for container local stream " + sourceOutput + " " + in);
           }
-          if (streamMeta.getLocality() == Locality.THREAD_LOCAL) {
+          if (dnmgr.getPhysicalPlan().getLocality(streamMeta) == Locality.THREAD_LOCAL) {
             inputInfo.locality = Locality.THREAD_LOCAL;
             ndi.type = OperatorType.OIO;
           } else {
@@ -412,7 +412,8 @@ public class StreamingContainerAgent
       }
       // pick checkpoint most recently written
       try {
-        long[] windowIds = agent.getWindowIds(oper.getId());
+        CheckpointCatalog catalog = dnmgr.getCheckpointCatalog();
+        long[] windowIds = catalog == null ? agent.getWindowIds(oper.getId()) : catalog.getWindowIds(oper.getId(), agent);
         long checkpointId = Stateless.WINDOW_ID;
         for (long windowId : windowIds) {
           if (windowId > checkpointId) {
@@ -43,6 +43,7 @@ import java.util.ListIterator;
 import java.util.Map;
 import java.util.Queue;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.TreeSet;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
@@ -106,6 +107,7 @@ import com.datatorrent.api.Context.OperatorContext;
 import com.datatorrent.api.Operator;
 import com.datatorrent.api.Operator.InputPort;
 import com.datatorrent.api.Operator.OutputPort;
+import com.datatorrent.api.Stats;
 import com.datatorrent.api.Stats.OperatorStats;
 import com.datatorrent.api.StatsListener;
 import com.datatorrent.api.StorageAgent;
@@ -118,6 +120,7 @@ import com.datatorrent.common.experimental.AppData;
 import com.datatorrent.common.util.AsyncFSStorageAgent;
 import com.datatorrent.common.util.FSStorageAgent;
 import com.datatorrent.common.util.NumberAggregate;
+import com.datatorrent.common.util.PackedFSStorageAgent;
 import com.datatorrent.common.util.Pair;
 import com.datatorrent.stram.Journal.Recoverable;
 import com.datatorrent.stram.StreamingContainerAgent.ContainerStartRequest;
@@ -162,6 +165,7 @@ import com.datatorrent.stram.plan.physical.PlanModifier;
 import com.datatorrent.stram.util.ConfigUtils;
 import com.datatorrent.stram.util.FSJsonLineFile;
 import com.datatorrent.stram.util.MovingAverage.MovingAverageLong;
+import com.datatorrent.stram.util.MovingAverage.TimedMovingHistogram;
 import com.datatorrent.stram.util.SharedPubSubWebSocketClient;
 import com.datatorrent.stram.util.WebServicesClient;
 import com.datatorrent.stram.webapp.ContainerInfo;
@@ -226,6 +230,8 @@ public class StreamingContainerManager implements PlanContext
   private MBassador<StramEvent> eventBus; // event bus for publishing stram events
   private final Journal journal;
   private RecoveryHandler recoveryHandler;
+  private CheckpointCatalog checkpointCatalog;
+  private transient CheckpointGarbageCollector checkpointGarbageCollector;
   // window id to node id to end window stats
   private final ConcurrentSkipListMap<Long, Map<Integer, EndWindowStats>> endWindowStatsOperatorMap = new ConcurrentSkipListMap<>();
   private final ConcurrentMap<PTOperator, PTOperator> slowestUpstreamOp = new ConcurrentHashMap<>();
@@ -436,6 +442,8 @@ public class StreamingContainerManager implements PlanContext
     setupWsClient();
     setupRecording(enableEventRecording);
     setupStringCodecs();
+    checkpointGarbageCollector = new CheckpointGarbageCollector(
+        plan.getLogicalPlan().getValue(LogicalPlan.CHECKPOINT_DELETES_PER_SECOND));
 
     try {
       Path file = new Path(this.vars.appPath);
@@ -524,12 +532,14 @@ public class StreamingContainerManager implements PlanContext
     if (this.vars.enableStatsRecording) {
       statsRecorder = new FSStatsRecorder();
       statsRecorder.setBasePath(this.vars.appPath + "/" + LogicalPlan.SUBDIR_STATS);
+      statsRecorder.setColumnar(plan.getLogicalPlan().getValue(LogicalPlan.COLUMNAR_HISTORY_RECORDING));
       statsRecorder.setup();
     }
     if (enableEventRecording) {
       eventRecorder = new FSEventRecorder(plan.getLogicalPlan().getValue(LogicalPlan.APPLICATION_ID));
       eventRecorder.setBasePath(this.vars.appPath + "/" + LogicalPlan.SUBDIR_EVENTS);
       eventRecorder.setWebSocketClient(wsClient);
+      eventRecorder.setColumnar(plan.getLogicalPlan().getValue(LogicalPlan.COLUMNAR_HISTORY_RECORDING));
       eventRecorder.setup();
       eventBus.subscribe(eventRecorder);
     }
@@ -578,6 +588,12 @@ public class StreamingContainerManager implements PlanContext
 
     IOUtils.closeQuietly(containerFile);
     IOUtils.closeQuietly(operatorFile);
+    if (checkpointCatalog != null) {
+      checkpointCatalog.close();
+    }
+    if (checkpointGarbageCollector != null) {
+      checkpointGarbageCollector.teardown();
+    }
     if (poolExecutor != null) {
       poolExecutor.shutdown();
     }
@@ -595,6 +611,22 @@ public class StreamingContainerManager implements PlanContext
     return plan;
   }
 
+  /**
+   * @return collector deleting the checkpoints which are no longer needed
+   */
+  public CheckpointGarbageCollector getCheckpointGarbageCollector()
+  {
+    return checkpointGarbageCollector;
+  }
+
+  /**
+   * @return checkpoint catalog of the application, null unless {@link LogicalPlan#CHECKPOINT_CATALOG} is set
+   */
+  CheckpointCatalog getCheckpointCatalog()
+  {
+    return checkpointCatalog;
+  }
+
   public long getCommittedWindowId()
   {
     return committedWindowId;
@@ -798,6 +830,7 @@ public class StreamingContainerManager implements PlanContext
     processEvents();
 
     committedWindowId = updateCheckpoints(false);
+    plan.deleteStateFiles(committedWindowId);
     calculateEndWindowStats();
     if (this.vars.enableStatsRecording) {
       recordStats(currentTms);
@@ -1577,6 +1610,22 @@ public class StreamingContainerManager implements PlanContext
           }
 
           oper.stats.recordingId = stats.recordingId;
+          oper.stats.recordingDroppedTuples = stats.recordingDroppedTuples;
+          oper.stats.recordingSkippedTuples = stats.recordingSkippedTuples;
+
+          if (stats.pathLatencies != null) {
+            for (Map.Entry<Integer, Stats.Histogram> entry : stats.pathLatencies.entrySet()) {
+              status.addHistogram(status.pathLatencies, entry.getKey(), entry.getValue(), currentTimeMillis);
+            }
+          }
+          if (stats.profileStats != null) {
+            Stats.ProfileStats profile = stats.profileStats;
+            status.addHistogram(status.profile, "processTimeNanos", profile.processTime, currentTimeMillis);
+            status.addHistogram(status.profile, "beginWindowTimeNanos", profile.beginWindowTime, currentTimeMillis);
+            status.addHistogram(status.profile, "endWindowTimeNanos", profile.endWindowTime, currentTimeMillis);
+            status.addHistogram(status.profile, "checkpointTimeNanos", profile.checkpointTime, currentTimeMillis);
+            status.addHistogram(status.profile, "allocatedBytesPerWindow", profile.allocatedBytes, currentTimeMillis);
+          }
 
           /* report all the other stuff */
 
@@ -1595,6 +1644,8 @@ public class StreamingContainerManager implements PlanContext
               }
               ps.totalTuples += s.tupleCount;
               ps.recordingId = s.recordingId;
+              ps.recordingDroppedTuples = s.recordingDroppedTuples;
+              ps.recordingSkippedTuples = s.recordingSkippedTuples;
 
               tuplesProcessed += s.tupleCount;
               endWindowStats.dequeueTimestamps.put(s.id, s.endWindowTimestamp);
@@ -1609,6 +1660,9 @@ public class StreamingContainerManager implements PlanContext
               ps.tuplesPMSMA.add(s.tupleCount, portElapsedMillis);
               ps.bufferServerBytesPMSMA.add(s.bufferServerBytes, portElapsedMillis);
               ps.queueSizeMA.add(s.queueSize);
+              if (s.queueLatency != null) {
+                ps.queueLatency.add(s.queueLatency, currentTimeMillis);
+              }
 
               operatorPortLastEndWindowTimestamps.put(operatorPortName, s.endWindowTimestamp);
               if (maxEndWindowTimestamp < s.endWindowTimestamp) {
@@ -1641,6 +1695,12 @@ public class StreamingContainerManager implements PlanContext
               }
               ps.totalTuples += s.tupleCount;
               ps.recordingId = s.recordingId;
+              ps.recordingDroppedTuples = s.recordingDroppedTuples;
+              ps.recordingSkippedTuples = s.recordingSkippedTuples;
+              if (s.hotKeys != null) {
+                ps.hotKeys = s.hotKeys;
+                ps.partitionHashCounts = s.partitionHashCounts;
+              }
 
               tuplesEmitted += s.tupleCount;
               Pair<Integer, String> operatorPortName = new Pair<>(oper.getId(), s.id);
@@ -1916,9 +1976,15 @@ public class StreamingContainerManager implements PlanContext
           } else {
             node.checkpoints.add(checkpoint);
           }
+          if (checkpointCatalog != null) {
+            checkpointCatalog.add(node.getId(), checkpoint.windowId);
+          }
         }
       } else {
         node.checkpoints.add(checkpoint);
+        if (checkpointCatalog != null) {
+          checkpointCatalog.add(node.getId(), checkpoint.windowId);
+        }
       }
     }
   }
@@ -2153,23 +2219,19 @@ public class StreamingContainerManager implements PlanContext
 
   private void purgeCheckpoints()
   {
+    if (checkpointCatalog != null) {
+      // the catalog must not refer to deleted checkpoints, the flush also covers the checkpoints added by the
+      // heartbeats since the previous monitoring cycle
+      for (Pair<PTOperator, Long> p : purgeCheckpoints) {
+        checkpointCatalog.remove(p.getFirst().getId(), p.getSecond());
+      }
+      checkpointCatalog.flush();
+    }
     for (Pair<PTOperator, Long> p : purgeCheckpoints) {
-      final PTOperator operator = p.getFirst();
+      PTOperator operator = p.getFirst();
       if (!operator.isOperatorStateLess()) {
-        final long windowId = p.getSecond();
-        Runnable r = new Runnable()
-        {
-          @Override
-          public void run()
-          {
-            try {
-              operator.getOperatorMeta().getValue(OperatorContext.STORAGE_AGENT).delete(operator.getId(), windowId);
-            } catch (IOException ex) {
-              LOG.error("Failed to purge checkpoint for operator {} for windowId {}", operator, windowId, ex);
-            }
-          }
-        };
-        poolExecutor.submit(r);
+        checkpointGarbageCollector.purge(operator.getId(), p.getSecond(),
+            operator.getOperatorMeta().getValue(OperatorContext.STORAGE_AGENT));
       }
     }
     purgeCheckpoints.clear();
@@ -2225,6 +2287,15 @@ public class StreamingContainerManager implements PlanContext
 
       Map<PTContainer, List<PTOperator>> undeployGroups = groupByContainer(undeploy);
 
+      if (checkpointCatalog != null) {
+        // the checkpoints of removed operators were deleted with them
+        for (PTOperator oper : undeploy) {
+          if (!plan.getAllOperators().containsKey(oper.getId())) {
+            checkpointCatalog.removeOperator(oper.getId());
+          }
+        }
+      }
+
       // stop affected operators (exclude new/failed containers)
       // order does not matter, remove all operators in each container in one sweep
       for (Map.Entry<PTContainer, List<PTOperator>> e : undeployGroups.entrySet()) {
@@ -2393,6 +2464,7 @@ public class StreamingContainerManager implements PlanContext
 
   private OperatorInfo fillPhysicalOperatorInfo(PTOperator operator)
   {
+    final long now = clock.getTime();
     OperatorInfo oi = new OperatorInfo();
     oi.container = operator.getContainer().getExternalId();
     oi.host = operator.getContainer().host;
@@ -2407,6 +2479,8 @@ public class StreamingContainerManager implements PlanContext
 
     OperatorStatus os = operator.stats;
     oi.recordingId = os.recordingId;
+    oi.recordingDroppedTuples = os.recordingDroppedTuples;
+    oi.recordingSkippedTuples = os.recordingSkippedTuples;
     oi.totalTuplesProcessed = os.totalTuplesProcessed.get();
     oi.totalTuplesEmitted = os.totalTuplesEmitted.get();
     oi.tuplesProcessedPSMA = os.tuplesProcessedPSMA.get();
@@ -2424,6 +2498,18 @@ public class StreamingContainerManager implements PlanContext
       oi.checkpointStartTime = os.checkpointStats.checkpointStartTime;
     }
     oi.checkpointTimeMA = os.checkpointTimeMA.getAvg();
+    if (!os.pathLatencies.isEmpty()) {
+      oi.pathLatencies = new TreeMap<>();
+      for (Map.Entry<Integer, TimedMovingHistogram> entry : os.pathLatencies.entrySet()) {
+        oi.pathLatencies.put(String.valueOf(entry.getKey()), getPercentiles(entry.getValue().get(now)));
+      }
+    }
+    if (!os.profile.isEmpty()) {
+      oi.profile = new TreeMap<>();
+      for (Map.Entry<String, TimedMovingHistogram> entry : os.profile.entrySet()) {
+        oi.profile.put(entry.getKey(), getPercentiles(entry.getValue().get(now)));
+      }
+    }
     for (PortStatus ps : os.inputPortStatusList.values()) {
       PortInfo pinfo = new PortInfo();
       pinfo.name = ps.portName;
@@ -2433,6 +2519,9 @@ public class StreamingContainerManager implements PlanContext
       pinfo.bufferServerBytesPSMA = Math.round(ps.bufferServerBytesPMSMA.getAvg() * 1000);
       pinfo.queueSizeMA = ps.queueSizeMA.getAvg();
       pinfo.recordingId = ps.recordingId;
+      pinfo.recordingDroppedTuples = ps.recordingDroppedTuples;
+      pinfo.recordingSkippedTuples = ps.recordingSkippedTuples;
+      pinfo.queueLatency = getPercentiles(ps.queueLatency.get(now));
       oi.addPort(pinfo);
     }
     for (PortStatus ps : os.outputPortStatusList.values()) {
@@ -2443,6 +2532,16 @@ public class StreamingContainerManager implements PlanContext
       pinfo.tuplesPSMA = Math.round(ps.tuplesPMSMA.getAvg() * 1000);
       pinfo.bufferServerBytesPSMA = Math.round(ps.bufferServerBytesPMSMA.getAvg() * 1000);
       pinfo.recordingId = ps.recordingId;
+      pinfo.recordingDroppedTuples = ps.recordingDroppedTuples;
+      pinfo.recordingSkippedTuples = ps.recordingSkippedTuples;
+      Map<Integer, Long> hotKeys = ps.hotKeys;
+      if (hotKeys != null) {
+        pinfo.hotKeys = new LinkedHashMap<>();
+        for (Map.Entry<Integer, Long> entry : hotKeys.entrySet()) {
+          pinfo.hotKeys.put(Integer.toHexString(entry.getKey()), entry.getValue());
+        }
+        pinfo.partitionSkew = getPartitionSkew(operator, ps.portName, ps.partitionHashCounts);
+      }
       oi.addPort(pinfo);
     }
     oi.counters = os.getLastWindowedStats().size() > 0 ?
@@ -2453,6 +2552,58 @@ public class StreamingContainerManager implements PlanContext
     return oi;
   }
 
+  /**
+   * @return ratio of the tuples sent to the most loaded downstream partition to the mean per partition, null if the
+   * port does not feed partitions with keys covered by the counted partition hash bits
+   */
+  private static Double getPartitionSkew(PTOperator operator, String portName, long[] partitionHashCounts)
+  {
+    if (partitionHashCounts == null) {
+      return null;
+    }
+    for (PTOutput output : operator.getOutputs()) {
+      if (!output.portName.equals(portName)) {
+        continue;
+      }
+      long total = 0;
+      long max = 0;
+      int partitions = 0;
+      for (PTInput sink : output.sinks) {
+        if (sink.partitions == null || sink.partitions.mask >= partitionHashCounts.length) {
+          continue;
+        }
+        long load = 0;
+        for (int i = 0; i < partitionHashCounts.length; i++) {
+          if (sink.partitions.partitions.contains(i & sink.partitions.mask)) {
+            load += partitionHashCounts[i];
+          }
+        }
+        total += load;
+        max = Math.max(max, load);
+        partitions++;
+      }
+      return partitions > 1 && total > 0 ? (double)max * partitions / total : null;
+    }
+    return null;
+  }
+
+  /**
+   * @return count, median, 90th and 99th percentile and maximum of the values, null if none were recorded
+   */
+  private static Map<String, Long> getPercentiles(Stats.Histogram histogram)
+  {
+    if (histogram.count == 0) {
+      return null;
+    }
+    Map<String, Long> percentiles = new LinkedHashMap<>();
+    percentiles.put("count", histogram.count);
+    percentiles.put("p50", histogram.getPercentile(50));
+    percentiles.put("p90", histogram.getPercentile(90));
+    percentiles.put("p99", histogram.getPercentile(99));
+    percentiles.put("max", histogram.max);
+    return percentiles;
+  }
+
   private LogicalOperatorInfo fillLogicalOperatorInfo(OperatorMeta operator)
   {
     LogicalOperatorInfo loi = new LogicalOperatorInfo();
@@ -2581,7 +2732,7 @@ public class StreamingContainerManager implements PlanContext
           si.logicalName = output.logicalStream.getName();
           si.source.operatorId = String.valueOf(operator.getId());
           si.source.portName = output.portName;
-          si.locality = output.logicalStream.getLocality();
+          si.locality = plan.getLocality(output.logicalStream);
           for (PTInput input : output.sinks) {
             StreamInfo.Port p = new StreamInfo.Port();
             p.operatorId = String.valueOf(input.target.getId());
@@ -3016,7 +3167,11 @@ public class StreamingContainerManager implements PlanContext
         logStream.close();
 
         // restore checkpoint info
-        plan.syncCheckpoints(scm.vars.windowStartMillis, scm.clock.getTime());
+        if (plan.getLogicalPlan().getValue(LogicalPlan.CHECKPOINT_CATALOG)) {
+          scm.checkpointCatalog = new CheckpointCatalog(scm.vars.appPath, new Configuration());
+          scm.checkpointCatalog.restore();
+        }
+        plan.syncCheckpoints(scm.vars.windowStartMillis, scm.clock.getTime(), scm.checkpointCatalog);
         scm.committedWindowId = scm.updateCheckpoints(true);
 
         // at this point the physical plan has been fully restored
@@ -3032,6 +3187,9 @@ public class StreamingContainerManager implements PlanContext
           }
         }
       }
+      if (scm.checkpointCatalog == null && dag.getValue(LogicalPlan.CHECKPOINT_CATALOG)) {
+        scm.checkpointCatalog = new CheckpointCatalog(scm.vars.appPath, new Configuration());
+      }
       scm.recoveryHandler = rh;
       scm.checkpoint();
       return scm;
@@ -3115,7 +3273,16 @@ public class StreamingContainerManager implements PlanContext
 
       this.finals = new FinalVars(finals, lp);
       StorageAgent sa = lp.getValue(OperatorContext.STORAGE_AGENT);
-      if (sa instanceof AsyncFSStorageAgent) {
+      if (sa instanceof PackedFSStorageAgent) {
+        // replace the default storage agent, if present
+        PackedFSStorageAgent fssa = (PackedFSStorageAgent)sa;
+        if (fssa.path.contains(oldAppId)) {
+          PackedFSStorageAgent packedFSStorageAgent = new PackedFSStorageAgent(fssa.path.replace(oldAppId, appId), conf);
+          packedFSStorageAgent.setSyncCheckpoint(fssa.isSyncCheckpoint());
+          packedFSStorageAgent.setLingerMillis(fssa.getLingerMillis());
+          lp.setAttribute(OperatorContext.STORAGE_AGENT, packedFSStorageAgent);
+        }
+      } else if (sa instanceof AsyncFSStorageAgent) {
         // replace the default storage agent, if present
         AsyncFSStorageAgent fssa = (AsyncFSStorageAgent)sa;
         if (fssa.path.contains(oldAppId)) {
@@ -34,10 +34,11 @@ import org.codehaus.jettison.json.JSONException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import org.apache.commons.io.IOUtils;
 import org.apache.hadoop.fs.Path;
 
 import com.datatorrent.common.util.Pair;
+import com.datatorrent.stram.util.ColumnarBlock;
+import com.datatorrent.stram.util.FSColumnarPartFileCollection;
 import com.datatorrent.stram.util.FSPartFileCollection;
 
 /**
@@ -48,6 +49,10 @@ import com.datatorrent.stram.util.FSPartFileCollection;
 public final class EventsAgent extends FSPartFileAgent
 {
   private static final Logger LOG = LoggerFactory.getLogger(EventsAgent.class);
+  /**
+   * Name of the field holding the event type in events recorded in the columnar format.
+   */
+  public static final String TYPE_FIELD = "type";
 
   private static class EventsIndexLine extends IndexLine
   {
@@ -140,8 +145,8 @@ public final class EventsAgent extends FSPartFileAgent
     }
     String lastProcessPartFile = null;
     for (Pair<String, Long> partFile : partFiles) {
-      try (BufferedReader partBr = new BufferedReader(new InputStreamReader(stramAgent.getFileSystem().open(new Path(dir, partFile.first))))) {
-        processPartFile(partBr, null, null, offset, limit, result);
+      try {
+        processPartFile(dir, partFile.first, null, null, offset, limit, result);
         offset = 0;
         lastProcessPartFile = partFile.first;
       } catch (Exception ex) {
@@ -150,17 +155,13 @@ public final class EventsAgent extends FSPartFileAgent
 
     }
 
-    BufferedReader partBr = null;
     try {
-      String extraPartFile = getNextPartFile(lastProcessPartFile);
+      String extraPartFile = getNextPartFile(dir, lastProcessPartFile);
       if (extraPartFile != null && limit > 0) {
-        partBr = new BufferedReader(new InputStreamReader(stramAgent.getFileSystem().open(new Path(dir, extraPartFile))));
-        processPartFile(partBr, null, null, 0, Integer.MAX_VALUE, result);
+        processPartFile(dir, extraPartFile, null, null, 0, Integer.MAX_VALUE, result);
       }
     } catch (Exception ex) {
       // ignore
-    } finally {
-      IOUtils.closeQuietly(partBr);
     }
     while (result.size() > limit) {
       result.removeFirst();
@@ -195,23 +196,16 @@ public final class EventsAgent extends FSPartFileAgent
           }
         }
 
-        try (BufferedReader partBr = new BufferedReader(new InputStreamReader(stramAgent.getFileSystem().open(new Path(dir, indexLine.partFile))))) {
-          offset = processPartFile(partBr, fromTime, toTime, offset, limit, result);
-          limit -= result.size();
-        }
+        offset = processPartFile(dir, indexLine.partFile, fromTime, toTime, offset, limit, result);
+        limit -= result.size();
       }
-      BufferedReader partBr = null;
       try {
-        String extraPartFile = getNextPartFile(lastProcessPartFile);
+        String extraPartFile = getNextPartFile(dir, lastProcessPartFile);
         if (extraPartFile != null && limit > 0) {
-          partBr = new BufferedReader(new InputStreamReader(stramAgent.getFileSystem()
-              .open(new Path(dir, extraPartFile))));
-          processPartFile(partBr, fromTime, toTime, offset, limit, result);
+          processPartFile(dir, extraPartFile, fromTime, toTime, offset, limit, result);
         }
       } catch (Exception ex) {
         // ignore
-      } finally {
-        IOUtils.closeQuietly(partBr);
       }
     } catch (Exception ex) {
       LOG.warn("Cannot read events for {}: {}", appId, ex);
@@ -220,6 +214,36 @@ public final class EventsAgent extends FSPartFileAgent
     return result;
   }
 
+  private long processPartFile(String dir, String partFile, Long fromTime, Long toTime, long offset, int limit, List<EventInfo> result) throws IOException
+  {
+    if (!FSColumnarPartFileCollection.isColumnarPartFile(partFile)) {
+      try (BufferedReader partBr = new BufferedReader(new InputStreamReader(stramAgent.getFileSystem().open(new Path(dir, partFile))))) {
+        return processPartFile(partBr, fromTime, toTime, offset, limit, result);
+      }
+    }
+    for (ColumnarBlock.Row row : FSColumnarPartFileCollection.readRows(stramAgent.getFileSystem(), dir, partFile, fromTime, toTime, null)) {
+      Object id = row.fields.remove("id");
+      if (id == null) {
+        LOG.warn("Skipping event without id at {} in {}", row.timestamp, partFile);
+        continue;
+      }
+      if (offset > 0) {
+        offset--;
+      } else if (limit-- > 0) {
+        EventInfo ev = new EventInfo();
+        ev.timestamp = row.timestamp;
+        ev.type = (String)row.fields.remove(TYPE_FIELD);
+        ev.data = new HashMap<>();
+        for (Map.Entry<String, Object> entry : row.fields.entrySet()) {
+          ev.data.put(entry.getKey(), entry.getValue() == null ? null : entry.getValue().toString());
+        }
+        ev.id = Long.valueOf(id.toString());
+        result.add(ev);
+      }
+    }
+    return offset;
+  }
+
   @SuppressWarnings("unchecked")
   private long processPartFile(BufferedReader partBr, Long fromTime, Long toTime, long offset, int limit, List<EventInfo> result) throws IOException
   {
@@ -26,6 +26,11 @@ import java.util.Map;
 
 import org.codehaus.jettison.json.JSONException;
 
+import org.apache.hadoop.fs.Path;
+
+import com.datatorrent.stram.util.FSColumnarPartFileCollection;
+import com.datatorrent.stram.util.FSPartFileCollection;
+
 /**
  * <p>Abstract FSPartFileAgent class.</p>
  *
@@ -95,11 +100,35 @@ public abstract class FSPartFileAgent
   public static String getNextPartFile(String partFile)
   {
     if (partFile == null) {
-      return "part0.txt";
-    } else if (partFile.startsWith("part") && partFile.endsWith(".txt")) {
-      return "part" + (Integer.valueOf(partFile.substring(4, partFile.length() - 4)) + 1) + ".txt";
+      return "part0" + FSPartFileCollection.PART_FILE_EXTENSION;
+    }
+    for (String extension : new String[] {FSPartFileCollection.PART_FILE_EXTENSION, FSColumnarPartFileCollection.PART_FILE_EXTENSION}) {
+      if (partFile.startsWith("part") && partFile.endsWith(extension)) {
+        return "part" + (Integer.valueOf(partFile.substring(4, partFile.length() - extension.length())) + 1) + extension;
+      }
     }
     return null;
   }
 
+  /**
+   * Returns the name of the part file following the given one in the collection in the given directory, or the first
+   * part file of the collection if the given one is null. Collections written in the columnar format name their part
+   * files differently from the JSON line ones.
+   */
+  protected String getNextPartFile(String dir, String partFile)
+  {
+    if (partFile != null) {
+      return getNextPartFile(partFile);
+    }
+    try {
+      String columnarPartFile = "part0" + FSColumnarPartFileCollection.PART_FILE_EXTENSION;
+      if (stramAgent.getFileSystem().exists(new Path(dir, columnarPartFile))) {
+        return columnarPartFile;
+      }
+    } catch (IOException ex) {
+      // ignore
+    }
+    return "part0" + FSPartFileCollection.PART_FILE_EXTENSION;
+  }
+
 }
@@ -25,7 +25,9 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
+import org.codehaus.jackson.map.ObjectMapper;
 import org.codehaus.jackson.map.annotate.JsonSerialize;
 import org.codehaus.jackson.map.ser.std.ToStringSerializer;
 import org.codehaus.jettison.json.JSONException;
@@ -38,6 +40,8 @@ import org.apache.hadoop.fs.FileStatus;
 import org.apache.hadoop.fs.Path;
 
 import com.datatorrent.common.util.ObjectMapperString;
+import com.datatorrent.stram.util.ColumnarBlock;
+import com.datatorrent.stram.util.FSColumnarPartFileCollection;
 import com.datatorrent.stram.util.FSPartFileCollection;
 
 /**
@@ -48,6 +52,7 @@ import com.datatorrent.stram.util.FSPartFileCollection;
 public final class StatsAgent extends FSPartFileAgent
 {
   private static final Logger LOG = LoggerFactory.getLogger(StatsAgent.class);
+  private static final ObjectMapper mapper = new ObjectMapper();
 
   public static class ContainerInfo
   {
@@ -288,6 +293,22 @@ public final class StatsAgent extends FSPartFileAgent
   }
 
   public List<OperatorStatsInfo> getOperatorsStats(String appId, String opName, Long startTime, Long endTime)
+  {
+    return getOperatorsStats(appId, opName, startTime, endTime, null);
+  }
+
+  /**
+   * Returns the recorded stats of the operators of the given logical operator within the time range. When the stats
+   * are recorded in the columnar format, only the given fields are decoded.
+   *
+   * @param appId the application id
+   * @param opName the logical operator name
+   * @param startTime minimum timestamp, or null
+   * @param endTime maximum timestamp, or null
+   * @param fields the stats fields to return, or null for all
+   * @return the stats
+   */
+  public List<OperatorStatsInfo> getOperatorsStats(String appId, String opName, Long startTime, Long endTime, Set<String> fields)
   {
     List<OperatorStatsInfo> result = new ArrayList<>();
     String dir = getOperatorStatsDirectory(appId, opName);
@@ -316,24 +337,17 @@ public final class StatsAgent extends FSPartFileAgent
             }
           }
 
-          try (BufferedReader partBr = new BufferedReader(new InputStreamReader(stramAgent.getFileSystem().open(new Path(dir, indexLine.partFile))))) {
-            processOperatorPartFile(partBr, startTime, endTime, result);
-          }
+          processOperatorPartFile(dir, indexLine.partFile, startTime, endTime, fields, result);
         }
       }
 
-      BufferedReader partBr = null;
       try {
-        String extraPartFile = getNextPartFile(lastProcessPartFile);
+        String extraPartFile = getNextPartFile(dir, lastProcessPartFile);
         if (extraPartFile != null) {
-          partBr = new BufferedReader(new InputStreamReader(stramAgent.getFileSystem()
-              .open(new Path(dir, extraPartFile))));
-          processOperatorPartFile(partBr, startTime, endTime, result);
+          processOperatorPartFile(dir, extraPartFile, startTime, endTime, fields, result);
         }
       } catch (Exception ex) {
         // ignore
-      } finally {
-        IOUtils.closeQuietly(partBr);
       }
     } catch (Exception ex) {
       LOG.warn("Got exception when reading operators stats", ex);
@@ -343,6 +357,23 @@ public final class StatsAgent extends FSPartFileAgent
     return result;
   }
 
+  private void processOperatorPartFile(String dir, String partFile, Long startTime, Long endTime, Set<String> fields, List<OperatorStatsInfo> result) throws IOException
+  {
+    if (FSColumnarPartFileCollection.isColumnarPartFile(partFile)) {
+      for (ColumnarBlock.Row row : FSColumnarPartFileCollection.readRows(stramAgent.getFileSystem(), dir, partFile, startTime, endTime, fields)) {
+        OperatorStatsInfo os = new OperatorStatsInfo();
+        os.operatorId = row.key;
+        os.timestamp = row.timestamp;
+        os.stats = new ObjectMapperString(mapper.writeValueAsString(row.fields));
+        result.add(os);
+      }
+      return;
+    }
+    try (BufferedReader partBr = new BufferedReader(new InputStreamReader(stramAgent.getFileSystem().open(new Path(dir, partFile))))) {
+      processOperatorPartFile(partBr, startTime, endTime, result);
+    }
+  }
+
   private void processOperatorPartFile(BufferedReader partBr, Long startTime, Long endTime, List<OperatorStatsInfo> result) throws IOException
   {
     String partLine;
@@ -395,23 +426,15 @@ public final class StatsAgent extends FSPartFileAgent
           }
         }
 
-        try (BufferedReader partBr = new BufferedReader(new InputStreamReader(stramAgent.getFileSystem().open(new
-            Path(dir, indexLine.partFile))))) {
-          processContainerPartFile(partBr, startTime, endTime, result);
-        }
+        processContainerPartFile(dir, indexLine.partFile, startTime, endTime, result);
       }
-      BufferedReader partBr = null;
       try {
-        String extraPartFile = getNextPartFile(lastProcessPartFile);
+        String extraPartFile = getNextPartFile(dir, lastProcessPartFile);
         if (extraPartFile != null) {
-          partBr = new BufferedReader(new InputStreamReader(stramAgent.getFileSystem()
-              .open(new Path(dir, extraPartFile))));
-          processContainerPartFile(partBr, startTime, endTime, result);
+          processContainerPartFile(dir, extraPartFile, startTime, endTime, result);
         }
       } catch (Exception ex) {
         // ignore
-      } finally {
-        IOUtils.closeQuietly(partBr);
       }
     } catch (Exception ex) {
       LOG.warn("Got exception when reading containers stats", ex);
@@ -421,6 +444,23 @@ public final class StatsAgent extends FSPartFileAgent
     return result;
   }
 
+  private void processContainerPartFile(String dir, String partFile, Long startTime, Long endTime, List<ContainerStatsInfo> result) throws IOException
+  {
+    if (FSColumnarPartFileCollection.isColumnarPartFile(partFile)) {
+      for (ColumnarBlock.Row row : FSColumnarPartFileCollection.readRows(stramAgent.getFileSystem(), dir, partFile, startTime, endTime, null)) {
+        ContainerStatsInfo cs = new ContainerStatsInfo();
+        cs.containerId = row.key;
+        cs.timestamp = row.timestamp;
+        cs.stats = new ObjectMapperString(mapper.writeValueAsString(row.fields));
+        result.add(cs);
+      }
+      return;
+    }
+    try (BufferedReader partBr = new BufferedReader(new InputStreamReader(stramAgent.getFileSystem().open(new Path(dir, partFile))))) {
+      processContainerPartFile(partBr, startTime, endTime, result);
+    }
+  }
+
   private void processContainerPartFile(BufferedReader partBr, Long startTime, Long endTime, List<ContainerStatsInfo> result) throws IOException
   {
     String partLine;
@@ -22,6 +22,7 @@ import java.beans.BeanInfo;
 import java.beans.Introspector;
 import java.beans.PropertyDescriptor;
 import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
@@ -29,8 +30,12 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -54,12 +59,24 @@ import com.datatorrent.stram.util.SharedPubSubWebSocketClient.Handler;
  * <p>
  * TupleRecorder class.</p>
  *
+ * Once set up, the tuples put into the recorder sinks are handed to a recorder thread which writes them, so that
+ * recording does not slow down the operator. Data tuples are dropped rather than queued when more than the queue
+ * capacity of them wait to be written or when they exceed the rate limit, and only every n-th data tuple is recorded
+ * when sampling. The binary format writes length prefixed records instead of text lines and records the number of
+ * dropped tuples with every end window.
+ *
  * @since 0.3.2
  */
 public class TupleRecorder
 {
   public static final String VERSION = "1.2";
-  private int totalTupleCount = 0;
+  public static final String BINARY_VERSION = "2.0";
+  public static final String BINARY_PART_FILE_EXTENSION = ".bin";
+  public static final byte RECORD_BEGIN_WINDOW = 'B';
+  public static final byte RECORD_END_WINDOW = 'E';
+  public static final byte RECORD_TUPLE = 'T';
+  public static final byte RECORD_CONTROL_TUPLE = 'C';
+  private volatile int totalTupleCount = 0;
   private final HashMap<String, PortInfo> portMap = new HashMap<>(); // used for output portInfo <name, id> map
   private final HashMap<String, PortCount> portCountMap = new HashMap<>(); // used for tupleCount of each port <name, count> map
   private transient long currentWindowId = WindowGenerator.MIN_WINDOW_ID - 1;
@@ -76,8 +93,29 @@ public class TupleRecorder
   private String recordingNameTopic;
   private long numWindows = Long.MAX_VALUE; // number of windows to record
   private Runnable stopProcedure; // stop procedure to execute
+  private boolean binary;
+  private int queueCapacity = 4096;
+  private int sampleRate = 1;
+  private int maxTuplesPerSecond;
+  private final BlockingQueue<WriteOperation> queue = new LinkedBlockingQueue<>();
+  private final AtomicInteger queuedTupleCount = new AtomicInteger();
+  private final AtomicLong droppedTupleCount = new AtomicLong();
+  private volatile long skippedTupleCount;
+  private long sampleCount;
+  private long rateLimitStartMillis;
+  private int rateLimitTupleCount;
+  private long lastDroppedTupleCount;
+  private volatile RecorderThread recorderThread;
+  private final RecordBuffer recordBytes = new RecordBuffer();
+  private final DataOutputStream record = new DataOutputStream(recordBytes);
   private final FSPartFileCollection storage = new FSPartFileCollection()
   {
+    @Override
+    protected String getPartFileExtension()
+    {
+      return binary ? BINARY_PART_FILE_EXTENSION : super.getPartFileExtension();
+    }
+
     @Override
     protected String getIndexExtraInfo()
     {
@@ -125,6 +163,62 @@ public class TupleRecorder
     return storage;
   }
 
+  /**
+   * Sets whether the tuples are written in length prefixed binary records instead of text lines.
+   *
+   * @param binary
+   */
+  public void setBinary(boolean binary)
+  {
+    this.binary = binary;
+  }
+
+  /**
+   * Sets the number of data tuples which can wait to be written before further tuples are dropped.
+   *
+   * @param queueCapacity
+   */
+  public void setQueueCapacity(int queueCapacity)
+  {
+    this.queueCapacity = queueCapacity;
+  }
+
+  /**
+   * Sets the sample rate, only every n-th data tuple of the recorded ports is recorded.
+   *
+   * @param sampleRate
+   */
+  public void setSampleRate(int sampleRate)
+  {
+    this.sampleRate = sampleRate;
+  }
+
+  /**
+   * Sets the number of data tuples recorded per second beyond which tuples are dropped, zero for no limit.
+   *
+   * @param maxTuplesPerSecond
+   */
+  public void setMaxTuplesPerSecond(int maxTuplesPerSecond)
+  {
+    this.maxTuplesPerSecond = maxTuplesPerSecond;
+  }
+
+  /**
+   * @return number of data tuples dropped because of the rate limit or a full queue
+   */
+  public long getDroppedTupleCount()
+  {
+    return droppedTupleCount.get();
+  }
+
+  /**
+   * @return number of data tuples not recorded because of sampling
+   */
+  public long getSkippedTupleCount()
+  {
+    return skippedTupleCount;
+  }
+
   public RecorderSink newSink(String key)
   {
     RecorderSink recorderSink = new RecorderSink(key);
@@ -263,6 +357,18 @@ public class TupleRecorder
   public void teardown()
   {
     logger.info("Closing down tuple recorder.");
+    if (recorderThread != null) {
+      queue.add(WriteOperation.STOP);
+      try {
+        recorderThread.join();
+      } catch (InterruptedException ex) {
+        logger.warn("Tuple recorder thread join interrupted");
+      }
+      recorderThread = null;
+    }
+    if (droppedTupleCount.get() > 0 || skippedTupleCount > 0) {
+      logger.info("Tuple recorder {} dropped {} and skipped {} tuples", id, droppedTupleCount.get(), skippedTupleCount);
+    }
     this.storage.teardown();
   }
 
@@ -276,7 +382,7 @@ public class TupleRecorder
       }
 
       ByteArrayOutputStream bos = new ByteArrayOutputStream();
-      bos.write((VERSION + "\n").getBytes());
+      bos.write(((binary ? BINARY_VERSION : VERSION) + "\n").getBytes());
 
       RecordInfo recordInfo = new RecordInfo();
       recordInfo.startTime = startTime;
@@ -319,6 +425,11 @@ public class TupleRecorder
         recordingNameTopic = "applications." + appId + ".tupleRecorder." + getStartTime();
         setupWsClient();
       }
+
+      recorderThread = new RecorderThread();
+      recorderThread.setName("TupleRecorder-" + id);
+      recorderThread.setDaemon(true);
+      recorderThread.start();
     } catch (Exception ex) {
       logger.error("Trouble setting up tuple recorder", ex);
     }
@@ -365,7 +476,15 @@ public class TupleRecorder
       this.currentWindowId = windowId;
       endWindowTuplesProcessed = 0;
       try {
-        storage.writeDataItem(("B:" + System.currentTimeMillis() + ":" + windowId + "\n").getBytes(), false);
+        if (binary) {
+          recordBytes.reset();
+          record.writeByte(RECORD_BEGIN_WINDOW);
+          record.writeLong(System.currentTimeMillis());
+          record.writeLong(windowId);
+          writeRecord(false);
+        } else {
+          storage.writeDataItem(("B:" + System.currentTimeMillis() + ":" + windowId + "\n").getBytes(), false);
+        }
       } catch (IOException ex) {
         logger.error(ex.toString());
       }
@@ -376,7 +495,18 @@ public class TupleRecorder
   {
     if (++endWindowTuplesProcessed == portMap.size()) {
       try {
-        storage.writeDataItem(("E:" + System.currentTimeMillis() + ":" + currentWindowId + "\n").getBytes(), false);
+        if (binary) {
+          long dropped = droppedTupleCount.get();
+          recordBytes.reset();
+          record.writeByte(RECORD_END_WINDOW);
+          record.writeLong(System.currentTimeMillis());
+          record.writeLong(currentWindowId);
+          record.writeLong(dropped - lastDroppedTupleCount);
+          writeRecord(false);
+          lastDroppedTupleCount = dropped;
+        } else {
+          storage.writeDataItem(("E:" + System.currentTimeMillis() + ":" + currentWindowId + "\n").getBytes(), false);
+        }
         logger.debug("Got last end window tuple.  Flushing...");
         if (!storage.flushData() && wsClient != null) {
           wsClient.publish(SharedPubSubWebSocketClient.LAST_INDEX_TOPIC_PREFIX + ".tuple." + storage.getBasePath(), storage.getLatestIndexLine());
@@ -385,35 +515,48 @@ public class TupleRecorder
         logger.error("Exception caught in endWindow", ex);
       }
     }
-    if (stopProcedure != null && --numWindows <= 0) {
-      stopProcedure.run();
+  }
+
+  private void writeRecord(boolean incrementItemCount) throws IOException
+  {
+    storage.writeDataItem(recordBytes.getBuffer(), 0, recordBytes.size(), incrementItemCount);
+  }
+
+  /**
+   * Record buffer reused for all records, written to the storage without copying.
+   */
+  private static class RecordBuffer extends ByteArrayOutputStream
+  {
+    byte[] getBuffer()
+    {
+      return buf;
     }
+
   }
 
   public void writeTuple(Object obj, String port)
+  {
+    writeTuple(streamCodec.toByteArray(obj), obj, port);
+  }
+
+  /**
+   * Writes a serialized data tuple. Without the tuple, it is deserialized again for the subscribers.
+   */
+  private void writeTuple(Slice f, Object obj, String port)
   {
     if (windowIdRanges.isEmpty()) {
       throw new RuntimeException("Data tuples received from tuple recorder before any BEGIN_WINDOW");
     }
     try {
-      ByteArrayOutputStream bos = new ByteArrayOutputStream();
-      Slice f = streamCodec.toByteArray(obj);
       PortInfo pi = portMap.get(port);
-      String str = "T:" + System.currentTimeMillis() + ":" + pi.id + ":" + f.length + ":";
-      bos.write(str.getBytes());
-      bos.write(f.buffer, f.offset, f.length);
-      bos.write("\n".getBytes());
+      writeTupleRecord(false, pi.id, f);
       PortCount pc = portCountMap.get(port);
       pc.count++;
       portCountMap.put(port, pc);
 
-      storage.writeDataItem(bos.toByteArray(), true);
-      //logger.debug("Writing tuple for port id {}", pi.id);
-      //fsOutput.hflush();
       ++totalTupleCount;
       if (numSubscribers > 0) {
-        // this is not asynchronous.  we need to fix this
-        publishTupleData(pi.id, obj);
+        publishTupleData(pi.id, obj == null ? streamCodec.fromByteArray(f) : obj);
       }
     } catch (IOException ex) {
       logger.error(ex.toString());
@@ -423,19 +566,31 @@ public class TupleRecorder
   public void writeControlTuple(Tuple tuple, String port)
   {
     try {
-      ByteArrayOutputStream bos = new ByteArrayOutputStream();
       PortInfo pi = portMap.get(port);
       Slice f = streamCodec.toByteArray(tuple);
-      String str = "C:" + System.currentTimeMillis() + ":" + pi.id + ":" + f.length + ":";
-      bos.write(str.getBytes());
-      bos.write(f.buffer, f.offset, f.length);
-      bos.write("\n".getBytes());
-      storage.writeDataItem(bos.toByteArray(), false);
+      writeTupleRecord(true, pi.id, f);
     } catch (IOException ex) {
       logger.error(ex.toString());
     }
   }
 
+  private void writeTupleRecord(boolean control, int portId, Slice f) throws IOException
+  {
+    recordBytes.reset();
+    if (binary) {
+      record.writeByte(control ? RECORD_CONTROL_TUPLE : RECORD_TUPLE);
+      record.writeLong(System.currentTimeMillis());
+      record.writeInt(portId);
+      record.writeInt(f.length);
+      record.write(f.buffer, f.offset, f.length);
+    } else {
+      record.writeBytes((control ? "C:" : "T:") + System.currentTimeMillis() + ":" + portId + ":" + f.length + ":");
+      record.write(f.buffer, f.offset, f.length);
+      record.writeByte('\n');
+    }
+    writeRecord(!control);
+  }
+
   private static String convertToString(List<Range> ranges)
   {
     String result = "";
@@ -473,6 +628,123 @@ public class TupleRecorder
     this.stopProcedure = stopProcedure;
   }
 
+  /**
+   * Writes a tuple put into a recorder sink.
+   */
+  private void write(Object payload, String portName)
+  {
+    // *** if it's not a control tuple, then (payload instanceof Tuple) returns false
+    // In other words, if it's a regular tuple emitted by operators (payload), payload
+    // is not an instance of Tuple (confusing... I know)
+    if (payload instanceof Tuple) {
+      Tuple tuple = (Tuple)payload;
+      MessageType messageType = tuple.getType();
+      if (messageType == MessageType.BEGIN_WINDOW) {
+        beginWindow(tuple.getWindowId());
+      }
+      writeControlTuple(tuple, portName);
+      if (messageType == MessageType.END_WINDOW) {
+        endWindow();
+      }
+    } else {
+      writeTuple(payload, portName);
+    }
+  }
+
+  /**
+   * Returns whether a data tuple passes sampling and the rate limit.
+   */
+  private boolean isRecorded()
+  {
+    if (sampleRate > 1 && sampleCount++ % sampleRate != 0) {
+      skippedTupleCount++;
+      return false;
+    }
+    if (maxTuplesPerSecond > 0) {
+      long now = System.currentTimeMillis();
+      if (now - rateLimitStartMillis >= 1000) {
+        rateLimitStartMillis = now;
+        rateLimitTupleCount = 0;
+      }
+      if (rateLimitTupleCount >= maxTuplesPerSecond) {
+        droppedTupleCount.incrementAndGet();
+        return false;
+      }
+      rateLimitTupleCount++;
+    }
+    return true;
+  }
+
+  private void record(Object payload, String portName)
+  {
+    if (recorderThread == null) {
+      write(payload, portName);
+      return;
+    }
+    if (payload instanceof Tuple) {
+      // control tuples are not modified once emitted
+      queue.add(new WriteOperation(payload, null, portName));
+      return;
+    }
+    if (queuedTupleCount.get() >= queueCapacity) {
+      droppedTupleCount.incrementAndGet();
+      return;
+    }
+    // serialized here, the operator may modify the tuple once it was emitted
+    Slice data;
+    try {
+      data = streamCodec.toByteArray(payload);
+    } catch (RuntimeException ex) {
+      logger.error("Failed to serialize tuple of port {}", portName, ex);
+      droppedTupleCount.incrementAndGet();
+      return;
+    }
+    queuedTupleCount.incrementAndGet();
+    queue.add(new WriteOperation(null, data, portName));
+  }
+
+  private static class WriteOperation
+  {
+    static final WriteOperation STOP = new WriteOperation(null, null, null);
+    final Object payload;
+    final Slice data;
+    final String portName;
+
+    WriteOperation(Object payload, Slice data, String portName)
+    {
+      this.payload = payload;
+      this.data = data;
+      this.portName = portName;
+    }
+  }
+
+  private class RecorderThread extends Thread
+  {
+    @Override
+    public void run()
+    {
+      while (true) {
+        try {
+          WriteOperation wo = queue.take();
+          if (wo == WriteOperation.STOP) {
+            return;
+          }
+          if (wo.data == null) {
+            write(wo.payload, wo.portName);
+          } else {
+            queuedTupleCount.decrementAndGet();
+            writeTuple(wo.data, null, wo.portName);
+          }
+        } catch (InterruptedException ex) {
+          return;
+        } catch (Exception ex) {
+          logger.error("Caught Exception", ex);
+        }
+      }
+    }
+
+  }
+
   public class RecorderSink implements Sink<Object>
   {
     private final String portName;
@@ -486,22 +758,14 @@ public class TupleRecorder
     @Override
     public void put(Object payload)
     {
-      // *** if it's not a control tuple, then (payload instanceof Tuple) returns false
-      // In other words, if it's a regular tuple emitted by operators (payload), payload
-      // is not an instance of Tuple (confusing... I know)
       ++count;
       if (payload instanceof Tuple) {
-        Tuple tuple = (Tuple)payload;
-        MessageType messageType = tuple.getType();
-        if (messageType == MessageType.BEGIN_WINDOW) {
-          beginWindow(tuple.getWindowId());
-        }
-        writeControlTuple(tuple, portName);
-        if (messageType == MessageType.END_WINDOW) {
-          endWindow();
+        record(payload, portName);
+        if (((Tuple)payload).getType() == MessageType.END_WINDOW && stopProcedure != null && --numWindows <= 0) {
+          stopProcedure.run();
         }
-      } else {
-        writeTuple(payload, portName);
+      } else if (isRecorded()) {
+        record(payload, portName);
       }
     }
 
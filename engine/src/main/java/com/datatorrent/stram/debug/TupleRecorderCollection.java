@@ -71,6 +71,10 @@ public class TupleRecorderCollection extends HashMap<OperatorIdPortNamePair, Tup
   private String gatewayUserName;
   private String gatewayPassword;
   private long tupleRecordingPartFileTimeMillis;
+  private boolean tupleRecordingBinary;
+  private int tupleRecordingQueueCapacity;
+  private int tupleRecordingSampleRate;
+  private int tupleRecordingMaxTuplesPerSecond;
   private String appPath;
   private String appId;
   private SharedPubSubWebSocketClient wsClient;
@@ -88,6 +92,10 @@ public class TupleRecorderCollection extends HashMap<OperatorIdPortNamePair, Tup
   {
     tupleRecordingPartFileSize = ctx.getValue(LogicalPlan.TUPLE_RECORDING_PART_FILE_SIZE);
     tupleRecordingPartFileTimeMillis = ctx.getValue(LogicalPlan.TUPLE_RECORDING_PART_FILE_TIME_MILLIS);
+    tupleRecordingBinary = ctx.getValue(LogicalPlan.TUPLE_RECORDING_BINARY);
+    tupleRecordingQueueCapacity = ctx.getValue(LogicalPlan.TUPLE_RECORDING_QUEUE_CAPACITY);
+    tupleRecordingSampleRate = ctx.getValue(LogicalPlan.TUPLE_RECORDING_SAMPLE_RATE);
+    tupleRecordingMaxTuplesPerSecond = ctx.getValue(LogicalPlan.TUPLE_RECORDING_MAX_TUPLES_PER_SECOND);
     appId = ctx.getValue(LogicalPlan.APPLICATION_ID);
     gatewayAddress = ctx.getValue(LogicalPlan.GATEWAY_CONNECT_ADDRESS);
     gatewayUseSsl = ctx.getValue(LogicalPlan.GATEWAY_USE_SSL);
@@ -181,6 +189,10 @@ public class TupleRecorderCollection extends HashMap<OperatorIdPortNamePair, Tup
 
       TupleRecorder tupleRecorder = new TupleRecorder(id, appId);
       tupleRecorder.setWebSocketClient(wsClient);
+      tupleRecorder.setBinary(tupleRecordingBinary);
+      tupleRecorder.setQueueCapacity(tupleRecordingQueueCapacity);
+      tupleRecorder.setSampleRate(tupleRecordingSampleRate);
+      tupleRecorder.setMaxTuplesPerSecond(tupleRecordingMaxTuplesPerSecond);
 
       HashMap<String, Sink<Object>> sinkMap = new HashMap<>();
       for (Map.Entry<String, PortContextPair<InputPort<?>>> entry : descriptor.inputPorts.entrySet()) {
@@ -360,6 +372,8 @@ public class TupleRecorderCollection extends HashMap<OperatorIdPortNamePair, Tup
                 for (PortStats ps : os.inputPorts) {
                   if (ps.id.equals(entry.getKey().portName)) {
                     ps.recordingId = entry.getValue().getId();
+                    ps.recordingDroppedTuples = entry.getValue().getDroppedTupleCount();
+                    ps.recordingSkippedTuples = entry.getValue().getSkippedTupleCount();
                     break;
                   }
                 }
@@ -368,6 +382,8 @@ public class TupleRecorderCollection extends HashMap<OperatorIdPortNamePair, Tup
                 for (PortStats ps : os.outputPorts) {
                   if (ps.id.equals(entry.getKey().portName)) {
                     ps.recordingId = entry.getValue().getId();
+                    ps.recordingDroppedTuples = entry.getValue().getDroppedTupleCount();
+                    ps.recordingSkippedTuples = entry.getValue().getSkippedTupleCount();
                     break;
                   }
                 }
@@ -381,6 +397,10 @@ public class TupleRecorderCollection extends HashMap<OperatorIdPortNamePair, Tup
 
       for (OperatorStats os : node.windowStats) {
         os.recordingId = recordingId;
+        if (tupleRecorder != null) {
+          os.recordingDroppedTuples = tupleRecorder.getDroppedTupleCount();
+          os.recordingSkippedTuples = tupleRecorder.getSkippedTupleCount();
+        }
       }
     }
   }
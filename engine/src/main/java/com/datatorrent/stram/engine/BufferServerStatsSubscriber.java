@@ -31,6 +31,7 @@ import com.datatorrent.stram.api.ContainerEvent.StreamActivationEvent;
 import com.datatorrent.stram.api.ContainerEvent.StreamDeactivationEvent;
 import com.datatorrent.stram.api.StreamingContainerUmbilicalProtocol.ContainerStats;
 import com.datatorrent.stram.api.StreamingContainerUmbilicalProtocol.OperatorHeartbeat;
+import com.datatorrent.stram.stream.BufferServerPublisher;
 
 import net.engio.mbassy.listener.Handler;
 
@@ -105,10 +106,13 @@ public class BufferServerStatsSubscriber
         if (os.outputPorts != null) {
           for (PortStats ps : os.outputPorts) {
             List<ByteCounterStream> portStreams = outputStreams.get(ps.id);
-            if (outputStreams != null) {
+            if (portStreams != null) {
               ps.bufferServerBytes = 0;
               for (ByteCounterStream stream : portStreams) {
                 ps.bufferServerBytes = stream.getByteCount(true);
+                if (stream instanceof BufferServerPublisher) {
+                  ((BufferServerPublisher)stream).reportHotKeys(ps);
+                }
               }
             }
           }
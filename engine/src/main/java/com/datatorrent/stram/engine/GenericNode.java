@@ -40,6 +40,7 @@ import com.datatorrent.api.Operator.InputPort;
 import com.datatorrent.api.Operator.ProcessingMode;
 import com.datatorrent.api.Operator.ShutdownException;
 import com.datatorrent.api.Sink;
+import com.datatorrent.api.Stats;
 import com.datatorrent.api.annotation.Stateless;
 import com.datatorrent.bufferserver.packet.MessageType;
 import com.datatorrent.bufferserver.util.Codec;
@@ -47,6 +48,7 @@ import com.datatorrent.stram.api.StreamingContainerUmbilicalProtocol.ContainerSt
 import com.datatorrent.stram.debug.TappedReservoir;
 import com.datatorrent.stram.plan.logical.LogicalPlan;
 import com.datatorrent.stram.plan.logical.Operators;
+import com.datatorrent.stram.tuple.LatencyMarkerTuple;
 import com.datatorrent.stram.tuple.ResetWindowTuple;
 import com.datatorrent.stram.tuple.Tuple;
 
@@ -67,6 +69,17 @@ public class GenericNode extends Node<Operator>
 {
   protected final HashMap<String, SweepableReservoir> inputs = new HashMap<>();
   protected ArrayList<DeferredInputConnection> deferredInputConnections = new ArrayList<>();
+  /**
+   * latencies of the latency markers since the last report, from the upstream operator per input port and from the
+   * input operator per input operator id.
+   */
+  private final HashMap<SweepableReservoir, Stats.Histogram> markerQueueLatencies = new HashMap<>();
+  private HashMap<Integer, Stats.Histogram> markerPathLatencies = new HashMap<>();
+  /**
+   * origin of the latest marker forwarded per input operator, a marker which reaches the operator on several paths is
+   * forwarded only once.
+   */
+  private final HashMap<Integer, Long> forwardedMarkerOrigins = new HashMap<>();
 
   @Override
   @SuppressWarnings("unchecked")
@@ -132,7 +145,7 @@ public class GenericNode extends Node<Operator>
     } else {
       inputPort.setConnected(true);
       inputs.put(port, reservoir);
-      reservoir.setSink(inputPort.getSink());
+      reservoir.setSink(profiler == null ? inputPort.getSink() : profiler.wrap(inputPort.getSink()));
     }
   }
 
@@ -143,7 +156,7 @@ public class GenericNode extends Node<Operator>
   {
     if (++applicationWindowCount == APPLICATION_WINDOW_COUNT) {
       insideWindow = false;
-      operator.endWindow();
+      invokeEndWindow();
       applicationWindowCount = 0;
     }
     endWindowEmitTime = System.currentTimeMillis();
@@ -303,7 +316,7 @@ public class GenericNode extends Node<Operator>
 
                   if (applicationWindowCount == 0) {
                     insideWindow = true;
-                    operator.beginWindow(currentWindowId);
+                    invokeBeginWindow(currentWindowId);
                   }
                 } else if (t.getWindowId() == currentWindowId) {
                   activePort.remove();
@@ -386,6 +399,11 @@ public class GenericNode extends Node<Operator>
                 }
                 break;
 
+              case LATENCY_MARKER:
+                activePort.remove();
+                processLatencyMarker(activePort, (LatencyMarkerTuple)t);
+                break;
+
               case RESET_WINDOW:
                 /**
                  * we will receive tuples which are equal to the number of input streams.
@@ -634,7 +652,7 @@ public class GenericNode extends Node<Operator>
      * TODO: as using a listener callback
      */
     if (insideWindow && !shutdown) {
-      operator.endWindow();
+      invokeEndWindow();
       endWindowEmitTime = System.currentTimeMillis();
       if (++applicationWindowCount == APPLICATION_WINDOW_COUNT) {
         applicationWindowCount = 0;
@@ -685,6 +703,44 @@ public class GenericNode extends Node<Operator>
     }
   }
 
+  /**
+   * Records how long the marker took from the upstream operator and from the input operator which injected it, and
+   * forwards it downstream unless it already reached the operator on another path. A delay operator does not forward
+   * markers, they would circle the loop forever.
+   *
+   * @param reservoir reservoir the marker was taken from
+   * @param marker the marker
+   */
+  protected void processLatencyMarker(SweepableReservoir reservoir, LatencyMarkerTuple marker)
+  {
+    long now = System.currentTimeMillis();
+    Stats.Histogram histogram = markerQueueLatencies.get(reservoir);
+    if (histogram == null) {
+      markerQueueLatencies.put(reservoir, histogram = new Stats.Histogram());
+    }
+    histogram.record(now - marker.forwardTimestamp);
+
+    histogram = markerPathLatencies.get(marker.sourceId);
+    if (histogram == null) {
+      markerPathLatencies.put(marker.sourceId, histogram = new Stats.Histogram());
+    }
+    histogram.record(now - marker.originTimestamp);
+
+    Long forwardedOrigin = forwardedMarkerOrigins.get(marker.sourceId);
+    if (operator instanceof Operator.DelayOperator ||
+        (forwardedOrigin != null && forwardedOrigin >= marker.originTimestamp)) {
+      return;
+    }
+    forwardedMarkerOrigins.put(marker.sourceId, marker.originTimestamp);
+
+    LatencyMarkerTuple forwarded = new LatencyMarkerTuple(marker.getWindowId(), marker.sourceId,
+        marker.originTimestamp, now);
+    for (int s = sinks.length; s-- > 0; ) {
+      sinks[s].put(forwarded);
+    }
+    controlTupleCount++;
+  }
+
   @Override
   protected void reportStats(ContainerStats.OperatorStats stats, long windowId)
   {
@@ -695,9 +751,14 @@ public class GenericNode extends Node<Operator>
       portStats.queueSize = ar.size(DATA_TUPLE_AWARE);
       portStats.tupleCount = ar.getCount(true);
       portStats.endWindowTimestamp = endWindowDequeueTimes.get(e.getValue());
+      portStats.queueLatency = markerQueueLatencies.remove(ar);
       ipstats.add(portStats);
     }
     stats.inputPorts = ipstats;
+    if (!markerPathLatencies.isEmpty()) {
+      stats.pathLatencies = markerPathLatencies;
+      markerPathLatencies = new HashMap<>();
+    }
     super.reportStats(stats, windowId);
   }
 
@@ -32,6 +32,7 @@ import com.datatorrent.api.Operator.ShutdownException;
 import com.datatorrent.api.Sink;
 import com.datatorrent.api.annotation.Stateless;
 import com.datatorrent.stram.api.StreamingContainerUmbilicalProtocol.ContainerStats;
+import com.datatorrent.stram.tuple.LatencyMarkerTuple;
 import com.datatorrent.stram.tuple.Tuple;
 
 /**
@@ -45,12 +46,44 @@ public class InputNode extends Node<InputOperator>
   private final ArrayList<SweepableReservoir> deferredInputConnections = new ArrayList<>();
   protected SweepableReservoir controlTuples;
   long lastCheckpointWindowId = Stateless.WINDOW_ID;
+  private WindowGenerator adaptiveWindowGenerator;
+  private long latencyMarkerIntervalMillis;
+  private long nextLatencyMarkerMillis;
 
   public InputNode(InputOperator operator, OperatorContext context)
   {
     super(operator, context);
   }
 
+  /**
+   * Sets the window generator which is told about the emitted tuples so that it can close windows early.
+   *
+   * @param windowGenerator window generator in the adaptive mode
+   */
+  void setAdaptiveWindowGenerator(WindowGenerator windowGenerator)
+  {
+    this.adaptiveWindowGenerator = windowGenerator;
+  }
+
+  /**
+   * @param latencyMarkerIntervalMillis minimum milliseconds between the latency markers injected into the output
+   * streams, 0 to inject none
+   */
+  void setLatencyMarkerInterval(long latencyMarkerIntervalMillis)
+  {
+    this.latencyMarkerIntervalMillis = latencyMarkerIntervalMillis;
+  }
+
+  private void emitLatencyMarker(long now)
+  {
+    nextLatencyMarkerMillis = now + latencyMarkerIntervalMillis;
+    LatencyMarkerTuple marker = new LatencyMarkerTuple(currentWindowId, id, now, now);
+    for (int i = sinks.length; i-- > 0; ) {
+      sinks[i].put(marker);
+    }
+    controlTupleCount++;
+  }
+
   @Override
   public void connectInputPort(String port, SweepableReservoir reservoir)
   {
@@ -103,6 +136,15 @@ public class InputNode extends Node<InputOperator>
               }
             } else {
               spinMillis = 0;
+              if (adaptiveWindowGenerator != null) {
+                adaptiveWindowGenerator.tuplesEmitted(generatedTuples);
+              }
+              if (latencyMarkerIntervalMillis > 0) {
+                long now = System.currentTimeMillis();
+                if (now >= nextLatencyMarkerMillis) {
+                  emitLatencyMarker(now);
+                }
+              }
             }
           } else {
             Thread.sleep(0);
@@ -119,7 +161,7 @@ public class InputNode extends Node<InputOperator>
               insideStreamingWindow = true;
               if (applicationWindowCount == 0) {
                 insideApplicationWindow = true;
-                operator.beginWindow(currentWindowId);
+                invokeBeginWindow(currentWindowId);
               }
               operator.emitTuples(); /* give at least one chance to emit the tuples */
 
@@ -129,7 +171,7 @@ public class InputNode extends Node<InputOperator>
               insideStreamingWindow = false;
               if (++applicationWindowCount == APPLICATION_WINDOW_COUNT) {
                 insideApplicationWindow = false;
-                operator.endWindow();
+                invokeEndWindow();
                 applicationWindowCount = 0;
               }
               endWindowEmitTime = System.currentTimeMillis();
@@ -226,7 +268,7 @@ public class InputNode extends Node<InputOperator>
     }
 
     if (insideApplicationWindow) {
-      operator.endWindow();
+      invokeEndWindow();
       endWindowEmitTime = System.currentTimeMillis();
       if (++applicationWindowCount == APPLICATION_WINDOW_COUNT) {
         applicationWindowCount = 0;
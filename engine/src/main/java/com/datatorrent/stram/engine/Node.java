@@ -134,6 +134,10 @@ public abstract class Node<OPERATOR extends Operator> implements Component<Opera
   protected Stats.CheckpointStats checkpointStats;
   public long firstWindowMillis;
   public long windowWidthMillis;
+  /**
+   * null unless the operator is profiled.
+   */
+  protected final OperatorProfiler profiler;
 
   public Node(OPERATOR operator, OperatorContext context)
   {
@@ -149,6 +153,8 @@ public abstract class Node<OPERATOR extends Operator> implements Component<Opera
 
     endWindowDequeueTimes = new HashMap<>();
     tmb = ManagementFactory.getThreadMXBean();
+    Integer sampleInterval = context.getValue(OperatorContext.PROFILING_SAMPLE_INTERVAL);
+    profiler = sampleInterval != null && sampleInterval > 0 ? new OperatorProfiler(sampleInterval) : null;
     commandResponse = new LinkedBlockingQueue<>();
 
     metricFields = Lists.newArrayList();
@@ -445,6 +451,10 @@ public abstract class Node<OPERATOR extends Operator> implements Component<Opera
     stats.cpuTimeUsed = currentCpuTime - lastSampleCpuTime;
     lastSampleCpuTime = currentCpuTime;
 
+    if (profiler != null) {
+      profiler.recordWindow();
+    }
+
     if (checkpoint != null) {
       stats.checkpoint = checkpoint;
       stats.checkpointStats = checkpointStats;
@@ -492,7 +502,40 @@ public abstract class Node<OPERATOR extends Operator> implements Component<Opera
     sinks = Sink.NO_SINKS;
   }
 
+  protected void invokeBeginWindow(long windowId)
+  {
+    if (profiler == null) {
+      operator.beginWindow(windowId);
+    } else {
+      final long start = System.nanoTime();
+      operator.beginWindow(windowId);
+      profiler.recordBeginWindow(start);
+    }
+  }
+
+  protected void invokeEndWindow()
+  {
+    if (profiler == null) {
+      operator.endWindow();
+    } else {
+      final long start = System.nanoTime();
+      operator.endWindow();
+      profiler.recordEndWindow(start);
+    }
+  }
+
   void checkpoint(long windowId)
+  {
+    if (profiler == null) {
+      saveCheckpoint(windowId);
+    } else {
+      final long start = System.nanoTime();
+      saveCheckpoint(windowId);
+      profiler.recordCheckpoint(start);
+    }
+  }
+
+  private void saveCheckpoint(long windowId)
   {
     if (!context.stateless) {
       if (operator instanceof Operator.CheckpointNotificationListener) {
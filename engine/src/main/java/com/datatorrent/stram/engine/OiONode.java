@@ -29,6 +29,7 @@ import com.datatorrent.api.Operator;
 import com.datatorrent.api.Operator.InputPort;
 import com.datatorrent.api.Sink;
 import com.datatorrent.stram.plan.logical.Operators.PortContextPair;
+import com.datatorrent.stram.tuple.LatencyMarkerTuple;
 import com.datatorrent.stram.tuple.Tuple;
 
 /**
@@ -74,7 +75,7 @@ public class OiONode extends GenericNode
 
             if (applicationWindowCount == 0) {
               insideWindow = true;
-              operator.beginWindow(currentWindowId);
+              invokeBeginWindow(currentWindowId);
             }
           }
           break;
@@ -103,6 +104,10 @@ public class OiONode extends GenericNode
           }
           break;
 
+        case LATENCY_MARKER:
+          processLatencyMarker(reservoir, (LatencyMarkerTuple)t);
+          break;
+
         case RESET_WINDOW:
           if (t.getWindowId() != lastResetWindowId) {
             lastResetWindowId = t.getWindowId();
@@ -0,0 +1,179 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.stram.engine;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.datatorrent.api.Sink;
+import com.datatorrent.api.Stats;
+
+/**
+ * <p>OperatorProfiler class.</p>
+ *
+ * Collects the {@link Stats.ProfileStats} of an operator on its thread. Only one in every sample interval tuples is
+ * timed so that the clock is kept off the path of most tuples; the window callbacks and checkpoints are rare enough to
+ * be timed every time. The histograms are reused, the heartbeat thread takes a copy of them with the operator stats
+ * and resets them.
+ *
+ * @since 3.5.0
+ */
+public class OperatorProfiler
+{
+  private final int sampleInterval;
+  private final ThreadMXBean tmb;
+  private final Method getThreadAllocatedBytes;
+  private int countdown;
+  private long lastAllocatedBytes = -1;
+  private final Stats.ProfileStats stats = new Stats.ProfileStats();
+
+  public OperatorProfiler(int sampleInterval)
+  {
+    this.sampleInterval = sampleInterval;
+    countdown = sampleInterval;
+    tmb = ManagementFactory.getThreadMXBean();
+    getThreadAllocatedBytes = getAllocationMethod(tmb);
+  }
+
+  /**
+   * The allocated bytes are accounted by the HotSpot extension of the thread MX bean, which is looked up reflectively
+   * to keep the engine free of a compile time dependency on it.
+   *
+   * @return the method returning the bytes allocated by a thread, null if the JVM does not account for them
+   */
+  private static Method getAllocationMethod(ThreadMXBean tmb)
+  {
+    try {
+      Class<?> hotspotBean = Class.forName("com.sun.management.ThreadMXBean");
+      if (hotspotBean.isInstance(tmb) &&
+          (Boolean)hotspotBean.getMethod("isThreadAllocatedMemorySupported").invoke(tmb) &&
+          (Boolean)hotspotBean.getMethod("isThreadAllocatedMemoryEnabled").invoke(tmb)) {
+        return hotspotBean.getMethod("getThreadAllocatedBytes", long.class);
+      }
+    } catch (ClassNotFoundException | NoSuchMethodException | IllegalAccessException | InvocationTargetException ex) {
+      logger.debug("Allocated bytes are not accounted", ex);
+    }
+    return null;
+  }
+
+  /**
+   * @param sink sink of an input port
+   * @return sink which times the sampled tuples put into the given sink
+   */
+  public Sink<Object> wrap(final Sink<Object> sink)
+  {
+    return new Sink<Object>()
+    {
+      @Override
+      public void put(Object tuple)
+      {
+        if (--countdown > 0) {
+          sink.put(tuple);
+        } else {
+          countdown = sampleInterval;
+          final long start = System.nanoTime();
+          sink.put(tuple);
+          record(stats.processTime, start);
+        }
+      }
+
+      @Override
+      public int getCount(boolean reset)
+      {
+        return sink.getCount(reset);
+      }
+
+    };
+  }
+
+  private synchronized void record(Stats.Histogram histogram, long start)
+  {
+    histogram.record(System.nanoTime() - start);
+  }
+
+  public void recordBeginWindow(long start)
+  {
+    record(stats.beginWindowTime, start);
+  }
+
+  public void recordEndWindow(long start)
+  {
+    record(stats.endWindowTime, start);
+  }
+
+  public void recordCheckpoint(long start)
+  {
+    record(stats.checkpointTime, start);
+  }
+
+  /**
+   * Records the bytes allocated by the calling thread since the end of the previous window.
+   */
+  public void recordWindow()
+  {
+    if (getThreadAllocatedBytes != null) {
+      try {
+        final long allocatedBytes = (Long)getThreadAllocatedBytes.invoke(tmb, Thread.currentThread().getId());
+        if (lastAllocatedBytes >= 0 && allocatedBytes >= lastAllocatedBytes) {
+          synchronized (this) {
+            stats.allocatedBytes.record(allocatedBytes - lastAllocatedBytes);
+          }
+        }
+        lastAllocatedBytes = allocatedBytes;
+      } catch (IllegalAccessException | InvocationTargetException ex) {
+        throw new RuntimeException(ex);
+      }
+    }
+  }
+
+  /**
+   * Hands a copy of the profile collected since the previous call over to the last of the operator stats and resets
+   * the histograms. Called by the heartbeat thread with the operator stats it drained, so that the profile is copied
+   * once per heartbeat instead of allocated once per window on the operator thread.
+   *
+   * @param operatorStats operator stats drained from the operator context
+   */
+  public synchronized void drain(List<? extends Stats.OperatorStats> operatorStats)
+  {
+    if (operatorStats.isEmpty()) {
+      return;
+    }
+    Stats.ProfileStats profile = new Stats.ProfileStats();
+    drain(stats.processTime, profile.processTime);
+    drain(stats.beginWindowTime, profile.beginWindowTime);
+    drain(stats.endWindowTime, profile.endWindowTime);
+    drain(stats.checkpointTime, profile.checkpointTime);
+    drain(stats.allocatedBytes, profile.allocatedBytes);
+    operatorStats.get(operatorStats.size() - 1).profileStats = profile;
+  }
+
+  private static void drain(Stats.Histogram from, Stats.Histogram to)
+  {
+    to.merge(from);
+    from.reset();
+  }
+
+  private static final Logger logger = LoggerFactory.getLogger(OperatorProfiler.class);
+}
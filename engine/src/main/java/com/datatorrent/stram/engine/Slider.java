@@ -20,6 +20,8 @@ package com.datatorrent.stram.engine;
 
 import java.io.Serializable;
 import java.lang.reflect.Field;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -33,12 +35,20 @@ import com.datatorrent.api.StatsListener;
 /**
  * <p>Slider class.</p>
  *
+ * Unifies the tuples of the last {@code numberOfBuckets} windows every {@code numberOfSlideBuckets} windows. For a
+ * plain unifier the tuples of all the windows are cached and replayed. For a {@link CombinableUnifier} only one
+ * accumulator per window is kept: an {@link InvertibleUnifier} maintains a running accumulator and subtracts the
+ * windows leaving the range, any other combinable unifier uses two stacks so that every window is merged a constant
+ * number of times on average.
+ *
  * @since 3.2.0
  */
 public class Slider implements Unifier<Object>, Operator.IdleTimeHandler, Operator.ActivationListener<OperatorContext>, StatsListener, Serializable, Operator.CheckpointListener
 {
   private List<List<Object>> cache;
   private transient List<Object> currentList;
+  private Panes panes;
+  private transient Object currentAccumulator;
   private final Unifier<Object> unifier;
   private final int numberOfBuckets;
   private final int numberOfSlideBuckets;
@@ -58,10 +68,17 @@ public class Slider implements Unifier<Object>, Operator.IdleTimeHandler, Operat
     numberOfSlideBuckets = -1;
   }
 
+  @SuppressWarnings("unchecked")
   public Slider(Unifier<Object> uniOperator, int buckets, int numberOfSlideBuckets)
   {
     unifier = uniOperator;
-    cache = new LinkedList<>();
+    if (uniOperator instanceof InvertibleUnifier) {
+      panes = new SubtractOnEvictPanes((InvertibleUnifier<Object, Object>)uniOperator);
+    } else if (uniOperator instanceof CombinableUnifier) {
+      panes = new TwoStackPanes((CombinableUnifier<Object, Object>)uniOperator);
+    } else {
+      cache = new LinkedList<>();
+    }
     this.numberOfBuckets = buckets;
     this.numberOfSlideBuckets = numberOfSlideBuckets;
   }
@@ -88,6 +105,10 @@ public class Slider implements Unifier<Object>, Operator.IdleTimeHandler, Operat
   @Override
   public void process(Object tuple)
   {
+    if (panes != null) {
+      currentAccumulator = panes.unifier.accumulate(currentAccumulator, tuple);
+      return;
+    }
     if (cacheSize == numberOfBuckets - 1) {
       unifier.process(tuple);
     }
@@ -97,6 +118,11 @@ public class Slider implements Unifier<Object>, Operator.IdleTimeHandler, Operat
   @Override
   public void beginWindow(long windowId)
   {
+    if (panes != null) {
+      unifier.beginWindow(windowId);
+      currentAccumulator = panes.unifier.createAccumulator();
+      return;
+    }
     cacheSize = cache.size();
     unifier.beginWindow(windowId);
     if (cacheSize == numberOfBuckets - 1) {
@@ -112,6 +138,21 @@ public class Slider implements Unifier<Object>, Operator.IdleTimeHandler, Operat
   @Override
   public void endWindow()
   {
+    if (panes != null) {
+      panes.add(currentAccumulator);
+      currentAccumulator = null;
+      if (panes.size() == numberOfBuckets) {
+        Object output = panes.unifier.getOutput(panes.getAccumulator());
+        if (output != null) {
+          outputPort.emit(output);
+        }
+        for (int i = 0; i < numberOfSlideBuckets; i++) {
+          panes.evict();
+        }
+      }
+      unifier.endWindow();
+      return;
+    }
     cache.add(currentList);
     if (cacheSize == numberOfBuckets - 1) {
       for (int i = 0; i < numberOfSlideBuckets; i++) {
@@ -207,5 +248,136 @@ public class Slider implements Unifier<Object>, Operator.IdleTimeHandler, Operat
     }
   }
 
+  /**
+   * The accumulators of the windows in the sliding range, oldest first.
+   */
+  abstract static class Panes implements Serializable
+  {
+    final CombinableUnifier<Object, Object> unifier;
+
+    Panes(CombinableUnifier<Object, Object> unifier)
+    {
+      this.unifier = unifier;
+    }
+
+    abstract void add(Object accumulator);
+
+    abstract void evict();
+
+    abstract int size();
+
+    /**
+     * @return the accumulator of all the windows in the range
+     */
+    abstract Object getAccumulator();
+
+    private static final long serialVersionUID = 201610190000L;
+  }
+
+  static class SubtractOnEvictPanes extends Panes
+  {
+    private final ArrayDeque<Object> accumulators = new ArrayDeque<>();
+    private Object total;
+
+    @SuppressWarnings("unused")
+    private SubtractOnEvictPanes()
+    {
+      super(null);
+    }
+
+    SubtractOnEvictPanes(InvertibleUnifier<Object, Object> unifier)
+    {
+      super(unifier);
+    }
+
+    @Override
+    void add(Object accumulator)
+    {
+      accumulators.addLast(accumulator);
+      total = total == null ? accumulator : unifier.merge(total, accumulator);
+    }
+
+    @Override
+    void evict()
+    {
+      Object evicted = accumulators.removeFirst();
+      total = accumulators.isEmpty() ? null : ((InvertibleUnifier<Object, Object>)unifier).subtract(total, evicted);
+    }
+
+    @Override
+    int size()
+    {
+      return accumulators.size();
+    }
+
+    @Override
+    Object getAccumulator()
+    {
+      return total == null ? unifier.createAccumulator() : total;
+    }
+
+    private static final long serialVersionUID = 201610190001L;
+  }
+
+  /**
+   * New accumulators are pushed on the back stack, which keeps their running merge. Evictions pop the front stack,
+   * whose entries are the merge of the window and all the newer windows on the front stack. When the front stack is
+   * empty, the back stack is moved over, merging every window once.
+   */
+  static class TwoStackPanes extends Panes
+  {
+    private final ArrayDeque<Object> front = new ArrayDeque<>();
+    private final ArrayList<Object> back = new ArrayList<>();
+    private Object backAccumulator;
+
+    @SuppressWarnings("unused")
+    private TwoStackPanes()
+    {
+      super(null);
+    }
+
+    TwoStackPanes(CombinableUnifier<Object, Object> unifier)
+    {
+      super(unifier);
+    }
+
+    @Override
+    void add(Object accumulator)
+    {
+      back.add(accumulator);
+      backAccumulator = backAccumulator == null ? accumulator : unifier.merge(backAccumulator, accumulator);
+    }
+
+    @Override
+    void evict()
+    {
+      if (front.isEmpty()) {
+        for (int i = back.size(); i-- > 0;) {
+          front.push(front.isEmpty() ? back.get(i) : unifier.merge(back.get(i), front.peek()));
+        }
+        back.clear();
+        backAccumulator = null;
+      }
+      front.pop();
+    }
+
+    @Override
+    int size()
+    {
+      return front.size() + back.size();
+    }
+
+    @Override
+    Object getAccumulator()
+    {
+      if (front.isEmpty()) {
+        return backAccumulator == null ? unifier.createAccumulator() : backAccumulator;
+      }
+      return backAccumulator == null ? front.peek() : unifier.merge(front.peek(), backAccumulator);
+    }
+
+    private static final long serialVersionUID = 201610190002L;
+  }
+
   private static final long serialVersionUID = 201505251917L;
 }
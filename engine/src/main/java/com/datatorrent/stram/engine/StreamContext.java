@@ -49,6 +49,7 @@ public class StreamContext extends DefaultAttributeMap implements Context
   public static final Attribute<InetSocketAddress> BUFFER_SERVER_ADDRESS = new Attribute<>(null, null);
   public static final Attribute<byte[]> BUFFER_SERVER_TOKEN = new Attribute<>(null, null);
   public static final Attribute<EventLoop> EVENT_LOOP = new Attribute<>(null, null);
+  public static final Attribute<Boolean> BUFFER_SERVER_SHARED_MEMORY = new Attribute<>(false);
   public static final Attribute<StreamCodec<?>> CODEC = new Attribute<StreamCodec<?>>(new DefaultStatefulStreamCodec<>(), null);
 
   @Override
@@ -18,7 +18,9 @@
  */
 package com.datatorrent.stram.engine;
 
+import java.io.File;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.lang.Thread.State;
 import java.lang.management.GarbageCollectorMXBean;
 import java.lang.management.ManagementFactory;
@@ -27,6 +29,7 @@ import java.net.InetSocketAddress;
 import java.net.UnknownHostException;
 import java.util.AbstractMap.SimpleEntry;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -37,8 +40,15 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -54,6 +64,8 @@ import org.apache.hadoop.security.token.Token;
 import org.apache.hadoop.yarn.conf.YarnConfiguration;
 import org.apache.log4j.LogManager;
 
+import com.google.common.base.Throwables;
+
 import com.datatorrent.api.Attribute;
 import com.datatorrent.api.Component;
 import com.datatorrent.api.Context;
@@ -72,6 +84,7 @@ import com.datatorrent.api.annotation.Stateless;
 import com.datatorrent.bufferserver.server.Server;
 import com.datatorrent.bufferserver.storage.DiskStorage;
 import com.datatorrent.bufferserver.util.Codec;
+import com.datatorrent.common.util.NameableThreadFactory;
 import com.datatorrent.common.util.ScheduledThreadPoolExecutor;
 import com.datatorrent.netlet.DefaultEventLoop;
 import com.datatorrent.netlet.util.Slice;
@@ -111,6 +124,9 @@ import com.datatorrent.stram.stream.BufferServerPublisher;
 import com.datatorrent.stram.stream.BufferServerSubscriber;
 import com.datatorrent.stram.stream.FastPublisher;
 import com.datatorrent.stram.stream.FastSubscriber;
+import com.datatorrent.stram.stream.InProcessPublisher;
+import com.datatorrent.stram.stream.InProcessSubscriber;
+import com.datatorrent.stram.stream.InProcessTransport;
 import com.datatorrent.stram.stream.InlineStream;
 import com.datatorrent.stram.stream.MuxStream;
 import com.datatorrent.stram.stream.OiOStream;
@@ -129,6 +145,7 @@ import net.engio.mbassy.bus.config.BusConfiguration;
 public class StreamingContainer extends YarnContainerMain
 {
   public static final String PROP_APP_PATH = StreamingApplication.DT_PREFIX + Context.DAGContext.APPLICATION_PATH.getName();
+  private static final int MAX_PARALLEL_CHECKPOINT_LOADS = 8;
   private final transient String jvmName;
   private final String containerId;
   private final transient StreamingContainerUmbilicalProtocol umbilical;
@@ -156,6 +173,10 @@ public class StreamingContainer extends YarnContainerMain
   private int windowWidthMillis;
   protected InetSocketAddress bufferServerAddress;
   protected com.datatorrent.bufferserver.server.Server bufferServer;
+  /**
+   * in-process transport replacing the buffer server, when the containers share the process.
+   */
+  protected InProcessTransport inProcessTransport;
   private int checkpointWindowCount;
   private boolean fastPublisherSubscriber;
   private StreamingContainerContext containerContext;
@@ -164,6 +185,8 @@ public class StreamingContainer extends YarnContainerMain
   private final MBassador<ContainerEvent> eventBus; // event bus for publishing container events
   HashSet<Component<ContainerContext>> components;
   private RequestFactory requestFactory;
+  private ExecutorService checkpointLoader;
+  private ScheduledThreadPoolExecutor frameFlusher;
 
   static {
     try {
@@ -226,6 +249,15 @@ public class StreamingContainer extends YarnContainerMain
         // start buffer server, if it was not set externally
         bufferServer = new Server(0, blocksize * 1024 * 1024, blockCount);
         bufferServer.setAuthToken(ctx.getValue(StreamingContainerContext.BUFFER_SERVER_TOKEN));
+        bufferServer.setNumberOfReactors(ctx.getValue(LogicalPlan.BUFFER_SERVER_REACTORS));
+        int sharedMemorySize = ctx.getValue(LogicalPlan.BUFFER_SERVER_SHARED_MEMORY_SIZE);
+        if (sharedMemorySize > 0) {
+          File sharedMemoryDirectory = new File("/dev/shm");
+          if (!sharedMemoryDirectory.isDirectory() || !sharedMemoryDirectory.canWrite()) {
+            sharedMemoryDirectory = new File(System.getProperty("java.io.tmpdir"));
+          }
+          bufferServer.setSharedMemory(sharedMemoryDirectory, sharedMemorySize);
+        }
         if (ctx.getValue(Context.DAGContext.BUFFER_SPOOLING)) {
           bufferServer.setSpoolStorage(new DiskStorage());
         }
@@ -576,6 +608,17 @@ public class StreamingContainer extends YarnContainerMain
 
     eventBus.shutdown();
 
+    synchronized (this) {
+      if (checkpointLoader != null) {
+        checkpointLoader.shutdownNow();
+        checkpointLoader = null;
+      }
+      if (frameFlusher != null) {
+        frameFlusher.shutdownNow();
+        frameFlusher = null;
+      }
+    }
+
     nodes.clear();
 
     HashSet<WindowGenerator> gens = new HashSet<>();
@@ -668,6 +711,9 @@ public class StreamingContainer extends YarnContainerMain
           }
           OperatorContext context = e.getValue().context;
           context.drainStats(hb.getOperatorStatsContainer());
+          if (e.getValue().profiler != null) {
+            e.getValue().profiler.drain(hb.getOperatorStatsContainer());
+          }
 
           if (context.getThread() == null || context.getThread().getState() != Thread.State.TERMINATED) {
             hb.setState(DeployState.ACTIVE);
@@ -776,6 +822,9 @@ public class StreamingContainer extends YarnContainerMain
         // Jira for that issue is APEXCORE-479
         bufferServer.purge(lastCommittedWindowId - 1);
       }
+      if (inProcessTransport != null) {
+        inProcessTransport.purge(lastCommittedWindowId - 1);
+      }
 
       OperatorRequest nr = null;
       for (Entry<Integer, Node<?>> e : nodes.entrySet()) {
@@ -895,9 +944,14 @@ public class StreamingContainer extends YarnContainerMain
 
   private void deployNodes(List<OperatorDeployInfo> nodeList) throws IOException
   {
-    for (OperatorDeployInfo ndi : nodeList) {
-      StorageAgent backupAgent = getValue(OperatorContext.STORAGE_AGENT, ndi);
+    List<Callable<Node<?>>> loaders = new ArrayList<>(nodeList.size());
+    BitSet concurrentLoaders = new BitSet(nodeList.size());
+    for (final OperatorDeployInfo ndi : nodeList) {
+      final StorageAgent backupAgent = getValue(OperatorContext.STORAGE_AGENT, ndi);
       assert (backupAgent != null);
+      if (backupAgent instanceof StorageAgent.ConcurrentLoadStorageAgent) {
+        concurrentLoaders.set(loaders.size());
+      }
 
       Context parentContext;
       if (ndi instanceof UnifierDeployInfo) {
@@ -909,21 +963,104 @@ public class StreamingContainer extends YarnContainerMain
         parentContext = containerContext;
       }
 
-      OperatorContext ctx = new OperatorContext(ndi.id, ndi.name, ndi.contextAttributes, parentContext);
+      final OperatorContext ctx = new OperatorContext(ndi.id, ndi.name, ndi.contextAttributes, parentContext);
       ctx.attributes.put(OperatorContext.ACTIVATION_WINDOW_ID, ndi.checkpoint.windowId);
-      logger.debug("Restoring operator {} to checkpoint {} stateless={}.", ndi.id, Codec.getStringWindowId(ndi.checkpoint.windowId), ctx.stateless);
-      Node<?> node = Node.retrieveNode(backupAgent.load(ndi.id, ctx.stateless ? Stateless.WINDOW_ID : ndi.checkpoint.windowId), ctx, ndi.type);
-      node.currentWindowId = ndi.checkpoint.windowId;
-      node.applicationWindowCount = ndi.checkpoint.applicationWindowCount;
-      node.firstWindowMillis = firstWindowMillis;
-      node.windowWidthMillis = windowWidthMillis;
-
-      node.setId(ndi.id);
-      nodes.put(ndi.id, node);
+      loaders.add(new Callable<Node<?>>()
+      {
+        @Override
+        public Node<?> call() throws Exception
+        {
+          logger.debug("Restoring operator {} to checkpoint {} stateless={}.", ndi.id, Codec.getStringWindowId(ndi.checkpoint.windowId), ctx.stateless);
+          Node<?> node = Node.retrieveNode(backupAgent.load(ndi.id, ctx.stateless ? Stateless.WINDOW_ID : ndi.checkpoint.windowId), ctx, ndi.type);
+          node.currentWindowId = ndi.checkpoint.windowId;
+          node.applicationWindowCount = ndi.checkpoint.applicationWindowCount;
+          node.firstWindowMillis = firstWindowMillis;
+          node.windowWidthMillis = windowWidthMillis;
+          return node;
+        }
+      });
+    }
+
+    List<Node<?>> loadedNodes = loadNodes(loaders, concurrentLoaders);
+    for (int i = 0; i < loadedNodes.size(); i++) {
+      Node<?> node = loadedNodes.get(i);
+      node.setId(nodeList.get(i).id);
+      nodes.put(node.getId(), node);
       logger.debug("Marking operator {} as deployed.", node);
     }
   }
 
+  /**
+   * Restores the operators from their checkpoints. The operators deployed together are independent of each other
+   * until their streams are connected, so the checkpoints of storage agents which support concurrent loads are loaded
+   * on the checkpoint loader threads, while the others are loaded one after another on the calling thread.
+   *
+   * @param loaders the tasks that load the operators, in deployment order
+   * @param concurrentLoaders the loaders which may run concurrently
+   * @return the nodes in the order of the loaders
+   * @throws IOException if any of the checkpoints cannot be loaded
+   */
+  private List<Node<?>> loadNodes(List<Callable<Node<?>>> loaders, BitSet concurrentLoaders) throws IOException
+  {
+    List<Future<Node<?>>> futures = new ArrayList<>(loaders.size());
+    boolean concurrent = concurrentLoaders.cardinality() > 1;
+    for (int i = 0; i < loaders.size(); i++) {
+      futures.add(concurrent && concurrentLoaders.get(i) ? getCheckpointLoader().submit(loaders.get(i)) : null);
+    }
+
+    List<Node<?>> loadedNodes = new ArrayList<>(loaders.size());
+    try {
+      for (int i = 0; i < loaders.size(); i++) {
+        Future<Node<?>> future = futures.get(i);
+        loadedNodes.add(future == null ? loaders.get(i).call() : future.get());
+      }
+    } catch (ExecutionException ex) {
+      Throwables.propagateIfPossible(ex.getCause(), IOException.class);
+      throw new RuntimeException(ex.getCause());
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while loading operator checkpoints.");
+    } catch (Exception ex) {
+      Throwables.propagateIfPossible(ex, IOException.class);
+      throw new RuntimeException(ex);
+    } finally {
+      if (loadedNodes.size() < loaders.size()) {
+        for (Future<Node<?>> future : futures) {
+          if (future != null) {
+            future.cancel(true);
+          }
+        }
+      }
+    }
+    return loadedNodes;
+  }
+
+  /**
+   * The loader threads are shared by the deployments of the container and exit when idle.
+   */
+  private synchronized ExecutorService getCheckpointLoader()
+  {
+    if (checkpointLoader == null) {
+      ThreadPoolExecutor executor = new ThreadPoolExecutor(MAX_PARALLEL_CHECKPOINT_LOADS, MAX_PARALLEL_CHECKPOINT_LOADS,
+          60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new NameableThreadFactory("CheckpointLoader", true));
+      executor.allowCoreThreadTimeOut(true);
+      checkpointLoader = executor;
+    }
+    return checkpointLoader;
+  }
+
+  /**
+   * The flusher thread is shared by the buffer server publishers of the container and sends the frames no further
+   * tuple arrived for in time.
+   */
+  private synchronized ScheduledThreadPoolExecutor getFrameFlusher()
+  {
+    if (frameFlusher == null) {
+      frameFlusher = new ScheduledThreadPoolExecutor(1, "BufferServerFrameFlusher");
+    }
+    return frameFlusher;
+  }
+
   private HashMap.SimpleEntry<String, ComponentContextPair<Stream, StreamContext>> deployBufferServerPublisher(
       String connIdentifier, StreamCodec<?> streamCodec, long finishedWindowId, int queueCapacity,
       OperatorDeployInfo.OutputDeployInfo nodi)
@@ -945,7 +1082,19 @@ public class StreamingContainer extends YarnContainerMain
       bssc.setBufferServerAddress(new InetSocketAddress(InetAddress.getByName(null), nodi.bufferServerPort));
     }
 
-    Stream publisher = fastPublisherSubscriber ? new FastPublisher(connIdentifier, queueCapacity * 256) : new BufferServerPublisher(connIdentifier, queueCapacity);
+    Stream publisher;
+    if (inProcessTransport != null) {
+      publisher = new InProcessPublisher(inProcessTransport);
+    } else if (fastPublisherSubscriber) {
+      publisher = new FastPublisher(connIdentifier, queueCapacity * 256);
+    } else {
+      BufferServerPublisher bsp = new BufferServerPublisher(connIdentifier, queueCapacity);
+      int frameBytes = containerContext.getValue(LogicalPlan.BUFFER_SERVER_FRAME_BYTES);
+      bsp.setFrameBudget(frameBytes, containerContext.getValue(LogicalPlan.BUFFER_SERVER_FRAME_MILLIS),
+          frameBytes > 0 ? getFrameFlusher() : null);
+      bsp.setHotKeys(nodi.getValue(PortContext.HOT_KEY_COUNT), nodi.getValue(PortContext.HOT_KEY_SPLIT_FANOUT));
+      publisher = bsp;
+    }
     return new HashMap.SimpleEntry<>(sinkIdentifier, new ComponentContextPair<>(publisher, bssc));
   }
 
@@ -1132,6 +1281,8 @@ public class StreamingContainer extends YarnContainerMain
             InetAddress inetAddress = context.getBufferServerAddress().getAddress();
             if (inetAddress != null && NetUtils.isLocalAddress(inetAddress)) {
               context.setBufferServerAddress(new InetSocketAddress(InetAddress.getByName(null), nidi.bufferServerPort));
+              context.put(StreamContext.BUFFER_SERVER_SHARED_MEMORY,
+                  !fastPublisherSubscriber && containerContext.getValue(LogicalPlan.BUFFER_SERVER_SHARED_MEMORY_SIZE) > 0);
             }
             context.put(StreamContext.BUFFER_SERVER_TOKEN, nidi.bufferServerToken);
             String connIdentifier = sourceIdentifier + Component.CONCAT_SEPARATOR + streamCodecIdentifier;
@@ -1144,13 +1295,25 @@ public class StreamingContainer extends YarnContainerMain
             context.setSinkId(sinkIdentifier);
             context.setFinishedWindowId(checkpoint.windowId);
 
-            BufferServerSubscriber subscriber = fastPublisherSubscriber
-                ? new FastSubscriber("tcp://".concat(nidi.bufferServerHost).concat(":").concat(String.valueOf(nidi.bufferServerPort)).concat("/").concat(connIdentifier), queueCapacity)
-                : new BufferServerSubscriber("tcp://".concat(nidi.bufferServerHost).concat(":").concat(String.valueOf(nidi.bufferServerPort)).concat("/").concat(connIdentifier), queueCapacity);
-            if (streamCodec instanceof StreamCodecWrapperForPersistance) {
-              subscriber.acquireReservoirForPersistStream(sinkIdentifier, queueCapacity, streamCodec);
+            Stream subscriber;
+            SweepableReservoir reservoir;
+            if (inProcessTransport != null) {
+              InProcessSubscriber ips = new InProcessSubscriber(inProcessTransport, queueCapacity);
+              if (streamCodec instanceof StreamCodecWrapperForPersistance) {
+                ips.acquireReservoirForPersistStream(sinkIdentifier, queueCapacity, streamCodec);
+              }
+              reservoir = ips.acquireReservoir(sinkIdentifier, queueCapacity);
+              subscriber = ips;
+            } else {
+              BufferServerSubscriber bss = fastPublisherSubscriber
+                  ? new FastSubscriber("tcp://".concat(nidi.bufferServerHost).concat(":").concat(String.valueOf(nidi.bufferServerPort)).concat("/").concat(connIdentifier), queueCapacity)
+                  : new BufferServerSubscriber("tcp://".concat(nidi.bufferServerHost).concat(":").concat(String.valueOf(nidi.bufferServerPort)).concat("/").concat(connIdentifier), queueCapacity);
+              if (streamCodec instanceof StreamCodecWrapperForPersistance) {
+                bss.acquireReservoirForPersistStream(sinkIdentifier, queueCapacity, streamCodec);
+              }
+              reservoir = bss.acquireReservoir(sinkIdentifier, queueCapacity);
+              subscriber = bss;
             }
-            SweepableReservoir reservoir = subscriber.acquireReservoir(sinkIdentifier, queueCapacity);
             if (checkpoint.windowId >= 0) {
               node.connectInputPort(nidi.portName, new WindowIdActivatedReservoir(sinkIdentifier, reservoir, checkpoint.windowId));
             }
@@ -1253,6 +1416,12 @@ public class StreamingContainer extends YarnContainerMain
         generators.put(ndi.id, windowGenerator);
 
         Node<?> node = nodes.get(ndi.id);
+        if (node instanceof InputNode) {
+          if (windowGenerator.isAdaptive()) {
+            ((InputNode)node).setAdaptiveWindowGenerator(windowGenerator);
+          }
+          ((InputNode)node).setLatencyMarkerInterval(containerContext.getValue(LogicalPlan.LATENCY_MARKER_INTERVAL_MILLIS));
+        }
         SweepableReservoir reservoir = windowGenerator.acquireReservoir(String.valueOf(ndi.id), 1024);
         if (ndi.checkpoint.windowId >= 0) {
           node.connectInputPort(Node.INPUT, new WindowIdActivatedReservoir(Integer.toString(ndi.id), reservoir, ndi.checkpoint.windowId));
@@ -1306,6 +1475,8 @@ public class StreamingContainer extends YarnContainerMain
 
     long windowCount = WindowGenerator.getWindowCount(millisAtFirstWindow, firstWindowMillis, windowWidthMillis);
     windowGenerator.setCheckpointCount(checkpointWindowCount, (int)(windowCount % checkpointWindowCount));
+    windowGenerator.setAdaptiveWindowBudget(containerContext.getValue(LogicalPlan.ADAPTIVE_WINDOW_TUPLE_BUDGET),
+        containerContext.getValue(LogicalPlan.ADAPTIVE_WINDOW_MAX_LEAD));
     return windowGenerator;
   }
 
@@ -1361,7 +1532,7 @@ public class StreamingContainer extends YarnContainerMain
   public synchronized void activate(final Map<Integer, OperatorDeployInfo> nodeMap, Map<String, ComponentContextPair<Stream, StreamContext>> newStreams)
   {
     for (ComponentContextPair<Stream, StreamContext> pair : newStreams.values()) {
-      if (!(pair.component instanceof BufferServerSubscriber)) {
+      if (!(pair.component instanceof BufferServerSubscriber || pair.component instanceof InProcessSubscriber)) {
         activeStreams.put(pair.component, pair.context);
         pair.component.activate(pair.context);
         eventBus.publish(new StreamActivationEvent(pair));
@@ -1485,7 +1656,7 @@ public class StreamingContainer extends YarnContainerMain
     }
 
     for (ComponentContextPair<Stream, StreamContext> pair : newStreams.values()) {
-      if (pair.component instanceof BufferServerSubscriber) {
+      if (pair.component instanceof BufferServerSubscriber || pair.component instanceof InProcessSubscriber) {
         activeStreams.put(pair.component, pair.context);
         pair.component.activate(pair.context);
         eventBus.publish(new StreamActivationEvent(pair));
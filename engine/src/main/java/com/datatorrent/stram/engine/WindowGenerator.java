@@ -21,6 +21,8 @@ package com.datatorrent.stram.engine;
 import java.util.Queue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -40,6 +42,11 @@ import com.datatorrent.stram.tuple.Tuple;
  * of WindowGenerator per hadoop container. All input adapters within a container share it. If a container has
  * no inputadapter, then WindowGenerator instance is a no-op.<br>
  * <br>
+ * In the adaptive mode, a window is also closed as soon as the input adapters have emitted the configured tuple budget
+ * in it. Such windows take the next window id on the wall clock grid, so the generator may run ahead of the clock by a
+ * bounded number of windows, and the clock ticks are skipped until it catches up. Window ids stay contiguous and the
+ * same across containers, so checkpoint and application window arithmetic is not affected.<br>
+ * <br>
  *
  * @since 0.3.2
  */
@@ -62,7 +69,26 @@ public class WindowGenerator extends MuxReservoir implements Stream, Runnable
   private long resetWindowMillis;
   private int checkPointWindowCount;
   private int checkpointCount = 60; /* default checkpointing after 60 windows */
+  private int windowTupleBudget; /* 0 disables the adaptive mode */
+  private int maxWindowLead;
+  private final AtomicLong windowTupleCount = new AtomicLong();
+  private final AtomicBoolean earlyCloseScheduled = new AtomicBoolean();
+  private final Runnable earlyClose = new Runnable()
+  {
+    @Override
+    public void run()
+    {
+      try {
+        if (windowTupleCount.get() >= windowTupleBudget
+            && currentWindowMillis + windowWidthMillis <= ses.getCurrentTimeMillis() + (long)maxWindowLead * windowWidthMillis) {
+          endCurrentBeginNewWindow();
+        }
+      } catch (InterruptedException ie) {
+        handleException(ie);
+      }
+    }
 
+  };
 
   public WindowGenerator(ScheduledExecutorService service, int capacity)
   {
@@ -98,6 +124,10 @@ public class WindowGenerator extends MuxReservoir implements Stream, Runnable
    */
   private void endCurrentBeginNewWindow() throws InterruptedException
   {
+    if (windowTupleBudget > 0) {
+      windowTupleCount.set(0);
+      earlyCloseScheduled.set(false);
+    }
     queue.put(new EndWindowTuple(baseSeconds | windowId));
     if (++checkPointWindowCount == checkpointCount) {
       queue.put(new Tuple(MessageType.CHECKPOINT, baseSeconds | windowId));
@@ -141,6 +171,39 @@ public class WindowGenerator extends MuxReservoir implements Stream, Runnable
     windowWidthMillis = millis;
   }
 
+  /**
+   * Enables the adaptive mode in which a window is closed early once the input adapters emitted the given number of
+   * tuples in it.
+   *
+   * @param tupleBudget the number of tuples after which the current window is closed, 0 to disable
+   * @param maxWindowLead the maximum number of windows the generator may run ahead of the wall clock
+   */
+  public void setAdaptiveWindowBudget(int tupleBudget, int maxWindowLead)
+  {
+    if (tupleBudget < 0 || maxWindowLead < 1) {
+      throw new IllegalArgumentException(String.format("Invalid adaptive window budget %d with lead %d", tupleBudget, maxWindowLead));
+    }
+    this.windowTupleBudget = tupleBudget;
+    this.maxWindowLead = maxWindowLead;
+  }
+
+  public boolean isAdaptive()
+  {
+    return windowTupleBudget > 0;
+  }
+
+  /**
+   * Called by the input adapters with the number of tuples they emitted in the current window.
+   *
+   * @param count number of tuples emitted
+   */
+  public void tuplesEmitted(int count)
+  {
+    if (windowTupleBudget > 0 && windowTupleCount.addAndGet(count) >= windowTupleBudget && earlyCloseScheduled.compareAndSet(false, true)) {
+      ses.schedule(earlyClose, 0, TimeUnit.MILLISECONDS);
+    }
+  }
+
   public void setCheckpointCount(int streamingWindowCount, int offset)
   {
     logger.debug("setCheckpointCount: {} {}", streamingWindowCount, offset);
@@ -165,6 +228,10 @@ public class WindowGenerator extends MuxReservoir implements Stream, Runnable
       public void run()
       {
         try {
+          if (windowTupleBudget > 0 && 2 * currentWindowMillis + windowWidthMillis > 2 * ses.getCurrentTimeMillis()) {
+            /* windows closed early put the generator ahead of the clock, the current window absorbs this tick */
+            return;
+          }
           endCurrentBeginNewWindow();
         } catch (InterruptedException ie) {
           handleException(ie);
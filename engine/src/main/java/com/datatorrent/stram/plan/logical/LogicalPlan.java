@@ -21,11 +21,17 @@ package com.datatorrent.stram.plan.logical;
 import java.beans.IntrospectionException;
 import java.beans.Introspector;
 import java.beans.PropertyDescriptor;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InvalidClassException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.OutputStream;
+import java.io.SequenceInputStream;
 import java.io.Serializable;
 import java.lang.reflect.Field;
 import java.lang.reflect.GenericArrayType;
@@ -155,6 +161,100 @@ public class LogicalPlan implements Serializable, DAG
    * Then it can be moved back to DAGContext.
    */
   public static Attribute<Boolean> FAST_PUBLISHER_SUBSCRIBER = new Attribute<>(false);
+  /**
+   * Whether the stats and events history is recorded in the binary columnar format with a sparse timestamp index per
+   * part file, instead of JSON lines. Time range queries on the columnar format only read and decode the blocks and
+   * fields they need.
+   */
+  public static Attribute<Boolean> COLUMNAR_HISTORY_RECORDING = new Attribute<>(false);
+  /**
+   * Number of tuples the input operators of a container may emit in a streaming window before the window is closed
+   * early. Zero, the default, generates windows purely on the wall clock.
+   */
+  public static Attribute<Integer> ADAPTIVE_WINDOW_TUPLE_BUDGET = new Attribute<>(0);
+  /**
+   * Maximum number of streaming windows the window generator may run ahead of the wall clock by closing windows early.
+   */
+  public static Attribute<Integer> ADAPTIVE_WINDOW_MAX_LEAD = new Attribute<>(4);
+  /**
+   * Number of event loops serving the publishers and subscribers of the buffer server in each container, in addition
+   * to the one accepting connections. Zero, the default, serves all of them on the accepting event loop.
+   */
+  public static Attribute<Integer> BUFFER_SERVER_REACTORS = new Attribute<>(0);
+  /**
+   * Maximum size in bytes of the frames into which buffer server publishers coalesce consecutive payload tuples of a
+   * partition. Zero, the default, publishes every payload tuple as a message of its own.
+   */
+  public static Attribute<Integer> BUFFER_SERVER_FRAME_BYTES = new Attribute<>(0);
+  /**
+   * Maximum number of milliseconds a payload tuple waits in a buffer server frame for more tuples.
+   */
+  public static Attribute<Integer> BUFFER_SERVER_FRAME_MILLIS = new Attribute<>(5);
+  /**
+   * Size in bytes of the memory mapped ring through which the buffer server hands tuples to each subscriber in a
+   * container on the same host, the connection then only carries the notifications of new data. Zero, the default,
+   * sends all tuples over the connection.
+   */
+  public static Attribute<Integer> BUFFER_SERVER_SHARED_MEMORY_SIZE = new Attribute<>(0);
+  /**
+   * Minimum number of milliseconds between the latency markers which input operators inject into their output streams
+   * while they emit tuples. Every operator downstream records how long the markers took from the upstream operator and
+   * from the input operator. Zero, the default, injects no markers.
+   */
+  public static Attribute<Integer> LATENCY_MARKER_INTERVAL_MILLIS = new Attribute<>(0);
+  /**
+   * Whether the application master records the checkpoints of the operators in a catalog in the application directory.
+   * After a restart, the application master then reads the catalog once instead of listing the checkpoints of every
+   * operator through the storage agent, which it only does for the operators missing from the catalog.
+   */
+  public static Attribute<Boolean> CHECKPOINT_CATALOG = new Attribute<>(false);
+  /**
+   * Number of checkpoints the application master deletes per second once they are no longer needed, zero for no limit.
+   * Checkpoints beyond the limit remain in the backlog of the checkpoint garbage collector and are deleted later.
+   */
+  public static Attribute<Integer> CHECKPOINT_DELETES_PER_SECOND = new Attribute<>(0);
+  /**
+   * Whether the physical plan deploys linear chains of operators in a single thread. A stream without locality is
+   * deployed {@link Locality#THREAD_LOCAL} when it connects an operator with a single output stream to the only sink of
+   * that stream, the sink operator has no other input stream, and both operators are not partitioned or the sink
+   * operator is partitioned parallel to the source operator. Tuples then pass directly from one operator to the next
+   * while the operators keep reporting their stats separately. The declared locality of the stream stays unset, a
+   * stream which no longer qualifies after a change of the DAG is deployed without locality again.
+   */
+  public static Attribute<Boolean> OPERATOR_FUSION = new Attribute<>(false);
+  /**
+   * Whether the application master prefers the node which hosts the operators a container exchanges the most bytes with
+   * when it requests containers during a redeploy. Without it, the co-location of heavily communicating operators is
+   * only proposed in the log.
+   */
+  public static Attribute<Boolean> TRAFFIC_AWARE_PLACEMENT = new Attribute<>(false);
+  /**
+   * Whether the local cluster passes the tuples between containers in memory instead of through a buffer server.
+   * Windows, checkpoints and partitions behave the same, but tuples are passed by reference unless
+   * {@link #IN_PROCESS_STREAM_SERIALIZATION} is set.
+   */
+  public static Attribute<Boolean> IN_PROCESS_STREAMS = new Attribute<>(false);
+  /**
+   * Whether the in-process streams of the local cluster serialize and deserialize every data tuple with the stream
+   * codec, to validate the codecs of the application.
+   */
+  public static Attribute<Boolean> IN_PROCESS_STREAM_SERIALIZATION = new Attribute<>(false);
+  /**
+   * Whether the tuple recordings are written in length prefixed binary records instead of text lines.
+   */
+  public static Attribute<Boolean> TUPLE_RECORDING_BINARY = new Attribute<>(false);
+  /**
+   * Number of recorded data tuples which can wait to be written before the tuple recorder drops further tuples.
+   */
+  public static Attribute<Integer> TUPLE_RECORDING_QUEUE_CAPACITY = new Attribute<>(4096);
+  /**
+   * Only every n-th data tuple of a recorded port is recorded.
+   */
+  public static Attribute<Integer> TUPLE_RECORDING_SAMPLE_RATE = new Attribute<>(1);
+  /**
+   * Number of data tuples recorded per second beyond which the tuple recorder drops tuples, zero for no limit.
+   */
+  public static Attribute<Integer> TUPLE_RECORDING_MAX_TUPLES_PER_SECOND = new Attribute<>(0);
   public static Attribute<Long> HDFS_TOKEN_LIFE_TIME = new Attribute<>(604800000L);
   public static Attribute<Long> RM_TOKEN_LIFE_TIME = new Attribute<>(YarnConfiguration.DELEGATION_TOKEN_MAX_LIFETIME_DEFAULT);
   public static Attribute<String> PRINCIPAL = new Attribute<String>(null, new StringCodec.String2String());
@@ -826,6 +926,11 @@ public class LogicalPlan implements Serializable, DAG
     private transient Integer nindex; // for cycle detection
     private transient Integer lowlink; // for cycle detection
     private transient GenericOperator operator;
+    /*
+     * The serialized operator when the meta was deserialized, the operator is deserialized from it on first access.
+     */
+    private transient byte[] serializedOperator;
+    private transient ClassLoader operatorClassLoader;
     private MetricAggregatorMeta metricAggregatorMeta;
     private String moduleName;  // Name of the module which has this operator. null if this is a top level operator.
 
@@ -883,19 +988,98 @@ public class LogicalPlan implements Serializable, DAG
       return status;
     }
 
+    /**
+     * The operator is written as a separate, length prefixed section following the meta fields, marked with
+     * {@link #OPERATOR_SECTION_MAGIC}. An operator that was not accessed since the meta was deserialized is written from
+     * its serialized form without a round trip.
+     */
     private void writeObject(ObjectOutputStream out) throws IOException
     {
       //getValue2(OperatorContext.STORAGE_AGENT).save(operator, id, Checkpoint.STATELESS_CHECKPOINT_WINDOW_ID);
       out.defaultWriteObject();
-      FSStorageAgent.store(out, operator);
+      byte[] section;
+      synchronized (this) {
+        section = serializedOperator;
+      }
+      if (section == null) {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        FSStorageAgent.store(bos, operator);
+        section = bos.toByteArray();
+      }
+      out.writeInt(OPERATOR_SECTION_MAGIC);
+      out.writeInt(OPERATOR_SECTION_VERSION);
+      out.writeInt(section.length);
+      out.write(section);
     }
 
+    /**
+     * Reads the operator section, or the operator written inline by earlier versions, which is deserialized right away.
+     */
     private void readObject(ObjectInputStream input) throws IOException, ClassNotFoundException
     {
       input.defaultReadObject();
-      // TODO: not working because - we don't have the storage agent in parent attribuet map
-      //operator = (Operator)getValue2(OperatorContext.STORAGE_AGENT).load(id, Checkpoint.STATELESS_CHECKPOINT_WINDOW_ID);
-      operator = (GenericOperator)FSStorageAgent.retrieve(input);
+      byte[] marker = new byte[4];
+      int length = 0;
+      int b;
+      while (length < marker.length && (b = input.read()) != -1) {
+        marker[length++] = (byte)b;
+      }
+      if (length < marker.length || (((marker[0] & 0xff) << 24) | ((marker[1] & 0xff) << 16) | ((marker[2] & 0xff) << 8)
+          | (marker[3] & 0xff)) != OPERATOR_SECTION_MAGIC) {
+        // TODO: not working because - we don't have the storage agent in parent attribuet map
+        //operator = (Operator)getValue2(OperatorContext.STORAGE_AGENT).load(id, Checkpoint.STATELESS_CHECKPOINT_WINDOW_ID);
+        operator = (GenericOperator)FSStorageAgent.retrieve(
+            new SequenceInputStream(new ByteArrayInputStream(marker, 0, length), input));
+        return;
+      }
+      int version = input.readInt();
+      if (version != OPERATOR_SECTION_VERSION) {
+        throw new InvalidClassException(OperatorMeta.class.getName(), "Unsupported operator section version " + version);
+      }
+      serializedOperator = new byte[input.readInt()];
+      input.readFully(serializedOperator);
+      operatorClassLoader = Thread.currentThread().getContextClassLoader();
+    }
+
+    private synchronized byte[] getSerializedOperator()
+    {
+      return serializedOperator;
+    }
+
+    /**
+     * @return the operator, or null while it was not deserialized yet
+     */
+    private synchronized GenericOperator peekOperator()
+    {
+      return serializedOperator == null ? operator : null;
+    }
+
+    /**
+     * @return the port mapping, or null while the operator was not deserialized yet, none of its ports can be known
+     * to the caller then
+     */
+    private PortMapping peekPortMapping()
+    {
+      return peekOperator() == null ? null : getPortMapping();
+    }
+
+    /**
+     * Deserializes the operator on first access after the meta was deserialized.
+     */
+    private synchronized GenericOperator resolveOperator()
+    {
+      if (serializedOperator != null) {
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        Thread.currentThread().setContextClassLoader(operatorClassLoader);
+        try {
+          operator = (GenericOperator)FSStorageAgent.retrieve(new ByteArrayInputStream(serializedOperator));
+        } finally {
+          Thread.currentThread().setContextClassLoader(classLoader);
+        }
+        serializedOperator = null;
+        operatorClassLoader = null;
+      }
+      return operator;
     }
 
     @Override
@@ -928,14 +1112,15 @@ public class LogicalPlan implements Serializable, DAG
     protected void populateAggregatorMeta()
     {
       AutoMetric.Aggregator aggregator = getValue(OperatorContext.METRICS_AGGREGATOR);
-      if (aggregator == null && operator instanceof AutoMetric.Aggregator) {
+      GenericOperator genericOperator = resolveOperator();
+      if (aggregator == null && genericOperator instanceof AutoMetric.Aggregator) {
         aggregator = new MetricAggregatorMeta.MetricsAggregatorProxy(this);
       }
       if (aggregator == null) {
         MetricsAggregator defAggregator = null;
         Set<String> metricNames = Sets.newHashSet();
 
-        for (Field field : ReflectionUtils.getDeclaredFieldsIncludingInherited(operator.getClass())) {
+        for (Field field : ReflectionUtils.getDeclaredFieldsIncludingInherited(genericOperator.getClass())) {
 
           if (field.isAnnotationPresent(AutoMetric.class)) {
             metricNames.add(field.getName());
@@ -957,7 +1142,7 @@ public class LogicalPlan implements Serializable, DAG
         }
 
         try {
-          for (PropertyDescriptor pd : Introspector.getBeanInfo(operator.getClass()).getPropertyDescriptors()) {
+          for (PropertyDescriptor pd : Introspector.getBeanInfo(genericOperator.getClass()).getPropertyDescriptors()) {
             Method readMethod = pd.getReadMethod();
             if (readMethod != null) {
               AutoMetric rfa = readMethod.getAnnotation(AutoMetric.class);
@@ -1019,7 +1204,7 @@ public class LogicalPlan implements Serializable, DAG
      */
     private void copyAttributesFrom(OperatorMeta operatorMeta)
     {
-      if (operator != operatorMeta.getOperator()) {
+      if (resolveOperator() != operatorMeta.getGenericOperator()) {
         throw new IllegalArgumentException("Operator meta is not for the same operator ");
       }
 
@@ -1151,12 +1336,12 @@ public class LogicalPlan implements Serializable, DAG
     @Override
     public Operator getOperator()
     {
-      return (Operator)operator;
+      return (Operator)resolveOperator();
     }
 
     public GenericOperator getGenericOperator()
     {
-      return operator;
+      return resolveOperator();
     }
 
     public LogicalPlan getDAG()
@@ -1167,7 +1352,8 @@ public class LogicalPlan implements Serializable, DAG
     @Override
     public String toString()
     {
-      return "OperatorMeta{" + "name=" + name + ", operator=" + operator + ", attributes=" + attributes + '}';
+      Object genericOperator = getSerializedOperator() == null ? peekOperator() : "(serialized)";
+      return "OperatorMeta{" + "name=" + name + ", operator=" + genericOperator + ", attributes=" + attributes + '}';
     }
 
     @Override
@@ -1191,7 +1377,14 @@ public class LogicalPlan implements Serializable, DAG
       if (operatorAnnotation != null ? !operatorAnnotation.equals(that.operatorAnnotation) : that.operatorAnnotation != null) {
         return false;
       }
-      return !(operator != null ? !operator.equals(that.operator) : that.operator != null);
+      byte[] section = getSerializedOperator();
+      byte[] thatSection = that.getSerializedOperator();
+      if (section != null && thatSection != null) {
+        // neither operator was deserialized, operators of the same serialized state are equal
+        return Arrays.equals(section, thatSection);
+      }
+      GenericOperator genericOperator = resolveOperator();
+      return !(genericOperator != null ? !genericOperator.equals(that.resolveOperator()) : that.resolveOperator() != null);
     }
 
     @Override
@@ -1202,6 +1395,11 @@ public class LogicalPlan implements Serializable, DAG
 
     @SuppressWarnings("FieldNameHidesFieldInSuperclass")
     private static final long serialVersionUID = 201401091635L;
+    /**
+     * Marks the operator section, the first byte cannot start the Kryo output of an operator written by earlier versions.
+     */
+    private static final int OPERATOR_SECTION_MAGIC = 0xFE4F5053;
+    private static final int OPERATOR_SECTION_VERSION = 1;
   }
 
   @Override
@@ -1221,7 +1419,7 @@ public class LogicalPlan implements Serializable, DAG
   public <T extends Operator> T addOperator(String name, T operator)
   {
     if (operators.containsKey(name)) {
-      if (operators.get(name).operator == operator) {
+      if (operators.get(name).peekOperator() == operator) {
         return operator;
       }
       throw new IllegalArgumentException("duplicate operator id: " + operators.get(name));
@@ -1489,7 +1687,8 @@ public class LogicalPlan implements Serializable, DAG
   private OutputPortMeta assertGetPortMeta(Operator.OutputPort<?> port)
   {
     for (OperatorMeta o : getAllOperators()) {
-      OutputPortMeta opm = o.getPortMapping().outPortMap.get(port);
+      OperatorMeta.PortMapping portMapping = o.peekPortMapping();
+      OutputPortMeta opm = portMapping == null ? null : portMapping.outPortMap.get(port);
       if (opm != null) {
         return opm;
       }
@@ -1500,7 +1699,8 @@ public class LogicalPlan implements Serializable, DAG
   private InputPortMeta assertGetPortMeta(Operator.InputPort<?> port)
   {
     for (OperatorMeta o : getAllOperators()) {
-      InputPortMeta opm = o.getPortMapping().inPortMap.get(port);
+      OperatorMeta.PortMapping portMapping = o.peekPortMapping();
+      InputPortMeta opm = portMapping == null ? null : portMapping.inPortMap.get(port);
       if (opm != null) {
         return opm;
       }
@@ -1562,7 +1762,7 @@ public class LogicalPlan implements Serializable, DAG
   {
     // TODO: cache mapping
     for (OperatorMeta o: getAllOperators()) {
-      if (o.operator == operator) {
+      if (operator != null && o.peekOperator() == operator) {
         return o;
       }
     }
@@ -2087,6 +2287,84 @@ public class LogicalPlan implements Serializable, DAG
     }
   }
 
+  /**
+   * Whether the stream connects a linear chain of operators which can be deployed {@link Locality#THREAD_LOCAL}, see
+   * {@link #OPERATOR_FUSION}. Streams with an explicit locality are not fusible. The physical plan records the fused
+   * streams, the declared locality of the stream is not changed.
+   *
+   * @param sm stream
+   * @return whether the stream can be deployed thread local
+   */
+  public boolean isFusible(StreamMeta sm)
+  {
+    if (sm.getLocality() != null || sm.getSource() == null || sm.getSinks().size() != 1) {
+      return false;
+    }
+    OperatorMeta upstream = sm.getSource().getOperatorMeta();
+    InputPortMeta sink = sm.getSinks().get(0);
+    OperatorMeta downstream = sink.getOperatorWrapper();
+    if (upstream.getOutputStreams().size() != 1 || downstream.getInputStreams().size() != 1
+        || upstream.getOperator() instanceof Operator.DelayOperator
+        || downstream.getOperator() instanceof Operator.DelayOperator
+        || sink.getValue(IS_CONNECTED_TO_DELAY_OPERATOR)) {
+      return false;
+    }
+
+    // every partition of the downstream operator has to find its upstream partition in the same thread
+    if (hasPartitioner(downstream)
+        || !sink.getValue(PortContext.PARTITION_PARALLEL) && isPartitioned(upstream, new HashSet<OperatorMeta>())) {
+      return false;
+    }
+
+    String upstreamHost = upstream.getValue(OperatorContext.LOCALITY_HOST);
+    String downstreamHost = downstream.getValue(OperatorContext.LOCALITY_HOST);
+    if (upstreamHost != null && downstreamHost != null && !upstreamHost.equals(downstreamHost)) {
+      return false;
+    }
+
+    AffinityRulesSet affinityRuleSet = getAttributes().get(DAGContext.AFFINITY_RULES_SET);
+    if (affinityRuleSet != null && affinityRuleSet.getAffinityRules() != null) {
+      for (AffinityRule rule : affinityRuleSet.getAffinityRules()) {
+        if (rule.getType() == AffinityRule.Type.ANTI_AFFINITY && isRuleOperator(rule, upstream) && isRuleOperator(rule, downstream)) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  private static boolean hasPartitioner(OperatorMeta om)
+  {
+    return om.getValue(OperatorContext.PARTITIONER) != null || om.attributes != null
+        && !om.attributes.contains(OperatorContext.PARTITIONER) && Partitioner.class.isAssignableFrom(om.getOperator().getClass());
+  }
+
+  private static boolean isPartitioned(OperatorMeta om, Set<OperatorMeta> visited)
+  {
+    if (!visited.add(om)) {
+      return false;
+    }
+    if (hasPartitioner(om)) {
+      return true;
+    }
+    for (Map.Entry<InputPortMeta, StreamMeta> entry : om.getInputStreams().entrySet()) {
+      StreamMeta sm = entry.getValue();
+      if (entry.getKey().getValue(PortContext.PARTITION_PARALLEL) && sm.getSource() != null
+          && isPartitioned(sm.getSource().getOperatorMeta(), visited)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static boolean isRuleOperator(AffinityRule rule, OperatorMeta om)
+  {
+    if (rule.getOperatorsList() != null) {
+      return rule.getOperatorsList().contains(om.getName());
+    }
+    return rule.getOperatorRegex() != null && Pattern.matches(rule.getOperatorRegex(), om.getName());
+  }
+
   /*
    * Validates OIO constraints for operators with more than one input streams
    * For a node to be OIO,
@@ -2322,13 +2600,18 @@ public class LogicalPlan implements Serializable, DAG
 
   public static void write(DAG dag, OutputStream os) throws IOException
   {
-    ObjectOutputStream oos = new ObjectOutputStream(os);
+    ObjectOutputStream oos = new ObjectOutputStream(new BufferedOutputStream(os));
     oos.writeObject(dag);
+    oos.flush();
   }
 
+  /**
+   * Reads a plan written with {@link #write(DAG, OutputStream)}. The operators are deserialized on first access
+   * through their {@link OperatorMeta}.
+   */
   public static LogicalPlan read(InputStream is) throws IOException, ClassNotFoundException
   {
-    return (LogicalPlan)new ClassLoaderObjectInputStream(Thread.currentThread().getContextClassLoader(), is).readObject();
+    return (LogicalPlan)new ClassLoaderObjectInputStream(Thread.currentThread().getContextClassLoader(), new BufferedInputStream(is)).readObject();
   }
 
 
@@ -36,6 +36,7 @@ import com.datatorrent.stram.plan.logical.LogicalPlan;
 import com.datatorrent.stram.plan.physical.StatsRevisions.VersionedLong;
 import com.datatorrent.stram.util.MovingAverage.MovingAverageLong;
 import com.datatorrent.stram.util.MovingAverage.TimedMovingAverageLong;
+import com.datatorrent.stram.util.MovingAverage.TimedMovingHistogram;
 
 /**
  * <p>OperatorStatus class.</p>
@@ -51,15 +52,31 @@ public class OperatorStatus implements BatchedOperatorStats, java.io.Serializabl
     public String portName;
     public long totalTuples;
     public String recordingId;
+    public long recordingDroppedTuples;
+    public long recordingSkippedTuples;
     public final TimedMovingAverageLong tuplesPMSMA;
     public final TimedMovingAverageLong bufferServerBytesPMSMA;
     public final MovingAverageLong queueSizeMA;
+    /**
+     * milliseconds the latency markers took from the upstream operator to the input port, over the recent throughput
+     * calculation intervals.
+     */
+    public final TimedMovingHistogram queueLatency;
+    /**
+     * most frequent partition hashes of the output port with their tuple counts, from the latest report.
+     */
+    public volatile Map<Integer, Long> hotKeys;
+    /**
+     * tuples published per lowest bits of the partition hash, from the latest report.
+     */
+    public volatile long[] partitionHashCounts;
 
     public PortStatus()
     {
       tuplesPMSMA = new TimedMovingAverageLong(throughputCalculationMaxSamples, throughputCalculationInterval);
       bufferServerBytesPMSMA = new TimedMovingAverageLong(throughputCalculationMaxSamples, throughputCalculationInterval);
       queueSizeMA = new MovingAverageLong(10);
+      queueLatency = new TimedMovingHistogram(throughputCalculationInterval);
     }
   }
 
@@ -72,10 +89,22 @@ public class OperatorStatus implements BatchedOperatorStats, java.io.Serializabl
   public final VersionedLong tuplesProcessedPSMA = statsRevs.newVersionedLong();
   public final VersionedLong tuplesEmittedPSMA = statsRevs.newVersionedLong();
   public String recordingId;
+  public long recordingDroppedTuples;
+  public long recordingSkippedTuples;
   public Stats.CheckpointStats checkpointStats;
   public final MovingAverageLong checkpointTimeMA;
   public final TimedMovingAverageLong cpuNanosPMSMA;
   public final MovingAverageLong latencyMA;
+  /**
+   * milliseconds the latency markers took from the input operators to the operator, keyed by input operator id, over
+   * the recent throughput calculation intervals.
+   */
+  public final Map<Integer, TimedMovingHistogram> pathLatencies = new ConcurrentHashMap<>();
+  /**
+   * nanoseconds taken by the operator and bytes allocated per window when it is profiled, keyed by measure, over the
+   * recent throughput calculation intervals.
+   */
+  public final Map<String, TimedMovingHistogram> profile = new ConcurrentHashMap<>();
   public final Map<String, PortStatus> inputPortStatusList = new ConcurrentHashMap<>();
   public final Map<String, PortStatus> outputPortStatusList = new ConcurrentHashMap<>();
   public List<OperatorStats> lastWindowedStats = Collections.emptyList();
@@ -106,6 +135,23 @@ public class OperatorStatus implements BatchedOperatorStats, java.io.Serializabl
       * om.getValue(OperatorContext.TIMEOUT_WINDOW_COUNT);
   }
 
+  /**
+   * Adds the values reported for the key to its moving histogram, creating it on first use.
+   *
+   * @param histograms {@link #pathLatencies} or {@link #profile}
+   * @param key key of the histogram
+   * @param values values reported
+   * @param time time of the report
+   */
+  public <K> void addHistogram(Map<K, TimedMovingHistogram> histograms, K key, Stats.Histogram values, long time)
+  {
+    TimedMovingHistogram histogram = histograms.get(key);
+    if (histogram == null) {
+      histograms.put(key, histogram = new TimedMovingHistogram(throughputCalculationInterval));
+    }
+    histogram.add(values, time);
+  }
+
   public boolean isIdle()
   {
     if (lastHeartbeat != null && DeployState.SHUTDOWN == lastHeartbeat.getState()) {
@@ -171,7 +171,7 @@ public class PTOperator implements java.io.Serializable
     public Set<PTOperator> threadLocalSinks()
     {
       Set<PTOperator> threadLocalOperators = null;
-      if (logicalStream != null && logicalStream.getLocality() == Locality.THREAD_LOCAL) {
+      if (logicalStream != null && source.plan.getLocality(logicalStream) == Locality.THREAD_LOCAL) {
         threadLocalOperators = new HashSet<>();
         for (PTInput sink : this.sinks) {
           threadLocalOperators.add(sink.target);
@@ -380,7 +380,7 @@ public class PTOperator implements java.io.Serializable
   {
     Set<PTOperator> threadLocalOperators = null;
     for (int i = 0; i < outputs.size(); i++) {
-      if (outputs.get(i).logicalStream != null && outputs.get(i).logicalStream.getLocality() == Locality.THREAD_LOCAL) {
+      if (outputs.get(i).logicalStream != null && plan.getLocality(outputs.get(i).logicalStream) == Locality.THREAD_LOCAL) {
         if (threadLocalOperators == null) {
           threadLocalOperators = new HashSet<>();
         }
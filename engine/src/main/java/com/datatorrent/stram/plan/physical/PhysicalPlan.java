@@ -69,6 +69,7 @@ import com.datatorrent.api.StorageAgent;
 import com.datatorrent.api.StreamCodec;
 import com.datatorrent.api.annotation.Stateless;
 import com.datatorrent.common.util.AsyncFSStorageAgent;
+import com.datatorrent.stram.CheckpointCatalog;
 import com.datatorrent.stram.Journal.Recoverable;
 import com.datatorrent.stram.api.Checkpoint;
 import com.datatorrent.stram.api.StramEvent;
@@ -134,9 +135,23 @@ public class PhysicalPlan implements Serializable
   final Set<PTOperator> undeployOpers = Sets.newHashSet();
   final ConcurrentMap<Integer, PTOperator> allOperators = Maps.newConcurrentMap();
   private final ConcurrentMap<OperatorMeta, OperatorMeta> pendingRepartition = Maps.newConcurrentMap();
+  /**
+   * repartitions requested by the partitioners of the application and not completed yet, see
+   * {@link Partitioner.CoordinatedPartitioningContext}
+   */
+  private final AtomicInteger inFlightRepartitions = new AtomicInteger();
+  /**
+   * removed operators whose state files may still be read by the operators which took over their state, with the
+   * window after which the files are no longer needed
+   */
+  private final Map<PTOperator, Long> removedStateFiles = Maps.newHashMap();
 
   private final AtomicInteger strCodecIdSequence = new AtomicInteger();
   private final Map<StreamCodec<?>, Integer> streamCodecIdentifiers = Maps.newHashMap();
+  /**
+   * streams deployed thread local by {@link LogicalPlan#OPERATOR_FUSION}, their declared locality is left unchanged.
+   */
+  private final Set<StreamMeta> fusedStreams = Sets.newHashSet();
 
   private PTContainer getContainer(int index)
   {
@@ -345,6 +360,17 @@ public class PhysicalPlan implements Serializable
 
     Stack<OperatorMeta> pendingNodes = new Stack<>();
 
+    if (dag.getValue(LogicalPlan.OPERATOR_FUSION)) {
+      for (StreamMeta sm : dag.getAllStreams()) {
+        if (dag.isFusible(sm)) {
+          fusedStreams.add(sm);
+        }
+      }
+      if (!fusedStreams.isEmpty()) {
+        LOG.info("Deploying streams {} thread local", fusedStreams);
+      }
+    }
+
     // Add logging operators for streams if not added already
     updatePersistOperatorStreamCodec(dag);
 
@@ -706,7 +732,7 @@ public class PhysicalPlan implements Serializable
     return vCores;
   }
 
-  private class PartitioningContextImpl implements Partitioner.PartitioningContext
+  private class PartitioningContextImpl implements Partitioner.CoordinatedPartitioningContext
   {
     private List<InputPort<?>> inputPorts;
     private final int parallelPartitionCount;
@@ -732,6 +758,12 @@ public class PhysicalPlan implements Serializable
       }
       return inputPorts;
     }
+
+    @Override
+    public AtomicInteger getInFlightRepartitions()
+    {
+      return inFlightRepartitions;
+    }
   }
 
   private void initPartitioning(PMapping m, int partitionCnt)
@@ -869,13 +901,15 @@ public class PhysicalPlan implements Serializable
 
     int memoryPerPartition = currentMapping.logicalOperator.getValue(OperatorContext.MEMORY_MB);
     for (Map.Entry<OutputPortMeta, StreamMeta> stream : currentMapping.logicalOperator.getOutputStreams().entrySet()) {
-      if (stream.getValue().getLocality() != Locality.THREAD_LOCAL && stream.getValue().getLocality() != Locality.CONTAINER_LOCAL) {
+      Locality locality = getLocality(stream.getValue());
+      if (locality != Locality.THREAD_LOCAL && locality != Locality.CONTAINER_LOCAL) {
         memoryPerPartition += stream.getKey().getValue(PortContext.BUFFER_MEMORY_MB);
       }
     }
     for (OperatorMeta pp : currentMapping.parallelPartitions) {
       for (Map.Entry<OutputPortMeta, StreamMeta> stream : pp.getOutputStreams().entrySet()) {
-        if (stream.getValue().getLocality() != Locality.THREAD_LOCAL && stream.getValue().getLocality() != Locality.CONTAINER_LOCAL) {
+        Locality locality = getLocality(stream.getValue());
+        if (locality != Locality.THREAD_LOCAL && locality != Locality.CONTAINER_LOCAL) {
           memoryPerPartition += stream.getKey().getValue(PortContext.BUFFER_MEMORY_MB);
         }
       }
@@ -1478,8 +1512,13 @@ public class PhysicalPlan implements Serializable
     // remove checkpoint states
     try {
       synchronized (oper.checkpoints) {
+        StorageAgent agent = oper.operatorMeta.getValue(OperatorContext.STORAGE_AGENT);
+        if (agent instanceof StorageAgent.StateFileStorageAgent) {
+          Checkpoint checkpoint = oper.checkpoints.isEmpty() ? oper.getRecoveryCheckpoint() : oper.checkpoints.getLast();
+          removedStateFiles.put(oper, checkpoint == null ? Stateless.WINDOW_ID : checkpoint.windowId);
+        }
         for (Checkpoint checkpoint : oper.checkpoints) {
-          oper.operatorMeta.getValue(OperatorContext.STORAGE_AGENT).delete(oper.id, checkpoint.windowId);
+          agent.delete(oper.id, checkpoint.windowId);
         }
       }
     } catch (IOException e) {
@@ -1495,6 +1534,30 @@ public class PhysicalPlan implements Serializable
     this.ctx.recordEventAsync(new StramEvent.RemoveOperatorEvent(oper.getName(), oper.getId()));
   }
 
+  /**
+   * Deletes the state files of the removed operators once a checkpoint taken after their removal is committed. The
+   * operators which took over their state have then stored it under their own ids.
+   *
+   * @param committedWindowId
+   */
+  public void deleteStateFiles(long committedWindowId)
+  {
+    Iterator<Map.Entry<PTOperator, Long>> it = removedStateFiles.entrySet().iterator();
+    while (it.hasNext()) {
+      Map.Entry<PTOperator, Long> entry = it.next();
+      if (committedWindowId > entry.getValue()) {
+        PTOperator oper = entry.getKey();
+        try {
+          ((StorageAgent.StateFileStorageAgent)oper.operatorMeta.getValue(OperatorContext.STORAGE_AGENT))
+              .deleteStateFiles(oper.id);
+        } catch (IOException e) {
+          LOG.warn("Failed to remove state files for " + oper, e);
+        }
+        it.remove();
+      }
+    }
+  }
+
   public PlanContext getContext()
   {
     return ctx;
@@ -1657,9 +1720,10 @@ public class PhysicalPlan implements Serializable
         upstreamPartitioned = m;
       }
 
-      if (Locality.CONTAINER_LOCAL == e.getValue().getLocality() || Locality.THREAD_LOCAL == e.getValue().getLocality()) {
+      Locality locality = getLocality(e.getValue());
+      if (Locality.CONTAINER_LOCAL == locality || Locality.THREAD_LOCAL == locality) {
         inlinePrefs.setLocal(m, pnodes);
-      } else if (Locality.NODE_LOCAL == e.getValue().getLocality()) {
+      } else if (Locality.NODE_LOCAL == locality) {
         localityPrefs.setLocal(m, pnodes);
       }
     }
@@ -1687,6 +1751,7 @@ public class PhysicalPlan implements Serializable
    */
   public void removeLogicalStream(StreamMeta sm)
   {
+    fusedStreams.remove(sm);
     // remove incoming connections for logical stream
     for (InputPortMeta ipm : sm.getSinks()) {
       OperatorMeta om = ipm.getOperatorWrapper();
@@ -1754,6 +1819,45 @@ public class PhysicalPlan implements Serializable
         }
       }
     }
+    unfuseStreams();
+  }
+
+  /**
+   * Returns the locality the stream is deployed with, which is thread local for the streams fused by
+   * {@link LogicalPlan#OPERATOR_FUSION} and the declared locality otherwise.
+   *
+   * @param sm logical stream
+   * @return locality of the physical streams
+   */
+  public Locality getLocality(StreamMeta sm)
+  {
+    return fusedStreams.contains(sm) ? Locality.THREAD_LOCAL : sm.getLocality();
+  }
+
+  /**
+   * Deploys the fused streams which no longer connect a linear chain of operators after a change of the logical plan
+   * with their declared locality again, the operators they connect are redeployed.
+   */
+  private void unfuseStreams()
+  {
+    for (Iterator<StreamMeta> it = fusedStreams.iterator(); it.hasNext();) {
+      StreamMeta sm = it.next();
+      if (dag.isFusible(sm)) {
+        continue;
+      }
+      it.remove();
+      LOG.info("Deploying stream {} with locality {}", sm, sm.getLocality());
+      List<PTOperator> opers = new ArrayList<>(getOperators(sm.getSource().getOperatorMeta()));
+      for (InputPortMeta ipm : sm.getSinks()) {
+        PMapping m = logicalToPTOperator.get(ipm.getOperatorWrapper());
+        if (m != null) {
+          opers.addAll(m.partitions);
+        }
+      }
+      Set<PTOperator> deps = getDependents(opers);
+      undeployOpers.addAll(deps);
+      deployOpers.addAll(deps);
+    }
   }
 
   /**
@@ -1844,16 +1948,25 @@ public class PhysicalPlan implements Serializable
   }
 
   /**
-   * Read available checkpoints from storage agent for all operators.
+   * Restores the checkpoints of the operators from the catalog, or from their storage agents without catalog.
    * @param startTime
    * @param currentTime
+   * @param catalog checkpoint catalog, null to read the checkpoints from the storage agents
    * @throws IOException
    */
-  public void syncCheckpoints(long startTime, long currentTime) throws IOException
+  public void syncCheckpoints(long startTime, long currentTime, CheckpointCatalog catalog) throws IOException
   {
     for (PTOperator oper : getAllOperators().values()) {
       StorageAgent sa = oper.operatorMeta.getValue(OperatorContext.STORAGE_AGENT);
-      long[] windowIds = sa.getWindowIds(oper.getId());
+      long[] windowIds;
+      if (catalog == null) {
+        windowIds = sa.getWindowIds(oper.getId());
+      } else if (oper.isOperatorStateLess()) {
+        // stateless operators only have the initial checkpoint, which is skipped anyway
+        windowIds = new long[0];
+      } else {
+        windowIds = catalog.getWindowIds(oper.getId(), sa);
+      }
       Arrays.sort(windowIds);
       oper.checkpoints.clear();
       for (long wid : windowIds) {
@@ -0,0 +1,243 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.stram.plan.physical;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.lang.builder.ToStringBuilder;
+import org.apache.commons.lang.builder.ToStringStyle;
+
+import com.datatorrent.api.DAG.Locality;
+import com.datatorrent.stram.plan.physical.OperatorStatus.PortStatus;
+import com.datatorrent.stram.plan.physical.PTOperator.PTInput;
+
+/**
+ * <p>PlacementOptimizer class.</p>
+ *
+ * Derives the traffic between operators deployed to different containers from the bytes their input ports read from
+ * the buffer server. The heaviest communicating operators are proposed to share a container when both containers fit
+ * into the largest container of the cluster, or else a node. When containers are requested during a redeploy, the node
+ * hosting the operators a container exchanges the most bytes with is preferred. The traffic and the preferred nodes
+ * are derived once per redeploy by {@link #update()}, before the containers are requested.
+ *
+ * @since 3.5.0
+ */
+public class PlacementOptimizer
+{
+  private final PhysicalPlan plan;
+  private long minBytesPerSecond = 1024 * 1024;
+  private Map<PTOperator, Map<PTOperator, Long>> traffic = Collections.emptyMap();
+  private Map<PTContainer, String> preferredHosts = Collections.emptyMap();
+
+  public PlacementOptimizer(PhysicalPlan plan)
+  {
+    this.plan = plan;
+  }
+
+  public long getMinBytesPerSecond()
+  {
+    return minBytesPerSecond;
+  }
+
+  /**
+   * Traffic below this rate is not considered for placement.
+   *
+   * @param minBytesPerSecond
+   */
+  public void setMinBytesPerSecond(long minBytesPerSecond)
+  {
+    this.minBytesPerSecond = minBytesPerSecond;
+  }
+
+  /**
+   * Co-location of two operators which exchange tuples through the buffer server.
+   */
+  public static class Proposal
+  {
+    public final PTOperator upstream;
+    public final PTOperator downstream;
+    public final long bytesPerSecond;
+    /**
+     * {@link Locality#CONTAINER_LOCAL} to share a container, {@link Locality#NODE_LOCAL} to share a node.
+     */
+    public final Locality locality;
+
+    Proposal(PTOperator upstream, PTOperator downstream, long bytesPerSecond, Locality locality)
+    {
+      this.upstream = upstream;
+      this.downstream = downstream;
+      this.bytesPerSecond = bytesPerSecond;
+      this.locality = locality;
+    }
+
+    @Override
+    public String toString()
+    {
+      return new ToStringBuilder(this, ToStringStyle.SHORT_PREFIX_STYLE).append("upstream", upstream)
+          .append("downstream", downstream).append("bytesPerSecond", bytesPerSecond).append("locality", locality)
+          .toString();
+    }
+  }
+
+  /**
+   * Returns the byte rates between the operators in different containers, keyed by downstream and upstream operator.
+   */
+  Map<PTOperator, Map<PTOperator, Long>> getTraffic()
+  {
+    Map<PTOperator, Map<PTOperator, Long>> traffic = new HashMap<>();
+    for (PTOperator oper : plan.getAllOperators().values()) {
+      if (oper.getContainer() == null) {
+        continue;
+      }
+      for (PortStatus ps : oper.stats.inputPortStatusList.values()) {
+        long bytesPerSecond = Math.round(ps.bufferServerBytesPMSMA.getAvg() * 1000);
+        if (bytesPerSecond <= 0) {
+          continue;
+        }
+        // the buffer server bytes of a port are only reported in total, split them evenly over its sources
+        Set<PTOperator> sources = new HashSet<>();
+        for (PTInput input : oper.getInputs()) {
+          if (input.portName.equals(ps.portName) && input.source.source.getContainer() != null
+              && input.source.source.getContainer() != oper.getContainer()) {
+            sources.add(input.source.source);
+          }
+        }
+        for (PTOperator source : sources) {
+          Map<PTOperator, Long> upstreamTraffic = traffic.get(oper);
+          if (upstreamTraffic == null) {
+            traffic.put(oper, upstreamTraffic = new HashMap<>());
+          }
+          Long bytes = upstreamTraffic.get(source);
+          upstreamTraffic.put(source, (bytes == null ? 0 : bytes) + bytesPerSecond / sources.size());
+        }
+      }
+    }
+    return traffic;
+  }
+
+  /**
+   * Derives the traffic between the operators and the preferred host of each container from the current stats.
+   */
+  public void update()
+  {
+    traffic = getTraffic();
+
+    // bytes per second each container exchanges with the hosts of its peers
+    Map<PTContainer, Map<String, Long>> hostTraffic = new HashMap<>();
+    for (Map.Entry<PTOperator, Map<PTOperator, Long>> entry : traffic.entrySet()) {
+      PTContainer downstreamContainer = entry.getKey().getContainer();
+      for (Map.Entry<PTOperator, Long> upstreamEntry : entry.getValue().entrySet()) {
+        PTContainer upstreamContainer = upstreamEntry.getKey().getContainer();
+        addHostTraffic(hostTraffic, downstreamContainer, upstreamContainer.host, upstreamEntry.getValue());
+        addHostTraffic(hostTraffic, upstreamContainer, downstreamContainer.host, upstreamEntry.getValue());
+      }
+    }
+
+    preferredHosts = new HashMap<>();
+    for (Map.Entry<PTContainer, Map<String, Long>> containerEntry : hostTraffic.entrySet()) {
+      String preferredHost = null;
+      long maxBytesPerSecond = minBytesPerSecond - 1;
+      for (Map.Entry<String, Long> entry : containerEntry.getValue().entrySet()) {
+        if (entry.getValue() > maxBytesPerSecond) {
+          preferredHost = entry.getKey();
+          maxBytesPerSecond = entry.getValue();
+        }
+      }
+      if (preferredHost != null) {
+        preferredHosts.put(containerEntry.getKey(), preferredHost);
+      }
+    }
+  }
+
+  private static void addHostTraffic(Map<PTContainer, Map<String, Long>> hostTraffic, PTContainer container,
+      String peerHost, long bytesPerSecond)
+  {
+    if (peerHost == null) {
+      return;
+    }
+    Map<String, Long> containerTraffic = hostTraffic.get(container);
+    if (containerTraffic == null) {
+      hostTraffic.put(container, containerTraffic = new HashMap<>());
+    }
+    Long bytes = containerTraffic.get(peerHost);
+    containerTraffic.put(peerHost, (bytes == null ? 0 : bytes) + bytesPerSecond);
+  }
+
+  /**
+   * Proposes co-locating the operators which exchange at least {@link #getMinBytesPerSecond()} through the buffer
+   * server as of the last {@link #update()}, heaviest traffic first.
+   *
+   * @param maxMemoryMB memory of the largest container of the cluster
+   * @param maxVCores vcores of the largest container of the cluster
+   * @return proposals
+   */
+  public List<Proposal> getProposals(int maxMemoryMB, int maxVCores)
+  {
+    List<Proposal> proposals = new ArrayList<>();
+    for (Map.Entry<PTOperator, Map<PTOperator, Long>> entry : traffic.entrySet()) {
+      PTOperator downstream = entry.getKey();
+      for (Map.Entry<PTOperator, Long> upstreamEntry : entry.getValue().entrySet()) {
+        if (upstreamEntry.getValue() < minBytesPerSecond) {
+          continue;
+        }
+        PTContainer upstreamContainer = upstreamEntry.getKey().getContainer();
+        PTContainer downstreamContainer = downstream.getContainer();
+        Locality locality;
+        if (upstreamContainer.getRequiredMemoryMB() + downstreamContainer.getRequiredMemoryMB() <= maxMemoryMB
+            && upstreamContainer.getRequiredVCores() + downstreamContainer.getRequiredVCores() <= maxVCores) {
+          locality = Locality.CONTAINER_LOCAL;
+        } else if (upstreamContainer.host == null || !upstreamContainer.host.equals(downstreamContainer.host)) {
+          locality = Locality.NODE_LOCAL;
+        } else {
+          continue;
+        }
+        proposals.add(new Proposal(upstreamEntry.getKey(), downstream, upstreamEntry.getValue(), locality));
+      }
+    }
+    Collections.sort(proposals, new Comparator<Proposal>()
+    {
+      @Override
+      public int compare(Proposal p1, Proposal p2)
+      {
+        return Long.compare(p2.bytesPerSecond, p1.bytesPerSecond);
+      }
+    });
+    return proposals;
+  }
+
+  /**
+   * Returns the host of the containers which the operators of the given container exchanged the most bytes with as of
+   * the last {@link #update()}, or null when the traffic is below {@link #getMinBytesPerSecond()}.
+   *
+   * @param container container to be requested
+   * @return preferred host
+   */
+  public String getPreferredHost(PTContainer container)
+  {
+    return preferredHosts.get(container);
+  }
+
+}
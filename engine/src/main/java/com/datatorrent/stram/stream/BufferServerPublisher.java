@@ -19,23 +19,30 @@
 package com.datatorrent.stram.stream;
 
 import java.net.InetSocketAddress;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.datatorrent.api.Stats.OperatorStats.PortStats;
 import com.datatorrent.api.StreamCodec;
 import com.datatorrent.bufferserver.client.Publisher;
 import com.datatorrent.bufferserver.packet.BeginWindowTuple;
 import com.datatorrent.bufferserver.packet.DataTuple;
 import com.datatorrent.bufferserver.packet.EndStreamTuple;
 import com.datatorrent.bufferserver.packet.EndWindowTuple;
+import com.datatorrent.bufferserver.packet.LatencyMarkerTuple;
 import com.datatorrent.bufferserver.packet.MessageType;
+import com.datatorrent.bufferserver.packet.PayloadFrameTuple;
 import com.datatorrent.bufferserver.packet.PayloadTuple;
 import com.datatorrent.bufferserver.packet.ResetWindowTuple;
 import com.datatorrent.bufferserver.packet.WindowIdTuple;
 import com.datatorrent.bufferserver.util.Codec;
 import com.datatorrent.netlet.EventLoop;
+import com.datatorrent.netlet.util.Slice;
 import com.datatorrent.stram.codec.StatefulStreamCodec;
 import com.datatorrent.stram.codec.StatefulStreamCodec.DataStatePair;
 import com.datatorrent.stram.engine.ByteCounterStream;
@@ -61,6 +68,29 @@ public class BufferServerPublisher extends Publisher implements ByteCounterStrea
   private EventLoop eventloop;
   private int count;
   private StatefulStreamCodec<Object> statefulSerde;
+  private PayloadFrameTuple.Builder frame;
+  private int frameBytes;
+  private long frameMillis;
+  private long frameStartMillis;
+  /**
+   * sends a frame whose first payload waited for frameMillis when no further payload arrives to send it.
+   */
+  private ScheduledExecutorService frameFlusher;
+  /**
+   * guards the frame and the writes to the connection while frames are sent by the frame flusher as well.
+   */
+  private final ReentrantLock frameLock = new ReentrantLock();
+  private boolean frameFlushScheduled;
+  private final Runnable frameFlush = new Runnable()
+  {
+    @Override
+    public void run()
+    {
+      flushExpiredFrame();
+    }
+
+  };
+  private HotKeyTracker hotKeys;
 
   public BufferServerPublisher(String sourceId, int queueCapacity)
   {
@@ -68,18 +98,75 @@ public class BufferServerPublisher extends Publisher implements ByteCounterStrea
     this.publishedByteCount = new AtomicLong(0);
   }
 
+  /**
+   * Coalesces consecutive payloads of a partition into frames of up to the given number of bytes. A frame is sent once
+   * it is full, once its first payload waited for the given number of milliseconds, or before any control tuple.
+   *
+   * @param frameBytes maximum size of a frame, zero sends every payload on its own
+   * @param frameMillis maximum time a payload waits in a frame for more payloads
+   * @param frameFlusher executor which sends a frame once its first payload waited for frameMillis while no further
+   * payload arrived, or null to only send it with the next tuple
+   */
+  public void setFrameBudget(int frameBytes, long frameMillis, ScheduledExecutorService frameFlusher)
+  {
+    this.frameBytes = frameBytes;
+    this.frameMillis = frameMillis;
+    this.frameFlusher = frameFlusher;
+    frame = frameBytes > 0 ? new PayloadFrameTuple.Builder(frameBytes) : null;
+  }
+
+  /**
+   * Tracks the most frequent partition hashes and, with a fanout greater than one, spreads the tuples of a hash which
+   * took more than 1/fanout of the tuples of the previous window over fanout consecutive partition hashes.
+   *
+   * @param hotKeyCount number of most frequent partition hashes to report, zero disables the tracking
+   * @param fanout number of partition hashes to spread a hot hash over
+   */
+  public void setHotKeys(int hotKeyCount, int fanout)
+  {
+    hotKeys = hotKeyCount > 0 ? new HotKeyTracker(hotKeyCount, fanout) : null;
+  }
+
+  /**
+   * Adds the partition hashes counted since the previous call to the stats of the output port.
+   *
+   * @param portStats stats of the output port
+   */
+  public void reportHotKeys(PortStats portStats)
+  {
+    if (hotKeys != null) {
+      hotKeys.report(portStats);
+    }
+  }
+
   /**
    *
    * @param payload
    */
   @Override
-  @SuppressWarnings("SleepWhileInLoop")
   public void put(Object payload)
+  {
+    if (frame == null) {
+      publish(payload);
+      return;
+    }
+
+    frameLock.lock();
+    try {
+      publish(payload);
+    } finally {
+      frameLock.unlock();
+    }
+  }
+
+  @SuppressWarnings("SleepWhileInLoop")
+  private void publish(Object payload)
   {
     count++;
     byte[] array;
     if (payload instanceof Tuple) {
       final Tuple t = (Tuple)payload;
+      flushFrame();
 
       switch (t.getType()) {
         case CHECKPOINT:
@@ -95,6 +182,9 @@ public class BufferServerPublisher extends Publisher implements ByteCounterStrea
           break;
 
         case END_WINDOW:
+          if (hotKeys != null) {
+            hotKeys.endWindow();
+          }
           array = EndWindowTuple.getSerializedTuple((int)t.getWindowId());
           break;
 
@@ -107,18 +197,28 @@ public class BufferServerPublisher extends Publisher implements ByteCounterStrea
           array = ResetWindowTuple.getSerializedTuple(rwt.getBaseSeconds(), rwt.getIntervalMillis());
           break;
 
+        case LATENCY_MARKER:
+          com.datatorrent.stram.tuple.LatencyMarkerTuple lmt = (com.datatorrent.stram.tuple.LatencyMarkerTuple)t;
+          array = LatencyMarkerTuple.getSerializedTuple((int)lmt.getWindowId(), lmt.sourceId, lmt.originTimestamp,
+              lmt.forwardTimestamp);
+          break;
+
         default:
           throw new UnsupportedOperationException("this data type is not handled in the stream");
       }
     } else {
+      int partition;
+      final Slice data;
       if (statefulSerde == null) {
-        array = PayloadTuple.getSerializedTuple(serde.getPartition(payload), serde.toByteArray(payload));
+        partition = serde.getPartition(payload);
+        data = serde.toByteArray(payload);
       } else {
         DataStatePair dsp = statefulSerde.toDataStatePair(payload);
         /*
          * if there is any state write that for the subscriber before we write the data.
          */
         if (dsp.state != null) {
+          flushFrame();
           array = DataTuple.getSerializedTuple(MessageType.CODEC_STATE_VALUE, dsp.state);
           try {
             while (!write(array)) {
@@ -131,10 +231,77 @@ public class BufferServerPublisher extends Publisher implements ByteCounterStrea
         /*
          * Now that the state if any has been sent, we can proceed with the actual data we want to send.
          */
-        array = PayloadTuple.getSerializedTuple(statefulSerde.getPartition(payload), dsp.data);
+        partition = statefulSerde.getPartition(payload);
+        data = dsp.data;
+      }
+      if (hotKeys != null) {
+        partition = hotKeys.add(partition);
+      }
+
+      if (frame != null) {
+        addToFrame(partition, data);
+        return;
+      }
+      array = PayloadTuple.getSerializedTuple(partition, data);
+    }
+
+    writeFully(array);
+  }
+
+  private void addToFrame(int partition, Slice data)
+  {
+    if (!frame.isEmpty() && (frame.getPartition() != partition || frame.getSize() + data.length + 5 > frameBytes)) {
+      flushFrame();
+    }
+
+    final long now = System.currentTimeMillis();
+    if (frame.isEmpty()) {
+      frameStartMillis = now;
+    }
+    frame.add(partition, data);
+    if (frame.getSize() >= frameBytes || now - frameStartMillis >= frameMillis) {
+      flushFrame();
+    } else if (frameFlusher != null && !frameFlushScheduled) {
+      frameFlushScheduled = true;
+      frameFlusher.schedule(frameFlush, frameMillis, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  /**
+   * Sends the frame if its first payload waited for frameMillis, otherwise checks again once it will have. The check
+   * is only scheduled while a frame is being filled, so an idle publisher does not wake up the flusher.
+   */
+  private void flushExpiredFrame()
+  {
+    if (!frameLock.tryLock()) {
+      /* the operator thread is publishing, which sends the frame if it expired */
+      frameFlusher.schedule(frameFlush, 1, TimeUnit.MILLISECONDS);
+      return;
+    }
+
+    try {
+      final long wait = frameStartMillis + frameMillis - System.currentTimeMillis();
+      if (!frame.isEmpty() && wait > 0) {
+        frameFlusher.schedule(frameFlush, wait, TimeUnit.MILLISECONDS);
+      } else {
+        frameFlushScheduled = false;
+        flushFrame();
       }
+    } finally {
+      frameLock.unlock();
+    }
+  }
+
+  private void flushFrame()
+  {
+    if (frame != null && !frame.isEmpty()) {
+      writeFully(frame.build());
     }
+  }
 
+  @SuppressWarnings("SleepWhileInLoop")
+  private void writeFully(byte[] array)
+  {
     try {
       while (!write(array)) {
         sleep(5);
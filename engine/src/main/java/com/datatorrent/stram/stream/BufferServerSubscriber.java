@@ -30,6 +30,8 @@ import org.slf4j.LoggerFactory;
 import com.datatorrent.api.Sink;
 import com.datatorrent.api.StreamCodec;
 import com.datatorrent.bufferserver.client.Subscriber;
+import com.datatorrent.bufferserver.packet.LatencyMarkerTuple;
+import com.datatorrent.bufferserver.packet.PayloadFrameTuple;
 import com.datatorrent.bufferserver.util.Codec;
 import com.datatorrent.netlet.EventLoop;
 import com.datatorrent.netlet.util.CircularBuffer;
@@ -68,6 +70,11 @@ public class BufferServerSubscriber extends Subscriber implements ByteCounterStr
   CircularBuffer<Slice> freeFragments;
   private final ArrayDeque<CircularBuffer<Slice>> backlog;
   private int lastWindowId = WindowGenerator.MAX_WINDOW_ID;
+  /**
+   * frame whose payloads did not fit in the reservoirs yet, and the fragment holding it.
+   */
+  private PayloadFrameTuple frame;
+  private Slice frameFragment;
   private final AtomicLong readByteCount;
 
   public BufferServerSubscriber(String id, int queueCapacity)
@@ -98,12 +105,23 @@ public class BufferServerSubscriber extends Subscriber implements ByteCounterStr
     eventloop.connect(address.isUnresolved() ? new InetSocketAddress(address.getHostName(), address.getPort()) : address, this);
 
     logger.debug("Registering subscriber: id={} upstreamId={} streamLogicalName={} windowId={} mask={} partitions={} server={}", new Object[] {context.getSinkId(), context.getSourceId(), context.getId(), Codec.getStringWindowId(context.getFinishedWindowId()), context.getPartitionMask(), context.getPartitions(), context.getBufferServerAddress()});
-    activate(null, context.getId() + '/' + context.getSinkId(), context.getSourceId(), context.getPartitionMask(), context.getPartitions(), context.getFinishedWindowId(), freeFragments.capacity());
+    activate(null, context.getId() + '/' + context.getSinkId(), context.getSourceId(), context.getPartitionMask(), context.getPartitions(), context.getFinishedWindowId(), freeFragments.capacity(),
+        context.getValue(StreamContext.BUFFER_SERVER_SHARED_MEMORY));
+  }
+
+  @Override
+  protected void onSharedMemoryRead(int bytes)
+  {
+    readByteCount.addAndGet(bytes);
   }
 
   @Override
   public void onMessage(byte[] buffer, int offset, int length)
   {
+    if (handleSharedMemory(buffer, offset, length)) {
+      return;
+    }
+
     Slice f;
     if (freeFragments.isEmpty()) {
       f = new Slice(buffer, offset, length);
@@ -284,6 +302,13 @@ public class BufferServerSubscriber extends Subscriber implements ByteCounterStr
       }
 
       synchronized (backlog) {
+        if (frame != null) {
+          drainFrame(getMinimumRemainingCapacity());
+          if (frame != null) {
+            return null;
+          }
+        }
+
         /* find out the minimum remaining capacity in all the other buffers and consume those many tuples from bufferserver */
         int min = polledFragments.size();
         if (min == 0) {
@@ -298,12 +323,7 @@ public class BufferServerSubscriber extends Subscriber implements ByteCounterStr
           min = polledFragments.size();
         }
 
-        for (int i = reservoirs.length; i-- > 0;) {
-          if (reservoirs[i].remainingCapacity() < min) {
-            min = reservoirs[i].remainingCapacity();
-          }
-        }
-
+        min = Math.min(min, getMinimumRemainingCapacity());
         while (min-- > 0) {
           Slice fm = polledFragments.pollUnsafe();
           com.datatorrent.bufferserver.packet.Tuple data = com.datatorrent.bufferserver.packet.Tuple.getTuple(fm.buffer, fm.offset, fm.length);
@@ -328,9 +348,18 @@ public class BufferServerSubscriber extends Subscriber implements ByteCounterStr
               break;
 
             case PAYLOAD:
-              o = processPayload(data);
+              o = processPayload(data.getData());
               break;
 
+            case PAYLOAD_FRAME:
+              frame = (PayloadFrameTuple)data;
+              frameFragment = fm;
+              min -= drainFrame(min + 1) - 1;
+              if (frame != null) {
+                return null;
+              }
+              continue;
+
             case CHECKPOINT:
               if (statefulSerde != null) {
                 statefulSerde.resetState();
@@ -351,31 +380,74 @@ public class BufferServerSubscriber extends Subscriber implements ByteCounterStr
               o = new Tuple(data.getType(), baseSeconds | data.getWindowId());
               break;
 
+            case LATENCY_MARKER:
+              LatencyMarkerTuple marker = (LatencyMarkerTuple)data;
+              o = new com.datatorrent.stram.tuple.LatencyMarkerTuple(baseSeconds | marker.getWindowId(),
+                  marker.getSourceId(), marker.getOriginTimestamp(), marker.getForwardTimestamp());
+              break;
+
             default:
               throw new IllegalArgumentException("Unhandled Message Type " + data.getType());
           }
 
           freeFragments.offer(fm);
-          if (skipObject) {
-            skipObject = false;
-          } else {
-            for (int i = reservoirs.length; i-- > 0;) {
-              reservoirs[i].add(o);
-            }
-          }
+          distribute(o);
         }
       }
 
       return null;
     }
 
-    protected Object processPayload(com.datatorrent.bufferserver.packet.Tuple data)
+    private int getMinimumRemainingCapacity()
+    {
+      int min = Integer.MAX_VALUE;
+      for (int i = reservoirs.length; i-- > 0;) {
+        if (reservoirs[i].remainingCapacity() < min) {
+          min = reservoirs[i].remainingCapacity();
+        }
+      }
+      return min;
+    }
+
+    /**
+     * Deserializes payloads of the pending frame into the reservoirs and releases the frame once all of them are.
+     *
+     * @param capacity maximum number of payloads to deserialize
+     * @return number of payloads deserialized
+     */
+    private int drainFrame(int capacity)
+    {
+      int drained = 0;
+      while (drained < capacity && frame.hasNextPayload()) {
+        distribute(processPayload(frame.nextPayload()));
+        drained++;
+      }
+      if (!frame.hasNextPayload()) {
+        freeFragments.offer(frameFragment);
+        frameFragment = null;
+        frame = null;
+      }
+      return drained;
+    }
+
+    private void distribute(Object o)
+    {
+      if (skipObject) {
+        skipObject = false;
+      } else {
+        for (int i = reservoirs.length; i-- > 0;) {
+          reservoirs[i].add(o);
+        }
+      }
+    }
+
+    protected Object processPayload(Slice data)
     {
       Object o;
       if (statefulSerde == null) {
-        o = serde.fromByteArray(data.getData());
+        o = serde.fromByteArray(data);
       } else {
-        dsp.data = data.getData();
+        dsp.data = data;
         o = statefulSerde.fromDataStatePair(dsp);
       }
       return o;
@@ -406,9 +478,9 @@ public class BufferServerSubscriber extends Subscriber implements ByteCounterStr
     }
 
     @Override
-    protected Object processPayload(com.datatorrent.bufferserver.packet.Tuple data)
+    protected Object processPayload(Slice data)
     {
-      Object o = wrapperStreamCodec.fromByteArray(data.getData());
+      Object o = wrapperStreamCodec.fromByteArray(data);
       if (!wrapperStreamCodec.shouldCaptureEvent(o)) {
         skipObject = true;
       }
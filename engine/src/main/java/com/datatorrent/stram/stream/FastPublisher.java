@@ -35,6 +35,7 @@ import com.esotericsoftware.kryo.io.Output;
 import com.datatorrent.bufferserver.packet.BeginWindowTuple;
 import com.datatorrent.bufferserver.packet.EndStreamTuple;
 import com.datatorrent.bufferserver.packet.EndWindowTuple;
+import com.datatorrent.bufferserver.packet.LatencyMarkerTuple;
 import com.datatorrent.bufferserver.packet.MessageType;
 import com.datatorrent.bufferserver.packet.PublishRequestTuple;
 import com.datatorrent.bufferserver.packet.ResetWindowTuple;
@@ -237,6 +238,12 @@ public class FastPublisher extends Kryo implements ClientListener, Stream
           array = ResetWindowTuple.getSerializedTuple(rwt.getBaseSeconds(), rwt.getIntervalMillis());
           break;
 
+        case LATENCY_MARKER:
+          com.datatorrent.stram.tuple.LatencyMarkerTuple lmt = (com.datatorrent.stram.tuple.LatencyMarkerTuple)t;
+          array = LatencyMarkerTuple.getSerializedTuple((int)lmt.getWindowId(), lmt.sourceId, lmt.originTimestamp,
+              lmt.forwardTimestamp);
+          break;
+
         default:
           throw new UnsupportedOperationException("this data type is not handled in the stream");
       }
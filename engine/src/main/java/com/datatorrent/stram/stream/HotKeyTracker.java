@@ -0,0 +1,297 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.stram.stream;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.datatorrent.api.Stats.OperatorStats.PortStats;
+
+/**
+ * <p>HotKeyTracker class.</p>
+ *
+ * Tracks the most frequent partition hashes of the tuples published by an output port with the space saving algorithm,
+ * which keeps a fixed number of counters and hands the counter of the least frequent hash to a new hash, so that the
+ * frequent hashes are found in a single pass whatever the number of distinct hashes. The tracker is reset every window
+ * and optionally spreads the hashes which were hot in the previous window over consecutive hashes.
+ * <p>
+ * The counters are found through an open addressing table of primitive ints and kept in a min heap of their counts,
+ * so that counting a tuple takes O(log k) for k counters without allocating.
+ * <p>
+ * The tracker is updated by the operator thread and read by the thread reporting the stats, which only share the
+ * totals of the completed windows.
+ *
+ * @since 3.5.0
+ */
+public class HotKeyTracker
+{
+  private static final int PARTITION_HASH_MASK = (1 << PortStats.PARTITION_HASH_BITS) - 1;
+  private final int hotKeyCount;
+  private final int fanout;
+  /**
+   * hash and count of each counter.
+   */
+  private final int[] keys;
+  private final long[] counts;
+  /**
+   * counters ordered as a min heap of their counts, the root is handed to a new hash, and the position of each counter
+   * in the heap.
+   */
+  private final int[] heap;
+  private final int[] heapPositions;
+  /**
+   * open addressing table with linear probing from the hash of a counter to the counter + 1, 0 marks a free entry.
+   */
+  private final int[] table;
+  private int size;
+  private long windowCount;
+  private long[] partitionHashCounts = new long[PARTITION_HASH_MASK + 1];
+  private int[] hotKeys = new int[0];
+  private int spread;
+  private Map<Integer, Long> reportedHotKeys;
+  private long[] reportedPartitionHashCounts;
+
+  /**
+   * @param hotKeyCount number of most frequent hashes to report
+   * @param fanout number of hashes to spread the tuples of a hot hash over, 0 or 1 to leave them unchanged
+   */
+  public HotKeyTracker(int hotKeyCount, int fanout)
+  {
+    this.hotKeyCount = hotKeyCount;
+    this.fanout = fanout;
+    keys = new int[4 * hotKeyCount];
+    counts = new long[keys.length];
+    heap = new int[keys.length];
+    heapPositions = new int[keys.length];
+    table = new int[Integer.highestOneBit(keys.length) * 4];
+  }
+
+  /**
+   * Counts the partition hash of a tuple.
+   *
+   * @param partition partition hash of the tuple
+   * @return partition hash to publish the tuple with
+   */
+  public int add(int partition)
+  {
+    int index = find(partition);
+    if (table[index] != 0) {
+      final int slot = table[index] - 1;
+      counts[slot]++;
+      siftDown(heapPositions[slot]);
+    } else if (size < keys.length) {
+      final int slot = size++;
+      keys[slot] = partition;
+      counts[slot] = 1;
+      table[index] = slot + 1;
+      heap[slot] = slot;
+      siftUp(slot);
+    } else {
+      final int slot = heap[0];
+      remove(find(keys[slot]));
+      keys[slot] = partition;
+      counts[slot]++;
+      table[find(partition)] = slot + 1;
+      siftDown(0);
+    }
+
+    if (fanout > 1 && isHot(partition)) {
+      partition += spread++ % fanout;
+    }
+    windowCount++;
+    partitionHashCounts[partition & PARTITION_HASH_MASK]++;
+    return partition;
+  }
+
+  private boolean isHot(int partition)
+  {
+    for (int hotKey : hotKeys) {
+      if (hotKey == partition) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @return index of the table entry of the hash, or of the free entry where it would be added
+   */
+  private int find(int partition)
+  {
+    final int mask = table.length - 1;
+    int index = home(partition);
+    while (table[index] != 0 && keys[table[index] - 1] != partition) {
+      index = (index + 1) & mask;
+    }
+    return index;
+  }
+
+  private int home(int partition)
+  {
+    final int hash = partition * 0x9E3779B9;
+    return (hash ^ (hash >>> 16)) & (table.length - 1);
+  }
+
+  /**
+   * Frees the table entry and moves the following entries of the probe sequence back, so that lookups do not need
+   * markers for removed entries.
+   */
+  private void remove(int index)
+  {
+    final int mask = table.length - 1;
+    int next = index;
+    while (true) {
+      next = (next + 1) & mask;
+      if (table[next] == 0) {
+        break;
+      }
+      final int home = home(keys[table[next] - 1]);
+      if (index <= next ? home <= index || home > next : home <= index && home > next) {
+        table[index] = table[next];
+        index = next;
+      }
+    }
+    table[index] = 0;
+  }
+
+  private void siftUp(int position)
+  {
+    final int slot = heap[position];
+    while (position > 0) {
+      final int parent = (position - 1) >>> 1;
+      if (counts[heap[parent]] <= counts[slot]) {
+        break;
+      }
+      heap[position] = heap[parent];
+      heapPositions[heap[position]] = position;
+      position = parent;
+    }
+    heap[position] = slot;
+    heapPositions[slot] = position;
+  }
+
+  private void siftDown(int position)
+  {
+    final int slot = heap[position];
+    while (true) {
+      int child = 2 * position + 1;
+      if (child >= size) {
+        break;
+      }
+      if (child + 1 < size && counts[heap[child + 1]] < counts[heap[child]]) {
+        child++;
+      }
+      if (counts[heap[child]] >= counts[slot]) {
+        break;
+      }
+      heap[position] = heap[child];
+      heapPositions[heap[position]] = position;
+      position = child;
+    }
+    heap[position] = slot;
+    heapPositions[slot] = position;
+  }
+
+  /**
+   * Makes the counts of the window available to the stats and determines the hot hashes of the next window.
+   */
+  public void endWindow()
+  {
+    List<Integer> order = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      order.add(i);
+    }
+    Collections.sort(order, new Comparator<Integer>()
+    {
+      @Override
+      public int compare(Integer slot1, Integer slot2)
+      {
+        return Long.compare(counts[slot2], counts[slot1]);
+      }
+    });
+
+    if (fanout > 1) {
+      int hot = 0;
+      while (hot < size && counts[order.get(hot)] * fanout > windowCount) {
+        hot++;
+      }
+      hotKeys = new int[hot];
+      for (int i = 0; i < hot; i++) {
+        hotKeys[i] = keys[order.get(i)];
+      }
+    }
+
+    synchronized (this) {
+      if (reportedHotKeys == null) {
+        reportedHotKeys = new HashMap<>();
+        reportedPartitionHashCounts = partitionHashCounts;
+      } else {
+        for (int i = 0; i < partitionHashCounts.length; i++) {
+          reportedPartitionHashCounts[i] += partitionHashCounts[i];
+        }
+      }
+      for (int i = 0; i < Math.min(hotKeyCount, order.size()); i++) {
+        int slot = order.get(i);
+        Long count = reportedHotKeys.get(keys[slot]);
+        reportedHotKeys.put(keys[slot], count == null ? counts[slot] : count + counts[slot]);
+      }
+    }
+
+    partitionHashCounts = new long[PARTITION_HASH_MASK + 1];
+    Arrays.fill(table, 0);
+    size = 0;
+    windowCount = 0;
+  }
+
+  /**
+   * Moves the counts of the windows completed since the previous report to the port stats.
+   *
+   * @param portStats stats of the output port
+   */
+  public synchronized void report(PortStats portStats)
+  {
+    if (reportedHotKeys == null) {
+      return;
+    }
+
+    List<Map.Entry<Integer, Long>> entries = new ArrayList<>(reportedHotKeys.entrySet());
+    Collections.sort(entries, new Comparator<Map.Entry<Integer, Long>>()
+    {
+      @Override
+      public int compare(Map.Entry<Integer, Long> e1, Map.Entry<Integer, Long> e2)
+      {
+        return Long.compare(e2.getValue(), e1.getValue());
+      }
+    });
+    portStats.hotKeys = new LinkedHashMap<>();
+    for (Map.Entry<Integer, Long> entry : entries.subList(0, Math.min(hotKeyCount, entries.size()))) {
+      portStats.hotKeys.put(entry.getKey(), entry.getValue());
+    }
+    portStats.partitionHashCounts = reportedPartitionHashCounts;
+    reportedHotKeys = null;
+    reportedPartitionHashCounts = null;
+  }
+
+}
@@ -0,0 +1,165 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.stram.stream;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.datatorrent.api.StreamCodec;
+import com.datatorrent.bufferserver.packet.MessageType;
+import com.datatorrent.bufferserver.util.Codec;
+import com.datatorrent.netlet.util.Slice;
+import com.datatorrent.stram.codec.StatefulStreamCodec;
+import com.datatorrent.stram.codec.StatefulStreamCodec.DataStatePair;
+import com.datatorrent.stram.engine.ByteCounterStream;
+import com.datatorrent.stram.engine.StreamContext;
+import com.datatorrent.stram.tuple.Tuple;
+
+/**
+ * Publishes the tuples of an output port to an {@link InProcessTransport} in place of a buffer server publisher.<p>
+ * <br>
+ * Data tuples are passed by reference unless the transport serializes them, in which case the subscribers deserialize
+ * their own copies with the stream codec just like they would from the buffer server.<br>
+ *
+ * @since 3.5.0
+ */
+public class InProcessPublisher implements ByteCounterStream
+{
+  private final InProcessTransport transport;
+  private InProcessTransport.TupleList tupleList;
+  private StreamCodec<Object> serde;
+  private StatefulStreamCodec<Object> statefulSerde;
+  private final AtomicLong publishedByteCount = new AtomicLong();
+  private int count;
+
+  public InProcessPublisher(InProcessTransport transport)
+  {
+    this.transport = transport;
+  }
+
+  /**
+   * Data tuple as serialized by the stream codec of the publisher.
+   */
+  static class SerializedTuple
+  {
+    final Slice data;
+    /**
+     * codec state the subscribers need before they deserialize the data, if any.
+     */
+    final Slice state;
+
+    SerializedTuple(Slice data, Slice state)
+    {
+      this.data = data;
+      this.state = state;
+    }
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public void setup(StreamContext context)
+  {
+    StreamCodec<?> codec = context.get(StreamContext.CODEC);
+    if (codec == null) {
+      statefulSerde = ((StatefulStreamCodec<Object>)StreamContext.CODEC.defaultValue).newInstance();
+    } else if (codec instanceof StatefulStreamCodec) {
+      statefulSerde = ((StatefulStreamCodec<Object>)codec).newInstance();
+    } else {
+      serde = (StreamCodec<Object>)codec;
+    }
+  }
+
+  @Override
+  public void teardown()
+  {
+  }
+
+  @Override
+  public void activate(StreamContext context)
+  {
+    logger.debug("Registering publisher: {} {} windowId={}", context.getSourceId(), context.getId(),
+        Codec.getStringWindowId(context.getFinishedWindowId()));
+    tupleList = transport.getTupleList(context.getSourceId());
+    tupleList.rewind(context.getFinishedWindowId());
+  }
+
+  @Override
+  public void deactivate()
+  {
+  }
+
+  @Override
+  public void put(Object payload)
+  {
+    count++;
+    Object tuple = payload;
+    int partition = 0;
+    if (payload instanceof Tuple) {
+      if (((Tuple)payload).getType() == MessageType.CHECKPOINT && statefulSerde != null) {
+        statefulSerde.resetState();
+      }
+    } else if (statefulSerde == null) {
+      partition = serde.getPartition(payload);
+      if (transport.isSerialization()) {
+        Slice data = serde.toByteArray(payload);
+        publishedByteCount.addAndGet(data.length);
+        tuple = new SerializedTuple(data, null);
+      }
+    } else {
+      partition = statefulSerde.getPartition(payload);
+      if (transport.isSerialization()) {
+        DataStatePair dsp = statefulSerde.toDataStatePair(payload);
+        publishedByteCount.addAndGet(dsp.data.length + (dsp.state == null ? 0 : dsp.state.length));
+        tuple = new SerializedTuple(dsp.data, dsp.state);
+      }
+    }
+
+    try {
+      tupleList.add(tuple, partition);
+    } catch (InterruptedException ie) {
+      throw new RuntimeException(ie);
+    }
+  }
+
+  @Override
+  public long getByteCount(boolean reset)
+  {
+    if (reset) {
+      return publishedByteCount.getAndSet(0);
+    }
+
+    return publishedByteCount.get();
+  }
+
+  @Override
+  public int getCount(boolean reset)
+  {
+    try {
+      return count;
+    } finally {
+      if (reset) {
+        count = 0;
+      }
+    }
+  }
+
+  private static final Logger logger = LoggerFactory.getLogger(InProcessPublisher.class);
+}
@@ -0,0 +1,338 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.stram.stream;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.datatorrent.api.Sink;
+import com.datatorrent.api.StreamCodec;
+import com.datatorrent.bufferserver.util.Codec;
+import com.datatorrent.netlet.util.CircularBuffer;
+import com.datatorrent.stram.codec.StatefulStreamCodec;
+import com.datatorrent.stram.codec.StatefulStreamCodec.DataStatePair;
+import com.datatorrent.stram.engine.ByteCounterStream;
+import com.datatorrent.stram.engine.StreamContext;
+import com.datatorrent.stram.engine.SweepableReservoir;
+import com.datatorrent.stram.engine.WindowGenerator;
+import com.datatorrent.stram.plan.logical.StreamCodecWrapperForPersistance;
+import com.datatorrent.stram.stream.InProcessPublisher.SerializedTuple;
+import com.datatorrent.stram.tuple.Tuple;
+
+/**
+ * Reads the tuples of an upstream output port from an {@link InProcessTransport} in place of a buffer server
+ * subscriber.<p>
+ * <br>
+ * Like the buffer server, the subscriber skips the windows up to its checkpoint and the data tuples of the partitions
+ * it did not subscribe to.<br>
+ *
+ * @since 3.5.0
+ */
+public class InProcessSubscriber implements ByteCounterStream
+{
+  private final InProcessTransport transport;
+  private final Object[] tupleBuffer;
+  private final int[] partitionBuffer;
+  private final AtomicLong readByteCount = new AtomicLong();
+  private final DataStatePair dsp = new DataStatePair();
+  private StreamCodec<Object> serde;
+  private StatefulStreamCodec<Object> statefulSerde;
+  private InProcessTransport.TupleList tupleList;
+  private volatile InProcessTransport.Subscription subscription;
+  private int mask;
+  private int[] partitions;
+  private long lastWindowId = WindowGenerator.MAX_WINDOW_ID;
+  private InProcessReservoir reservoir;
+
+  public InProcessSubscriber(InProcessTransport transport, int queueCapacity)
+  {
+    this.transport = transport;
+    tupleBuffer = new Object[queueCapacity];
+    partitionBuffer = new int[queueCapacity];
+  }
+
+  public SweepableReservoir acquireReservoir(String id, int capacity)
+  {
+    if (reservoir == null) {
+      reservoir = new InProcessReservoir(capacity);
+    }
+    return reservoir;
+  }
+
+  @SuppressWarnings("unchecked")
+  public SweepableReservoir acquireReservoirForPersistStream(String id, int capacity, StreamCodec<?> streamCodec)
+  {
+    if (reservoir == null) {
+      reservoir = new InProcessReservoir(capacity);
+      reservoir.persistCodec = (StreamCodecWrapperForPersistance<Object>)streamCodec;
+    }
+    return reservoir;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public void setup(StreamContext context)
+  {
+    StreamCodec<?> codec = context.get(StreamContext.CODEC);
+    if (codec == null) {
+      statefulSerde = ((StatefulStreamCodec<Object>)StreamContext.CODEC.defaultValue).newInstance();
+    } else if (codec instanceof StatefulStreamCodec) {
+      statefulSerde = ((StatefulStreamCodec<Object>)codec).newInstance();
+    } else {
+      serde = (StreamCodec<Object>)codec;
+    }
+  }
+
+  @Override
+  public void teardown()
+  {
+  }
+
+  @Override
+  public void activate(StreamContext context)
+  {
+    logger.debug("Registering subscriber: id={} upstreamId={} streamLogicalName={} windowId={} mask={} partitions={}",
+        context.getSinkId(), context.getSourceId(), context.getId(),
+        Codec.getStringWindowId(context.getFinishedWindowId()), context.getPartitionMask(), context.getPartitions());
+    mask = context.getPartitionMask();
+    Collection<Integer> keys = context.getPartitions();
+    if (keys != null) {
+      partitions = new int[keys.size()];
+      Iterator<Integer> iterator = keys.iterator();
+      for (int i = 0; i < partitions.length; i++) {
+        partitions[i] = iterator.next();
+      }
+    }
+    tupleList = transport.getTupleList(context.getSourceId());
+    subscription = tupleList.subscribe(context.getFinishedWindowId());
+  }
+
+  @Override
+  public void deactivate()
+  {
+    InProcessTransport.Subscription s = subscription;
+    subscription = null;
+    if (s != null) {
+      tupleList.unsubscribe(s);
+    }
+  }
+
+  @Override
+  public void put(Object tuple)
+  {
+    throw new UnsupportedOperationException("Not supported yet.");
+  }
+
+  @Override
+  public int getCount(boolean reset)
+  {
+    return 0;
+  }
+
+  @Override
+  public long getByteCount(boolean reset)
+  {
+    if (reset) {
+      return readByteCount.getAndSet(0);
+    }
+
+    return readByteCount.get();
+  }
+
+  private boolean isSubscribed(int partition)
+  {
+    if (mask == 0 || partitions == null) {
+      return true;
+    }
+    for (int i = partitions.length; i-- > 0;) {
+      if (partitions[i] == (partition & mask)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private Object deserialize(SerializedTuple serializedTuple)
+  {
+    readByteCount.addAndGet(serializedTuple.data.length
+        + (serializedTuple.state == null ? 0 : serializedTuple.state.length));
+    if (statefulSerde == null) {
+      return serde.fromByteArray(serializedTuple.data);
+    }
+    dsp.state = serializedTuple.state;
+    dsp.data = serializedTuple.data;
+    return statefulSerde.fromDataStatePair(dsp);
+  }
+
+  class InProcessReservoir extends CircularBuffer<Object> implements SweepableReservoir
+  {
+    private Sink<Object> sink;
+    private StreamCodecWrapperForPersistance<Object> persistCodec;
+    int count;
+
+    InProcessReservoir(int capacity)
+    {
+      super(capacity);
+    }
+
+    @Override
+    public int size(final boolean dataTupleAware)
+    {
+      int size = size();
+      if (dataTupleAware) {
+        Iterator<Object> iterator = getFrozenIterator();
+        while (iterator.hasNext()) {
+          if (iterator.next() instanceof Tuple) {
+            size--;
+          }
+        }
+      }
+      return size;
+    }
+
+    @Override
+    public Sink<Object> setSink(Sink<Object> sink)
+    {
+      try {
+        return this.sink;
+      } finally {
+        this.sink = sink;
+      }
+    }
+
+    @Override
+    public Tuple sweep()
+    {
+      final int size = size();
+      if (size > 0) {
+        for (int i = 0; i < size; i++) {
+          if (peekUnsafe() instanceof Tuple) {
+            count += i;
+            return (Tuple)peekUnsafe();
+          }
+          sink.put(pollUnsafe());
+        }
+
+        count += size;
+      }
+
+      InProcessTransport.Subscription s = subscription;
+      if (s != null) {
+        fill(s);
+      }
+      return null;
+    }
+
+    /**
+     * Moves the tuples the subscriber is interested in from the tuple list into the reservoir.
+     */
+    private void fill(InProcessTransport.Subscription s)
+    {
+      if (s.resetWindow != null) {
+        if (remainingCapacity() == 0) {
+          return;
+        }
+        if (lastWindowId == WindowGenerator.MAX_WINDOW_ID) {
+          add(s.resetWindow);
+        }
+        s.resetWindow = null;
+      }
+
+      int read = tupleList.read(s, tupleBuffer, partitionBuffer, Math.min(remainingCapacity(), tupleBuffer.length));
+      for (int i = 0; i < read; i++) {
+        Object o = tupleBuffer[i];
+        tupleBuffer[i] = null;
+        if (o instanceof Tuple) {
+          Tuple t = (Tuple)o;
+          switch (t.getType()) {
+            case BEGIN_WINDOW:
+              if (!s.caughtUp) {
+                if (t.getWindowId() <= s.skipWindowId) {
+                  continue;
+                }
+                s.caughtUp = true;
+              }
+              break;
+
+            case END_WINDOW:
+              if (!s.caughtUp) {
+                continue;
+              }
+              lastWindowId = t.getWindowId();
+              break;
+
+            case RESET_WINDOW:
+              if (lastWindowId < WindowGenerator.MAX_WINDOW_ID) {
+                continue;
+              }
+              break;
+
+            case CHECKPOINT:
+              if (statefulSerde != null) {
+                statefulSerde.resetState();
+              }
+              break;
+
+            case END_STREAM:
+              break;
+
+            default:
+              if (!s.caughtUp) {
+                continue;
+              }
+          }
+        } else {
+          if (!s.caughtUp || !isSubscribed(partitionBuffer[i])) {
+            continue;
+          }
+          if (o instanceof SerializedTuple) {
+            if (persistCodec != null) {
+              readByteCount.addAndGet(((SerializedTuple)o).data.length);
+              o = persistCodec.fromByteArray(((SerializedTuple)o).data);
+            } else {
+              o = deserialize((SerializedTuple)o);
+            }
+          }
+          if (persistCodec != null && !persistCodec.shouldCaptureEvent(o)) {
+            continue;
+          }
+        }
+        add(o);
+      }
+    }
+
+    @Override
+    public int getCount(boolean reset)
+    {
+      try {
+        return count;
+      } finally {
+        if (reset) {
+          count = 0;
+        }
+      }
+    }
+  }
+
+  private static final Logger logger = LoggerFactory.getLogger(InProcessSubscriber.class);
+}
@@ -0,0 +1,282 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.stram.stream;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.datatorrent.bufferserver.packet.MessageType;
+import com.datatorrent.bufferserver.util.Codec;
+import com.datatorrent.stram.tuple.Tuple;
+
+/**
+ * <p>InProcessTransport class.</p>
+ *
+ * Passes tuples between the containers of a single process, such as the containers of a local cluster, in place of the
+ * buffer server. Every publisher appends its tuples, with the partition of the data tuples, to a list which the
+ * subscribers of the publisher read at their own pace. Like the buffer server, a list keeps the tuples until the
+ * windows are committed, catches new subscribers up from the window after their checkpoint and discards the windows
+ * after the checkpoint a publisher is redeployed from.
+ * <p>
+ * A publisher waits when its slowest subscriber is more than the capacity of the transport behind.
+ *
+ * @since 3.5.0
+ */
+public class InProcessTransport
+{
+  private final Map<String, TupleList> tupleLists = new HashMap<>();
+  private final int capacity;
+  private final boolean serialization;
+
+  /**
+   * @param capacity number of tuples a publisher can be ahead of its slowest subscriber
+   * @param serialization whether publishers serialize and deserialize every data tuple with the stream codec
+   */
+  public InProcessTransport(int capacity, boolean serialization)
+  {
+    this.capacity = capacity;
+    this.serialization = serialization;
+  }
+
+  public boolean isSerialization()
+  {
+    return serialization;
+  }
+
+  /**
+   * Returns the tuple list of the publisher, the list is created by whichever of the publisher and its subscribers
+   * comes first.
+   *
+   * @param sourceId identifier of the publisher
+   * @return tuple list
+   */
+  synchronized TupleList getTupleList(String sourceId)
+  {
+    TupleList tupleList = tupleLists.get(sourceId);
+    if (tupleList == null) {
+      tupleLists.put(sourceId, tupleList = new TupleList(sourceId, capacity));
+    }
+    return tupleList;
+  }
+
+  /**
+   * Discards the windows up to and including the given window from all lists.
+   *
+   * @param windowId committed window
+   */
+  public void purge(long windowId)
+  {
+    List<TupleList> lists;
+    synchronized (this) {
+      lists = new ArrayList<>(tupleLists.values());
+    }
+    for (TupleList tupleList : lists) {
+      tupleList.purge(windowId);
+    }
+  }
+
+  /**
+   * Read position of a subscriber in a tuple list.
+   */
+  static class Subscription
+  {
+    long position;
+    /**
+     * the subscriber skips data and windows until the first window after this window.
+     */
+    long skipWindowId;
+    boolean caughtUp;
+    /**
+     * the latest reset window tuple purged from the list, to be delivered before anything else.
+     */
+    Tuple resetWindow;
+
+    Subscription(long skipWindowId)
+    {
+      this.skipWindowId = skipWindowId;
+    }
+  }
+
+  /**
+   * Tuples of a publisher in the order they were published, with the partitions of the data tuples.
+   */
+  static class TupleList
+  {
+    private final String sourceId;
+    private final int capacity;
+    private final List<Subscription> subscriptions = new ArrayList<>();
+    private Object[] tuples = new Object[1024];
+    private int[] partitions = new int[1024];
+    private long firstPosition;
+    private long endPosition;
+    private Tuple purgedResetWindow;
+    private boolean publisherWaiting;
+
+    TupleList(String sourceId, int capacity)
+    {
+      this.sourceId = sourceId;
+      this.capacity = capacity;
+    }
+
+    synchronized void add(Object tuple, int partition) throws InterruptedException
+    {
+      while (endPosition - firstPosition >= capacity && endPosition - getSlowestPosition() >= capacity) {
+        publisherWaiting = true;
+        wait();
+      }
+      int index = (int)(endPosition - firstPosition);
+      if (index == tuples.length) {
+        tuples = Arrays.copyOf(tuples, index << 1);
+        partitions = Arrays.copyOf(partitions, index << 1);
+      }
+      tuples[index] = tuple;
+      partitions[index] = partition;
+      endPosition++;
+    }
+
+    private long getSlowestPosition()
+    {
+      long slowest = endPosition;
+      for (Subscription subscription : subscriptions) {
+        if (subscription.position < slowest) {
+          slowest = subscription.position;
+        }
+      }
+      return slowest;
+    }
+
+    synchronized Subscription subscribe(long skipWindowId)
+    {
+      Subscription subscription = new Subscription(skipWindowId);
+      subscription.position = firstPosition;
+      subscription.resetWindow = purgedResetWindow;
+      subscriptions.add(subscription);
+      logger.debug("Subscribed to {} from window {}", sourceId, Codec.getStringWindowId(skipWindowId));
+      return subscription;
+    }
+
+    synchronized void unsubscribe(Subscription subscription)
+    {
+      subscriptions.remove(subscription);
+      wakeUpPublisher();
+    }
+
+    /**
+     * Copies the tuples after the position of the subscription and advances the position.
+     *
+     * @return number of tuples copied
+     */
+    synchronized int read(Subscription subscription, Object[] tupleBuffer, int[] partitionBuffer, int max)
+    {
+      if (subscription.position < firstPosition) {
+        subscription.position = firstPosition;
+        subscription.resetWindow = purgedResetWindow;
+      }
+      int count = (int)Math.min(max, endPosition - subscription.position);
+      if (count > 0) {
+        int index = (int)(subscription.position - firstPosition);
+        System.arraycopy(tuples, index, tupleBuffer, 0, count);
+        System.arraycopy(partitions, index, partitionBuffer, 0, count);
+        subscription.position += count;
+        wakeUpPublisher();
+      }
+      return count;
+    }
+
+    private void wakeUpPublisher()
+    {
+      if (publisherWaiting) {
+        publisherWaiting = false;
+        notifyAll();
+      }
+    }
+
+    /**
+     * Returns the index of the first begin window tuple after the given window, or the end of the list.
+     */
+    private int indexAfter(long windowId)
+    {
+      int end = (int)(endPosition - firstPosition);
+      for (int i = 0; i < end; i++) {
+        if (tuples[i] instanceof Tuple) {
+          Tuple t = (Tuple)tuples[i];
+          if (t.getType() == MessageType.BEGIN_WINDOW && t.getWindowId() > windowId) {
+            return i;
+          }
+        }
+      }
+      return end;
+    }
+
+    /**
+     * Discards the tuples of the windows after the given window.
+     */
+    synchronized void rewind(long windowId)
+    {
+      int index = indexAfter(windowId);
+      int end = (int)(endPosition - firstPosition);
+      Arrays.fill(tuples, index, end, null);
+      endPosition = firstPosition + index;
+      for (Subscription subscription : subscriptions) {
+        if (subscription.position > endPosition) {
+          subscription.position = endPosition;
+        }
+      }
+      logger.debug("Rewound {} to window {} discarding {} tuples", sourceId, Codec.getStringWindowId(windowId),
+          end - index);
+    }
+
+    /**
+     * Discards the tuples of the windows up to and including the given window.
+     */
+    synchronized void purge(long windowId)
+    {
+      int index = indexAfter(windowId);
+      if (index == 0) {
+        return;
+      }
+      for (int i = index; i-- > 0;) {
+        if (tuples[i] instanceof Tuple
+            && ((Tuple)tuples[i]).getType() == MessageType.RESET_WINDOW) {
+          purgedResetWindow = (Tuple)tuples[i];
+          break;
+        }
+      }
+      int end = (int)(endPosition - firstPosition);
+      System.arraycopy(tuples, index, tuples, 0, end - index);
+      System.arraycopy(partitions, index, partitions, 0, end - index);
+      Arrays.fill(tuples, end - index, end, null);
+      firstPosition += index;
+      wakeUpPublisher();
+    }
+
+    synchronized long size()
+    {
+      return endPosition - firstPosition;
+    }
+  }
+
+  private static final Logger logger = LoggerFactory.getLogger(InProcessTransport.class);
+}
@@ -0,0 +1,58 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.stram.tuple;
+
+import com.datatorrent.bufferserver.packet.MessageType;
+
+/**
+ * <p>LatencyMarkerTuple class.</p>
+ *
+ * Injected by input operators and forwarded in band with the data by every operator on the way, which records how
+ * long the marker took from the previous operator and from the input operator.
+ *
+ * @since 3.5.0
+ */
+public class LatencyMarkerTuple extends Tuple
+{
+  public final int sourceId;
+  public final long originTimestamp;
+  public final long forwardTimestamp;
+
+  /**
+   * @param windowId window in which the marker travels
+   * @param sourceId id of the input operator which injected the marker
+   * @param originTimestamp milliseconds at which the input operator injected the marker
+   * @param forwardTimestamp milliseconds at which the last operator forwarded the marker
+   */
+  public LatencyMarkerTuple(long windowId, int sourceId, long originTimestamp, long forwardTimestamp)
+  {
+    super(MessageType.LATENCY_MARKER, windowId);
+    this.sourceId = sourceId;
+    this.originTimestamp = originTimestamp;
+    this.forwardTimestamp = forwardTimestamp;
+  }
+
+  @Override
+  public String toString()
+  {
+    return super.toString() + " source = " + sourceId + " origin = " + originTimestamp + " forward = " +
+        forwardTimestamp;
+  }
+
+}
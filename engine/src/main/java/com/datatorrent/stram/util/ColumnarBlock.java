@@ -0,0 +1,549 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.stram.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.codehaus.jackson.map.ObjectMapper;
+
+/**
+ * <p>A block of time series rows stored column by column.</p>
+ *
+ * Every row carries a timestamp, a window id and an integer key (operator id, container index, etc.) along with a map
+ * of named fields. Fields whose values are numbers in every row of the block are stored as typed columns: long columns
+ * are delta encoded as zig-zag variable length integers, double columns as raw IEEE 754 values. All other fields are
+ * kept together in a residual JSON column. The block header lists the columns and their byte lengths so that a reader
+ * can skip to the columns it needs without decoding the others.
+ *
+ * @since 3.5.0
+ */
+public class ColumnarBlock
+{
+  public static final byte TYPE_LONG = 1;
+  public static final byte TYPE_DOUBLE = 2;
+  public static final byte TYPE_JSON = 3;
+
+  public static final String TIMESTAMP_COLUMN = "@timestamp";
+  public static final String WINDOW_COLUMN = "@window";
+  public static final String KEY_COLUMN = "@key";
+  public static final String RESIDUAL_COLUMN = "@residual";
+
+  private static final ObjectMapper mapper = new ObjectMapper();
+
+  public static class Row
+  {
+    public long timestamp;
+    public long windowId;
+    public int key;
+    public Map<String, Object> fields;
+
+    public Row()
+    {
+    }
+
+    public Row(long timestamp, long windowId, int key, Map<String, Object> fields)
+    {
+      this.timestamp = timestamp;
+      this.windowId = windowId;
+      this.key = key;
+      this.fields = fields;
+    }
+  }
+
+  /**
+   * The sparse index entry of an encoded block within a part file. Entries have a fixed size so that the index of a part
+   * file can be read in one go and searched without parsing.
+   */
+  public static class IndexEntry
+  {
+    public static final int SIZE = 8 * 5 + 4 * 2;
+
+    public long minTimestamp;
+    public long maxTimestamp;
+    public long minWindowId;
+    public long maxWindowId;
+    public long offset;
+    public int length;
+    public int rowCount;
+
+    public boolean overlapsTime(Long from, Long to)
+    {
+      return (from == null || maxTimestamp >= from) && (to == null || minTimestamp <= to);
+    }
+
+    public boolean overlapsWindow(Long from, Long to)
+    {
+      return (from == null || maxWindowId >= from) && (to == null || minWindowId <= to);
+    }
+
+    public void write(DataOutput out) throws IOException
+    {
+      out.writeLong(minTimestamp);
+      out.writeLong(maxTimestamp);
+      out.writeLong(minWindowId);
+      out.writeLong(maxWindowId);
+      out.writeLong(offset);
+      out.writeInt(length);
+      out.writeInt(rowCount);
+    }
+
+    public static IndexEntry read(DataInput in) throws IOException
+    {
+      IndexEntry entry = new IndexEntry();
+      entry.minTimestamp = in.readLong();
+      entry.maxTimestamp = in.readLong();
+      entry.minWindowId = in.readLong();
+      entry.maxWindowId = in.readLong();
+      entry.offset = in.readLong();
+      entry.length = in.readInt();
+      entry.rowCount = in.readInt();
+      return entry;
+    }
+  }
+
+  /**
+   * Accumulates rows and encodes them into a block.
+   */
+  public static class Builder
+  {
+    private final List<Row> rows = new ArrayList<>();
+    private long minTimestamp = Long.MAX_VALUE;
+    private long maxTimestamp = Long.MIN_VALUE;
+    private long minWindowId = Long.MAX_VALUE;
+    private long maxWindowId = Long.MIN_VALUE;
+
+    public void add(long timestamp, long windowId, int key, Map<String, Object> fields)
+    {
+      rows.add(new Row(timestamp, windowId, key, fields));
+      minTimestamp = Math.min(minTimestamp, timestamp);
+      maxTimestamp = Math.max(maxTimestamp, timestamp);
+      minWindowId = Math.min(minWindowId, windowId);
+      maxWindowId = Math.max(maxWindowId, windowId);
+    }
+
+    public int size()
+    {
+      return rows.size();
+    }
+
+    public boolean isEmpty()
+    {
+      return rows.isEmpty();
+    }
+
+    /**
+     * Returns the index entry describing the rows accumulated so far; offset and length are left for the caller.
+     */
+    public IndexEntry getIndexEntry()
+    {
+      IndexEntry entry = new IndexEntry();
+      entry.minTimestamp = minTimestamp;
+      entry.maxTimestamp = maxTimestamp;
+      entry.minWindowId = minWindowId;
+      entry.maxWindowId = maxWindowId;
+      entry.rowCount = rows.size();
+      return entry;
+    }
+
+    public void clear()
+    {
+      rows.clear();
+      minTimestamp = Long.MAX_VALUE;
+      maxTimestamp = Long.MIN_VALUE;
+      minWindowId = Long.MAX_VALUE;
+      maxWindowId = Long.MIN_VALUE;
+    }
+
+    public byte[] build() throws IOException
+    {
+      int rowCount = rows.size();
+
+      /* decide the type of every field; a field that is not numeric in all the rows goes to the residual column */
+      Map<String, Byte> types = new LinkedHashMap<>();
+      for (Row row : rows) {
+        for (Map.Entry<String, Object> entry : row.fields.entrySet()) {
+          Object value = entry.getValue();
+          if (value == null) {
+            continue;
+          }
+          Byte type = types.get(entry.getKey());
+          byte valueType = typeOf(value);
+          if (type == null) {
+            types.put(entry.getKey(), valueType);
+          } else if (type != valueType) {
+            types.put(entry.getKey(), type == TYPE_JSON || valueType == TYPE_JSON ? TYPE_JSON : TYPE_DOUBLE);
+          }
+        }
+      }
+
+      List<String> names = new ArrayList<>();
+      List<Byte> columnTypes = new ArrayList<>();
+      List<byte[]> bodies = new ArrayList<>();
+
+      long[] values = new long[rowCount];
+      for (int i = rowCount; i-- > 0;) {
+        values[i] = rows.get(i).timestamp;
+      }
+      addColumn(names, columnTypes, bodies, TIMESTAMP_COLUMN, TYPE_LONG, encodeLongs(values, null));
+      for (int i = rowCount; i-- > 0;) {
+        values[i] = rows.get(i).windowId;
+      }
+      addColumn(names, columnTypes, bodies, WINDOW_COLUMN, TYPE_LONG, encodeLongs(values, null));
+      for (int i = rowCount; i-- > 0;) {
+        values[i] = rows.get(i).key;
+      }
+      addColumn(names, columnTypes, bodies, KEY_COLUMN, TYPE_LONG, encodeLongs(values, null));
+
+      Set<String> residualNames = new LinkedHashSet<>();
+      boolean[] present = new boolean[rowCount];
+      for (Map.Entry<String, Byte> entry : types.entrySet()) {
+        String name = entry.getKey();
+        byte type = entry.getValue();
+        if (type == TYPE_JSON) {
+          residualNames.add(name);
+          continue;
+        }
+        for (int i = 0; i < rowCount; i++) {
+          Number value = (Number)rows.get(i).fields.get(name);
+          present[i] = value != null;
+          if (value != null) {
+            values[i] = type == TYPE_LONG ? value.longValue() : Double.doubleToRawLongBits(value.doubleValue());
+          }
+        }
+        addColumn(names, columnTypes, bodies, name, type, type == TYPE_LONG ? encodeLongs(values, present) : encodeDoubles(values, present));
+      }
+
+      ByteArrayOutputStream residual = new ByteArrayOutputStream();
+      if (!residualNames.isEmpty()) {
+        for (Row row : rows) {
+          Map<String, Object> map = new HashMap<>();
+          for (String name : residualNames) {
+            Object value = row.fields.get(name);
+            if (value != null) {
+              map.put(name, value);
+            }
+          }
+          byte[] json = map.isEmpty() ? new byte[0] : mapper.writeValueAsBytes(map);
+          writeVarLong(residual, json.length);
+          residual.write(json);
+        }
+      }
+
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      writeVarLong(out, rowCount);
+      writeVarLong(out, names.size() + 1);
+      for (int i = 0; i < names.size(); i++) {
+        writeString(out, names.get(i));
+        out.write(columnTypes.get(i));
+        writeVarLong(out, bodies.get(i).length);
+      }
+      writeString(out, RESIDUAL_COLUMN);
+      out.write(TYPE_JSON);
+      writeVarLong(out, residual.size());
+      writeVarLong(out, residualNames.size());
+      for (String name : residualNames) {
+        writeString(out, name);
+      }
+      for (byte[] body : bodies) {
+        out.write(body);
+      }
+      residual.writeTo(out);
+      return out.toByteArray();
+    }
+
+    private static void addColumn(List<String> names, List<Byte> columnTypes, List<byte[]> bodies, String name, byte type, byte[] body)
+    {
+      names.add(name);
+      columnTypes.add(type);
+      bodies.add(body);
+    }
+
+    private static byte typeOf(Object value)
+    {
+      if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+        return TYPE_LONG;
+      } else if (value instanceof Double || value instanceof Float) {
+        return TYPE_DOUBLE;
+      }
+      return TYPE_JSON;
+    }
+  }
+
+  /**
+   * Decodes the rows of a block.
+   *
+   * @param block the buffer containing the block
+   * @param offset offset of the block in the buffer
+   * @param from minimum timestamp of the rows to return, or null for no lower bound
+   * @param to maximum timestamp of the rows to return, or null for no upper bound
+   * @param fields the fields to decode, or null to decode all of them
+   * @return the rows in the order they were added
+   * @throws IOException
+   */
+  public static List<Row> decode(byte[] block, int offset, Long from, Long to, Set<String> fields) throws IOException
+  {
+    ByteBuffer bb = ByteBuffer.wrap(block);
+    bb.position(offset);
+    int rowCount = (int)readVarLong(bb);
+    int columnCount = (int)readVarLong(bb);
+    String[] names = new String[columnCount];
+    byte[] types = new byte[columnCount];
+    int[] lengths = new int[columnCount];
+    Set<String> residualNames = Collections.emptySet();
+    for (int i = 0; i < columnCount; i++) {
+      names[i] = readString(bb);
+      types[i] = bb.get();
+      lengths[i] = (int)readVarLong(bb);
+      if (types[i] == TYPE_JSON) {
+        int count = (int)readVarLong(bb);
+        residualNames = new LinkedHashSet<>();
+        while (count-- > 0) {
+          residualNames.add(readString(bb));
+        }
+      }
+    }
+
+    List<Row> rows = new ArrayList<>(rowCount);
+    Row[] selected = new Row[rowCount];
+    long[] values = new long[rowCount];
+    boolean[] present = new boolean[rowCount];
+    int position = bb.position();
+    for (int i = 0; i < columnCount; i++) {
+      String name = names[i];
+      bb.position(position);
+      position += lengths[i];
+      if (TIMESTAMP_COLUMN.equals(name)) {
+        decodeLongs(bb, rowCount, values, present);
+        for (int j = 0; j < rowCount; j++) {
+          if ((from == null || values[j] >= from) && (to == null || values[j] <= to)) {
+            Row row = new Row();
+            row.timestamp = values[j];
+            row.fields = new HashMap<>();
+            selected[j] = row;
+            rows.add(row);
+          }
+        }
+        if (rows.isEmpty()) {
+          return rows;
+        }
+      } else if (WINDOW_COLUMN.equals(name)) {
+        decodeLongs(bb, rowCount, values, present);
+        for (int j = 0; j < rowCount; j++) {
+          if (selected[j] != null) {
+            selected[j].windowId = values[j];
+          }
+        }
+      } else if (KEY_COLUMN.equals(name)) {
+        decodeLongs(bb, rowCount, values, present);
+        for (int j = 0; j < rowCount; j++) {
+          if (selected[j] != null) {
+            selected[j].key = (int)values[j];
+          }
+        }
+      } else if (types[i] == TYPE_JSON) {
+        if (lengths[i] == 0 || !intersects(residualNames, fields)) {
+          continue;
+        }
+        for (int j = 0; j < rowCount; j++) {
+          int length = (int)readVarLong(bb);
+          if (selected[j] != null && length > 0) {
+            @SuppressWarnings("unchecked")
+            Map<String, Object> map = mapper.readValue(block, bb.position(), length, HashMap.class);
+            if (fields != null) {
+              map.keySet().retainAll(fields);
+            }
+            selected[j].fields.putAll(map);
+          }
+          bb.position(bb.position() + length);
+        }
+      } else if (fields == null || fields.contains(name)) {
+        if (types[i] == TYPE_LONG) {
+          decodeLongs(bb, rowCount, values, present);
+        } else {
+          decodeDoubles(bb, rowCount, values, present);
+        }
+        for (int j = 0; j < rowCount; j++) {
+          if (selected[j] != null && present[j]) {
+            selected[j].fields.put(name, types[i] == TYPE_LONG ? (Object)values[j] : (Object)Double.longBitsToDouble(values[j]));
+          }
+        }
+      }
+    }
+    return rows;
+  }
+
+  private static boolean intersects(Set<String> names, Set<String> fields)
+  {
+    if (fields == null) {
+      return !names.isEmpty();
+    }
+    for (String name : names) {
+      if (fields.contains(name)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static byte[] encodeLongs(long[] values, boolean[] present)
+  {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    writePresence(out, values.length, present);
+    long previous = 0;
+    for (int i = 0; i < values.length; i++) {
+      if (present == null || present[i]) {
+        writeVarLong(out, zigZag(values[i] - previous));
+        previous = values[i];
+      }
+    }
+    return out.toByteArray();
+  }
+
+  private static byte[] encodeDoubles(long[] bits, boolean[] present)
+  {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    writePresence(out, bits.length, present);
+    for (int i = 0; i < bits.length; i++) {
+      if (present[i]) {
+        long value = bits[i];
+        for (int shift = 56; shift >= 0; shift -= 8) {
+          out.write((int)(value >>> shift));
+        }
+      }
+    }
+    return out.toByteArray();
+  }
+
+  private static void writePresence(ByteArrayOutputStream out, int count, boolean[] present)
+  {
+    if (present == null) {
+      out.write(0);
+      return;
+    }
+    out.write(1);
+    for (int i = 0; i < count; i += 8) {
+      int b = 0;
+      for (int j = i; j < i + 8 && j < count; j++) {
+        if (present[j]) {
+          b |= 1 << (j - i);
+        }
+      }
+      out.write(b);
+    }
+  }
+
+  private static void readPresence(ByteBuffer bb, int count, boolean[] present)
+  {
+    if (bb.get() == 0) {
+      for (int i = 0; i < count; i++) {
+        present[i] = true;
+      }
+      return;
+    }
+    for (int i = 0; i < count; i += 8) {
+      int b = bb.get();
+      for (int j = i; j < i + 8 && j < count; j++) {
+        present[j] = (b & (1 << (j - i))) != 0;
+      }
+    }
+  }
+
+  private static void decodeLongs(ByteBuffer bb, int count, long[] values, boolean[] present)
+  {
+    readPresence(bb, count, present);
+    long previous = 0;
+    for (int i = 0; i < count; i++) {
+      if (present[i]) {
+        previous += unZigZag(readVarLong(bb));
+        values[i] = previous;
+      }
+    }
+  }
+
+  private static void decodeDoubles(ByteBuffer bb, int count, long[] values, boolean[] present)
+  {
+    readPresence(bb, count, present);
+    for (int i = 0; i < count; i++) {
+      if (present[i]) {
+        values[i] = bb.getLong();
+      }
+    }
+  }
+
+  private static long zigZag(long value)
+  {
+    return (value << 1) ^ (value >> 63);
+  }
+
+  private static long unZigZag(long value)
+  {
+    return (value >>> 1) ^ -(value & 1);
+  }
+
+  private static void writeVarLong(ByteArrayOutputStream out, long value)
+  {
+    while ((value & ~0x7FL) != 0) {
+      out.write((int)((value & 0x7F) | 0x80));
+      value >>>= 7;
+    }
+    out.write((int)value);
+  }
+
+  private static long readVarLong(ByteBuffer bb)
+  {
+    long value = 0;
+    int shift = 0;
+    byte b;
+    do {
+      b = bb.get();
+      value |= (long)(b & 0x7F) << shift;
+      shift += 7;
+    } while (b < 0);
+    return value;
+  }
+
+  private static void writeString(ByteArrayOutputStream out, String value)
+  {
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    writeVarLong(out, bytes.length);
+    out.write(bytes, 0, bytes.length);
+  }
+
+  private static String readString(ByteBuffer bb)
+  {
+    int length = (int)readVarLong(bb);
+    String value = new String(bb.array(), bb.position(), length, StandardCharsets.UTF_8);
+    bb.position(bb.position() + length);
+    return value;
+  }
+
+}
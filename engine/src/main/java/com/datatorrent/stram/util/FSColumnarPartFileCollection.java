@@ -0,0 +1,200 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.stram.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+
+/**
+ * <p>FSColumnarPartFileCollection class.</p>
+ *
+ * A part file collection that stores rows in binary {@link ColumnarBlock}s instead of JSON lines. Next to every part
+ * file an index file with one fixed size {@link ColumnarBlock.IndexEntry} per block records the timestamp and window
+ * ranges of the block along with its position, so that time range queries read only the blocks they need. The
+ * collection level index and meta files are the same as the ones of {@link FSPartFileCollection}.
+ *
+ * @since 3.5.0
+ */
+public class FSColumnarPartFileCollection extends FSPartFileCollection
+{
+  public static final String PART_FILE_EXTENSION = ".bin";
+  public static final String PART_INDEX_FILE_EXTENSION = ".idx";
+  private final ColumnarBlock.Builder builder = new ColumnarBlock.Builder();
+  private transient FSDataOutputStream partIndexOutStr;
+  protected int rowsPerBlock = 256;
+
+  public void setRowsPerBlock(int rowsPerBlock)
+  {
+    this.rowsPerBlock = rowsPerBlock;
+  }
+
+  public void writeRow(long timestamp, long windowId, int key, Map<String, Object> fields) throws IOException
+  {
+    builder.add(timestamp, windowId, key, fields);
+    if (builder.size() >= rowsPerBlock) {
+      flushBlock();
+    }
+  }
+
+  private void flushBlock() throws IOException
+  {
+    if (builder.isEmpty()) {
+      return;
+    }
+    byte[] block = builder.build();
+    ColumnarBlock.IndexEntry entry = builder.getIndexEntry();
+    builder.clear();
+
+    writeDataItem(block, false);
+    /* the part file is open now, the block starts where the part file ended before the write */
+    entry.offset = partFileBytes - block.length;
+    entry.length = block.length;
+    partFileItemCount += entry.rowCount;
+    entry.write(partIndexOutStr);
+    partIndexOutStr.hflush();
+  }
+
+  @Override
+  public boolean flushData() throws IOException
+  {
+    flushBlock();
+    return super.flushData();
+  }
+
+  @Override
+  public void teardown()
+  {
+    try {
+      flushBlock();
+    } catch (IOException ex) {
+      logger.error("Cannot flush block", ex);
+    }
+    super.teardown();
+  }
+
+  @Override
+  protected String getPartFileExtension()
+  {
+    return PART_FILE_EXTENSION;
+  }
+
+  @Override
+  protected void partFileOpened(String partFile) throws IOException
+  {
+    partIndexOutStr = createFile(getPartIndexFile(partFile));
+  }
+
+  @Override
+  protected void partFileClosed() throws IOException
+  {
+    if (partIndexOutStr != null) {
+      partIndexOutStr.close();
+      partIndexOutStr = null;
+    }
+  }
+
+  public static boolean isColumnarPartFile(String partFile)
+  {
+    return partFile != null && partFile.endsWith(PART_FILE_EXTENSION);
+  }
+
+  public static String getPartIndexFile(String partFile)
+  {
+    return partFile.substring(0, partFile.length() - PART_FILE_EXTENSION.length()) + PART_INDEX_FILE_EXTENSION;
+  }
+
+  /**
+   * Reads the sparse block index of a part file.
+   *
+   * @param fs the file system
+   * @param dir the directory of the collection
+   * @param partFile the name of the part file
+   * @return the index entries in the order the blocks were written, empty if the part file does not exist
+   * @throws IOException
+   */
+  public static List<ColumnarBlock.IndexEntry> readPartIndex(FileSystem fs, String dir, String partFile) throws IOException
+  {
+    List<ColumnarBlock.IndexEntry> entries = new ArrayList<>();
+    byte[] bytes;
+    try (FSDataInputStream in = fs.open(new Path(dir, getPartIndexFile(partFile)))) {
+      bytes = IOUtils.toByteArray(in);
+    } catch (FileNotFoundException ex) {
+      return entries;
+    }
+    /* the file may be being written to, ignore a trailing partial entry */
+    DataInputStream dis = new DataInputStream(new ByteArrayInputStream(bytes));
+    for (int i = bytes.length / ColumnarBlock.IndexEntry.SIZE; i-- > 0;) {
+      entries.add(ColumnarBlock.IndexEntry.read(dis));
+    }
+    return entries;
+  }
+
+  /**
+   * Reads the rows of a part file within the given time range. Only the blocks whose index entry overlaps the range
+   * are read from the file, and only the requested fields are decoded.
+   *
+   * @param fs the file system
+   * @param dir the directory of the collection
+   * @param partFile the name of the part file
+   * @param from minimum timestamp, or null
+   * @param to maximum timestamp, or null
+   * @param fields the fields to decode, or null for all
+   * @return the matching rows
+   * @throws IOException
+   */
+  public static List<ColumnarBlock.Row> readRows(FileSystem fs, String dir, String partFile, Long from, Long to, Set<String> fields) throws IOException
+  {
+    List<ColumnarBlock.Row> rows = new ArrayList<>();
+    List<ColumnarBlock.IndexEntry> entries = readPartIndex(fs, dir, partFile);
+    FSDataInputStream in = null;
+    try {
+      for (ColumnarBlock.IndexEntry entry : entries) {
+        if (!entry.overlapsTime(from, to)) {
+          continue;
+        }
+        if (in == null) {
+          in = fs.open(new Path(dir, partFile));
+        }
+        byte[] block = new byte[entry.length];
+        in.readFully(entry.offset, block);
+        rows.addAll(ColumnarBlock.decode(block, 0, from, to, fields));
+      }
+    } finally {
+      IOUtils.closeQuietly(in);
+    }
+    return rows;
+  }
+
+  private static final Logger logger = LoggerFactory.getLogger(FSColumnarPartFileCollection.class);
+}
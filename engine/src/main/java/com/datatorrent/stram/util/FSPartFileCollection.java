@@ -44,6 +44,7 @@ public class FSPartFileCollection
   private transient String localBasePath;
   public static final String INDEX_FILE = "index.txt";
   public static final String META_FILE = "meta.txt";
+  public static final String PART_FILE_EXTENSION = ".txt";
   protected int bytesPerPartFile = 1024 * 1024;
   protected long millisPerPartFile = 60 * 60 * 1000; // 60 minutes
   protected int fileParts = 0;
@@ -89,19 +90,23 @@ public class FSPartFileCollection
     }
     fs = FileSystem.newInstance(new Path(basePath).toUri(), new Configuration());
 
-    Path pa = new Path(basePath, META_FILE);
-    if (isLocalMode) {
-      metaOs = new FSDataOutputStream(new FileOutputStream(localBasePath + "/" + META_FILE), null);
-    } else {
-      metaOs = fs.create(pa);
-    }
+    metaOs = createFile(META_FILE);
+    indexOutStr = createFile(INDEX_FILE);
+  }
 
-    pa = new Path(basePath, INDEX_FILE);
+  /**
+   * Creates the named file under the base path, either on the local file system or on the configured file system.
+   *
+   * @param fileName name of the file relative to the base path
+   * @return the output stream of the created file
+   * @throws IOException
+   */
+  protected FSDataOutputStream createFile(String fileName) throws IOException
+  {
     if (isLocalMode) {
-      indexOutStr = new FSDataOutputStream(new FileOutputStream(localBasePath + "/" + INDEX_FILE), null);
-    } else {
-      indexOutStr = fs.create(pa);
+      return new FSDataOutputStream(new FileOutputStream(localBasePath + "/" + fileName), null);
     }
+    return fs.create(new Path(basePath, fileName));
   }
 
   public void teardown()
@@ -114,6 +119,7 @@ public class FSPartFileCollection
       if (partOutStr != null) {
         logger.debug("Closing part file");
         partOutStr.close();
+        partFileClosed();
         if (indexOutStr != null) {
           writeIndex();
         }
@@ -130,18 +136,34 @@ public class FSPartFileCollection
 
   private void openNewPartFile() throws IOException
   {
-    hdfsFile = "part" + fileParts + ".txt";
-    Path path = new Path(basePath, hdfsFile);
+    hdfsFile = "part" + fileParts + getPartFileExtension();
     logger.debug("Opening new part file: {}", hdfsFile);
-    if (isLocalMode) {
-      partOutStr = new FSDataOutputStream(new FileOutputStream(localBasePath + "/" + hdfsFile), null);
-    } else {
-      partOutStr = fs.create(path);
-    }
+    partOutStr = createFile(hdfsFile);
     fileParts++;
     currentPartFileTimeStamp = System.currentTimeMillis();
     partFileItemCount = 0;
     partFileBytes = 0;
+    partFileOpened(hdfsFile);
+  }
+
+  /**
+   * The extension of the part files, to be overridden by collections that do not write text part files.
+   *
+   * @return the part file extension including the leading dot
+   */
+  protected String getPartFileExtension()
+  {
+    return PART_FILE_EXTENSION;
+  }
+
+  // to be overridden if user wants to maintain additional files along with the part file
+  protected void partFileOpened(String partFile) throws IOException
+  {
+  }
+
+  // to be overridden if user wants to maintain additional files along with the part file
+  protected void partFileClosed() throws IOException
+  {
   }
 
   public void writeMetaData(byte[] bytes) throws IOException
@@ -151,12 +173,17 @@ public class FSPartFileCollection
   }
 
   public void writeDataItem(byte[] bytes, boolean incrementItemCount) throws IOException
+  {
+    writeDataItem(bytes, 0, bytes.length, incrementItemCount);
+  }
+
+  public void writeDataItem(byte[] bytes, int offset, int length, boolean incrementItemCount) throws IOException
   {
     if (partOutStr == null) {
       openNewPartFile();
     }
-    partOutStr.write(bytes);
-    partFileBytes += bytes.length;
+    partOutStr.write(bytes, offset, length);
+    partFileBytes += length;
     if (incrementItemCount) {
       partFileItemCount++;
     }
@@ -193,6 +220,7 @@ public class FSPartFileCollection
   {
     partOutStr.close();
     partOutStr = null;
+    partFileClosed();
     writeIndex();
     syncRequested = false;
   }
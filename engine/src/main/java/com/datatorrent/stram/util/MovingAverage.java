@@ -18,6 +18,8 @@
  */
 package com.datatorrent.stram.util;
 
+import com.datatorrent.api.Stats;
+
 /**
  * Moving average calculations.
  *
@@ -155,4 +157,58 @@ public class MovingAverage
     }
   }
 
+  /**
+   * Histogram of the values added over the last one to two base time intervals. The values are kept in two halves and
+   * the older half is dropped every base time interval, so that the percentiles follow the recent values instead of
+   * accumulating since the start.
+   */
+  public static class TimedMovingHistogram implements java.io.Serializable
+  {
+    private static final long serialVersionUID = 201610191530L;
+    private final long baseTimeInterval;
+    private Stats.Histogram current = new Stats.Histogram();
+    private Stats.Histogram previous = new Stats.Histogram();
+    private long currentStartTime;
+
+    public TimedMovingHistogram(long baseTimeInterval)
+    {
+      this.baseTimeInterval = baseTimeInterval;
+    }
+
+    public synchronized void add(Stats.Histogram values, long time)
+    {
+      roll(time);
+      current.merge(values);
+    }
+
+    /**
+     * @param time current time
+     * @return copy of the values added over the last one to two base time intervals
+     */
+    public synchronized Stats.Histogram get(long time)
+    {
+      roll(time);
+      Stats.Histogram histogram = new Stats.Histogram();
+      histogram.merge(previous);
+      histogram.merge(current);
+      return histogram;
+    }
+
+    private void roll(long time)
+    {
+      final long elapsed = time - currentStartTime;
+      if (elapsed >= baseTimeInterval) {
+        Stats.Histogram dropped = previous;
+        dropped.reset();
+        if (elapsed < 2 * baseTimeInterval) {
+          previous = current;
+          current = dropped;
+        } else {
+          current.reset();
+        }
+        currentStartTime = time;
+      }
+    }
+  }
+
 }
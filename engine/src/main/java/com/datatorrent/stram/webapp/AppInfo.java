@@ -211,6 +211,13 @@ public class AppInfo
     {
       return 0;
     }
+
+    @javax.xml.bind.annotation.XmlElement
+    @AutoMetric
+    public int getCheckpointPurgeBacklog()
+    {
+      return 0;
+    }
   }
 
   /**
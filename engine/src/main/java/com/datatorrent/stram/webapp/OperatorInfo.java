@@ -83,6 +83,14 @@ public class OperatorInfo
   @RecordField(type = "meta")
   public String logicalName;
   public String recordingId;
+  /**
+   * data tuples the recording dropped because of its rate limit or its full queue
+   */
+  public long recordingDroppedTuples;
+  /**
+   * data tuples the recording skipped because of sampling
+   */
+  public long recordingSkippedTuples;
   @RecordField(type = "stats")
   public Object counters;
   @RecordField(type = "stats")
@@ -93,6 +101,15 @@ public class OperatorInfo
   public long checkpointTime;
   @RecordField(type = "stats")
   public long checkpointTimeMA;
+  /**
+   * percentiles of the milliseconds the latency markers took from the input operators, keyed by input operator id
+   */
+  public Map<String, Map<String, Long>> pathLatencies;
+  /**
+   * percentiles of the nanoseconds taken to process the sampled tuples, beginWindow, endWindow and checkpoint, and of
+   * the bytes allocated per window, when the operator is profiled
+   */
+  public Map<String, Map<String, Long>> profile;
 
   /**
    * @param info
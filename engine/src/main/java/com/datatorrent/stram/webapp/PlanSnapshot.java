@@ -0,0 +1,252 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.stram.webapp;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.ws.rs.core.EntityTag;
+
+import org.codehaus.jackson.map.ObjectMapper;
+import org.codehaus.jettison.json.JSONArray;
+import org.codehaus.jettison.json.JSONException;
+import org.codehaus.jettison.json.JSONObject;
+
+import org.apache.commons.codec.digest.DigestUtils;
+
+import com.datatorrent.stram.StreamingContainerManager;
+
+/**
+ * <p>PlanSnapshot class.</p>
+ *
+ * Serialized views of the physical and logical plan, built once per stats interval and shared by all requests of the
+ * interval. Every view carries an entity tag derived from its content, so that clients polling an unchanged view are
+ * answered with "304 Not Modified". The changes between two snapshots contain only the fields of the operators which
+ * changed.
+ *
+ * @since 3.5.0
+ */
+public class PlanSnapshot
+{
+  private final long id;
+  private final long timestamp;
+  private final View physicalPlan;
+  private final View operators;
+  private final View streams;
+  private final View logicalOperators;
+  private final Map<String, JSONObject> operatorsById;
+  private final Map<String, JSONObject> logicalOperatorsByName;
+
+  /**
+   * JSON of a view with its entity tag.
+   */
+  public static class View
+  {
+    public final String json;
+    public final EntityTag entityTag;
+
+    View(String json)
+    {
+      this.json = json;
+      this.entityTag = new EntityTag(DigestUtils.md5Hex(json));
+    }
+  }
+
+  PlanSnapshot(long id, long timestamp, StreamingContainerManager dagManager, ObjectMapper objectMapper)
+      throws IOException, JSONException
+  {
+    this.id = id;
+    this.timestamp = timestamp;
+
+    OperatorsInfo operatorList = new OperatorsInfo();
+    operatorList.operators = dagManager.getOperatorInfoList();
+    StreamsInfo streamList = new StreamsInfo();
+    streamList.streams = dagManager.getStreamInfoList();
+    LogicalOperatorsInfo logicalOperatorList = new LogicalOperatorsInfo();
+    logicalOperatorList.operators = dagManager.getLogicalOperatorInfoList();
+
+    operators = new View(objectMapper.writeValueAsString(operatorList));
+    streams = new View(objectMapper.writeValueAsString(streamList));
+    logicalOperators = new View(objectMapper.writeValueAsString(logicalOperatorList));
+    Map<String, Object> result = new HashMap<>();
+    result.put("operators", operatorList.operators);
+    result.put("streams", streamList.streams);
+    physicalPlan = new View(objectMapper.writeValueAsString(result));
+
+    operatorsById = index(new JSONObject(operators.json).optJSONArray("operators"), "id");
+    logicalOperatorsByName = index(new JSONObject(logicalOperators.json).optJSONArray("operators"), "name");
+  }
+
+  private static Map<String, JSONObject> index(JSONArray array, String key) throws JSONException
+  {
+    Map<String, JSONObject> map = new LinkedHashMap<>();
+    if (array != null) {
+      for (int i = 0; i < array.length(); i++) {
+        JSONObject object = array.getJSONObject(i);
+        map.put(object.getString(key), object);
+      }
+    }
+    return Collections.unmodifiableMap(map);
+  }
+
+  public long getId()
+  {
+    return id;
+  }
+
+  public long getTimestamp()
+  {
+    return timestamp;
+  }
+
+  public View getPhysicalPlan()
+  {
+    return physicalPlan;
+  }
+
+  public View getOperators()
+  {
+    return operators;
+  }
+
+  public View getStreams()
+  {
+    return streams;
+  }
+
+  public View getLogicalOperators()
+  {
+    return logicalOperators;
+  }
+
+  /**
+   * Returns the fields of the physical and logical operators which changed since the given snapshot, along with the
+   * operators which were removed. All fields are returned when there is no previous snapshot.
+   *
+   * @param previous snapshot the client has seen, or null
+   * @return changes
+   * @throws JSONException
+   */
+  public JSONObject getChanges(PlanSnapshot previous) throws JSONException
+  {
+    JSONObject changes = new JSONObject();
+    changes.put("id", id);
+    changes.put("full", previous == null);
+    addChanges(changes, "operators", "id", operatorsById, previous == null ? null : previous.operatorsById);
+    addChanges(changes, "logicalOperators", "name", logicalOperatorsByName,
+        previous == null ? null : previous.logicalOperatorsByName);
+    return changes;
+  }
+
+  /**
+   * Returns whether the changes returned by {@link #getChanges(PlanSnapshot)} are empty.
+   */
+  static boolean isEmpty(JSONObject changes) throws JSONException
+  {
+    return changes.getJSONArray("operators").length() == 0 && changes.getJSONArray("removedOperators").length() == 0
+        && changes.getJSONArray("logicalOperators").length() == 0
+        && changes.getJSONArray("removedLogicalOperators").length() == 0;
+  }
+
+  private static void addChanges(JSONObject changes, String name, String key, Map<String, JSONObject> current,
+      Map<String, JSONObject> previous) throws JSONException
+  {
+    JSONArray changed = new JSONArray();
+    for (Map.Entry<String, JSONObject> entry : current.entrySet()) {
+      JSONObject previousObject = previous == null ? null : previous.get(entry.getKey());
+      if (previousObject == null) {
+        changed.put(entry.getValue());
+        continue;
+      }
+      JSONObject delta = new JSONObject();
+      for (Iterator<?> it = entry.getValue().keys(); it.hasNext();) {
+        String field = (String)it.next();
+        Object value = entry.getValue().get(field);
+        Object previousValue = previousObject.opt(field);
+        if (previousValue == null || !jsonEquals(previousValue, value)) {
+          delta.put(field, value);
+        }
+      }
+      if (delta.length() > 0) {
+        delta.put(key, entry.getKey());
+        changed.put(delta);
+      }
+    }
+    changes.put(name, changed);
+
+    JSONArray removed = new JSONArray();
+    if (previous != null) {
+      for (String previousKey : previous.keySet()) {
+        if (!current.containsKey(previousKey)) {
+          removed.put(previousKey);
+        }
+      }
+    }
+    changes.put("removed" + Character.toUpperCase(name.charAt(0)) + name.substring(1), removed);
+  }
+
+  /**
+   * Compares two JSON values field by field and element by element, stopping at the first difference.
+   */
+  static boolean jsonEquals(Object value1, Object value2) throws JSONException
+  {
+    if (value1 instanceof JSONObject && value2 instanceof JSONObject) {
+      JSONObject object1 = (JSONObject)value1;
+      JSONObject object2 = (JSONObject)value2;
+      if (object1.length() != object2.length()) {
+        return false;
+      }
+      for (Iterator<?> it = object1.keys(); it.hasNext();) {
+        String field = (String)it.next();
+        if (!object2.has(field) || !jsonEquals(object1.get(field), object2.get(field))) {
+          return false;
+        }
+      }
+      return true;
+    }
+    if (value1 instanceof JSONArray && value2 instanceof JSONArray) {
+      JSONArray array1 = (JSONArray)value1;
+      JSONArray array2 = (JSONArray)value2;
+      if (array1.length() != array2.length()) {
+        return false;
+      }
+      for (int i = 0; i < array1.length(); i++) {
+        if (!jsonEquals(array1.get(i), array2.get(i))) {
+          return false;
+        }
+      }
+      return true;
+    }
+    if (value1 instanceof Number && value2 instanceof Number) {
+      Number number1 = (Number)value1;
+      Number number2 = (Number)value2;
+      if ((number1 instanceof Double || number1 instanceof Float)
+          || (number2 instanceof Double || number2 instanceof Float)) {
+        return Double.compare(number1.doubleValue(), number2.doubleValue()) == 0;
+      }
+      return number1.longValue() == number2.longValue();
+    }
+    return value1.equals(value2);
+  }
+
+}
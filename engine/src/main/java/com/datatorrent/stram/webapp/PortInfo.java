@@ -19,6 +19,8 @@
 package com.datatorrent.stram.webapp;
 
 
+import java.util.Map;
+
 import javax.xml.bind.annotation.XmlAccessType;
 import javax.xml.bind.annotation.XmlAccessorType;
 import javax.xml.bind.annotation.XmlRootElement;
@@ -39,4 +41,24 @@ public class PortInfo
   public long bufferServerBytesPSMA;
   public long queueSizeMA;
   public String recordingId;
+  /**
+   * data tuples the recording dropped because of its rate limit or its full queue
+   */
+  public long recordingDroppedTuples;
+  /**
+   * data tuples the recording skipped because of sampling
+   */
+  public long recordingSkippedTuples;
+  /**
+   * percentiles of the milliseconds the latency markers took from the upstream operator, null without markers
+   */
+  public Map<String, Long> queueLatency;
+  /**
+   * tuple counts of the most frequent partition hashes of an output port, null unless tracked
+   */
+  public Map<String, Long> hotKeys;
+  /**
+   * ratio of the tuples sent to the most loaded downstream partition to the mean per partition, null unless tracked
+   */
+  public Double partitionSkew;
 }
@@ -28,6 +28,7 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
@@ -49,6 +50,9 @@ import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.ResponseBuilder;
 
 import org.codehaus.jackson.JsonGenerator;
 import org.codehaus.jackson.JsonProcessingException;
@@ -125,9 +129,11 @@ public class StramWebServices
   public static final String PATH_ALERTS = "alerts";
   public static final String PATH_LOGGERS = "loggers";
   public static final String PATH_STACKTRACE = "stackTrace";
+  public static final String PATH_CHANGES = "changes";
   public static final long WAIT_TIME = 5000;
   public static final long STACK_TRACE_WAIT_TIME = 1000;
   public static final long STACK_TRACE_ATTEMPTS = 10;
+  private static final int SNAPSHOT_HISTORY = 16;
 
 
   //public static final String PATH_ACTION_OPERATOR_CLASSES = "actionOperatorClasses";
@@ -141,6 +147,12 @@ public class StramWebServices
   private boolean initialized = false;
 
   private OperatorDiscoverer operatorDiscoverer = new OperatorDiscoverer();
+  /**
+   * recent plan snapshots, the latest last.
+   */
+  private final LinkedList<PlanSnapshot> snapshots = new LinkedList<>();
+  private boolean buildingSnapshot;
+  private long lastSnapshotId;
 
   @Inject
   public StramWebServices(StramAppContext context)
@@ -200,6 +212,64 @@ public class StramWebServices
     }
   }
 
+  /**
+   * Returns the plan snapshot of the current stats interval, which is built by the first request of the interval. The
+   * snapshot is built outside of the lock, the other requests meanwhile get the previous snapshot.
+   */
+  PlanSnapshot getSnapshot() throws IOException, JSONException
+  {
+    long now = System.currentTimeMillis();
+    long id;
+    synchronized (snapshots) {
+      PlanSnapshot latest = snapshots.peekLast();
+      if (latest != null && (buildingSnapshot
+          || now - latest.getTimestamp() < dagManager.getLogicalPlan().getValue(DAGContext.HEARTBEAT_INTERVAL_MILLIS))) {
+        return latest;
+      }
+      buildingSnapshot = true;
+      id = ++lastSnapshotId;
+    }
+
+    PlanSnapshot snapshot = null;
+    try {
+      snapshot = new PlanSnapshot(id, now, dagManager, objectMapper);
+    } finally {
+      synchronized (snapshots) {
+        buildingSnapshot = false;
+        // snapshots built concurrently before the first one was added may complete out of order
+        if (snapshot != null && (snapshots.isEmpty() || snapshots.peekLast().getId() < id)) {
+          snapshots.add(snapshot);
+          if (snapshots.size() > SNAPSHOT_HISTORY) {
+            snapshots.removeFirst();
+          }
+        }
+        snapshots.notifyAll();
+      }
+    }
+    return snapshot;
+  }
+
+  private PlanSnapshot getSnapshot(long id)
+  {
+    synchronized (snapshots) {
+      for (PlanSnapshot snapshot : snapshots) {
+        if (snapshot.getId() == id) {
+          return snapshot;
+        }
+      }
+    }
+    return null;
+  }
+
+  private static Response getView(Request request, PlanSnapshot.View view)
+  {
+    ResponseBuilder builder = request.evaluatePreconditions(view.entityTag);
+    if (builder == null) {
+      builder = Response.ok(view.json, MediaType.APPLICATION_JSON);
+    }
+    return builder.tag(view.entityTag).build();
+  }
+
   @GET
   @Produces(MediaType.APPLICATION_JSON)
   public JSONObject get() throws Exception
@@ -219,36 +289,62 @@ public class StramWebServices
   @GET
   @Path(PATH_PHYSICAL_PLAN)
   @Produces(MediaType.APPLICATION_JSON)
-  public JSONObject getPhysicalPlan() throws Exception
+  public Response getPhysicalPlan(@Context Request request) throws Exception
   {
     init();
-    Map<String, Object> result = new HashMap<>();
-    result.put("operators", dagManager.getOperatorInfoList());
-    result.put("streams", dagManager.getStreamInfoList());
-    return new JSONObject(objectMapper.writeValueAsString(result));
+    return getView(request, getSnapshot().getPhysicalPlan());
   }
 
   @GET
   @Path(PATH_PHYSICAL_PLAN_OPERATORS)
   @Produces(MediaType.APPLICATION_JSON)
-  public JSONObject getOperatorsInfo() throws Exception
+  public Response getOperatorsInfo(@Context Request request) throws Exception
   {
     init();
-    OperatorsInfo nodeList = new OperatorsInfo();
-    nodeList.operators = dagManager.getOperatorInfoList();
-    // To get around the nasty JAXB problem for lists
-    return new JSONObject(objectMapper.writeValueAsString(nodeList));
+    return getView(request, getSnapshot().getOperators());
   }
 
   @GET
   @Path(PATH_PHYSICAL_PLAN_STREAMS)
   @Produces(MediaType.APPLICATION_JSON)
-  public JSONObject getStreamsInfo() throws Exception
+  public Response getStreamsInfo(@Context Request request) throws Exception
   {
     init();
-    StreamsInfo streamList = new StreamsInfo();
-    streamList.streams = dagManager.getStreamInfoList();
-    return new JSONObject(objectMapper.writeValueAsString(streamList));
+    return getView(request, getSnapshot().getStreams());
+  }
+
+  /**
+   * Long polls the changes of the physical and logical operators since the given snapshot. The request returns as soon
+   * as an operator changed or the wait time elapsed. All fields are returned when the snapshot is not known, such as
+   * on the first request.
+   *
+   * @param since id of the snapshot returned by the previous request
+   * @param waitTime milliseconds to wait for changes, at most {@link #WAIT_TIME}
+   * @return changes along with the id of the current snapshot
+   * @throws Exception
+   */
+  @GET
+  @Path(PATH_CHANGES)
+  @Produces(MediaType.APPLICATION_JSON)
+  public JSONObject getChanges(@QueryParam("since") long since, @QueryParam("waitTime") long waitTime) throws Exception
+  {
+    init();
+    if (waitTime == 0 || waitTime > WAIT_TIME) {
+      waitTime = WAIT_TIME;
+    }
+    PlanSnapshot previous = getSnapshot(since);
+    long deadline = System.currentTimeMillis() + waitTime;
+    while (true) {
+      PlanSnapshot snapshot = getSnapshot();
+      JSONObject changes = snapshot.getChanges(previous);
+      long remaining = deadline - System.currentTimeMillis();
+      if (previous == null || !PlanSnapshot.isEmpty(changes) || remaining <= 0) {
+        return changes;
+      }
+      synchronized (snapshots) {
+        snapshots.wait(Math.min(remaining, dagManager.getLogicalPlan().getValue(DAGContext.HEARTBEAT_INTERVAL_MILLIS)));
+      }
+    }
   }
 
   @GET
@@ -564,12 +660,10 @@ public class StramWebServices
   @GET
   @Path(PATH_LOGICAL_PLAN_OPERATORS)
   @Produces(MediaType.APPLICATION_JSON)
-  public JSONObject getLogicalOperators() throws Exception
+  public Response getLogicalOperators(@Context Request request) throws Exception
   {
     init();
-    LogicalOperatorsInfo nodeList = new LogicalOperatorsInfo();
-    nodeList.operators = dagManager.getLogicalOperatorInfoList();
-    return new JSONObject(objectMapper.writeValueAsString(nodeList));
+    return getView(request, getSnapshot().getLogicalOperators());
   }
 
   @GET
@@ -0,0 +1,112 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.stram;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+
+import org.apache.hadoop.conf.Configuration;
+
+import com.datatorrent.stram.support.StramTestSupport;
+import com.datatorrent.stram.support.StramTestSupport.MemoryStorageAgent;
+
+public class CheckpointCatalogTest
+{
+  @Rule
+  public StramTestSupport.TestMeta testMeta = new StramTestSupport.TestMeta();
+
+  @Test
+  public void testRestore() throws IOException
+  {
+    MemoryStorageAgent storageAgent = new MemoryStorageAgent();
+    storageAgent.save("state", 3, 7);
+
+    CheckpointCatalog catalog = new CheckpointCatalog(testMeta.getPath(), new Configuration());
+    catalog.restore();
+    catalog.add(1, 10);
+    catalog.add(1, 11);
+    catalog.add(2, 10);
+    catalog.flush();
+    catalog.remove(1, 10);
+    catalog.flush();
+    catalog.add(1, 12);
+    catalog.close();
+
+    CheckpointCatalog restored = new CheckpointCatalog(testMeta.getPath(), new Configuration());
+    restored.restore();
+    Assert.assertArrayEquals("operator 1", new long[] {11, 12}, restored.getWindowIds(1, storageAgent));
+    Assert.assertArrayEquals("operator 2", new long[] {10}, restored.getWindowIds(2, storageAgent));
+    Assert.assertArrayEquals("listed", new long[] {7}, restored.getWindowIds(3, storageAgent));
+    storageAgent.save("state", 3, 8);
+    Assert.assertArrayEquals("added to the catalog", new long[] {7}, restored.getWindowIds(3, storageAgent));
+    restored.close();
+  }
+
+  @Test
+  public void testFlush() throws IOException
+  {
+    CheckpointCatalog catalog = new CheckpointCatalog(testMeta.getPath(), new Configuration());
+    catalog.restore();
+    catalog.add(1, 10);
+    catalog.add(2, 10);
+    catalog.removeOperator(2);
+    catalog.flush();
+    catalog.add(1, 11);
+
+    // restored while the catalog is still open, as after a failure of the application master
+    CheckpointCatalog restored = new CheckpointCatalog(testMeta.getPath(), new Configuration());
+    restored.restore();
+    MemoryStorageAgent storageAgent = new MemoryStorageAgent();
+    storageAgent.save("state", 2, 7);
+    Assert.assertArrayEquals("add buffered until the flush", new long[] {10}, restored.getWindowIds(1, storageAgent));
+    Assert.assertArrayEquals("removed operator", new long[] {7}, restored.getWindowIds(2, storageAgent));
+    restored.close();
+
+    catalog.flush();
+    restored = new CheckpointCatalog(testMeta.getPath(), new Configuration());
+    restored.restore();
+    Assert.assertArrayEquals("operator 1", new long[] {10, 11}, restored.getWindowIds(1, storageAgent));
+    restored.close();
+    catalog.close();
+  }
+
+  @Test
+  public void testCompaction() throws IOException
+  {
+    CheckpointCatalog catalog = new CheckpointCatalog(testMeta.getPath(), new Configuration());
+    catalog.restore();
+    for (long windowId = 0; windowId < 30000; windowId++) {
+      catalog.add(1, windowId);
+      catalog.remove(1, windowId - 1);
+      catalog.flush();
+    }
+    catalog.close();
+    long length = new File(testMeta.getPath(), "recovery/" + CheckpointCatalog.FILE_CATALOG).length();
+    Assert.assertTrue("compacted " + length, length < 10000 * 13 * 2);
+
+    CheckpointCatalog restored = new CheckpointCatalog(testMeta.getPath(), new Configuration());
+    restored.restore();
+    Assert.assertArrayEquals("operator 1", new long[] {29999}, restored.getWindowIds(1, new MemoryStorageAgent()));
+  }
+
+}
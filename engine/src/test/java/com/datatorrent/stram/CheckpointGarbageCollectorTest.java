@@ -0,0 +1,134 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.stram;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+
+import com.datatorrent.api.annotation.Stateless;
+import com.datatorrent.common.util.FSStorageAgent;
+import com.datatorrent.stram.support.StramTestSupport;
+import com.datatorrent.stram.support.StramTestSupport.MemoryStorageAgent;
+
+public class CheckpointGarbageCollectorTest
+{
+  @Rule
+  public StramTestSupport.TestMeta testMeta = new StramTestSupport.TestMeta();
+
+  private static long[] getSortedWindowIds(FSStorageAgent storageAgent, int operatorId) throws IOException
+  {
+    long[] windowIds = storageAgent.getWindowIds(operatorId);
+    Arrays.sort(windowIds);
+    return windowIds;
+  }
+
+  @Test
+  public void testBulkDelete() throws IOException
+  {
+    FSStorageAgent storageAgent = new FSStorageAgent(testMeta.getPath(), null);
+    storageAgent.save("state", 1, Stateless.WINDOW_ID);
+    for (int windowId = 1; windowId <= 4; windowId++) {
+      storageAgent.save("state", 1, windowId);
+      storageAgent.save("state", 2, windowId);
+    }
+
+    CheckpointGarbageCollector gc = new CheckpointGarbageCollector(0);
+    gc.purge(1, 1, storageAgent);
+    gc.purge(1, 2, storageAgent);
+    gc.purge(2, 1, storageAgent);
+    gc.purge(2, 2, storageAgent);
+    gc.purge(2, 3, storageAgent);
+    gc.teardown();
+
+    Assert.assertArrayEquals("operator 1", new long[] {Stateless.WINDOW_ID, 3, 4}, getSortedWindowIds(storageAgent, 1));
+    Assert.assertArrayEquals("operator 2", new long[] {4}, getSortedWindowIds(storageAgent, 2));
+    Assert.assertEquals("deleted", 5, gc.getDeletedCount());
+    Assert.assertEquals("failed", 0, gc.getFailedCount());
+    Assert.assertEquals("pending", 0, gc.getPendingCount());
+  }
+
+  @Test
+  public void testRateLimit() throws Exception
+  {
+    MemoryStorageAgent storageAgent = new MemoryStorageAgent();
+    for (int windowId = 1; windowId <= 4; windowId++) {
+      storageAgent.save("state", 1, windowId);
+    }
+
+    final CheckpointGarbageCollector gc = new CheckpointGarbageCollector(1);
+    gc.purge(1, 1, storageAgent);
+    gc.purge(1, 2, storageAgent);
+    gc.purge(1, 3, storageAgent);
+    Assert.assertTrue("first checkpoint deleted", StramTestSupport.awaitCompletion(new StramTestSupport.WaitCondition()
+    {
+      @Override
+      public boolean isComplete()
+      {
+        return gc.getDeletedCount() == 1;
+      }
+    }, 5000));
+    Assert.assertEquals("backlog", 2, gc.getPendingCount());
+
+    gc.teardown();
+    Assert.assertEquals("deleted", 3, gc.getDeletedCount());
+    Assert.assertEquals("pending", 0, gc.getPendingCount());
+    Assert.assertArrayEquals("remaining", new long[] {4}, storageAgent.getWindowIds(1));
+  }
+
+  @Test
+  public void testBulkRateLimit() throws Exception
+  {
+    FSStorageAgent storageAgent = new FSStorageAgent(testMeta.getPath(), null);
+    for (int windowId = 1; windowId <= 3; windowId++) {
+      storageAgent.save("state", 1, windowId);
+      storageAgent.save("state", 2, windowId);
+    }
+
+    final CheckpointGarbageCollector gc = new CheckpointGarbageCollector(2);
+    long startMillis = System.currentTimeMillis();
+    gc.purge(1, 1, storageAgent);
+    gc.purge(1, 2, storageAgent);
+    gc.purge(2, 1, storageAgent);
+    gc.purge(2, 2, storageAgent);
+    gc.purge(3, 1, storageAgent);
+    Assert.assertTrue("backlog deleted", StramTestSupport.awaitCompletion(new StramTestSupport.WaitCondition()
+    {
+      @Override
+      public boolean isComplete()
+      {
+        return gc.getPendingCount() == 0;
+      }
+    }, 10000));
+    // however the collector batches the backlog, more than 2 of the 5 checkpoints are deleted after a second
+    long elapsedMillis = System.currentTimeMillis() - startMillis;
+    Assert.assertTrue("throttled, deleted after " + elapsedMillis + "ms", elapsedMillis >= 1000);
+
+    gc.teardown();
+    Assert.assertEquals("unsaved checkpoint not counted", 4, gc.getDeletedCount());
+    Assert.assertEquals("failed", 0, gc.getFailedCount());
+    Assert.assertEquals("pending", 0, gc.getPendingCount());
+    Assert.assertArrayEquals("operator 1", new long[] {3}, getSortedWindowIds(storageAgent, 1));
+    Assert.assertArrayEquals("operator 2", new long[] {3}, getSortedWindowIds(storageAgent, 2));
+  }
+
+}
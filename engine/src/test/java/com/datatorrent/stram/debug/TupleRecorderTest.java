@@ -19,6 +19,7 @@
 package com.datatorrent.stram.debug;
 
 import java.io.BufferedReader;
+import java.io.DataInputStream;
 import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
@@ -41,6 +42,7 @@ import org.apache.hadoop.fs.LocalFileSystem;
 import org.apache.hadoop.fs.Path;
 
 import com.datatorrent.api.Context;
+import com.datatorrent.api.Sink;
 import com.datatorrent.common.util.AsyncFSStorageAgent;
 import com.datatorrent.stram.StramLocalCluster;
 import com.datatorrent.stram.debug.TupleRecorder.PortInfo;
@@ -206,6 +208,74 @@ public class TupleRecorderTest
     }
   }
 
+  @Test
+  public void testBinaryRecordingWithSampleAndRateLimit() throws IOException
+  {
+    try (FileSystem fs = new LocalFileSystem()) {
+      TupleRecorder recorder = new TupleRecorder(null, "application_test_id_2");
+      recorder.getStorage().setLocalMode(true);
+      recorder.getStorage().setBasePath("file://" + testWorkDir.getAbsolutePath() + "/binaryRecordings");
+      recorder.setBinary(true);
+      recorder.setSampleRate(2);
+      recorder.setMaxTuplesPerSecond(2);
+      recorder.addInputPortInfo("ip1", "str1");
+      Sink<Object> sink = recorder.newSink("ip1");
+      recorder.setup(null, null);
+
+      sink.put(StramTestSupport.generateBeginWindowTuple("ip1", 1000));
+      // the tuple is reused, it has to be recorded as it was put
+      Tuple t = new Tuple();
+      t.key = "speed";
+      for (int i = 0; i < 5; i++) {
+        t.value = i + "m/h";
+        sink.put(t);
+      }
+      sink.put(StramTestSupport.generateEndWindowTuple("ip1", 1000));
+      recorder.teardown();
+
+      Assert.assertEquals("skipped tuples", 2, recorder.getSkippedTupleCount());
+      Assert.assertEquals("dropped tuples", 1, recorder.getDroppedTupleCount());
+      Assert.assertEquals("recorded tuples", 2, recorder.getTotalTupleCount());
+
+      fs.initialize((new Path(recorder.getStorage().getBasePath()).toUri()), new Configuration());
+      Path path = new Path(recorder.getStorage().getBasePath(), FSPartFileCollection.META_FILE);
+      try (FSDataInputStream is = fs.open(path);
+          BufferedReader br = new BufferedReader(new InputStreamReader(is))) {
+        Assert.assertEquals("check version", TupleRecorder.BINARY_VERSION, br.readLine());
+      }
+
+      path = new Path(recorder.getStorage().getBasePath(), "part0" + TupleRecorder.BINARY_PART_FILE_EXTENSION);
+      try (DataInputStream is = new DataInputStream(fs.open(path))) {
+        Assert.assertEquals("begin window", TupleRecorder.RECORD_BEGIN_WINDOW, is.readByte());
+        is.readLong();
+        Assert.assertEquals("begin window id", 1000, is.readLong());
+        skipTupleRecord(is, TupleRecorder.RECORD_CONTROL_TUPLE);
+        for (String value : new String[] {"0m/h", "2m/h"}) {
+          Assert.assertEquals("tuple", TupleRecorder.RECORD_TUPLE, is.readByte());
+          is.readLong();
+          Assert.assertEquals("port id", 0, is.readInt());
+          byte[] payload = new byte[is.readInt()];
+          is.readFully(payload);
+          Assert.assertEquals("payload", "{\"key\":\"speed\",\"value\":\"" + value + "\"}", new String(payload));
+        }
+        skipTupleRecord(is, TupleRecorder.RECORD_CONTROL_TUPLE);
+        Assert.assertEquals("end window", TupleRecorder.RECORD_END_WINDOW, is.readByte());
+        is.readLong();
+        Assert.assertEquals("end window id", 1000, is.readLong());
+        Assert.assertEquals("dropped in window", 1, is.readLong());
+        Assert.assertEquals("end of part file", -1, is.read());
+      }
+    }
+  }
+
+  private static void skipTupleRecord(DataInputStream is, byte type) throws IOException
+  {
+    Assert.assertEquals("record type", type, is.readByte());
+    is.readLong();
+    is.readInt();
+    is.skipBytes(is.readInt());
+  }
+
   private static final File testWorkDir = new File("target", TupleRecorderTest.class.getName());
   private static final int testTupleCount = 10;
 
@@ -309,6 +309,31 @@ public class AutoMetricTest
 
     LogicalPlan.OperatorMeta o1meta = dag.getOperatorMeta("o1");
     Assert.assertNotNull("default aggregator injected", o1meta.getMetricAggregatorMeta().getAggregator());
+
+    List<AutoMetric.PhysicalMetricsContext> physicalMetrics = Lists.newArrayList();
+    for (int i = 1; i <= 3; i += 2) {
+      final Map<String, Object> metrics = Maps.newHashMap();
+      metrics.put("progress", i);
+      metrics.put("myMetric", 3);
+      physicalMetrics.add(new AutoMetric.PhysicalMetricsContext()
+      {
+        @Override
+        public Map<String, Object> getMetrics()
+        {
+          return metrics;
+        }
+
+        @Override
+        public int operatorId()
+        {
+          return 1;
+        }
+      });
+    }
+    Map<String, Object> aggregates = o1meta.getMetricAggregatorMeta().getAggregator().aggregate(1, physicalMetrics);
+    Assert.assertEquals("sum", 4L, aggregates.get("progress"));
+    Assert.assertEquals("only sums by default", 2, aggregates.size());
+    Assert.assertEquals("method sum", 6L, aggregates.get("myMetric"));
   }
 
   @Test
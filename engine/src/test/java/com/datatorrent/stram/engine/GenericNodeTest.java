@@ -47,6 +47,7 @@ import com.datatorrent.api.Operator;
 import com.datatorrent.api.Operator.CheckpointNotificationListener;
 import com.datatorrent.api.Operator.ProcessingMode;
 import com.datatorrent.api.Sink;
+import com.datatorrent.api.Stats;
 import com.datatorrent.api.Stats.OperatorStats;
 import com.datatorrent.api.annotation.InputPortFieldAnnotation;
 import com.datatorrent.api.annotation.OutputPortFieldAnnotation;
@@ -57,6 +58,7 @@ import com.datatorrent.common.util.ScheduledThreadPoolExecutor;
 import com.datatorrent.stram.api.Checkpoint;
 import com.datatorrent.stram.tuple.EndStreamTuple;
 import com.datatorrent.stram.tuple.EndWindowTuple;
+import com.datatorrent.stram.tuple.LatencyMarkerTuple;
 import com.datatorrent.stram.tuple.Tuple;
 
 /**
@@ -392,6 +394,164 @@ public class GenericNodeTest
     Assert.assertEquals(Thread.State.TERMINATED, t.getState());
   }
 
+  @Test
+  public void testLatencyMarkers() throws InterruptedException
+  {
+    long sleeptime = 25L;
+    final ArrayList<Object> list = new ArrayList<>();
+    GenericOperator go = new GenericOperator();
+    final GenericNode gn = new GenericNode(go, new com.datatorrent.stram.engine.OperatorContext(0, "operator",
+        new DefaultAttributeMap(), null));
+    gn.setId(1);
+    AbstractReservoir reservoir1 = AbstractReservoir.newReservoir("ip1Res", 1024);
+    AbstractReservoir reservoir2 = AbstractReservoir.newReservoir("ip2Res", 1024);
+    Sink<Object> output = new Sink<Object>()
+    {
+      @Override
+      public void put(Object tuple)
+      {
+        list.add(tuple);
+      }
+
+      @Override
+      public int getCount(boolean reset)
+      {
+        return 0;
+      }
+
+    };
+
+    gn.connectInputPort("ip1", reservoir1);
+    gn.connectInputPort("ip2", reservoir2);
+    gn.connectOutputPort("op", output);
+    gn.firstWindowMillis = 0;
+    gn.windowWidthMillis = 100;
+
+    Thread t = new Thread()
+    {
+      @Override
+      public void run()
+      {
+        gn.activate();
+        gn.run();
+        gn.deactivate();
+      }
+
+    };
+    t.start();
+
+    long now = System.currentTimeMillis();
+    Tuple beginWindow = new Tuple(MessageType.BEGIN_WINDOW, 0x1L);
+    reservoir1.add(beginWindow);
+    reservoir2.add(beginWindow);
+    /* the same marker reaches the operator on both ports */
+    reservoir1.add(new LatencyMarkerTuple(0x1L, 7, now - 500, now - 100));
+    reservoir2.add(new LatencyMarkerTuple(0x1L, 7, now - 500, now - 200));
+    Tuple endWindow = new EndWindowTuple(0x1L);
+    reservoir1.add(endWindow);
+    reservoir2.add(endWindow);
+
+    for (int i = 0; i < 40 && list.size() < 3; i++) {
+      Thread.sleep(sleeptime);
+    }
+    gn.shutdown();
+    t.join();
+
+    Assert.assertEquals("tuples " + list, 3, list.size());
+    LatencyMarkerTuple forwarded = (LatencyMarkerTuple)list.get(1);
+    Assert.assertEquals("source", 7, forwarded.sourceId);
+    Assert.assertEquals("origin", now - 500, forwarded.originTimestamp);
+    Assert.assertTrue("forward", forwarded.forwardTimestamp >= now);
+
+    List<OperatorStats> stats = new ArrayList<>();
+    gn.context.drainStats(stats);
+    OperatorStats windowStats = stats.get(0);
+    Assert.assertEquals("path latency samples", 2, windowStats.pathLatencies.get(7).count);
+    Assert.assertTrue("path latency", windowStats.pathLatencies.get(7).getPercentile(50) >= 500);
+    for (OperatorStats.PortStats portStats : windowStats.inputPorts) {
+      Assert.assertEquals("queue latency samples of " + portStats.id, 1, portStats.queueLatency.count);
+      Assert.assertTrue("queue latency of " + portStats.id, portStats.queueLatency.max >= 100);
+    }
+  }
+
+  @Test
+  public void testProfiling() throws InterruptedException
+  {
+    long sleeptime = 25L;
+    final ArrayList<Object> list = new ArrayList<>();
+    GenericOperator go = new GenericOperator();
+    DefaultAttributeMap attributes = new DefaultAttributeMap();
+    attributes.put(Context.OperatorContext.PROFILING_SAMPLE_INTERVAL, 2);
+    final GenericNode gn = new GenericNode(go, new com.datatorrent.stram.engine.OperatorContext(0, "operator",
+        attributes, null));
+    gn.setId(1);
+    AbstractReservoir reservoir1 = AbstractReservoir.newReservoir("ip1Res", 1024);
+    Sink<Object> output = new Sink<Object>()
+    {
+      @Override
+      public void put(Object tuple)
+      {
+        list.add(tuple);
+      }
+
+      @Override
+      public int getCount(boolean reset)
+      {
+        return 0;
+      }
+
+    };
+
+    gn.connectInputPort("ip1", reservoir1);
+    gn.connectOutputPort("op", output);
+    gn.firstWindowMillis = 0;
+    gn.windowWidthMillis = 100;
+
+    Thread t = new Thread()
+    {
+      @Override
+      public void run()
+      {
+        gn.activate();
+        gn.run();
+        gn.deactivate();
+      }
+
+    };
+    t.start();
+
+    for (long windowId = 1; windowId <= 2; windowId++) {
+      reservoir1.add(new Tuple(MessageType.BEGIN_WINDOW, windowId));
+      for (int i = 0; i < 10; i++) {
+        reservoir1.add(i);
+      }
+      reservoir1.add(new EndWindowTuple(windowId));
+    }
+
+    for (int i = 0; i < 40 && list.size() < 24; i++) {
+      Thread.sleep(sleeptime);
+    }
+    gn.shutdown();
+    t.join();
+
+    Assert.assertEquals("tuples " + list, 24, list.size());
+    List<OperatorStats> stats = new ArrayList<>();
+    gn.context.drainStats(stats);
+    gn.profiler.drain(stats);
+    Assert.assertEquals("windows", 2, stats.size());
+    Assert.assertNull("profile of the first window", stats.get(0).profileStats);
+    Stats.ProfileStats profile = stats.get(1).profileStats;
+    Assert.assertEquals("sampled tuples", 10, profile.processTime.count);
+    Assert.assertEquals("begin windows", 2, profile.beginWindowTime.count);
+    Assert.assertEquals("end windows", 2, profile.endWindowTime.count);
+    Assert.assertEquals("checkpoints", 0, profile.checkpointTime.count);
+
+    stats.clear();
+    stats.add(new OperatorStats());
+    gn.profiler.drain(stats);
+    Assert.assertEquals("histograms reset", 0, stats.get(0).profileStats.processTime.count);
+  }
+
   @Test
   public void testPrematureTermination() throws InterruptedException
   {
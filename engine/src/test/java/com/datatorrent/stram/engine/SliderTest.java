@@ -23,6 +23,8 @@ import java.io.File;
 import org.junit.Assert;
 import org.junit.Test;
 
+import com.google.common.collect.Lists;
+
 import com.datatorrent.api.Context;
 import com.datatorrent.api.DefaultInputPort;
 import com.datatorrent.api.DefaultOutputPort;
@@ -85,10 +87,15 @@ public class SliderTest
       @Override
       public Unifier<Integer> getUnifier()
       {
-        return new Sum();
+        return createUnifier();
       }
     };
 
+    protected Sum createUnifier()
+    {
+      return new Sum();
+    }
+
     @Override
     public void process(Integer tuple)
     {
@@ -104,6 +111,87 @@ public class SliderTest
     }
   }
 
+  public static class CombinableSum extends Sum implements Operator.CombinableUnifier<Integer, Integer>
+  {
+    @Override
+    protected Sum createUnifier()
+    {
+      return new CombinableSum();
+    }
+
+    @Override
+    public Integer createAccumulator()
+    {
+      return 0;
+    }
+
+    @Override
+    public Integer accumulate(Integer accumulator, Integer tuple)
+    {
+      return accumulator + tuple;
+    }
+
+    @Override
+    public Integer merge(Integer older, Integer newer)
+    {
+      return older + newer;
+    }
+
+    @Override
+    public Integer getOutput(Integer accumulator)
+    {
+      return accumulator > 0 ? accumulator : null;
+    }
+  }
+
+  public static class InvertibleSum extends CombinableSum implements Operator.InvertibleUnifier<Integer, Integer>
+  {
+    @Override
+    protected Sum createUnifier()
+    {
+      return new InvertibleSum();
+    }
+
+    @Override
+    public Integer subtract(Integer accumulator, Integer evicted)
+    {
+      return accumulator - evicted;
+    }
+  }
+
+  public static class Concat extends BaseOperator implements Operator.CombinableUnifier<Object, String>
+  {
+    @Override
+    public void process(Object tuple)
+    {
+      throw new UnsupportedOperationException("tuples are accumulated");
+    }
+
+    @Override
+    public String createAccumulator()
+    {
+      return "";
+    }
+
+    @Override
+    public String accumulate(String accumulator, Object tuple)
+    {
+      return accumulator + tuple;
+    }
+
+    @Override
+    public String merge(String older, String newer)
+    {
+      return older + newer;
+    }
+
+    @Override
+    public Object getOutput(String accumulator)
+    {
+      return accumulator;
+    }
+  }
+
   public static class Validator extends BaseOperator
   {
     public static int numbersValidated;
@@ -140,13 +228,18 @@ public class SliderTest
   }
 
   private void test(int applicationWindowCount, int slideByWindowCount) throws Exception
+  {
+    test(new Sum(), applicationWindowCount, slideByWindowCount);
+  }
+
+  private void test(Sum operator, int applicationWindowCount, int slideByWindowCount) throws Exception
   {
     LogicalPlan dag = new LogicalPlan();
     String workingDir = new File("target/sliderTest").getAbsolutePath();
     dag.setAttribute(Context.OperatorContext.STORAGE_AGENT, new AsyncFSStorageAgent(workingDir, null));
     dag.getAttributes().put(LogicalPlan.STREAMING_WINDOW_SIZE_MILLIS, 100);
     Input input = dag.addOperator("Input", new Input());
-    Sum sum = dag.addOperator("Sum", new Sum());
+    Sum sum = dag.addOperator("Sum", operator);
     dag.setOperatorAttribute(sum, OperatorContext.APPLICATION_WINDOW_COUNT, applicationWindowCount);
     dag.setOperatorAttribute(sum, OperatorContext.SLIDE_BY_WINDOW_COUNT, slideByWindowCount);
     Validator validate = dag.addOperator("validator", new Validator());
@@ -186,4 +279,26 @@ public class SliderTest
   {
     test(4, 2);
   }
+
+  @Test
+  public void testIncrementalSlider() throws Exception
+  {
+    test(new InvertibleSum(), 5, 2);
+    test(new CombinableSum(), 4, 1);
+  }
+
+  @Test
+  public void testTwoStackOrder()
+  {
+    Slider slider = new Slider(new Concat(), 3, 1);
+    TestSink sink = new TestSink();
+    slider.outputPort.setSink(sink);
+    for (int windowId = 0; windowId < 6; windowId++) {
+      slider.beginWindow(windowId);
+      slider.process(windowId);
+      slider.process(windowId);
+      slider.endWindow();
+    }
+    Assert.assertEquals("outputs", Lists.newArrayList("001122", "112233", "223344", "334455"), sink.collectedTuples);
+  }
 }
@@ -177,6 +177,45 @@ public class WindowGeneratorTest
     assert (reservoir.sweep() == null);
   }
 
+  @Test
+  public void testAdaptiveWindows()
+  {
+    ManualScheduledExecutorService msse = new ManualScheduledExecutorService(1);
+    WindowGenerator generator = new WindowGenerator(msse, 1024);
+    generator.setFirstWindow(0L);
+    generator.setResetWindow(0L);
+    generator.setWindowWidth(10);
+    generator.setCheckpointCount(2, 0);
+    generator.setAdaptiveWindowBudget(5, 2);
+
+    SweepableReservoir reservoir = generator.acquireReservoir(Node.OUTPUT, 1024);
+    reservoir.setSink(new TestSink());
+    generator.activate(null);
+
+    msse.tick(0); /* reset window and begin window 0 */
+    generator.tuplesEmitted(3);
+    msse.tick(0);
+    generator.tuplesEmitted(2); /* budget reached, close window 0 early */
+    msse.tick(0);
+    generator.tuplesEmitted(5); /* close window 1 early */
+    msse.tick(0);
+    generator.tuplesEmitted(5); /* two windows ahead of the clock, window 2 stays open */
+    msse.tick(0);
+    msse.tick(10); /* clock ticks are absorbed until the clock catches up */
+    msse.tick(10);
+    msse.tick(10); /* end window 2, begin window 3 */
+
+    StringBuilder sb = new StringBuilder();
+    Tuple t;
+    reservoir.sweep();
+    while ((t = reservoir.sweep()) != null) {
+      reservoir.remove();
+      sb.append(t.getType()).append(t.getType() == MessageType.RESET_WINDOW ? "" : t.getWindowId() & WindowGenerator.WINDOW_MASK).append(' ');
+    }
+    Assert.assertEquals("generated windows", "RESET_WINDOW BEGIN_WINDOW0 END_WINDOW0 BEGIN_WINDOW1 END_WINDOW1 CHECKPOINT1 "
+        + "BEGIN_WINDOW2 END_WINDOW2 BEGIN_WINDOW3 ", sb.toString());
+  }
+
   @Test
   public void testWindowGen() throws Exception
   {
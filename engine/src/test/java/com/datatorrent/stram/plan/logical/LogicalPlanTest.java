@@ -28,6 +28,7 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.validation.ConstraintViolation;
 import javax.validation.ConstraintViolationException;
@@ -775,6 +776,85 @@ public class LogicalPlanTest
     Assert.assertNotNull("port object null", o1Clone.inport1);
   }
 
+  public static class InstanceCountingOperator extends BaseOperator
+  {
+    static final AtomicInteger instanceCount = new AtomicInteger();
+    private int value;
+
+    public InstanceCountingOperator()
+    {
+      instanceCount.incrementAndGet();
+    }
+
+    public int getValue()
+    {
+      return value;
+    }
+
+    public void setValue(int value)
+    {
+      this.value = value;
+    }
+  }
+
+  @Test
+  public void testLazyOperatorDeserialization() throws Exception
+  {
+    LogicalPlan dag = new LogicalPlan();
+    dag.addOperator("o1", new InstanceCountingOperator()).setValue(1);
+    dag.addOperator("o2", new InstanceCountingOperator()).setValue(2);
+
+    ByteArrayOutputStream outStream = new ByteArrayOutputStream();
+    LogicalPlan.write(dag, outStream);
+    InstanceCountingOperator.instanceCount.set(0);
+    LogicalPlan clonedDag = LogicalPlan.read(new ByteArrayInputStream(outStream.toByteArray()));
+    Assert.assertEquals("operators deserialized on read", 0, InstanceCountingOperator.instanceCount.get());
+
+    Assert.assertNotNull("toString", clonedDag.getOperatorMeta("o1").toString());
+    try {
+      clonedDag.getMeta(new InstanceCountingOperator());
+      Assert.fail("meta of other operator");
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+    InstanceCountingOperator.instanceCount.set(0);
+    Assert.assertEquals("equal operators", clonedDag.getOperatorMeta("o1"),
+        LogicalPlan.read(new ByteArrayInputStream(outStream.toByteArray())).getOperatorMeta("o1"));
+    Assert.assertEquals("operators deserialized on lookup", 0, InstanceCountingOperator.instanceCount.get());
+
+    InstanceCountingOperator o1Clone = (InstanceCountingOperator)clonedDag.getOperatorMeta("o1").getOperator();
+    Assert.assertEquals("operators deserialized on access", 1, InstanceCountingOperator.instanceCount.get());
+    Assert.assertEquals("value", 1, o1Clone.getValue());
+    o1Clone.setValue(10);
+
+    // o1 was accessed and is written from its current state, o2 from its serialized form
+    outStream = new ByteArrayOutputStream();
+    LogicalPlan.write(clonedDag, outStream);
+    Assert.assertEquals("operators deserialized on write", 1, InstanceCountingOperator.instanceCount.get());
+    clonedDag = LogicalPlan.read(new ByteArrayInputStream(outStream.toByteArray()));
+    Assert.assertEquals("value", 10, ((InstanceCountingOperator)clonedDag.getOperatorMeta("o1").getOperator()).getValue());
+    Assert.assertEquals("value", 2, ((InstanceCountingOperator)clonedDag.getOperatorMeta("o2").getOperator()).getValue());
+  }
+
+  @Test
+  public void testLegacySerialization() throws Exception
+  {
+    // plan written before the operators were serialized in sections
+    LogicalPlan dag = LogicalPlan.read(getClass().getResourceAsStream("/legacyLogicalPlan.ser"));
+    GenericTestOperator o1 = (GenericTestOperator)dag.getOperatorMeta("o1").getOperator();
+    Assert.assertEquals("property", "value1", o1.getMyStringProperty());
+    OperatorMeta o2Meta = dag.getOperatorMeta("o2");
+    Assert.assertEquals("attribute", 2, (int)o2Meta.getValue(OperatorContext.APPLICATION_WINDOW_COUNT));
+    Assert.assertEquals("stream source", o1, dag.getStream("s1").getSource().getOperatorMeta().getOperator());
+    Assert.assertEquals("stream sink", o2Meta, dag.getStream("s1").getSinks().get(0).getOperatorWrapper());
+
+    ByteArrayOutputStream outStream = new ByteArrayOutputStream();
+    LogicalPlan.write(dag, outStream);
+    dag = LogicalPlan.read(new ByteArrayInputStream(outStream.toByteArray()));
+    o1 = (GenericTestOperator)dag.getOperatorMeta("o1").getOperator();
+    Assert.assertEquals("property", "value1", o1.getMyStringProperty());
+  }
+
   @Test
   public void testAttributeValuesSerializableCheck() throws NoSuchFieldException, SecurityException, IllegalArgumentException, IllegalAccessException
   {
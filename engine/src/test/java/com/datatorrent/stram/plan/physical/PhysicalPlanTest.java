@@ -67,6 +67,7 @@ import com.datatorrent.stram.engine.TestGeneratorInputOperator;
 import com.datatorrent.stram.plan.TestPlanContext;
 import com.datatorrent.stram.plan.logical.LogicalPlan;
 import com.datatorrent.stram.plan.logical.LogicalPlan.OperatorMeta;
+import com.datatorrent.stram.plan.logical.LogicalPlan.StreamMeta;
 import com.datatorrent.stram.plan.physical.PTOperator.PTInput;
 import com.datatorrent.stram.plan.physical.PTOperator.PTOutput;
 import com.datatorrent.stram.plan.physical.PhysicalPlan.LoadIndicator;
@@ -2010,6 +2011,65 @@ public class PhysicalPlanTest
     Assert.assertEquals("vcores container 1 is 12", 12, plan.getContainers().get(0).getRequiredVCores());
   }
 
+  @Test
+  public void testOperatorFusion()
+  {
+    LogicalPlan dag = new LogicalPlan();
+    dag.setAttribute(OperatorContext.STORAGE_AGENT, new StramTestSupport.MemoryStorageAgent());
+    dag.setAttribute(LogicalPlan.OPERATOR_FUSION, true);
+
+    GenericTestOperator o1 = dag.addOperator("o1", GenericTestOperator.class);
+    GenericTestOperator o2 = dag.addOperator("o2", GenericTestOperator.class);
+    GenericTestOperator o3 = dag.addOperator("o3", GenericTestOperator.class);
+    GenericTestOperator o4 = dag.addOperator("o4", GenericTestOperator.class);
+    GenericTestOperator o5 = dag.addOperator("o5", GenericTestOperator.class);
+    GenericTestOperator o6 = dag.addOperator("o6", GenericTestOperator.class);
+    GenericTestOperator o7 = dag.addOperator("o7", GenericTestOperator.class);
+    GenericTestOperator o8 = dag.addOperator("o8", GenericTestOperator.class);
+    dag.setOperatorAttribute(o4, OperatorContext.PARTITIONER, new StatelessPartitioner<GenericTestOperator>(2));
+    dag.setInputPortAttribute(o6.inport1, PortContext.PARTITION_PARALLEL, true);
+
+    StreamMeta s1 = dag.addStream("o1.outport1", o1.outport1, o2.inport1);
+    StreamMeta s2 = dag.addStream("o2.outport1", o2.outport1, o3.inport1);
+    StreamMeta s3 = dag.addStream("o3.outport1", o3.outport1, o4.inport1, o5.inport1);
+    StreamMeta s4 = dag.addStream("o4.outport1", o4.outport1, o6.inport1);
+    StreamMeta s5 = dag.addStream("o6.outport1", o6.outport1, o7.inport1);
+    StreamMeta s6 = dag.addStream("o5.outport1", o5.outport1, o8.inport1).setLocality(Locality.CONTAINER_LOCAL);
+    dag.setAttribute(LogicalPlan.CONTAINERS_MAX_COUNT, 10);
+
+    PhysicalPlan plan = new PhysicalPlan(dag, new TestPlanContext());
+
+    Assert.assertEquals("chain", Locality.THREAD_LOCAL, plan.getLocality(s1));
+    Assert.assertEquals("chain", Locality.THREAD_LOCAL, plan.getLocality(s2));
+    Assert.assertNull("multiple sinks", plan.getLocality(s3));
+    Assert.assertEquals("parallel partitions", Locality.THREAD_LOCAL, plan.getLocality(s4));
+    Assert.assertNull("partitioned upstream", plan.getLocality(s5));
+    Assert.assertEquals("explicit locality", Locality.CONTAINER_LOCAL, plan.getLocality(s6));
+    Assert.assertNull("declared locality", s1.getLocality());
+    Assert.assertNull("declared locality", s4.getLocality());
+
+    PTContainer container = plan.getOperators(dag.getMeta(o1)).get(0).getContainer();
+    Assert.assertSame("o2 container", container, plan.getOperators(dag.getMeta(o2)).get(0).getContainer());
+    Assert.assertSame("o3 container", container, plan.getOperators(dag.getMeta(o3)).get(0).getContainer());
+    for (PTOperator o6Partition : plan.getOperators(dag.getMeta(o6))) {
+      PTOperator o4Partition = o6Partition.getInputs().get(0).source.source;
+      Assert.assertSame("parallel partition container", o4Partition.getContainer(), o6Partition.getContainer());
+    }
+
+    // a second sink ends the chain
+    GenericTestOperator o9 = new GenericTestOperator();
+    PlanModifier pm = new PlanModifier(plan);
+    pm.addOperator("o9", o9);
+    pm.addSinks(s1.getName(), o9.inport1);
+    Assert.assertNull("multiple sinks after change", plan.getLocality(s1));
+    Assert.assertEquals("chain after change", Locality.THREAD_LOCAL, plan.getLocality(s2));
+    PTOperator o1Partition = plan.getOperators(dag.getMeta(o1)).get(0);
+    PTOperator o2Partition = plan.getOperators(dag.getMeta(o2)).get(0);
+    Assert.assertTrue("o1 redeployed", plan.deployOpers.contains(o1Partition));
+    Assert.assertTrue("o2 redeployed", plan.deployOpers.contains(o2Partition));
+    Assert.assertNull("o1 thread local operators", o1Partition.getThreadLocalOperators());
+  }
+
   @Test
   public void testContainerSizeWithPartitioning()
   {
@@ -0,0 +1,93 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.stram.plan.physical;
+
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.datatorrent.api.Context.OperatorContext;
+import com.datatorrent.api.DAG.Locality;
+import com.datatorrent.stram.engine.GenericTestOperator;
+import com.datatorrent.stram.plan.TestPlanContext;
+import com.datatorrent.stram.plan.logical.LogicalPlan;
+import com.datatorrent.stram.plan.physical.OperatorStatus.PortStatus;
+import com.datatorrent.stram.support.StramTestSupport;
+
+public class PlacementOptimizerTest
+{
+  private static final long MB = 1024 * 1024;
+
+  private static void setBufferServerBytes(PTOperator oper, String portName, long bytesPerSecond)
+  {
+    PortStatus ps = oper.stats.new PortStatus();
+    ps.portName = portName;
+    ps.bufferServerBytesPMSMA.add(bytesPerSecond, 1000);
+    oper.stats.inputPortStatusList.put(portName, ps);
+  }
+
+  @Test
+  public void testProposals()
+  {
+    LogicalPlan dag = new LogicalPlan();
+    dag.setAttribute(OperatorContext.STORAGE_AGENT, new StramTestSupport.MemoryStorageAgent());
+    GenericTestOperator o1 = dag.addOperator("o1", GenericTestOperator.class);
+    GenericTestOperator o2 = dag.addOperator("o2", GenericTestOperator.class);
+    GenericTestOperator o3 = dag.addOperator("o3", GenericTestOperator.class);
+    dag.setOperatorAttribute(o3, OperatorContext.MEMORY_MB, 8192);
+    dag.addStream("o1.outport1", o1.outport1, o2.inport1);
+    dag.addStream("o2.outport1", o2.outport1, o3.inport1);
+    dag.setAttribute(LogicalPlan.CONTAINERS_MAX_COUNT, 10);
+
+    PhysicalPlan plan = new PhysicalPlan(dag, new TestPlanContext());
+    Assert.assertEquals("containers", 3, plan.getContainers().size());
+    PTOperator p1 = plan.getOperators(dag.getMeta(o1)).get(0);
+    PTOperator p2 = plan.getOperators(dag.getMeta(o2)).get(0);
+    PTOperator p3 = plan.getOperators(dag.getMeta(o3)).get(0);
+    p1.getContainer().host = "host1";
+    p2.getContainer().host = "host2";
+    p3.getContainer().host = "host3";
+    setBufferServerBytes(p2, "inport1", 4 * MB);
+    setBufferServerBytes(p3, "inport1", 2 * MB);
+
+    PlacementOptimizer optimizer = new PlacementOptimizer(plan);
+    Assert.assertNull("no traffic before update", optimizer.getPreferredHost(p2.getContainer()));
+    optimizer.update();
+    int maxMemoryMB = p1.getContainer().getRequiredMemoryMB() + p2.getContainer().getRequiredMemoryMB();
+    List<PlacementOptimizer.Proposal> proposals = optimizer.getProposals(maxMemoryMB, 16);
+    Assert.assertEquals("proposals " + proposals, 2, proposals.size());
+    Assert.assertSame("heaviest upstream", p1, proposals.get(0).upstream);
+    Assert.assertSame("heaviest downstream", p2, proposals.get(0).downstream);
+    Assert.assertEquals("heaviest bytes", 4 * MB, proposals.get(0).bytesPerSecond);
+    Assert.assertEquals("fits into container", Locality.CONTAINER_LOCAL, proposals.get(0).locality);
+    Assert.assertSame("upstream", p2, proposals.get(1).upstream);
+    Assert.assertEquals("exceeds container", Locality.NODE_LOCAL, proposals.get(1).locality);
+
+    Assert.assertEquals("preferred host", "host1", optimizer.getPreferredHost(p2.getContainer()));
+    Assert.assertEquals("preferred host", "host2", optimizer.getPreferredHost(p3.getContainer()));
+
+    p3.getContainer().host = "host2";
+    Assert.assertEquals("same node", 1, optimizer.getProposals(maxMemoryMB, 16).size());
+    optimizer.setMinBytesPerSecond(3 * MB);
+    optimizer.update();
+    Assert.assertNull("below minimum", optimizer.getPreferredHost(p3.getContainer()));
+  }
+
+}
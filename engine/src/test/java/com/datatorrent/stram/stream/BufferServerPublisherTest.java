@@ -0,0 +1,97 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.stram.stream;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.datatorrent.api.StreamCodec;
+import com.datatorrent.bufferserver.packet.MessageType;
+import com.datatorrent.common.util.ScheduledThreadPoolExecutor;
+import com.datatorrent.netlet.util.Slice;
+import com.datatorrent.stram.engine.StreamContext;
+
+/**
+ *
+ */
+public class BufferServerPublisherTest
+{
+  @Test
+  public void testLonePayloadFrame() throws InterruptedException
+  {
+    final StreamCodec<Object> myserde = new StreamCodec<Object>()
+    {
+      @Override
+      public Object fromByteArray(Slice fragment)
+      {
+        return fragment.buffer[fragment.offset];
+      }
+
+      @Override
+      public Slice toByteArray(Object o)
+      {
+        return new Slice(new byte[]{(Byte)o});
+      }
+
+      @Override
+      public int getPartition(Object o)
+      {
+        return 0;
+      }
+
+    };
+
+    final LinkedBlockingQueue<byte[]> written = new LinkedBlockingQueue<>();
+    BufferServerPublisher bsp = new BufferServerPublisher("publisher", 1024)
+    {
+      @Override
+      public boolean write(byte[] array)
+      {
+        written.add(array);
+        return true;
+      }
+
+    };
+
+    final long frameMillis = 100;
+    ScheduledThreadPoolExecutor frameFlusher = new ScheduledThreadPoolExecutor(1, "BufferServerFrameFlusher");
+    try {
+      StreamContext context = new StreamContext("stream");
+      context.put(StreamContext.CODEC, myserde);
+      bsp.setup(context);
+      bsp.setFrameBudget(1024, frameMillis, frameFlusher);
+
+      long start = System.currentTimeMillis();
+      bsp.put((byte)1);
+      Assert.assertNull("frame sent before it expired", written.poll());
+
+      byte[] frame = written.poll(2 * frameMillis, TimeUnit.MILLISECONDS);
+      long elapsed = System.currentTimeMillis() - start;
+      Assert.assertNotNull("frame sent without a further tuple", frame);
+      Assert.assertEquals("lone payload", MessageType.PAYLOAD_VALUE, frame[0]);
+      Assert.assertTrue("frame sent after " + elapsed + "ms", elapsed < 2 * frameMillis);
+    } finally {
+      frameFlusher.shutdownNow();
+    }
+  }
+
+}
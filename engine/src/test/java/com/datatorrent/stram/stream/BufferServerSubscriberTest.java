@@ -29,6 +29,7 @@ import org.slf4j.LoggerFactory;
 
 import com.datatorrent.api.Sink;
 import com.datatorrent.api.StreamCodec;
+import com.datatorrent.bufferserver.packet.PayloadFrameTuple;
 import com.datatorrent.bufferserver.packet.PayloadTuple;
 import com.datatorrent.netlet.util.Slice;
 import com.datatorrent.stram.engine.SweepableReservoir;
@@ -122,5 +123,77 @@ public class BufferServerSubscriberTest
     Assert.assertEquals("10  received", 10, list.size());
   }
 
+  @Test
+  public void testPayloadFrames()
+  {
+    final List<Object> list = new ArrayList<Object>();
+    final StreamCodec<Object> myserde = new StreamCodec<Object>()
+    {
+      @Override
+      public Object fromByteArray(Slice fragment)
+      {
+        return fragment.buffer[fragment.offset];
+      }
+
+      @Override
+      public Slice toByteArray(Object o)
+      {
+        return new Slice(new byte[]{(Byte)o});
+      }
+
+      @Override
+      public int getPartition(Object o)
+      {
+        return 0;
+      }
+
+    };
+
+    Sink<Object> unbufferedSink = new Sink<Object>()
+    {
+      @Override
+      public void put(Object tuple)
+      {
+        list.add(tuple);
+      }
+
+      @Override
+      public int getCount(boolean reset)
+      {
+        return 0;
+      }
+
+    };
+
+    BufferServerSubscriber bss = new BufferServerSubscriber("subscriber", 5)
+    {
+      {
+        serde = myserde;
+      }
+
+    };
+
+    SweepableReservoir reservoir = bss.acquireReservoir("unbufferedSink", 3);
+    reservoir.setSink(unbufferedSink);
+
+    /* frames of 4 and 3 payloads followed by a payload on its own, the frames do not fit in the reservoir at once */
+    PayloadFrameTuple.Builder frame = new PayloadFrameTuple.Builder(64);
+    byte i = 0;
+    while (i < 8) {
+      frame.add(0, myserde.toByteArray(++i));
+      if (i == 4 || i == 7 || i == 8) {
+        byte[] buffer = frame.build();
+        bss.onMessage(buffer, 0, buffer.length);
+      }
+    }
+
+    for (int sweeps = 0; sweeps < 10 && list.size() < 8; sweeps++) {
+      reservoir.sweep();
+    }
+
+    Assert.assertEquals("received", Arrays.<Object>asList((byte)1, (byte)2, (byte)3, (byte)4, (byte)5, (byte)6, (byte)7,
+        (byte)8), list);
+  }
+
   private static final Logger logger = LoggerFactory.getLogger(BufferServerSubscriberTest.class);
 }
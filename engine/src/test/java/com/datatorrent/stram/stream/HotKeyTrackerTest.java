@@ -0,0 +1,110 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.stram.stream;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.datatorrent.api.Stats.OperatorStats.PortStats;
+
+public class HotKeyTrackerTest
+{
+  private static final int HOT = 0x100;
+
+  /**
+   * Adds a window where every other tuple has the hot hash and the others are spread over 1000 hashes.
+   */
+  private static Set<Integer> addWindow(HotKeyTracker tracker)
+  {
+    Set<Integer> hotPartitions = new HashSet<>();
+    for (int i = 0; i < 1000; i++) {
+      hotPartitions.add(tracker.add(HOT));
+      tracker.add(1000 + i);
+    }
+    tracker.endWindow();
+    return hotPartitions;
+  }
+
+  @Test
+  public void testHotKeys()
+  {
+    HotKeyTracker tracker = new HotKeyTracker(2, 0);
+    PortStats ps = new PortStats("output");
+    tracker.report(ps);
+    Assert.assertNull("no window", ps.hotKeys);
+
+    Assert.assertEquals("unchanged", 1, addWindow(tracker).size());
+    addWindow(tracker);
+    tracker.report(ps);
+    Assert.assertEquals("hot keys " + ps.hotKeys, 2, ps.hotKeys.size());
+    Assert.assertEquals("hottest", HOT, (int)ps.hotKeys.keySet().iterator().next());
+    Assert.assertEquals("count", 2000, (long)ps.hotKeys.get(HOT));
+    Assert.assertEquals("hash bucket", 2000 + 8, ps.partitionHashCounts[0]);
+
+    ps = new PortStats("output");
+    tracker.report(ps);
+    Assert.assertNull("reported", ps.hotKeys);
+  }
+
+  @Test
+  public void testSplit()
+  {
+    HotKeyTracker tracker = new HotKeyTracker(4, 4);
+    Assert.assertEquals("detected at end of window", 1, addWindow(tracker).size());
+    Set<Integer> hotPartitions = addWindow(tracker);
+    Assert.assertEquals("split", 4, hotPartitions.size());
+    for (int i = 0; i < 4; i++) {
+      Assert.assertTrue("consecutive", hotPartitions.contains(HOT + i));
+    }
+
+    PortStats ps = new PortStats("output");
+    tracker.report(ps);
+    Assert.assertEquals("reported under the original hash", 2000, (long)ps.hotKeys.get(HOT));
+    Assert.assertEquals("spread", 250 + 8, ps.partitionHashCounts[1]);
+  }
+
+  @Test
+  public void testEviction()
+  {
+    HotKeyTracker tracker = new HotKeyTracker(2, 0);
+    Random random = new Random(7);
+    int tuples = 100000;
+    int hot = 0;
+    for (int i = 0; i < tuples; i++) {
+      if (random.nextInt(10) < 3) {
+        tracker.add(HOT);
+        hot++;
+      } else {
+        tracker.add(random.nextInt());
+      }
+    }
+    tracker.endWindow();
+
+    PortStats ps = new PortStats("output");
+    tracker.report(ps);
+    Assert.assertEquals("hottest", HOT, (int)ps.hotKeys.keySet().iterator().next());
+    long count = ps.hotKeys.get(HOT);
+    Assert.assertTrue("count " + count + " of " + hot, count >= hot && count <= hot + tuples / 8);
+  }
+
+}
@@ -0,0 +1,214 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.stram.stream;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+
+import com.google.common.collect.Sets;
+
+import com.datatorrent.api.Context.OperatorContext;
+import com.datatorrent.api.Sink;
+import com.datatorrent.common.partitioner.StatelessPartitioner;
+import com.datatorrent.common.util.AsyncFSStorageAgent;
+import com.datatorrent.stram.PartitioningTest.CollectorOperator;
+import com.datatorrent.stram.PartitioningTest.TestInputOperator;
+import com.datatorrent.stram.StramLocalCluster;
+import com.datatorrent.stram.engine.StreamContext;
+import com.datatorrent.stram.engine.SweepableReservoir;
+import com.datatorrent.stram.plan.logical.LogicalPlan;
+import com.datatorrent.stram.plan.physical.PTOperator;
+import com.datatorrent.stram.support.StramTestSupport;
+import com.datatorrent.stram.tuple.Tuple;
+
+public class InProcessTransportTest
+{
+  @Rule
+  public StramTestSupport.TestMeta testMeta = new StramTestSupport.TestMeta();
+
+  private static final String SOURCE_ID = "1.output.1";
+
+  private static StreamContext getContext(String sinkId, long finishedWindowId)
+  {
+    StreamContext context = new StreamContext("stream");
+    context.setSourceId(SOURCE_ID);
+    context.setSinkId(sinkId);
+    context.setFinishedWindowId(finishedWindowId);
+    return context;
+  }
+
+  private static void publish(InProcessPublisher publisher, int windowId, Object... tuples)
+  {
+    publisher.put(StramTestSupport.generateBeginWindowTuple(SOURCE_ID, windowId));
+    for (Object tuple : tuples) {
+      publisher.put(tuple);
+    }
+    publisher.put(StramTestSupport.generateEndWindowTuple(SOURCE_ID, windowId));
+  }
+
+  /**
+   * Sweeps the reservoir until it is empty, returning the data tuples and control tuples in the order received.
+   */
+  private static List<Object> drain(SweepableReservoir reservoir)
+  {
+    final List<Object> received = new ArrayList<>();
+    reservoir.setSink(new Sink<Object>()
+    {
+      @Override
+      public void put(Object tuple)
+      {
+        received.add(tuple);
+      }
+
+      @Override
+      public int getCount(boolean reset)
+      {
+        return 0;
+      }
+    });
+    for (int i = 0; i < 100; i++) {
+      Tuple t = reservoir.sweep();
+      if (t != null) {
+        received.add(reservoir.remove());
+      }
+    }
+    return received;
+  }
+
+  private static List<Object> getDataTuples(List<Object> received)
+  {
+    List<Object> data = new ArrayList<>();
+    for (Object o : received) {
+      if (!(o instanceof Tuple)) {
+        data.add(o);
+      }
+    }
+    return data;
+  }
+
+  @Test
+  public void testPartitionsAndCheckpoint()
+  {
+    InProcessTransport transport = new InProcessTransport(1024, false);
+    InProcessPublisher publisher = new InProcessPublisher(transport);
+    StreamContext publisherContext = getContext("publisher", -1);
+    publisher.setup(publisherContext);
+    publisher.activate(publisherContext);
+
+    Object tuple = 4;
+    publish(publisher, 0, tuple, 5);
+    publish(publisher, 1, 6, 7);
+    publish(publisher, 2, 8, 9);
+
+    InProcessSubscriber even = new InProcessSubscriber(transport, 16);
+    StreamContext evenContext = getContext("even", -1);
+    evenContext.setPartitions(1, Collections.singleton(0));
+    SweepableReservoir evenReservoir = even.acquireReservoir("even", 16);
+    even.setup(evenContext);
+    even.activate(evenContext);
+    List<Object> evenReceived = getDataTuples(drain(evenReservoir));
+    Assert.assertEquals("even tuples", Arrays.<Object>asList(4, 6, 8), evenReceived);
+    Assert.assertSame("passed by reference", tuple, evenReceived.get(0));
+
+    InProcessSubscriber odd = new InProcessSubscriber(transport, 16);
+    StreamContext oddContext = getContext("odd", 1);
+    oddContext.setPartitions(1, Collections.singleton(1));
+    SweepableReservoir oddReservoir = odd.acquireReservoir("odd", 16);
+    odd.setup(oddContext);
+    odd.activate(oddContext);
+    List<Object> oddReceived = drain(oddReservoir);
+    Assert.assertEquals("odd tuples after checkpoint", Arrays.<Object>asList(9), getDataTuples(oddReceived));
+    Assert.assertEquals("first window after checkpoint", 2, ((Tuple)oddReceived.get(0)).getWindowId());
+
+    // committed windows are purged, a redeployed publisher discards the windows after its checkpoint
+    transport.purge(0);
+    publisher.deactivate();
+    publisher.activate(getContext("publisher", 1));
+    Assert.assertEquals("remaining tuples", 4, transport.getTupleList(SOURCE_ID).size());
+    publish(publisher, 2, 10, 11);
+    Assert.assertEquals("even tuples after redeploy", Arrays.<Object>asList(10), getDataTuples(drain(evenReservoir)));
+
+    even.deactivate();
+    odd.deactivate();
+  }
+
+  @Test
+  public void testSerialization()
+  {
+    InProcessTransport transport = new InProcessTransport(1024, true);
+    InProcessPublisher publisher = new InProcessPublisher(transport);
+    StreamContext publisherContext = getContext("publisher", -1);
+    publisher.setup(publisherContext);
+    publisher.activate(publisherContext);
+
+    InProcessSubscriber subscriber = new InProcessSubscriber(transport, 16);
+    StreamContext subscriberContext = getContext("subscriber", -1);
+    SweepableReservoir reservoir = subscriber.acquireReservoir("subscriber", 16);
+    subscriber.setup(subscriberContext);
+    subscriber.activate(subscriberContext);
+
+    List<String> tuple = new ArrayList<>(Arrays.asList("a", "b"));
+    publish(publisher, 0, tuple, tuple);
+    List<Object> received = getDataTuples(drain(reservoir));
+    Assert.assertEquals("tuples", Arrays.<Object>asList(tuple, tuple), received);
+    Assert.assertNotSame("deserialized copy", tuple, received.get(0));
+    Assert.assertTrue("bytes published", publisher.getByteCount(false) > 0);
+    Assert.assertEquals("bytes", publisher.getByteCount(false), subscriber.getByteCount(false));
+    subscriber.deactivate();
+  }
+
+  @Test
+  public void testLocalCluster() throws Exception
+  {
+    LogicalPlan dag = new LogicalPlan();
+    dag.setAttribute(OperatorContext.STORAGE_AGENT, new AsyncFSStorageAgent(testMeta.getPath(), null));
+    dag.setAttribute(LogicalPlan.IN_PROCESS_STREAMS, true);
+    dag.setAttribute(LogicalPlan.IN_PROCESS_STREAM_SERIALIZATION, true);
+
+    CollectorOperator.receivedTuples.clear();
+    TestInputOperator<Integer> input = dag.addOperator("input", new TestInputOperator<Integer>());
+    input.testTuples = new ArrayList<>();
+    input.testTuples.add(new ArrayList<>(Arrays.asList(4, 5)));
+    CollectorOperator collector = dag.addOperator("collector", new CollectorOperator());
+    collector.prefix = "" + System.identityHashCode(collector);
+    dag.setOperatorAttribute(collector, OperatorContext.PARTITIONER, new StatelessPartitioner<CollectorOperator>(2));
+    dag.addStream("fromInput", input.output, collector.input);
+    CollectorOperator merged = dag.addOperator("merged", new CollectorOperator());
+    merged.prefix = "" + System.identityHashCode(merged);
+    dag.addStream("toMerged", collector.output, merged.input);
+
+    StramLocalCluster lc = new StramLocalCluster(dag);
+    lc.setHeartbeatMonitoringEnabled(false);
+    lc.run(); // terminates on end of stream
+
+    // one entry for each partition + merged output
+    Assert.assertEquals("received tuples " + CollectorOperator.receivedTuples, 3,
+        CollectorOperator.receivedTuples.size());
+    PTOperator pmerged = lc.findByLogicalNode(dag.getMeta(merged));
+    List<Object> tuples = CollectorOperator.receivedTuples.get(merged.prefix + pmerged.getId());
+    Assert.assertEquals("merged tuples", Sets.newHashSet(4, 5), Sets.<Object>newHashSet(tuples));
+  }
+
+}
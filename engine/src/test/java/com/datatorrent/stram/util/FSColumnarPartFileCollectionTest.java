@@ -0,0 +1,126 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.datatorrent.stram.util;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+import com.datatorrent.stram.support.StramTestSupport;
+
+public class FSColumnarPartFileCollectionTest
+{
+  @Rule
+  public StramTestSupport.TestMeta testMeta = new StramTestSupport.TestMeta();
+
+  private static Map<String, Object> fields(int i)
+  {
+    Map<String, Object> fields = new HashMap<>();
+    fields.put("totalTuplesProcessed", (long)i * 10);
+    fields.put("cpuPercentageMA", i / 4.0);
+    fields.put("host", "host" + (i % 3));
+    fields.put("ports", Lists.newArrayList(Collections.singletonMap("name", "port" + i)));
+    if (i % 2 == 0) {
+      fields.put("latencyMA", i);
+    }
+    return fields;
+  }
+
+  @Test
+  public void testBlockRoundTrip() throws Exception
+  {
+    ColumnarBlock.Builder builder = new ColumnarBlock.Builder();
+    for (int i = 0; i < 100; i++) {
+      builder.add(1000 + i, 5000 + i, i % 4, fields(i));
+    }
+    ColumnarBlock.IndexEntry entry = builder.getIndexEntry();
+    Assert.assertEquals("min timestamp", 1000, entry.minTimestamp);
+    Assert.assertEquals("max timestamp", 1099, entry.maxTimestamp);
+    Assert.assertEquals("max window", 5099, entry.maxWindowId);
+
+    byte[] block = builder.build();
+    List<ColumnarBlock.Row> rows = ColumnarBlock.decode(block, 0, null, null, null);
+    Assert.assertEquals("rows", 100, rows.size());
+    for (int i = 0; i < 100; i++) {
+      ColumnarBlock.Row row = rows.get(i);
+      Assert.assertEquals("timestamp", 1000 + i, row.timestamp);
+      Assert.assertEquals("window", 5000 + i, row.windowId);
+      Assert.assertEquals("key", i % 4, row.key);
+      Map<String, Object> expected = fields(i);
+      Assert.assertEquals("tuples", expected.get("totalTuplesProcessed"), row.fields.get("totalTuplesProcessed"));
+      Assert.assertEquals("cpu", expected.get("cpuPercentageMA"), row.fields.get("cpuPercentageMA"));
+      Assert.assertEquals("host", expected.get("host"), row.fields.get("host"));
+      Assert.assertEquals("ports", expected.get("ports"), row.fields.get("ports"));
+      if (i % 2 == 0) {
+        Assert.assertEquals("latency", (long)i, row.fields.get("latencyMA"));
+      } else {
+        Assert.assertFalse("latency", row.fields.containsKey("latencyMA"));
+      }
+    }
+
+    rows = ColumnarBlock.decode(block, 0, 1010L, 1019L, Sets.newHashSet("cpuPercentageMA"));
+    Assert.assertEquals("rows in range", 10, rows.size());
+    for (ColumnarBlock.Row row : rows) {
+      Assert.assertEquals("decoded fields " + row.fields, Collections.singleton("cpuPercentageMA"), row.fields.keySet());
+    }
+  }
+
+  @Test
+  public void testRangeQuery() throws Exception
+  {
+    String basePath = testMeta.getAbsolutePath();
+    FSColumnarPartFileCollection collection = new FSColumnarPartFileCollection();
+    collection.setBasePath(basePath);
+    collection.setRowsPerBlock(50);
+    collection.setup();
+    for (int i = 0; i < 1000; i++) {
+      collection.writeRow(i, i, i % 2, fields(i));
+    }
+    collection.teardown();
+
+    FileSystem fs = FileSystem.newInstance(new File(basePath).toURI(), new Configuration());
+    try {
+      List<ColumnarBlock.IndexEntry> entries = FSColumnarPartFileCollection.readPartIndex(fs, basePath, "part0.bin");
+      Assert.assertEquals("blocks", 20, entries.size());
+      Assert.assertEquals("second block", 50, entries.get(1).minTimestamp);
+      Assert.assertEquals("second block offset", entries.get(0).length, entries.get(1).offset);
+
+      List<ColumnarBlock.Row> rows = FSColumnarPartFileCollection.readRows(fs, basePath, "part0.bin", 420L, 579L, Sets.newHashSet("totalTuplesProcessed"));
+      Assert.assertEquals("rows", 160, rows.size());
+      Assert.assertEquals("first row", 420, rows.get(0).timestamp);
+      Assert.assertEquals("tuples", 4200L, rows.get(0).fields.get("totalTuplesProcessed"));
+      Assert.assertFalse("host not decoded", rows.get(0).fields.containsKey("host"));
+    } finally {
+      fs.close();
+    }
+  }
+
+}
@@ -28,6 +28,8 @@ import java.util.concurrent.Callable;
 import java.util.concurrent.FutureTask;
 import java.util.logging.Level;
 
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
@@ -348,6 +350,53 @@ public class StramWebServicesTest extends JerseyTest
         attrs.getString(Context.DAGContext.METRICS_TRANSPORT.getSimpleName()));
   }
 
+  @Test
+  public void testPlanSnapshot() throws Exception
+  {
+    WebResource r = resource();
+    ClientResponse response = r.path(StramWebServices.PATH).path(StramWebServices.PATH_PHYSICAL_PLAN_OPERATORS)
+        .accept(MediaType.APPLICATION_JSON).get(ClientResponse.class);
+    assertEquals(Status.OK, response.getClientResponseStatus());
+    assertEquals(MediaType.APPLICATION_JSON_TYPE, response.getType());
+    Assert.assertNotNull("operators", response.getEntity(JSONObject.class));
+    EntityTag entityTag = response.getEntityTag();
+    Assert.assertNotNull("entity tag", entityTag);
+
+    response = r.path(StramWebServices.PATH).path(StramWebServices.PATH_PHYSICAL_PLAN_OPERATORS)
+        .header(HttpHeaders.IF_NONE_MATCH, entityTag.toString())
+        .accept(MediaType.APPLICATION_JSON).get(ClientResponse.class);
+    assertEquals(Status.NOT_MODIFIED, response.getClientResponseStatus());
+
+    JSONObject changes = r.path(StramWebServices.PATH).path(StramWebServices.PATH_CHANGES)
+        .accept(MediaType.APPLICATION_JSON).get(JSONObject.class);
+    assertTrue("full", changes.getBoolean("full"));
+    changes = r.path(StramWebServices.PATH).path(StramWebServices.PATH_CHANGES)
+        .queryParam("since", changes.getString("id")).queryParam("waitTime", "10")
+        .accept(MediaType.APPLICATION_JSON).get(JSONObject.class);
+    Assert.assertFalse("full", changes.getBoolean("full"));
+    assertEquals("changed operators", 0, changes.getJSONArray("operators").length());
+
+    long start = System.currentTimeMillis();
+    r.path(StramWebServices.PATH).path(StramWebServices.PATH_CHANGES)
+        .queryParam("since", changes.getString("id")).queryParam("waitTime", "600000")
+        .accept(MediaType.APPLICATION_JSON).get(JSONObject.class);
+    long elapsed = System.currentTimeMillis() - start;
+    assertTrue("wait time capped at " + elapsed, elapsed < 2 * StramWebServices.WAIT_TIME);
+  }
+
+  @Test
+  public void testPlanSnapshotComparison() throws Exception
+  {
+    JSONObject value = new JSONObject("{\"a\": 1, \"b\": [1, 2.5, {\"c\": \"x\"}], \"d\": null}");
+    Assert.assertTrue("same", PlanSnapshot.jsonEquals(value,
+        new JSONObject("{\"d\": null, \"b\": [1, 2.5, {\"c\": \"x\"}], \"a\": 1}")));
+    Assert.assertFalse("nested field", PlanSnapshot.jsonEquals(value,
+        new JSONObject("{\"a\": 1, \"b\": [1, 2.5, {\"c\": \"y\"}], \"d\": null}")));
+    Assert.assertFalse("element", PlanSnapshot.jsonEquals(value,
+        new JSONObject("{\"a\": 1, \"b\": [1, 2.5], \"d\": null}")));
+    Assert.assertFalse("field", PlanSnapshot.jsonEquals(value, new JSONObject("{\"a\": 1, \"b\": [], \"e\": 2}")));
+  }
+
   @Test
   public void testSubmitLogicalPlanChange() throws JSONException, Exception
   {